@@ -13,6 +13,8 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
 import java.sql.SQLException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -26,6 +28,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
 import java.util.TimeZone;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -306,6 +310,16 @@ public class LogAnalyser {
      */
     private static Date logEndDate = null;
 
+    /**
+     * the number of log file chunks analysed at the same time
+     */
+    private static int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * the size of the parts the log files are split in to be analysed in parallel
+     */
+    private static final long CHUNK_SIZE = 16 * 1024 * 1024;
+
     /**
      * Default constructor
      */
@@ -371,6 +385,10 @@ public class LogAnalyser {
             if (argv[i].equals("-lookup")) {
                 myLookUp = true;
             }
+
+            if (argv[i].equals("-threads")) {
+                threads = Integer.parseInt(argv[i + 1]);
+            }
         }
 
         // now call the method which actually processes the logs
@@ -422,10 +440,6 @@ public class LogAnalyser {
         // set the parameters for this analysis
         setParameters(myLogDir, myFileTemplate, myConfigFile, myOutFile, myStartDate, myEndDate, myLookUp);
 
-        // pre prepare our standard file readers and buffered readers
-        FileReader fr = null;
-        BufferedReader br = null;
-
         // read in the config information, throwing an error if we fail to open
         // the given config file
         readConfig(configFile);
@@ -437,139 +451,35 @@ public class LogAnalyser {
         // get the log files
         File[] logFiles = getLogFiles(logDir);
 
-        // standard loop counter
-        int i = 0;
-
-        // for every log file do analysis
+        // split the log files into chunks, analysed in parallel on a fork/join
+        // pool.  Each chunk is aggregated on its own, and the aggregates are
+        // merged at the end
         // FIXME: it is easy to implement not processing log files after the
         // dates exceed the end boundary, but is there an easy way to do it
         // for the start of the file?  Note that we can assume that the contents
         // of the log file are sequential, but can we assume the files are
         // provided in a data sequence?
-        for (i = 0; i < logFiles.length; i++) {
+        List<LogFileChunk> chunks = new ArrayList<LogFileChunk>();
+        for (File logFile : logFiles) {
             // check to see if this file is a log file agains the global regex
-            Matcher matchRegex = logRegex.matcher(logFiles[i].getName());
+            Matcher matchRegex = logRegex.matcher(logFile.getName());
             if (matchRegex.matches()) {
-                // if it is a log file, open it up and lets have a look at the
-                // contents.
-                try {
-                    fr = new FileReader(logFiles[i].toString());
-                    br = new BufferedReader(fr);
-                } catch (IOException e) {
-                    System.out.println("Failed to read log file " + logFiles[i].toString());
-                    System.exit(0);
-                }
-
-                // for each line in the file do the analysis
-                // FIXME: perhaps each section needs to be dolled out to an
-                // analysing class to allow pluggability of other methods of
-                // analysis, and ease of code reading too - Pending further thought
-                String line = null;
-                while ((line = br.readLine()) != null) {
-                    // get the log line object
-                    LogLine logLine = getLogLine(line);
-
-                    // if there are line segments get on with the analysis
-                    if (logLine != null) {
-                        // first find out if we are constraining by date and
-                        // if so apply the restrictions
-                        if ((startDate != null) && (!logLine.afterDate(startDate))) {
-                            continue;
-                        }
-
-                        if ((endDate != null) && (!logLine.beforeDate(endDate))) {
-                            break;
-                        }
-
-                        // count the number of lines parsed
-                        lineCount++;
-
-                        // if we are not constrained by date, register the date
-                        // as the start/end date if it is the earliest/latest so far
-                        // FIXME: this should probably have a method of its own
-                        if (startDate == null) {
-                            if (logStartDate != null) {
-                                if (logLine.beforeDate(logStartDate)) {
-                                    logStartDate = logLine.getDate();
-                                }
-                            } else {
-                                logStartDate = logLine.getDate();
-                            }
-                        }
-
-                        if (endDate == null) {
-                            if (logEndDate != null) {
-                                if (logLine.afterDate(logEndDate)) {
-                                    logEndDate = logLine.getDate();
-                                }
-                            } else {
-                                logEndDate = logLine.getDate();
-                            }
-                        }
-
-                        // count the warnings
-                        if (logLine.isLevel("WARN")) {
-                            // FIXME: really, this ought to be some kind of level
-                            // aggregator
-                            warnCount++;
-                        }
-                        // count the exceptions
-                        if (logLine.isLevel("ERROR")) {
-                            excCount++;
-                        }
-
-                        if (null == logLine.getAction()) {
-                            continue;
-                        }
-
-                        // is the action a search?
-                        if (logLine.isAction("search")) {
-                            // get back all the valid search words from the query
-                            String[] words = analyseQuery(logLine.getParams());
-
-                            // for each search word add to the aggregator or
-                            // increment the aggregator's counter
-                            for (int j = 0; j < words.length; j++) {
-                                // FIXME: perhaps aggregators ought to be objects
-                                // themselves
-                                searchAggregator.put(words[j], increment(searchAggregator, words[j]));
-                            }
-                        }
-
-                        // is the action a login, and are we counting user logins?
-                        if (logLine.isAction("login") && !userEmail.equals("off")) {
-                            userAggregator.put(logLine.getUser(), increment(userAggregator, logLine.getUser()));
-                        }
-
-                        // is the action an item view?
-                        if (logLine.isAction("view_item")) {
-                            String handle = logLine.getParams();
-
-                            // strip the handle string
-                            Matcher matchHandle = handleRX.matcher(handle);
-                            handle = matchHandle.replaceAll("");
-
-                            // strip the item id string
-                            Matcher matchItem = itemRX.matcher(handle);
-                            handle = matchItem.replaceAll("").trim();
-
-                            // either add the handle to the aggregator or
-                            // increment its counter
-                            itemAggregator.put(handle, increment(itemAggregator, handle));
-                        }
-
-                        // log all the activity
-                        actionAggregator.put(logLine.getAction(), increment(actionAggregator, logLine.getAction()));
-                    }
-                }
-
-                // close the file reading buffers
-                br.close();
-                fr.close();
-
+                chunks.addAll(LogFileChunk.split(logFile, CHUNK_SIZE));
             }
         }
 
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new AnalysisTask(chunks)).addTo();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+
+        // standard loop counter
+        int i = 0;
+
         // do we want to do a database lookup?  Do so only if the start and
         // end dates are null or lookUp is true
         // FIXME: this is a kind of separate section.  Would it be worth building
@@ -1221,6 +1131,204 @@ public class LogAnalyser {
     }
 
 
+    /**
+     * The aggregates of a part of the log files.  Each chunk of the log files
+     * is analysed into its own aggregates, so that chunks can be analysed in
+     * parallel, and the aggregates are merged in the end.
+     */
+    protected static class Aggregates {
+        private final Map<String, Integer> actions = new HashMap<String, Integer>();
+        private final Map<String, Integer> searches = new HashMap<String, Integer>();
+        private final Map<String, Integer> users = new HashMap<String, Integer>();
+        private final Map<String, Integer> items = new HashMap<String, Integer>();
+        private int warnings = 0;
+        private int exceptions = 0;
+        private int lines = 0;
+        private Date firstDate = null;
+        private Date lastDate = null;
+
+        /**
+         * analyse a log line into the aggregates
+         *
+         * @param line the log line
+         * @return false if the line is after the end date, so that the rest
+         * of the log file does not need to be read
+         */
+        protected boolean analyse(String line) {
+            // get the log line object
+            LogLine logLine = getLogLine(line);
+
+            // if there are line segments get on with the analysis
+            if (logLine == null) {
+                return true;
+            }
+
+            // first find out if we are constraining by date and
+            // if so apply the restrictions
+            if ((startDate != null) && (!logLine.afterDate(startDate))) {
+                return true;
+            }
+
+            if ((endDate != null) && (!logLine.beforeDate(endDate))) {
+                return false;
+            }
+
+            // count the number of lines parsed
+            lines++;
+
+            // if we are not constrained by date, register the date
+            // as the start/end date if it is the earliest/latest so far
+            if (startDate == null && (firstDate == null || logLine.beforeDate(firstDate))) {
+                firstDate = logLine.getDate();
+            }
+
+            if (endDate == null && (lastDate == null || logLine.afterDate(lastDate))) {
+                lastDate = logLine.getDate();
+            }
+
+            // count the warnings
+            if (logLine.isLevel("WARN")) {
+                // FIXME: really, this ought to be some kind of level
+                // aggregator
+                warnings++;
+            }
+            // count the exceptions
+            if (logLine.isLevel("ERROR")) {
+                exceptions++;
+            }
+
+            if (null == logLine.getAction()) {
+                return true;
+            }
+
+            // is the action a search?
+            if (logLine.isAction("search")) {
+                // get back all the valid search words from the query
+                String[] words = analyseQuery(logLine.getParams());
+
+                // for each search word add to the aggregator or
+                // increment the aggregator's counter
+                for (int j = 0; j < words.length; j++) {
+                    searches.put(words[j], increment(searches, words[j]));
+                }
+            }
+
+            // is the action a login, and are we counting user logins?
+            if (logLine.isAction("login") && !userEmail.equals("off")) {
+                users.put(logLine.getUser(), increment(users, logLine.getUser()));
+            }
+
+            // is the action an item view?
+            if (logLine.isAction("view_item")) {
+                String handle = logLine.getParams();
+
+                // strip the handle string
+                Matcher matchHandle = handleRX.matcher(handle);
+                handle = matchHandle.replaceAll("");
+
+                // strip the item id string
+                Matcher matchItem = itemRX.matcher(handle);
+                handle = matchItem.replaceAll("").trim();
+
+                // either add the handle to the aggregator or
+                // increment its counter
+                items.put(handle, increment(items, handle));
+            }
+
+            // log all the activity
+            actions.put(logLine.getAction(), increment(actions, logLine.getAction()));
+            return true;
+        }
+
+        /**
+         * add the aggregates of another part of the log files to these
+         *
+         * @param other the aggregates to add
+         * @return these aggregates
+         */
+        protected Aggregates merge(Aggregates other) {
+            merge(actions, other.actions);
+            merge(searches, other.searches);
+            merge(users, other.users);
+            merge(items, other.items);
+            warnings += other.warnings;
+            exceptions += other.exceptions;
+            lines += other.lines;
+            if (other.firstDate != null && (firstDate == null || other.firstDate.before(firstDate))) {
+                firstDate = other.firstDate;
+            }
+            if (other.lastDate != null && (lastDate == null || other.lastDate.after(lastDate))) {
+                lastDate = other.lastDate;
+            }
+            return this;
+        }
+
+        /**
+         * add these aggregates to the class globals used for the output
+         */
+        protected void addTo() {
+            merge(actionAggregator, actions);
+            merge(searchAggregator, searches);
+            merge(userAggregator, users);
+            merge(itemAggregator, items);
+            warnCount += warnings;
+            excCount += exceptions;
+            lineCount += lines;
+            if (firstDate != null && (logStartDate == null || firstDate.before(logStartDate))) {
+                logStartDate = firstDate;
+            }
+            if (lastDate != null && (logEndDate == null || lastDate.after(logEndDate))) {
+                logEndDate = lastDate;
+            }
+        }
+
+        private static void merge(Map<String, Integer> into, Map<String, Integer> from) {
+            for (Map.Entry<String, Integer> entry : from.entrySet()) {
+                Integer count = into.get(entry.getKey());
+                into.put(entry.getKey(), count == null ? entry.getValue() : count + entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Analyses a list of log file chunks, splitting it in halves to be
+     * analysed in parallel down to single chunks.
+     */
+    protected static class AnalysisTask extends RecursiveTask<Aggregates> {
+        private final List<LogFileChunk> chunks;
+
+        public AnalysisTask(List<LogFileChunk> chunks) {
+            this.chunks = chunks;
+        }
+
+        @Override
+        protected Aggregates compute() {
+            if (chunks.size() > 1) {
+                AnalysisTask first = new AnalysisTask(chunks.subList(0, chunks.size() / 2));
+                AnalysisTask second = new AnalysisTask(chunks.subList(chunks.size() / 2, chunks.size()));
+                first.fork();
+                Aggregates aggregates = second.compute();
+                return first.join().merge(aggregates);
+            }
+
+            final Aggregates aggregates = new Aggregates();
+            for (LogFileChunk chunk : chunks) {
+                try {
+                    // log files are written in the platform encoding
+                    chunk.read(Charset.defaultCharset(), new LogFileChunk.LineHandler() {
+                        @Override
+                        public boolean line(String line) {
+                            return aggregates.analyse(line);
+                        }
+                    });
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to read log file " + chunk, e);
+                }
+            }
+            return aggregates;
+        }
+    }
+
     /**
      * print out the usage information for this class to the standard out
      */
@@ -1262,6 +1370,10 @@ public class LogAnalyser {
             "\tOptional\n" +
             "\tForce a lookup of the current database statistics\n" +
             "\tOnly needs to be used if date constraints are also in place\n" +
+            "-threads [number of threads]\n" +
+            "\tOptional\n" +
+            "\tSpecify the number of log file parts analysed at the same time\n" +
+            "\tDefault is the number of processors\n" +
             "-help\n" +
             "\tdisplay this usage information\n";
 
@@ -0,0 +1,159 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.app.statistics;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A byte range of a log file, read through a memory mapping so that several chunks
+ * of the same file can be analysed at the same time.
+ * <p>
+ * A chunk holds the lines which start within its range: the first line is the one
+ * starting at or after the start of the range, and the last line may extend past its
+ * end. Splitting a file into consecutive chunks therefore gives every line to exactly
+ * one chunk.
+ */
+public class LogFileChunk {
+
+    /**
+     * The largest part of a file mapped at once
+     */
+    protected static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+    protected final File file;
+    protected final long start;
+    protected final long end;
+
+    /**
+     * @param file  the log file
+     * @param start the offset of the range
+     * @param end   the offset after the range
+     */
+    public LogFileChunk(File file, long start, long end) {
+        this.file = file;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Split a file into consecutive chunks.
+     *
+     * @param file      the log file
+     * @param chunkSize the size of the chunks, in bytes
+     * @return the chunks, none for an empty file
+     */
+    public static List<LogFileChunk> split(File file, long chunkSize) {
+        List<LogFileChunk> chunks = new ArrayList<>();
+        long size = file.length();
+        for (long offset = 0; offset < size; offset += chunkSize) {
+            chunks.add(new LogFileChunk(file, offset, Math.min(size, offset + chunkSize)));
+        }
+        return chunks;
+    }
+
+    /**
+     * Receives the lines of a chunk.
+     */
+    public interface LineHandler {
+        /**
+         * @param line a line, without its line terminator
+         * @return false to stop reading the chunk
+         */
+        boolean line(String line);
+    }
+
+    /**
+     * Read the lines of this chunk, in order.
+     *
+     * @param charset the encoding of the file
+     * @param handler receives the lines
+     * @throws IOException if the file cannot be read
+     */
+    public void read(Charset charset, LineHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = start;
+            byte[] line = new byte[256];
+            if (start > 0) {
+                // the line going on at the start belongs to the previous chunk
+                position = findLineStart(channel, start - 1, size);
+            }
+            while (position < end && position < size) {
+                int windowSize = (int) Math.min(size - position, WINDOW_SIZE);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+                int lineStart = 0;
+                int i = 0;
+                while (position + lineStart < end) {
+                    while (i < windowSize && window.get(i) != '\n') {
+                        i++;
+                    }
+                    boolean lastInWindow = i == windowSize;
+                    if (lastInWindow && position + windowSize < size && lineStart > 0) {
+                        // the line goes on after the window, map the next window from its start
+                        break;
+                    }
+                    // also reached without a line terminator, at the end of the file or in a line longer
+                    // than a window
+                    int length = i - lineStart;
+                    if (length > 0 && !lastInWindow && window.get(i - 1) == '\r') {
+                        length--;
+                    }
+                    if (line.length < length) {
+                        line = new byte[Math.max(length, line.length * 2)];
+                    }
+                    window.position(lineStart);
+                    window.get(line, 0, length);
+                    if (!handler.line(new String(line, 0, length, charset))) {
+                        return;
+                    }
+                    // skip the line terminator
+                    i = lastInWindow ? i : i + 1;
+                    lineStart = i;
+                    if (lineStart >= windowSize) {
+                        break;
+                    }
+                }
+                if (lineStart == 0) {
+                    // nothing was read, the chunk is over
+                    break;
+                }
+                position += lineStart;
+            }
+        }
+    }
+
+    /**
+     * @return the offset of the first line starting after the given offset
+     */
+    private static long findLineStart(FileChannel channel, long offset, long size) throws IOException {
+        long position = offset;
+        while (position < size) {
+            int windowSize = (int) Math.min(size - position, WINDOW_SIZE);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+            for (int i = 0; i < windowSize; i++) {
+                if (window.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += windowSize;
+        }
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return file + " [" + start + ", " + end + ")";
+    }
+}
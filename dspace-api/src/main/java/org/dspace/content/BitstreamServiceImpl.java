@@ -10,8 +10,10 @@ package org.dspace.content;
 import java.io.IOException;
 import java.io.InputStream;
 import java.sql.SQLException;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.apache.commons.collections.CollectionUtils;
@@ -420,6 +422,11 @@ public class BitstreamServiceImpl extends DSpaceObjectServiceImpl<Bitstream> imp
 
     }
 
+    @Override
+    public List<Bitstream> findByLegacyIds(Context context, List<Integer> legacyIds) throws SQLException {
+        return bitstreamDAO.findByLegacyIds(context, legacyIds, Bitstream.class);
+    }
+
     @Override
     public int countDeletedBitstreams(Context context) throws SQLException {
         return bitstreamDAO.countDeleted(context);
@@ -435,6 +442,20 @@ public class BitstreamServiceImpl extends DSpaceObjectServiceImpl<Bitstream> imp
         return bitstreamDAO.getNotReferencedBitstreams(context);
     }
 
+    @Override
+    public Map<UUID, String> getBundleNames(Context context, List<UUID> bitstreamIds) throws SQLException {
+        MetadataField nameField = metadataFieldService.findByElement(context, MetadataSchema.DC_SCHEMA, "title", null);
+        if (nameField == null) {
+            return new HashMap<>();
+        }
+        return bitstreamDAO.findBundleNames(context, bitstreamIds, nameField);
+    }
+
+    @Override
+    public Map<UUID, Integer> getLogoTypes(Context context, List<UUID> bitstreamIds) throws SQLException {
+        return bitstreamDAO.findLogoTypes(context, bitstreamIds);
+    }
+
     public Long getLastModified(Bitstream bitstream) {
         return bitstreamStorageService.getLastModified(bitstream);
     }
@@ -265,6 +265,19 @@ public class CollectionServiceImpl extends DSpaceObjectServiceImpl<Collection> i
         return collectionDAO.findByID(context, Collection.class, id);
     }
 
+    @Override
+    public List<Collection> findByIds(Context context, List<UUID> ids) throws SQLException {
+        return collectionDAO.findByIds(context, Collection.class, ids);
+    }
+
+    @Override
+    public void prefetchMetadata(Context context, List<Collection> dsos, boolean handles) throws SQLException {
+        collectionDAO.prefetchMetadata(context, Collection.class, dsos);
+        if (handles) {
+            collectionDAO.prefetchHandles(context, Collection.class, dsos);
+        }
+    }
+
     @Override
     public void setMetadata(Context context, Collection collection, String field, String value)
         throws MissingResourceException, SQLException {
@@ -137,6 +137,19 @@ public class CommunityServiceImpl extends DSpaceObjectServiceImpl<Community> imp
         return communityDAO.findByID(context, Community.class, id);
     }
 
+    @Override
+    public List<Community> findByIds(Context context, List<UUID> ids) throws SQLException {
+        return communityDAO.findByIds(context, Community.class, ids);
+    }
+
+    @Override
+    public void prefetchMetadata(Context context, List<Community> dsos, boolean handles) throws SQLException {
+        communityDAO.prefetchMetadata(context, Community.class, dsos);
+        if (handles) {
+            communityDAO.prefetchHandles(context, Community.class, dsos);
+        }
+    }
+
     @Override
     public List<Community> findAll(Context context) throws SQLException {
         MetadataField sortField = metadataFieldService.findByElement(context, MetadataSchema.DC_SCHEMA, "title", null);
@@ -52,6 +52,13 @@ public abstract class DSpaceObject implements Serializable, ReloadableEntity<jav
     @OrderBy("metadataField, place")
     private List<MetadataValue> metadata = new ArrayList<>();
 
+    /**
+     * Index of the metadata by field, built when the metadata is first looked up.
+     * It is not serialized with the object, but built again when needed.
+     */
+    @Transient
+    private transient MetadataIndex metadataIndex = null;
+
     @OneToMany(fetch = FetchType.LAZY, mappedBy = "dso")
     // Order by is here to ensure that the oldest handle is retrieved first,
     // multiple handles are assigned to the latest version of an item the original handle will have the lowest
@@ -156,6 +163,17 @@ public abstract class DSpaceObject implements Serializable, ReloadableEntity<jav
 
     public void setMetadata(List<MetadataValue> metadata) {
         this.metadata = metadata;
+        this.metadataIndex = null;
+    }
+
+    /**
+     * @return the index of the metadata, up to date with the metadata
+     */
+    MetadataIndex getMetadataIndex() {
+        if (metadataIndex == null || !metadataIndex.isIndexOf(metadata)) {
+            metadataIndex = new MetadataIndex(metadata);
+        }
+        return metadataIndex;
     }
 
     protected void removeMetadata(MetadataValue metadataValue) {
@@ -170,8 +188,14 @@ public abstract class DSpaceObject implements Serializable, ReloadableEntity<jav
 
 
     protected void addMetadata(MetadataValue metadataValue) {
+        // only an up to date index is kept, building one here would load lazy metadata
+        MetadataIndex index = metadataIndex != null && metadataIndex.isIndexOf(metadata) ? metadataIndex : null;
         setMetadataModified();
         getMetadata().add(metadataValue);
+        if (index != null) {
+            index.add(metadataValue);
+            metadataIndex = index;
+        }
         addDetails(metadataValue.getMetadataField().toString());
     }
 
@@ -185,6 +209,8 @@ public abstract class DSpaceObject implements Serializable, ReloadableEntity<jav
 
     protected void setMetadataModified() {
         this.modifiedMetadata = true;
+        // values may have been removed from the metadata, the index is built again when needed
+        this.metadataIndex = null;
     }
 
     public boolean isModified() {
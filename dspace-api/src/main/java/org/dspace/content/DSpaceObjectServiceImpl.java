@@ -125,9 +125,15 @@ public abstract class DSpaceObjectServiceImpl<T extends DSpaceObject> implements
 
     @Override
     public List<MetadataValue> getMetadata(T dso, String schema, String element, String qualifier, String lang) {
+        // Only the values of the matching fields need to be compared, if the index can tell them
+        List<MetadataValue> candidates = dso.getMetadataIndex().find(schema, element, qualifier);
+        if (candidates == null) {
+            candidates = dso.getMetadata();
+        }
+
         // Build up list of matching values
         List<MetadataValue> values = new ArrayList<MetadataValue>();
-        for (MetadataValue dcv : dso.getMetadata()) {
+        for (MetadataValue dcv : candidates) {
             if (match(schema, element, qualifier, lang, dcv)) {
                 values.add(dcv);
             }
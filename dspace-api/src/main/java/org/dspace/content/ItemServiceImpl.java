@@ -156,6 +156,24 @@ public class ItemServiceImpl extends DSpaceObjectServiceImpl<Item> implements It
         return item;
     }
 
+    @Override
+    public List<Item> findByIds(Context context, List<UUID> ids) throws SQLException {
+        return itemDAO.findByIds(context, Item.class, ids);
+    }
+
+    @Override
+    public void prefetchMetadata(Context context, List<Item> dsos, boolean handles) throws SQLException {
+        itemDAO.prefetchMetadata(context, Item.class, dsos);
+        if (handles) {
+            itemDAO.prefetchHandles(context, Item.class, dsos);
+        }
+    }
+
+    @Override
+    public void prefetchBundles(Context context, List<Item> items) throws SQLException {
+        itemDAO.prefetchBundles(context, items);
+    }
+
     @Override
     public Item create(Context context, WorkspaceItem workspaceItem) throws SQLException, AuthorizeException {
         if (workspaceItem.getItem() != null) {
@@ -209,6 +227,33 @@ public class ItemServiceImpl extends DSpaceObjectServiceImpl<Item> implements It
         return itemDAO.findAll(context, true, true);
     }
 
+    @Override
+    public Iterator<Item> findAllUnfilteredInRange(Context context, UUID after, UUID upTo) throws SQLException {
+        return itemDAO.findAllUnfilteredInRange(context, after, upTo);
+    }
+
+    @Override
+    public List<UUID> findUnfilteredPartitionBoundaries(Context context, int partitions) throws SQLException {
+        List<UUID> boundaries = new ArrayList<>();
+        if (partitions <= 1) {
+            return boundaries;
+        }
+        int total = itemDAO.countItems(context, true, false) + itemDAO.countItems(context, false, true)
+            + itemDAO.countItems(context, true, true);
+        int size = total / partitions;
+        if (size == 0) {
+            return boundaries;
+        }
+        for (int i = 1; i < partitions; i++) {
+            UUID boundary = itemDAO.findUnfilteredIdAtOffset(context, i * size - 1);
+            if (boundary == null) {
+                break;
+            }
+            boundaries.add(boundary);
+        }
+        return boundaries;
+    }
+
     @Override
     public Iterator<Item> findBySubmitter(Context context, EPerson eperson) throws SQLException {
         return itemDAO.findBySubmitter(context, eperson);
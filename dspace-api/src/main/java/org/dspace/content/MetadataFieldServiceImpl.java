@@ -42,6 +42,8 @@ public class MetadataFieldServiceImpl implements MetadataFieldService {
     protected AuthorizeService authorizeService;
     @Autowired(required = true)
     protected MetadataValueService metadataValueService;
+    @Autowired(required = true)
+    protected MetadataRegistryCache metadataRegistryCache;
 
     protected MetadataFieldServiceImpl() {
 
@@ -70,6 +72,7 @@ public class MetadataFieldServiceImpl implements MetadataFieldService {
         metadataField.setMetadataSchema(metadataSchema);
         metadataField = metadataFieldDAO.create(context, metadataField);
         metadataFieldDAO.save(context, metadataField);
+        metadataRegistryCache.invalidate();
 
         log.info(LogManager.getHeader(context, "create_metadata_field",
                                       "metadata_field_id=" + metadataField.getID()));
@@ -84,14 +87,27 @@ public class MetadataFieldServiceImpl implements MetadataFieldService {
     @Override
     public MetadataField findByElement(Context context, MetadataSchema metadataSchema, String element, String qualifier)
         throws SQLException {
-        return metadataFieldDAO.findByElement(context, metadataSchema, element, qualifier);
+        return findByElement(context, metadataSchema.getName(), element, qualifier);
     }
 
 
     @Override
     public MetadataField findByElement(Context context, String metadataSchemaName, String element, String qualifier)
         throws SQLException {
-        return metadataFieldDAO.findByElement(context, metadataSchemaName, element, qualifier);
+        Integer id = metadataRegistryCache.getFieldId(context, metadataSchemaName, element, qualifier);
+        if (id != null) {
+            MetadataField metadataField = find(context, id);
+            if (metadataField != null
+                && MetadataRegistryCache.hasName(metadataField, metadataSchemaName, element, qualifier)) {
+                return metadataField;
+            }
+        }
+        // the field is not in the registry, or it changed since the snapshot was taken
+        MetadataField metadataField = metadataFieldDAO.findByElement(context, metadataSchemaName, element, qualifier);
+        if (metadataField != null || id != null) {
+            metadataRegistryCache.invalidate();
+        }
+        return metadataField;
     }
 
     @Override
@@ -128,6 +144,7 @@ public class MetadataFieldServiceImpl implements MetadataFieldService {
         }
 
         metadataFieldDAO.save(context, metadataField);
+        metadataRegistryCache.invalidate();
 
         log.info(LogManager.getHeader(context, "update_metadatafieldregistry",
                                       "metadata_field_id=" + metadataField.getID() + "element=" + metadataField
@@ -154,6 +171,7 @@ public class MetadataFieldServiceImpl implements MetadataFieldService {
         // Only remove this field if it is NOT in use (as we don't want to bulk delete metadata values)
         if (CollectionUtils.isEmpty(values)) {
             metadataFieldDAO.delete(context, metadataField);
+            metadataRegistryCache.invalidate();
         } else {
             throw new IllegalStateException("Metadata field " + metadataField
                 .toString() + " cannot be deleted as it is currently used by one or more objects.");
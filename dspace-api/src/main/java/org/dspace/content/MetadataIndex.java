@@ -0,0 +1,115 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Index of the metadata values of a DSpace object by field, and by schema and element for
+ * the lookups with wildcards. The values of each entry are in the order of the metadata of
+ * the object.
+ *
+ * The index is built from the metadata list when it is first needed, and kept by the object
+ * while the list only grows through {@link #add(MetadataValue)}.
+ */
+class MetadataIndex {
+
+    private final List<MetadataValue> metadata;
+    private int size = 0;
+
+    /**
+     * False if a value has a field without ID or schema, which only the full scan can match
+     */
+    private boolean usable = true;
+
+    private final Map<Integer, List<MetadataValue>> byField = new HashMap<>();
+    private final Map<String, Integer> fieldIds = new HashMap<>();
+    private final Map<String, List<MetadataValue>> byElement = new HashMap<>();
+    private final Map<String, List<MetadataValue>> bySchema = new HashMap<>();
+
+    /**
+     * @param metadata the metadata of an object
+     */
+    MetadataIndex(List<MetadataValue> metadata) {
+        this.metadata = metadata;
+        for (MetadataValue value : metadata) {
+            add(value);
+        }
+    }
+
+    /**
+     * @param metadata the metadata of an object
+     * @return whether this is an up to date index of the metadata
+     */
+    boolean isIndexOf(List<MetadataValue> metadata) {
+        return this.metadata == metadata && size == metadata.size();
+    }
+
+    /**
+     * Index a value appended to the metadata.
+     *
+     * @param value the last value of the metadata
+     */
+    void add(MetadataValue value) {
+        size++;
+        MetadataField field = value.getMetadataField();
+        if (!usable || field == null || field.getID() == null || field.getMetadataSchema() == null) {
+            usable = false;
+            return;
+        }
+        String schema = field.getMetadataSchema().getName();
+        String element = schema + "." + field.getElement();
+        append(byField, field.getID(), value);
+        append(byElement, element, value);
+        append(bySchema, schema, value);
+        fieldIds.put(field.getQualifier() == null ? element : element + "." + field.getQualifier(), field.getID());
+    }
+
+    /**
+     * Find the values which may match a lookup. The wildcard {@link Item#ANY} is allowed for
+     * the element and the qualifier, a blank qualifier matches unqualified fields only.
+     *
+     * @param schema    the schema name
+     * @param element   the element
+     * @param qualifier the qualifier
+     * @return the values of the fields matching the lookup, in the order of the metadata,
+     * or null if the index cannot tell and all values need to be matched
+     */
+    List<MetadataValue> find(String schema, String element, String qualifier) {
+        if (!usable || Item.ANY.equals(schema)) {
+            return null;
+        }
+        List<MetadataValue> values;
+        if (Item.ANY.equals(element)) {
+            values = bySchema.get(schema);
+        } else if (Item.ANY.equals(qualifier)) {
+            values = byElement.get(schema + "." + element);
+        } else {
+            String key = StringUtils.isBlank(qualifier) ? schema + "." + element
+                : schema + "." + element + "." + qualifier;
+            Integer fieldId = fieldIds.get(key);
+            values = fieldId != null ? byField.get(fieldId) : null;
+        }
+        return values != null ? values : Collections.<MetadataValue>emptyList();
+    }
+
+    private static <K> void append(Map<K, List<MetadataValue>> index, K key, MetadataValue value) {
+        List<MetadataValue> values = index.get(key);
+        if (values == null) {
+            values = new ArrayList<>(1);
+            index.put(key, values);
+        }
+        values.add(value);
+    }
+}
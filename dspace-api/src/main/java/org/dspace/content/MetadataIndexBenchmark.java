@@ -0,0 +1,211 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.PosixParser;
+
+/**
+ * Measures the time spent by {@link DSpaceObjectServiceImpl#getMetadata(DSpaceObject, String, String, String,
+ * String)} on the lookups made when an item is displayed or indexed, comparing the linear scan of all
+ * values with the {@link MetadataIndex}, for items with more and more values (mostly authors, subjects
+ * and provenance). Builds the items in memory; run with:
+ * <pre>
+ * dspace dsrun org.dspace.content.MetadataIndexBenchmark [-v 20,50,200,1000]
+ * </pre>
+ */
+public class MetadataIndexBenchmark {
+
+    /**
+     * The lookups of an item page: schema, element, qualifier
+     */
+    private static final String[][] LOOKUPS = {
+        {"dc", "title", null},
+        {"dc", "title", "alternative"},
+        {"dc", "contributor", "author"},
+        {"dc", "contributor", Item.ANY},
+        {"dc", "date", "issued"},
+        {"dc", "identifier", "uri"},
+        {"dc", "identifier", "citation"},
+        {"dc", "description", "abstract"},
+        {"dc", "subject", Item.ANY},
+        {"dc", "publisher", null},
+        {"dc", "type", null},
+        {"dc", "relation", "ispartof"},
+    };
+
+    /**
+     * The number of times the lookups are timed, the fastest counts
+     */
+    private static final int RUNS = 10;
+
+    private static final ItemServiceImpl itemService = new ItemServiceImpl();
+
+    private static final MetadataSchema dc = new MetadataSchema();
+
+    private static final List<MetadataField> fields = new ArrayList<>();
+
+    private static int fieldIds = 0;
+
+    /**
+     * Default constructor
+     */
+    private MetadataIndexBenchmark() { }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineParser parser = new PosixParser();
+        Options options = new Options();
+        options.addOption("v", "values", true, "comma separated numbers of values per item (default 20,50,200,1000)");
+        options.addOption("n", "items", true, "number of items per run (default 1000)");
+        options.addOption("h", "help", false, "help");
+        CommandLine line = parser.parse(options, args);
+        if (line.hasOption('h')) {
+            new HelpFormatter().printHelp("MetadataIndexBenchmark", options);
+            System.exit(0);
+        }
+        int items = Integer.parseInt(line.getOptionValue('n', "1000"));
+        dc.setName("dc");
+
+        System.out.println(LOOKUPS.length + " lookups per item, " + items + " items per run");
+        // compiles the lookups before the first timings
+        measure(200, items, false);
+        for (String size : line.getOptionValue('v', "20,50,200,1000").split(",")) {
+            measure(Integer.parseInt(size.trim()), items, true);
+        }
+    }
+
+    /**
+     * Time the lookups with each method, keeping the fastest of the runs.
+     *
+     * @param values the number of values per item
+     * @param items  the number of items
+     * @param print  whether to print the timings
+     */
+    private static void measure(int values, int items, boolean print) {
+        List<Item> objects = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            objects.add(item(values));
+        }
+        long[] best = {Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE};
+        int found = 0;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            found = 0;
+            for (Item item : objects) {
+                for (String[] lookup : LOOKUPS) {
+                    for (MetadataValue value : item.getMetadata()) {
+                        if (itemService.match(lookup[0], lookup[1], lookup[2], Item.ANY, value)) {
+                            found++;
+                        }
+                    }
+                }
+            }
+            best[0] = Math.min(best[0], System.nanoTime() - start);
+
+            start = System.nanoTime();
+            found = 0;
+            for (Item item : objects) {
+                // a new index for every item, as when items are loaded from the database
+                item.setMetadata(item.getMetadata());
+                for (String[] lookup : LOOKUPS) {
+                    found += itemService.getMetadata(item, lookup[0], lookup[1], lookup[2], Item.ANY).size();
+                }
+            }
+            best[1] = Math.min(best[1], System.nanoTime() - start);
+
+            start = System.nanoTime();
+            found = 0;
+            for (Item item : objects) {
+                for (String[] lookup : LOOKUPS) {
+                    found += itemService.getMetadata(item, lookup[0], lookup[1], lookup[2], Item.ANY).size();
+                }
+            }
+            best[2] = Math.min(best[2], System.nanoTime() - start);
+        }
+        if (print) {
+            report(values + " values, linear scan", best[0], items, found);
+            report(values + " values, index built", best[1], items, found);
+            report(values + " values, index kept", best[2], items, found);
+        }
+    }
+
+    /**
+     * @param values the number of values
+     * @return an item with the usual fields, repeating authors, subjects and provenance up to the number of values
+     */
+    private static Item item(int values) {
+        Item item = new Item();
+        String[][] single = {
+            {"title", null}, {"title", "alternative"}, {"date", "issued"}, {"date", "accessioned"},
+            {"date", "available"}, {"identifier", "uri"}, {"identifier", "citation"}, {"description", "abstract"},
+            {"publisher", null}, {"type", null}, {"language", "iso"}, {"format", "mimetype"},
+        };
+        String[][] repeated = {
+            {"contributor", "author"}, {"subject", null}, {"subject", "other"}, {"description", "provenance"},
+        };
+        for (String[] field : single) {
+            if (item.getMetadata().size() < values) {
+                add(item, field[0], field[1]);
+            }
+        }
+        for (int i = 0; item.getMetadata().size() < values; i++) {
+            String[] field = repeated[i % repeated.length];
+            add(item, field[0], field[1]);
+        }
+        return item;
+    }
+
+    private static void add(Item item, String element, String qualifier) {
+        MetadataField field = null;
+        for (MetadataField known : fields) {
+            if (known.getElement().equals(element) && (qualifier == null ? known.getQualifier() == null
+                : qualifier.equals(known.getQualifier()))) {
+                field = known;
+            }
+        }
+        if (field == null) {
+            field = new Field(++fieldIds);
+            field.setMetadataSchema(dc);
+            field.setElement(element);
+            field.setQualifier(qualifier);
+            fields.add(field);
+        }
+        MetadataValue value = new MetadataValue();
+        value.setMetadataField(field);
+        value.setValue(element + " " + item.getMetadata().size());
+        value.setDSpaceObject(item);
+        item.addMetadata(value);
+    }
+
+    private static void report(String name, long elapsed, int items, int found) {
+        System.out.println(String.format("%-32s %10.0f ns/lookup  (%d matched)", name,
+                                         (double) elapsed / items / LOOKUPS.length, found));
+    }
+
+    /**
+     * A field of the registry, without database
+     */
+    private static class Field extends MetadataField {
+        private final Integer id;
+
+        Field(Integer id) {
+            this.id = id;
+        }
+
+        @Override
+        public Integer getID() {
+            return id;
+        }
+    }
+}
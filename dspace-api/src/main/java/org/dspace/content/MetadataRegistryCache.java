@@ -0,0 +1,143 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.dspace.content.dao.MetadataFieldDAO;
+import org.dspace.content.dao.MetadataSchemaDAO;
+import org.dspace.core.Context;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Snapshot of the metadata registry, mapping schema names and field names to their IDs,
+ * so that the registry services can find schemas and fields by name without querying the
+ * database. The entities themselves are then looked up by ID, from the Hibernate caches.
+ *
+ * The snapshot is loaded on the first lookup and is never changed: the registry services
+ * drop it when they change the registry, and the next lookup loads a new one. As changes
+ * made by other processes or not committed yet are not seen, the services check the
+ * entities they find through the snapshot, and query the database when it is wrong.
+ *
+ * This class should never be accessed directly.
+ */
+public class MetadataRegistryCache {
+
+    private static final Logger log = Logger.getLogger(MetadataRegistryCache.class);
+
+    @Autowired(required = true)
+    protected MetadataFieldDAO metadataFieldDAO;
+
+    @Autowired(required = true)
+    protected MetadataSchemaDAO metadataSchemaDAO;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
+    /**
+     * Incremented when the snapshot is dropped, so that a snapshot loaded meanwhile is not kept
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    protected MetadataRegistryCache() {
+
+    }
+
+    /**
+     * @param context   The relevant DSpace Context.
+     * @param schema    the schema name
+     * @param element   the element
+     * @param qualifier the qualifier, blank for unqualified fields
+     * @return the ID of the field, null if it was not in the registry when the snapshot was taken
+     * @throws SQLException if the snapshot cannot be loaded
+     */
+    public Integer getFieldId(Context context, String schema, String element, String qualifier)
+        throws SQLException {
+        return getSnapshot(context).fieldIds.get(makeFieldKey(schema, element, qualifier));
+    }
+
+    /**
+     * @param context The relevant DSpace Context.
+     * @param name    the schema name
+     * @return the ID of the schema, null if it was not in the registry when the snapshot was taken
+     * @throws SQLException if the snapshot cannot be loaded
+     */
+    public Integer getSchemaId(Context context, String name) throws SQLException {
+        return getSnapshot(context).schemaIds.get(name);
+    }
+
+    /**
+     * Drop the snapshot after a change of the registry, the next lookup loads a new one.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        snapshot.set(null);
+    }
+
+    /**
+     * @param field     a metadata field
+     * @param schema    the schema name
+     * @param element   the element
+     * @param qualifier the qualifier, blank for unqualified fields
+     * @return whether the field has this name
+     */
+    public static boolean hasName(MetadataField field, String schema, String element, String qualifier) {
+        return field.getMetadataSchema() != null
+            && makeFieldKey(schema, element, qualifier).equals(
+                makeFieldKey(field.getMetadataSchema().getName(), field.getElement(), field.getQualifier()));
+    }
+
+    protected Snapshot getSnapshot(Context context) throws SQLException {
+        Snapshot current = snapshot.get();
+        if (current == null) {
+            long loadedGeneration = generation.get();
+            current = load(context);
+            if (generation.get() == loadedGeneration) {
+                snapshot.compareAndSet(null, current);
+            }
+        }
+        return current;
+    }
+
+    protected Snapshot load(Context context) throws SQLException {
+        Map<String, Integer> schemaIds = new HashMap<>();
+        for (MetadataSchema schema : metadataSchemaDAO.findAll(context, MetadataSchema.class)) {
+            schemaIds.put(schema.getName(), schema.getID());
+        }
+        Map<String, Integer> fieldIds = new HashMap<>();
+        for (MetadataField field : metadataFieldDAO.findAll(context, MetadataField.class)) {
+            fieldIds.put(makeFieldKey(field.getMetadataSchema().getName(), field.getElement(), field.getQualifier()),
+                         field.getID());
+        }
+        log.info("Loaded " + schemaIds.size() + " metadata schemas and " + fieldIds.size() + " metadata fields");
+        return new Snapshot(schemaIds, fieldIds);
+    }
+
+    private static String makeFieldKey(String schema, String element, String qualifier) {
+        return StringUtils.isBlank(qualifier) ? schema + "." + element : schema + "." + element + "." + qualifier;
+    }
+
+    /**
+     * The names and IDs of the registry at a point in time
+     */
+    protected static class Snapshot {
+        private final Map<String, Integer> schemaIds;
+        private final Map<String, Integer> fieldIds;
+
+        Snapshot(Map<String, Integer> schemaIds, Map<String, Integer> fieldIds) {
+            this.schemaIds = Collections.unmodifiableMap(schemaIds);
+            this.fieldIds = Collections.unmodifiableMap(fieldIds);
+        }
+    }
+}
@@ -9,6 +9,7 @@ package org.dspace.content;
 
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.List;
 import java.util.UUID;
 
 import org.dspace.authorize.AuthorizeException;
@@ -65,6 +66,11 @@ public class SiteServiceImpl extends DSpaceObjectServiceImpl<Site> implements Si
         return siteDAO.findByID(context, Site.class, id);
     }
 
+    @Override
+    public List<Site> findByIds(Context context, List<UUID> ids) throws SQLException {
+        return siteDAO.findByIds(context, Site.class, ids);
+    }
+
     @Override
     public void updateLastModified(Context context, Site dso) throws SQLException, AuthorizeException {
         //Not used at the moment
@@ -10,11 +10,15 @@ package org.dspace.content.dao;
 import java.sql.SQLException;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 import org.dspace.content.Bitstream;
 import org.dspace.content.Collection;
 import org.dspace.content.Community;
 import org.dspace.content.Item;
+import org.dspace.content.MetadataField;
+import org.dspace.core.Constants;
 import org.dspace.core.Context;
 
 /**
@@ -52,4 +56,21 @@ public interface BitstreamDAO extends DSpaceObjectLegacySupportDAO<Bitstream> {
     int countWithNoPolicy(Context context) throws SQLException;
 
     List<Bitstream> getNotReferencedBitstreams(Context context) throws SQLException;
+
+    /**
+     * @param context   the dspace context
+     * @param ids       the bitstreams
+     * @param nameField the metadata field holding the bundle names
+     * @return the name of a bundle of each of the bitstreams in a bundle
+     * @throws SQLException if database error
+     */
+    Map<UUID, String> findBundleNames(Context context, List<UUID> ids, MetadataField nameField) throws SQLException;
+
+    /**
+     * @param context the dspace context
+     * @param ids     the bitstreams
+     * @return {@link Constants#COLLECTION} or {@link Constants#COMMUNITY} for each of the bitstreams which is a logo
+     * @throws SQLException if database error
+     */
+    Map<UUID, Integer> findLogoTypes(Context context, List<UUID> ids) throws SQLException;
 }
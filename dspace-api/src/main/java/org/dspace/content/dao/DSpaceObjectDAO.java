@@ -7,7 +7,12 @@
  */
 package org.dspace.content.dao;
 
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+
 import org.dspace.content.DSpaceObject;
+import org.dspace.core.Context;
 import org.dspace.core.GenericDAO;
 
 /**
@@ -18,4 +23,35 @@ import org.dspace.core.GenericDAO;
  * @author kevinvandevelde at atmire.com
  */
 public interface DSpaceObjectDAO<T extends DSpaceObject> extends GenericDAO<T> {
+
+    /**
+     * Find the objects with the given UUIDs, together with their metadata values.
+     *
+     * @param context current DSpace context
+     * @param clazz   the class of the objects
+     * @param ids     the UUIDs of the objects
+     * @return the objects found, in the order of the given UUIDs
+     * @throws SQLException if database error
+     */
+    public List<T> findByIds(Context context, Class<T> clazz, List<UUID> ids) throws SQLException;
+
+    /**
+     * Load the metadata values of the objects which do not have them loaded yet.
+     *
+     * @param context current DSpace context
+     * @param clazz   the class of the objects
+     * @param dsos    the objects
+     * @throws SQLException if database error
+     */
+    public void prefetchMetadata(Context context, Class<T> clazz, List<T> dsos) throws SQLException;
+
+    /**
+     * Load the handles of the objects which do not have them loaded yet.
+     *
+     * @param context current DSpace context
+     * @param clazz   the class of the objects
+     * @param dsos    the objects
+     * @throws SQLException if database error
+     */
+    public void prefetchHandles(Context context, Class<T> clazz, List<T> dsos) throws SQLException;
 }
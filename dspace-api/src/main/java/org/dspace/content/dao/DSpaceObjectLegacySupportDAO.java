@@ -8,6 +8,7 @@
 package org.dspace.content.dao;
 
 import java.sql.SQLException;
+import java.util.List;
 
 import org.dspace.content.DSpaceObject;
 import org.dspace.core.Context;
@@ -23,4 +24,15 @@ import org.dspace.core.Context;
 public interface DSpaceObjectLegacySupportDAO<T extends DSpaceObject> extends DSpaceObjectDAO<T> {
 
     public T findByLegacyId(Context context, int legacyId, Class<T> clazz) throws SQLException;
+
+    /**
+     * Find the DSOs with the given legacy ids, in as few queries as possible.
+     *
+     * @param context   current DSpace context.
+     * @param legacyIds the old integer record identifiers.
+     * @param clazz     DSO subtype of the records.
+     * @return the records found, in no particular order.
+     * @throws SQLException if database error
+     */
+    public List<T> findByLegacyIds(Context context, List<Integer> legacyIds, Class<T> clazz) throws SQLException;
 }
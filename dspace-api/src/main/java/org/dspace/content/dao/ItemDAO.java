@@ -33,6 +33,29 @@ public interface ItemDAO extends DSpaceObjectLegacySupportDAO<Item> {
 
     public Iterator<Item> findAll(Context context, boolean archived, boolean withdrawn) throws SQLException;
 
+    /**
+     * Find all archived or withdrawn items whose identifier lies in the range (after, upTo], ordered by
+     * identifier. Either bound may be null, in which case the range is open on that side.
+     *
+     * @param context context
+     * @param after   exclusive lower bound of the identifier range (may be null)
+     * @param upTo    inclusive upper bound of the identifier range (may be null)
+     * @return iterator over items, ordered by identifier
+     * @throws SQLException if database error
+     */
+    public Iterator<Item> findAllUnfilteredInRange(Context context, UUID after, UUID upTo) throws SQLException;
+
+    /**
+     * Find the identifier of the archived or withdrawn item found at the given position when all of those items
+     * are ordered by identifier. Used to split the identifier space into ranges of comparable size.
+     *
+     * @param context context
+     * @param offset  position of the item in the ordered list
+     * @return the identifier, or null when the offset lies beyond the last item
+     * @throws SQLException if database error
+     */
+    public UUID findUnfilteredIdAtOffset(Context context, int offset) throws SQLException;
+
     /**
      * Find all Items modified since a Date.
      *
@@ -128,4 +151,15 @@ public interface ItemDAO extends DSpaceObjectLegacySupportDAO<Item> {
      */
     int countItems(Context context, boolean includeArchived, boolean includeWithdrawn) throws SQLException;
 
+    /**
+     * Load the bundles of the items which do not have them loaded yet, along with
+     * their metadata, their bitstreams and the metadata of the bitstreams, in a
+     * fixed number of queries per batch of items.
+     *
+     * @param context context
+     * @param items   the items, attached to the session of the context
+     * @throws SQLException if database error
+     */
+    void prefetchBundles(Context context, List<Item> items) throws SQLException;
+
 }
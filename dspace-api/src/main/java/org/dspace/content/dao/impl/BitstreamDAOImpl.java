@@ -8,13 +8,17 @@
 package org.dspace.content.dao.impl;
 
 import java.sql.SQLException;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 import org.dspace.content.Bitstream;
 import org.dspace.content.Collection;
 import org.dspace.content.Community;
 import org.dspace.content.Item;
+import org.dspace.content.MetadataField;
 import org.dspace.content.dao.BitstreamDAO;
 import org.dspace.core.AbstractHibernateDSODAO;
 import org.dspace.core.Constants;
@@ -156,6 +160,44 @@ public class BitstreamDAOImpl extends AbstractHibernateDSODAO<Bitstream> impleme
             " and bit.id not in (select bun.primaryBitstream.id from Bundle bun)"));
     }
 
+    @Override
+    public Map<UUID, String> findBundleNames(Context context, List<UUID> ids, MetadataField nameField)
+        throws SQLException {
+        Map<UUID, String> names = new HashMap<>();
+        if (ids.isEmpty()) {
+            return names;
+        }
+        Query query = createQuery(context, "select bit.id, mv.value from Bundle bun join bun.bitstreams bit" +
+            " join bun.metadata mv where bit.id in (:ids) and mv.metadataField = :field");
+        query.setParameterList("ids", ids);
+        query.setParameter("field", nameField);
+        for (Object row : query.list()) {
+            Object[] values = (Object[]) row;
+            // a bitstream in several bundles gets the name of one of them
+            names.putIfAbsent((UUID) values[0], (String) values[1]);
+        }
+        return names;
+    }
+
+    @Override
+    public Map<UUID, Integer> findLogoTypes(Context context, List<UUID> ids) throws SQLException {
+        Map<UUID, Integer> types = new HashMap<>();
+        if (ids.isEmpty()) {
+            return types;
+        }
+        Query query = createQuery(context, "select col.logo.id from Collection col where col.logo.id in (:ids)");
+        query.setParameterList("ids", ids);
+        for (Object id : query.list()) {
+            types.put((UUID) id, Constants.COLLECTION);
+        }
+        query = createQuery(context, "select com.logo.id from Community com where com.logo.id in (:ids)");
+        query.setParameterList("ids", ids);
+        for (Object id : query.list()) {
+            types.put((UUID) id, Constants.COMMUNITY);
+        }
+        return types;
+    }
+
     @Override
     public Iterator<Bitstream> findAll(Context context, int limit, int offset) throws SQLException {
         Query query = createQuery(context, "select b FROM Bitstream b");
@@ -8,6 +8,7 @@
 package org.dspace.content.dao.impl;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
@@ -24,6 +25,7 @@ import org.dspace.core.AbstractHibernateDSODAO;
 import org.dspace.core.Context;
 import org.dspace.eperson.EPerson;
 import org.hibernate.Criteria;
+import org.hibernate.Hibernate;
 import org.hibernate.Query;
 import org.hibernate.criterion.DetachedCriteria;
 import org.hibernate.criterion.Projections;
@@ -71,6 +73,40 @@ public class ItemDAOImpl extends AbstractHibernateDSODAO<Item> implements ItemDA
         return iterate(query);
     }
 
+    @Override
+    public Iterator<Item> findAllUnfilteredInRange(Context context, UUID after, UUID upTo) throws SQLException {
+        StringBuilder queryStr = new StringBuilder();
+        queryStr.append("SELECT i FROM Item i WHERE (i.inArchive = :in_archive OR i.withdrawn = :withdrawn)");
+        if (after != null) {
+            queryStr.append(" AND i.id > :after");
+        }
+        if (upTo != null) {
+            queryStr.append(" AND i.id <= :up_to");
+        }
+        queryStr.append(" ORDER BY i.id");
+        Query query = createQuery(context, queryStr.toString());
+        query.setParameter("in_archive", true);
+        query.setParameter("withdrawn", true);
+        if (after != null) {
+            query.setParameter("after", after);
+        }
+        if (upTo != null) {
+            query.setParameter("up_to", upTo);
+        }
+        return iterate(query);
+    }
+
+    @Override
+    public UUID findUnfilteredIdAtOffset(Context context, int offset) throws SQLException {
+        Query query = createQuery(context, "SELECT i.id FROM Item i " +
+            "WHERE i.inArchive = :in_archive OR i.withdrawn = :withdrawn ORDER BY i.id");
+        query.setParameter("in_archive", true);
+        query.setParameter("withdrawn", true);
+        query.setFirstResult(offset);
+        query.setMaxResults(1);
+        return (UUID) query.uniqueResult();
+    }
+
     @Override
     public Iterator<Item> findAll(Context context, boolean archived,
                                   boolean withdrawn, boolean discoverable, Date lastModified)
@@ -298,4 +334,25 @@ public class ItemDAOImpl extends AbstractHibernateDSODAO<Item> implements ItemDA
         query.setParameter("withdrawn", includeWithdrawn);
         return count(query);
     }
+
+    @Override
+    public void prefetchBundles(Context context, List<Item> items) throws SQLException {
+        List<UUID> ids = new ArrayList<>();
+        for (Item item : items) {
+            if (!Hibernate.isInitialized(item.getBundles())) {
+                ids.add(item.getID());
+            }
+        }
+        String bundlesOfItems = "(SELECT b FROM Item i JOIN i.bundles b WHERE i.id IN (:ids))";
+        // The bitstreams come first, so that they are loaded along with their metadata and the
+        // logo relations, rather than one by one as the primary bitstreams of the bundles.
+        prefetch(context, "SELECT DISTINCT o FROM Bitstream o LEFT JOIN FETCH o.metadata "
+            + "LEFT JOIN FETCH o.community LEFT JOIN FETCH o.collection WHERE o IN "
+            + "(SELECT bs FROM Item i JOIN i.bundles b JOIN b.bitstreams bs WHERE i.id IN (:ids))", ids);
+        prefetch(context, "SELECT DISTINCT o FROM Item o LEFT JOIN FETCH o.bundles WHERE o.id IN (:ids)", ids);
+        prefetch(context, "SELECT DISTINCT o FROM Bundle o LEFT JOIN FETCH o.bitstreams WHERE o IN "
+            + bundlesOfItems, ids);
+        prefetch(context, "SELECT DISTINCT o FROM Bundle o LEFT JOIN FETCH o.metadata WHERE o IN "
+            + bundlesOfItems, ids);
+    }
 }
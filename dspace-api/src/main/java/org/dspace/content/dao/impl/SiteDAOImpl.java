@@ -11,7 +11,7 @@ import java.sql.SQLException;
 
 import org.dspace.content.Site;
 import org.dspace.content.dao.SiteDAO;
-import org.dspace.core.AbstractHibernateDAO;
+import org.dspace.core.AbstractHibernateDSODAO;
 import org.dspace.core.Context;
 import org.hibernate.Criteria;
 
@@ -22,7 +22,7 @@ import org.hibernate.Criteria;
  *
  * @author kevinvandevelde at atmire.com
  */
-public class SiteDAOImpl extends AbstractHibernateDAO<Site> implements SiteDAO {
+public class SiteDAOImpl extends AbstractHibernateDSODAO<Site> implements SiteDAO {
     protected SiteDAOImpl() {
         super();
     }
@@ -12,6 +12,8 @@ import java.io.InputStream;
 import java.sql.SQLException;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 import org.dspace.authorize.AuthorizeException;
 import org.dspace.content.Bitstream;
@@ -20,6 +22,7 @@ import org.dspace.content.Bundle;
 import org.dspace.content.Collection;
 import org.dspace.content.Community;
 import org.dspace.content.Item;
+import org.dspace.core.Constants;
 import org.dspace.core.Context;
 
 /**
@@ -203,5 +206,35 @@ public interface BitstreamService extends DSpaceObjectService<Bitstream>, DSpace
 
     List<Bitstream> getNotReferencedBitstreams(Context context) throws SQLException;
 
+    /**
+     * Find many bitstreams by their legacy ids at once, e.g. for usage statistics.
+     *
+     * @param context   DSpace context object
+     * @param legacyIds the legacy ids of the bitstreams
+     * @return the bitstreams found, in no particular order
+     * @throws SQLException if database error
+     */
+    List<Bitstream> findByLegacyIds(Context context, List<Integer> legacyIds) throws SQLException;
+
+    /**
+     * Look up the bundle names of many bitstreams at once, e.g. for usage statistics.
+     *
+     * @param context      DSpace context object
+     * @param bitstreamIds the bitstreams
+     * @return the name of a bundle of each of the bitstreams in a bundle
+     * @throws SQLException if database error
+     */
+    Map<UUID, String> getBundleNames(Context context, List<UUID> bitstreamIds) throws SQLException;
+
+    /**
+     * Look up which of many bitstreams are collection or community logos at once.
+     *
+     * @param context      DSpace context object
+     * @param bitstreamIds the bitstreams
+     * @return {@link Constants#COLLECTION} or {@link Constants#COMMUNITY} for each of the bitstreams which is a logo
+     * @throws SQLException if database error
+     */
+    Map<UUID, Integer> getLogoTypes(Context context, List<UUID> bitstreamIds) throws SQLException;
+
     public Long getLastModified(Bitstream bitstream);
 }
@@ -42,6 +42,41 @@ public interface DSpaceObjectService<T extends DSpaceObject> {
      */
     public T find(Context context, UUID id) throws SQLException;
 
+    /**
+     * Find several objects of this type at once. Implementations backed by a
+     * single query also load the metadata of the objects, which makes this the
+     * preferred way to materialize lists of objects such as search results.
+     *
+     * @param context - the context
+     * @param ids     - the ids of the objects
+     * @return the objects found, in the order of the given ids. Ids that do not
+     * exist are skipped.
+     * @throws SQLException only upon failure accessing the database.
+     */
+    default List<T> findByIds(Context context, List<UUID> ids) throws SQLException {
+        List<T> result = new ArrayList<>(ids.size());
+        for (UUID id : ids) {
+            T dso = find(context, id);
+            if (dso != null) {
+                result.add(dso);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Load the metadata, and optionally the handles, of several objects of this
+     * type at once, so that listing them does not query the database once per
+     * object. Objects whose metadata is already loaded are skipped.
+     *
+     * @param context - the context
+     * @param dsos    - the objects, loaded in this context
+     * @param handles - whether to load the handles as well
+     * @throws SQLException only upon failure accessing the database.
+     */
+    default void prefetchMetadata(Context context, List<T> dsos, boolean handles) throws SQLException {
+    }
+
     /**
      * Get a proper name for the object. This may return <code>null</code>.
      * Name should be suitable for display in a user interface.
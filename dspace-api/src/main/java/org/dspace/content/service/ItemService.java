@@ -98,6 +98,31 @@ public interface ItemService extends DSpaceObjectService<Item>, DSpaceObjectLega
      */
     public Iterator<Item> findAllUnfiltered(Context context) throws SQLException;
 
+    /**
+     * Get all "final" items (archived or withdrawn) whose identifier lies in the range (after, upTo],
+     * ordered by identifier. A null bound leaves that side of the range open. Used to split up and resume
+     * long running passes over the whole repository, such as a full Discovery reindex.
+     *
+     * @param context DSpace context object
+     * @param after   exclusive lower bound, or null
+     * @param upTo    inclusive upper bound, or null
+     * @return an iterator over the items in the range, ordered by identifier
+     * @throws SQLException if database error
+     */
+    public Iterator<Item> findAllUnfilteredInRange(Context context, UUID after, UUID upTo) throws SQLException;
+
+    /**
+     * Split the identifiers of all "final" items (archived or withdrawn) into the given number of ranges
+     * holding roughly the same number of items. The returned list holds the inclusive upper bound of
+     * every range but the last, in identifier order; each range starts right after the previous bound.
+     *
+     * @param context    DSpace context object
+     * @param partitions the number of ranges wanted
+     * @return the range boundaries, at most partitions - 1 of them
+     * @throws SQLException if database error
+     */
+    public List<UUID> findUnfilteredPartitionBoundaries(Context context, int partitions) throws SQLException;
+
     /**
      * Find all the items in the archive by a given submitter. The order is
      * indeterminate. Only items with the "in archive" flag set are included.
@@ -199,6 +224,17 @@ public interface ItemService extends DSpaceObjectService<Item>, DSpaceObjectLega
      */
     public List<Bundle> getBundles(Item item, String name) throws SQLException;
 
+    /**
+     * Load the bundles and bitstreams of several items at once, along with their
+     * metadata, so that listing the items with their files does not query the
+     * database once per item.
+     *
+     * @param context DSpace context object
+     * @param items   the items, loaded in this context
+     * @throws SQLException if database error
+     */
+    public void prefetchBundles(Context context, List<Item> items) throws SQLException;
+
     /**
      * Add an existing bundle to this item. This has immediate effect.
      *
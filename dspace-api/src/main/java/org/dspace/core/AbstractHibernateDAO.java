@@ -51,7 +51,7 @@ public abstract class AbstractHibernateDAO<T> implements GenericDAO<T> {
      * @throws SQLException
      */
     protected Session getHibernateSession(Context context) throws SQLException {
-        return ((Session) context.getDBConnection().getSession());
+        return ((Session) context.getDBConnection().getSession(context.isReplicaAllowed()));
     }
 
     @Override
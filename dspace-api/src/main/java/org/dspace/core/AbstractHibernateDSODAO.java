@@ -8,8 +8,12 @@
 package org.dspace.core;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.ListUtils;
@@ -17,6 +21,8 @@ import org.apache.commons.lang3.StringUtils;
 import org.dspace.content.DSpaceObject;
 import org.dspace.content.MetadataField;
 import org.hibernate.Criteria;
+import org.hibernate.Hibernate;
+import org.hibernate.Query;
 import org.hibernate.criterion.Restrictions;
 
 /**
@@ -30,6 +36,12 @@ import org.hibernate.criterion.Restrictions;
  * @author kevinvandevelde at atmire.com
  */
 public abstract class AbstractHibernateDSODAO<T extends DSpaceObject> extends AbstractHibernateDAO<T> {
+
+    /**
+     * Maximum number of identifiers bound to a single IN clause; some databases refuse longer lists.
+     */
+    protected static final int IN_CLAUSE_LIMIT = 1000;
+
     /**
      * Find a DSO by its "legacy ID".  Former versions of DSpace used integer
      * record IDs, and these may still be found in external records such as AIPs.
@@ -49,6 +61,118 @@ public abstract class AbstractHibernateDSODAO<T extends DSpaceObject> extends Ab
         return uniqueResult(criteria);
     }
 
+    /**
+     * Find the DSOs with the given legacy ids, in at most one query per
+     * {@link #IN_CLAUSE_LIMIT} identifiers.
+     *
+     * @param context   current DSpace context.
+     * @param legacyIds the old integer record identifiers.
+     * @param clazz     DSO subtype of the records.
+     * @return the records found, in no particular order.
+     * @throws SQLException if database error
+     */
+    public List<T> findByLegacyIds(Context context, List<Integer> legacyIds, Class<T> clazz) throws SQLException {
+        List<T> result = new ArrayList<>();
+        for (int start = 0; start < legacyIds.size(); start += IN_CLAUSE_LIMIT) {
+            List<Integer> chunk = legacyIds.subList(start, Math.min(legacyIds.size(), start + IN_CLAUSE_LIMIT));
+            Query query = createQuery(context, "SELECT o FROM " + clazz.getSimpleName() + " o "
+                + "WHERE o.legacyId IN (:ids)");
+            query.setParameterList("ids", chunk);
+            result.addAll(list(query));
+        }
+        return result;
+    }
+
+    /**
+     * Find the DSOs with the given UUIDs, fetching their metadata values along
+     * with them, in at most one query per {@link #IN_CLAUSE_LIMIT} identifiers.
+     *
+     * @param context current DSpace context.
+     * @param clazz   DSO subtype of the records.
+     * @param ids     the UUIDs of the records.
+     * @return the records found, in the order of the given UUIDs. UUIDs without
+     * a record are skipped.
+     * @throws SQLException if database error
+     */
+    public List<T> findByIds(Context context, Class<T> clazz, List<UUID> ids) throws SQLException {
+        Map<UUID, T> found = new HashMap<>();
+        for (int start = 0; start < ids.size(); start += IN_CLAUSE_LIMIT) {
+            List<UUID> chunk = ids.subList(start, Math.min(ids.size(), start + IN_CLAUSE_LIMIT));
+            Query query = createQuery(context, "SELECT DISTINCT o FROM " + clazz.getSimpleName() + " o "
+                + "LEFT JOIN FETCH o.metadata WHERE o.id IN (:ids)");
+            query.setParameterList("ids", chunk);
+            for (T dso : list(query)) {
+                found.put(dso.getID(), dso);
+            }
+        }
+
+        List<T> result = new ArrayList<>(found.size());
+        for (UUID id : ids) {
+            T dso = found.get(id);
+            if (dso != null) {
+                result.add(dso);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Load the metadata values of the DSOs which do not have them loaded yet, in
+     * at most one query per {@link #IN_CLAUSE_LIMIT} DSOs.
+     *
+     * @param context current DSpace context.
+     * @param clazz   DSO subtype of the records.
+     * @param dsos    the records, attached to the session of the context.
+     * @throws SQLException if database error
+     */
+    public void prefetchMetadata(Context context, Class<T> clazz, List<T> dsos) throws SQLException {
+        List<UUID> ids = new ArrayList<>();
+        for (T dso : dsos) {
+            if (!Hibernate.isInitialized(dso.getMetadata())) {
+                ids.add(dso.getID());
+            }
+        }
+        prefetch(context, "SELECT DISTINCT o FROM " + clazz.getSimpleName() + " o "
+            + "LEFT JOIN FETCH o.metadata WHERE o.id IN (:ids)", ids);
+    }
+
+    /**
+     * Load the handles of the DSOs which do not have them loaded yet, in at most
+     * one query per {@link #IN_CLAUSE_LIMIT} DSOs.
+     *
+     * @param context current DSpace context.
+     * @param clazz   DSO subtype of the records.
+     * @param dsos    the records, attached to the session of the context.
+     * @throws SQLException if database error
+     */
+    public void prefetchHandles(Context context, Class<T> clazz, List<T> dsos) throws SQLException {
+        List<UUID> ids = new ArrayList<>();
+        for (T dso : dsos) {
+            if (!Hibernate.isInitialized(dso.getHandles())) {
+                ids.add(dso.getID());
+            }
+        }
+        prefetch(context, "SELECT DISTINCT o FROM " + clazz.getSimpleName() + " o "
+            + "LEFT JOIN FETCH o.handles WHERE o.id IN (:ids)", ids);
+    }
+
+    /**
+     * Run a query fetching collections of entities, in batches of {@link #IN_CLAUSE_LIMIT}
+     * identifiers, to initialize these collections for the entities already in the session.
+     *
+     * @param context current DSpace context.
+     * @param query   the query, with an <code>ids</code> list parameter.
+     * @param ids     the identifiers to query.
+     * @throws SQLException if database error
+     */
+    protected void prefetch(Context context, String query, List<UUID> ids) throws SQLException {
+        for (int start = 0; start < ids.size(); start += IN_CLAUSE_LIMIT) {
+            Query hibernateQuery = createQuery(context, query);
+            hibernateQuery.setParameterList("ids", ids.subList(start, Math.min(ids.size(), start + IN_CLAUSE_LIMIT)));
+            hibernateQuery.list();
+        }
+    }
+
     /**
      * Add left outer join on all metadata fields which are passed to this function.
      * The identifier of the join will be the toString() representation of the metadata field.
@@ -28,6 +28,8 @@ import org.dspace.event.Dispatcher;
 import org.dspace.event.Event;
 import org.dspace.event.factory.EventServiceFactory;
 import org.dspace.event.service.EventService;
+import org.dspace.services.ConfigurationService;
+import org.dspace.services.factory.DSpaceServicesFactory;
 import org.dspace.storage.rdbms.DatabaseConfigVO;
 import org.dspace.storage.rdbms.DatabaseUtils;
 import org.dspace.utils.DSpace;
@@ -113,8 +115,23 @@ public class Context implements AutoCloseable {
 
     private DBConnection dbConnection;
 
+    /**
+     * Database statistics of the thread when this context was created
+     */
+    private DBStatistics statisticsStart = new DBStatistics();
+
+    /**
+     * Database statistics of this context, once it is completed
+     */
+    private DBStatistics statistics = new DBStatistics();
+
     public enum Mode {
         READ_ONLY,
+        /**
+         * Read-only, without using the replicas of the database, e.g. to read changes
+         * just committed
+         */
+        READ_ONLY_PRIMARY,
         READ_WRITE,
         BATCH_EDIT
     }
@@ -168,6 +185,10 @@ public class Context implements AutoCloseable {
             }
         }
 
+        if (dbConnection != null) {
+            statisticsStart = dbConnection.getStatistics();
+        }
+
         currentUser = null;
         currentLocale = I18nUtil.DEFAULTLOCALE;
         extraLogInfo = "";
@@ -374,6 +395,8 @@ public class Context implements AutoCloseable {
             }
         } finally {
             if (dbConnection != null) {
+                statistics = getStatistics();
+                logStatistics();
                 // Free the DB connection
                 dbConnection.closeDBConnection();
                 dbConnection = null;
@@ -381,6 +404,34 @@ public class Context implements AutoCloseable {
         }
     }
 
+    /**
+     * Get the statistics of the database work done since this context was created, up to
+     * its completion. They are counted per thread, so they include the work of any other
+     * context used by the same thread meanwhile.
+     *
+     * @return the database statistics of this context
+     */
+    public DBStatistics getStatistics() {
+        if (dbConnection == null) {
+            return statistics;
+        }
+        return dbConnection.getStatistics().since(statisticsStart);
+    }
+
+    /**
+     * Log the database statistics of this context when they exceed the thresholds configured
+     * by <code>db.statistics.log.statements</code> and <code>db.statistics.log.time</code>.
+     */
+    private void logStatistics() {
+        ConfigurationService configurationService = DSpaceServicesFactory.getInstance().getConfigurationService();
+        int maxStatements = configurationService.getIntProperty("db.statistics.log.statements", 0);
+        int maxTime = configurationService.getIntProperty("db.statistics.log.time", 0);
+        if ((maxStatements > 0 && statistics.getStatementCount() > maxStatements)
+            || (maxTime > 0 && statistics.getJdbcTime() > maxTime)) {
+            log.warn(LogManager.getHeader(this, "database_statistics", statistics.toString()));
+        }
+    }
+
     /**
      * Commit the current transaction with the database, persisting any pending changes.
      * The database connection is not closed and can be reused afterwards.
@@ -568,7 +619,14 @@ public class Context implements AutoCloseable {
      * <code>false</code>
      */
     public boolean isReadOnly() {
-        return mode != null && mode == Mode.READ_ONLY;
+        return mode == Mode.READ_ONLY || mode == Mode.READ_ONLY_PRIMARY;
+    }
+
+    /**
+     * @return whether the transactions begun by this context may run on a replica of the database
+     */
+    boolean isReplicaAllowed() {
+        return mode == Mode.READ_ONLY;
     }
 
     public void setSpecialGroup(UUID groupID) {
@@ -645,7 +703,9 @@ public class Context implements AutoCloseable {
      * process a large number of records.
      *
      * READ_ONLY: READ ONLY mode will tell the database we are nog going to do any updates. This means it can disable
-     * optimalisations for delaying or grouping updates.
+     * optimalisations for delaying or grouping updates. Its transactions may run on a replica of the database.
+     *
+     * READ_ONLY_PRIMARY: READ ONLY mode whose transactions always run on the primary database.
      *
      * READ_WRITE: This is the default mode and enables the normal database behaviour. This behaviour is optimal for
      * querying and updating a
@@ -654,13 +714,17 @@ public class Context implements AutoCloseable {
      * @param newMode The mode to put this context in
      */
     public void setMode(Mode newMode) {
+        boolean wasReadOnly = isReadOnly();
         try {
+            // a transaction begun in the new mode runs where this mode allows
+            dbConnection.getSession(newMode == Mode.READ_ONLY);
             //update the database settings
             switch (newMode) {
                 case BATCH_EDIT:
                     dbConnection.setConnectionMode(true, false);
                     break;
                 case READ_ONLY:
+                case READ_ONLY_PRIMARY:
                     dbConnection.setConnectionMode(false, true);
                     break;
                 case READ_WRITE:
@@ -674,8 +738,8 @@ public class Context implements AutoCloseable {
             log.warn("Unable to set database connection mode", ex);
         }
 
-        //Always clear the cache, except when going from READ_ONLY to READ_ONLY
-        if (mode != Mode.READ_ONLY || newMode != Mode.READ_ONLY) {
+        //Always clear the cache, except when going from a read-only mode to a read-only mode
+        if (!wasReadOnly || (newMode != Mode.READ_ONLY && newMode != Mode.READ_ONLY_PRIMARY)) {
             //clear our read-only cache to prevent any inconsistencies
             readOnlyCache.clear();
         }
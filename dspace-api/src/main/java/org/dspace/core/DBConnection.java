@@ -35,6 +35,17 @@ public interface DBConnection<T> {
      */
     public T getSession() throws SQLException;
 
+    /**
+     * Access to the underlying persistence provider's session object, for a context
+     * in a given mode.
+     *
+     * @param readOnlyTransaction whether a transaction begun by this call only reads, so
+     *                            that it may run on a replica of the database.
+     * @return the provider's session object for this connection.
+     * @throws SQLException passed through.
+     */
+    public T getSession(boolean readOnlyTransaction) throws SQLException;
+
     /**
      * @return true if this session has an uncommitted transaction.
      */
@@ -94,6 +105,13 @@ public interface DBConnection<T> {
      */
     public DatabaseConfigVO getDatabaseConfig() throws SQLException;
 
+    /**
+     * Statistics of the database work done by the current thread through this connection.
+     *
+     * @return a copy of the counters of the current thread.
+     */
+    public DBStatistics getStatistics();
+
     /**
      * Configure the connection for special uses.
      *
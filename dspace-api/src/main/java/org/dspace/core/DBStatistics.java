@@ -0,0 +1,136 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.core;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counters of the database work done through a {@link DBConnection}: the SQL statements
+ * sent, the time spent executing them, the entities loaded, the second level cache lookups
+ * and the flushes of pending changes.
+ *
+ * The counters are kept per thread by the connection, a {@link Context} reports the
+ * difference between the counters when it was created and its current ones.
+ */
+public class DBStatistics {
+
+    private long statementCount;
+    private long jdbcTimeNanos;
+    private long entityLoadCount;
+    private long cacheHitCount;
+    private long cacheMissCount;
+    private long flushCount;
+
+    public DBStatistics() {
+
+    }
+
+    private DBStatistics(DBStatistics statistics) {
+        this.statementCount = statistics.statementCount;
+        this.jdbcTimeNanos = statistics.jdbcTimeNanos;
+        this.entityLoadCount = statistics.entityLoadCount;
+        this.cacheHitCount = statistics.cacheHitCount;
+        this.cacheMissCount = statistics.cacheMissCount;
+        this.flushCount = statistics.flushCount;
+    }
+
+    /**
+     * @return the number of SQL statements prepared
+     */
+    public long getStatementCount() {
+        return statementCount;
+    }
+
+    /**
+     * @return the time spent executing SQL statements, in milliseconds
+     */
+    public long getJdbcTime() {
+        return TimeUnit.NANOSECONDS.toMillis(jdbcTimeNanos);
+    }
+
+    /**
+     * @return the number of entities loaded, from the database or the second level cache
+     */
+    public long getEntityLoadCount() {
+        return entityLoadCount;
+    }
+
+    /**
+     * @return the number of second level cache lookups which found the entry
+     */
+    public long getCacheHitCount() {
+        return cacheHitCount;
+    }
+
+    /**
+     * @return the number of second level cache lookups which missed the entry
+     */
+    public long getCacheMissCount() {
+        return cacheMissCount;
+    }
+
+    /**
+     * @return the number of flushes of pending changes to the database
+     */
+    public long getFlushCount() {
+        return flushCount;
+    }
+
+    /**
+     * @param start earlier counters of the same thread
+     * @return the work done since the earlier counters
+     */
+    public DBStatistics since(DBStatistics start) {
+        DBStatistics difference = new DBStatistics(this);
+        difference.statementCount -= start.statementCount;
+        difference.jdbcTimeNanos -= start.jdbcTimeNanos;
+        difference.entityLoadCount -= start.entityLoadCount;
+        difference.cacheHitCount -= start.cacheHitCount;
+        difference.cacheMissCount -= start.cacheMissCount;
+        difference.flushCount -= start.flushCount;
+        return difference;
+    }
+
+    /**
+     * @return a copy of the current values of these counters
+     */
+    DBStatistics copy() {
+        return new DBStatistics(this);
+    }
+
+    void addStatement() {
+        statementCount++;
+    }
+
+    void addJdbcTime(long nanos) {
+        jdbcTimeNanos += nanos;
+    }
+
+    void addEntityLoad() {
+        entityLoadCount++;
+    }
+
+    void addCacheGet(boolean hit) {
+        if (hit) {
+            cacheHitCount++;
+        } else {
+            cacheMissCount++;
+        }
+    }
+
+    void addFlush() {
+        flushCount++;
+    }
+
+    @Override
+    public String toString() {
+        return "statements=" + statementCount + ", jdbc_time=" + getJdbcTime() + "ms, entities_loaded="
+            + entityLoadCount + ", cache_hits=" + cacheHitCount + ", cache_misses=" + cacheMissCount
+            + ", flushes=" + flushCount;
+    }
+}
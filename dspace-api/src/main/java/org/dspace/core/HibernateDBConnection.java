@@ -27,6 +27,8 @@ import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
 import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
 import org.hibernate.proxy.HibernateProxyHelper;
 import org.hibernate.resource.transaction.spi.TransactionStatus;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -46,16 +48,42 @@ public class HibernateDBConnection implements DBConnection<Session> {
 
     private boolean batchModeEnabled = false;
     private boolean readOnlyEnabled = false;
+    private volatile boolean statisticsListenerRegistered = false;
 
     @Override
     public Session getSession() throws SQLException {
+        return getCurrentSession(false);
+    }
+
+    @Override
+    public Session getSession(boolean readOnlyTransaction) throws SQLException {
+        return getCurrentSession(readOnlyTransaction);
+    }
+
+    private Session getCurrentSession(boolean readOnlyTransaction) throws SQLException {
         if (!isTransActionAlive()) {
-            sessionFactory.getCurrentSession().beginTransaction();
+            registerStatisticsListener();
+            // The thread local session is closed at the end of its transaction, so each
+            // transaction begins with a new session
+            Session session = sessionFactory.getCurrentSession();
+            beginTransaction(session, readOnlyTransaction);
+            session.addEventListeners(new HibernateStatisticsListener());
             configureDatabaseMode();
         }
         return sessionFactory.getCurrentSession();
     }
 
+    /**
+     * Begin the transaction of a new session.
+     *
+     * @param session             the session
+     * @param readOnlyTransaction whether the transaction only reads
+     * @throws SQLException if the transaction cannot be begun
+     */
+    protected void beginTransaction(Session session, boolean readOnlyTransaction) throws SQLException {
+        session.beginTransaction();
+    }
+
     @Override
     public boolean isTransActionAlive() {
         Transaction transaction = getTransaction();
@@ -144,6 +172,29 @@ public class HibernateDBConnection implements DBConnection<Session> {
         }
     }
 
+    @Override
+    public DBStatistics getStatistics() {
+        return HibernateStatisticsListener.getThreadStatistics().copy();
+    }
+
+    /**
+     * Register the listener counting the loads of entities, which are not reported to the
+     * listeners of the sessions.
+     */
+    private void registerStatisticsListener() {
+        if (!statisticsListenerRegistered) {
+            synchronized (this) {
+                if (!statisticsListenerRegistered) {
+                    ((SessionFactoryImplementor) sessionFactory).getServiceRegistry()
+                                                                 .getService(EventListenerRegistry.class)
+                                                                 .appendListeners(EventType.POST_LOAD,
+                                                                                  new HibernateStatisticsListener());
+                    statisticsListenerRegistered = true;
+                }
+            }
+        }
+    }
+
     @Override
     public void setConnectionMode(final boolean batchOptimized, final boolean readOnlyOptimized) throws SQLException {
         this.batchModeEnabled = batchOptimized;
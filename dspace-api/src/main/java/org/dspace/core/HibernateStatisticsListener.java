@@ -0,0 +1,78 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.core;
+
+import org.hibernate.BaseSessionEventListener;
+import org.hibernate.event.spi.PostLoadEvent;
+import org.hibernate.event.spi.PostLoadEventListener;
+
+/**
+ * Counts the database work of the Hibernate sessions into the {@link DBStatistics} of the
+ * current thread, which is the thread of the session as sessions are bound to threads.
+ *
+ * An instance is added to each session for the JDBC, cache and flush events, and one
+ * instance is registered with the session factory for the loads of entities.
+ */
+class HibernateStatisticsListener extends BaseSessionEventListener implements PostLoadEventListener {
+
+    private static final ThreadLocal<DBStatistics> threadStatistics = new ThreadLocal<DBStatistics>() {
+        @Override
+        protected DBStatistics initialValue() {
+            return new DBStatistics();
+        }
+    };
+
+    private long executionStart;
+
+    /**
+     * @return the counters of the current thread, updated as the thread uses the database
+     */
+    static DBStatistics getThreadStatistics() {
+        return threadStatistics.get();
+    }
+
+    @Override
+    public void jdbcPrepareStatementStart() {
+        threadStatistics.get().addStatement();
+    }
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        executionStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        threadStatistics.get().addJdbcTime(System.nanoTime() - executionStart);
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        executionStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        threadStatistics.get().addJdbcTime(System.nanoTime() - executionStart);
+    }
+
+    @Override
+    public void cacheGetEnd(boolean hit) {
+        threadStatistics.get().addCacheGet(hit);
+    }
+
+    @Override
+    public void flushEnd(int numberOfEntities, int numberOfCollections) {
+        threadStatistics.get().addFlush();
+    }
+
+    @Override
+    public void onPostLoad(PostLoadEvent event) {
+        threadStatistics.get().addEntityLoad();
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.core;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.dspace.storage.rdbms.ReplicaRoutingDataSource;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.jdbc.ReturningWork;
+
+/**
+ * Hibernate implementation of the DBConnection which lets the transactions of read-only
+ * contexts run on the database replicas of a {@link ReplicaRoutingDataSource}.
+ *
+ * The mode of the context which begins a transaction decides where it runs: the transactions
+ * begun by {@link Context.Mode#READ_ONLY} contexts may run on a replica, all others run on the
+ * primary database. The session of a thread is shared by its contexts, and the replicas cannot
+ * run the writes which may follow, so a transaction running on a replica is rolled back when
+ * a context which is not read-only uses it, and the entities it loaded are detached as after
+ * a commit. The entities read on a replica are not put in the second-level cache, where they
+ * could replace more recent ones.
+ */
+public class ReplicaRoutingDBConnection extends HibernateDBConnection {
+
+    /**
+     * Whether the transaction of the current thread runs on a replica
+     */
+    private static final ThreadLocal<Boolean> onReplica = new ThreadLocal<Boolean>() {
+        @Override
+        protected Boolean initialValue() {
+            return false;
+        }
+    };
+
+    @Override
+    public Session getSession(boolean readOnlyTransaction) throws SQLException {
+        if (!readOnlyTransaction && onReplica.get() && isTransActionAlive()) {
+            rollback();
+        }
+        return super.getSession(readOnlyTransaction);
+    }
+
+    @Override
+    protected void beginTransaction(Session session, boolean readOnlyTransaction) throws SQLException {
+        // the connection of the transaction is obtained when it begins
+        ReplicaRoutingDataSource.setReadOnly(readOnlyTransaction);
+        try {
+            session.beginTransaction();
+        } finally {
+            ReplicaRoutingDataSource.setReadOnly(false);
+        }
+        boolean replica = readOnlyTransaction && isOnReplica(session);
+        onReplica.set(replica);
+        session.setCacheMode(replica ? CacheMode.GET : CacheMode.NORMAL);
+    }
+
+    /**
+     * @return whether the transaction of a session runs on a replica, whose connections are read-only
+     */
+    private boolean isOnReplica(Session session) {
+        return session.doReturningWork(new ReturningWork<Boolean>() {
+            @Override
+            public Boolean execute(Connection connection) throws SQLException {
+                return connection.isReadOnly();
+            }
+        });
+    }
+}
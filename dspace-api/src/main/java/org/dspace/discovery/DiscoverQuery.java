@@ -25,6 +25,11 @@ import org.dspace.discovery.configuration.DiscoverySearchFilterFacet;
  */
 public class DiscoverQuery {
 
+    /**
+     * Cursor mark of the first page, see {@link #setCursorMark(String)}
+     */
+    public static final String CURSOR_MARK_START = "*";
+
     /**
      * Main attributes for the discovery query
      **/
@@ -36,6 +41,7 @@ public class DiscoverQuery {
 
     private int start = 0;
     private int maxResults = -1;
+    private String cursorMark;
 
     /**
      * Attributes used for sorting of results
@@ -98,6 +104,27 @@ public class DiscoverQuery {
         this.start = start;
     }
 
+    /**
+     * The cursor from which to page through the results, null to page with {@link #getStart()}
+     *
+     * @return the cursor mark
+     */
+    public String getCursorMark() {
+        return cursorMark;
+    }
+
+    /**
+     * Page through the results with a cursor instead of a start offset. Fetching a page then takes the
+     * same time however deep it is. Use {@link #CURSOR_MARK_START} for the first page and the
+     * {@link DiscoverResult#getNextCursorMark()} of a result for the page following it; the start offset
+     * is ignored.
+     *
+     * @param cursorMark the cursor mark, or null to use the start offset
+     */
+    public void setCursorMark(String cursorMark) {
+        this.cursorMark = cursorMark;
+    }
+
     public void setSortField(String sortField, SORT_ORDER sortOrder) {
         this.sortField = sortField;
         this.sortOrder = sortOrder;
@@ -38,6 +38,7 @@ public class DiscoverResult {
     private int searchTime;
     private Map<String, DSpaceObjectHighlightResult> highlightedResults;
     private String spellCheckQuery;
+    private String nextCursorMark;
 
 
     public DiscoverResult() {
@@ -177,6 +178,20 @@ public class DiscoverResult {
         this.spellCheckQuery = spellCheckQuery;
     }
 
+    /**
+     * The cursor mark of the next page, if the query was paged with a cursor. It is equal to the
+     * cursor mark of the query once all results have been returned.
+     *
+     * @return the next cursor mark, or null if the query did not use a cursor
+     */
+    public String getNextCursorMark() {
+        return nextCursorMark;
+    }
+
+    public void setNextCursorMark(String nextCursorMark) {
+        this.nextCursorMark = nextCursorMark;
+    }
+
     public static final class DSpaceObjectHighlightResult {
         private DSpaceObject dso;
         private Map<String, List<String>> highlightResults;
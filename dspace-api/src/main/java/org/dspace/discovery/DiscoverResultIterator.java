@@ -0,0 +1,82 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.dspace.content.DSpaceObject;
+import org.dspace.core.Context;
+
+/**
+ * Iterates over all objects matching a {@link DiscoverQuery}, fetching one page at a time with a
+ * Solr cursor. Objects which are in the index but no longer in the database are skipped.
+ */
+public class DiscoverResultIterator implements Iterator<DSpaceObject> {
+
+    private final SearchService searchService;
+    private final Context context;
+    private final DiscoverQuery query;
+
+    private Iterator<DSpaceObject> page;
+    private DSpaceObject next;
+    private boolean lastPage;
+
+    /**
+     * @param searchService the search service to query
+     * @param context       the context the objects are loaded in
+     * @param query         the query, including its scope; its cursor mark is updated as pages are fetched
+     * @throws SearchServiceException if the first page cannot be retrieved
+     */
+    public DiscoverResultIterator(SearchService searchService, Context context, DiscoverQuery query)
+        throws SearchServiceException {
+        this.searchService = searchService;
+        this.context = context;
+        this.query = query;
+        query.setStart(0);
+        query.setCursorMark(DiscoverQuery.CURSOR_MARK_START);
+        fetch();
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null) {
+            if (page.hasNext()) {
+                next = page.next();
+            } else if (lastPage) {
+                return false;
+            } else {
+                try {
+                    fetch();
+                } catch (SearchServiceException e) {
+                    throw new IllegalStateException("Unable to retrieve the next page of search results", e);
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public DSpaceObject next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        DSpaceObject result = next;
+        next = null;
+        return result;
+    }
+
+    protected void fetch() throws SearchServiceException {
+        DiscoverResult result = searchService.search(context, query, false);
+        page = result.getDspaceObjects().iterator();
+        String nextCursorMark = result.getNextCursorMark();
+        // Solr returns the same cursor mark once there are no more results
+        lastPage = nextCursorMark == null || nextCursorMark.equals(query.getCursorMark());
+        query.setCursorMark(nextCursorMark);
+    }
+}
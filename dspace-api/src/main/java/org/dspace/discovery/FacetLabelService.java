@@ -0,0 +1,68 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+
+import org.dspace.core.Context;
+
+/**
+ * Resolves the labels shown for Discovery facet values that refer to database
+ * records, such as the "location.comm" and "location.coll" facets, and keeps
+ * them in a size bounded cache shared by all requests.
+ */
+public interface FacetLabelService {
+
+    /**
+     * Resolve the label of a single facet value.
+     *
+     * @param context The relevant DSpace Context.
+     * @param field   the facet field
+     * @param value   the facet value
+     * @return the label, or the value itself if the field is not resolved by this service or the
+     * record does not exist
+     * @throws SQLException if database error
+     */
+    public String getLabel(Context context, String field, String value) throws SQLException;
+
+    /**
+     * Resolve the labels of all values of a facet, looking up all values missing from the cache
+     * with a single query.
+     *
+     * @param context The relevant DSpace Context.
+     * @param field   the facet field
+     * @param values  the facet values
+     * @return the label of every value, by value
+     * @throws SQLException if database error
+     */
+    public Map<String, String> getLabels(Context context, String field, Collection<String> values)
+        throws SQLException;
+
+    /**
+     * Whether the values of the given field are resolved by this service.
+     *
+     * @param field the facet field
+     * @return true if the field is resolved by this service
+     */
+    public boolean isResolved(String field);
+
+    /**
+     * Remove the cached labels of a record, e.g. because it was modified or deleted.
+     *
+     * @param id the id of the record
+     */
+    public void invalidate(UUID id);
+
+    /**
+     * Remove all cached labels.
+     */
+    public void invalidateAll();
+}
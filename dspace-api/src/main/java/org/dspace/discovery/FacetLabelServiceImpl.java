@@ -0,0 +1,146 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.dspace.content.DSpaceObject;
+import org.dspace.content.factory.ContentServiceFactory;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.dspace.services.ConfigurationService;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Facet label service resolving the community and collection location facets,
+ * backed by a Guava cache bounded by "discovery.facet.label.cache.size" entries
+ * which expire "discovery.facet.label.cache.ttl" seconds after being loaded.
+ * Entries are invalidated by the {@link IndexEventConsumer} when a community or
+ * collection is created, modified or deleted.
+ */
+public class FacetLabelServiceImpl implements FacetLabelService, InitializingBean {
+
+    private static final Logger log = Logger.getLogger(FacetLabelServiceImpl.class);
+
+    protected static final String COMMUNITY_FIELD = "location.comm";
+    protected static final String COLLECTION_FIELD = "location.coll";
+
+    @Autowired(required = true)
+    protected ConfigurationService configurationService;
+
+    @Autowired(required = true)
+    protected ContentServiceFactory contentServiceFactory;
+
+    protected Cache<String, String> labels;
+
+    protected FacetLabelServiceImpl() {
+
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        labels = CacheBuilder.newBuilder()
+                             .maximumSize(configurationService.getLongProperty("discovery.facet.label.cache.size",
+                                                                               10000))
+                             .expireAfterWrite(configurationService.getLongProperty("discovery.facet.label.cache.ttl",
+                                                                                    3600), TimeUnit.SECONDS)
+                             .build();
+    }
+
+    @Override
+    public boolean isResolved(String field) {
+        return COMMUNITY_FIELD.equals(field) || COLLECTION_FIELD.equals(field);
+    }
+
+    @Override
+    public String getLabel(Context context, String field, String value) throws SQLException {
+        if (!isResolved(field) || StringUtils.isBlank(value)) {
+            return value;
+        }
+        String label = labels.getIfPresent(key(field, value));
+        if (label == null) {
+            label = getLabels(context, field, Collections.singletonList(value)).get(value);
+        }
+        return label;
+    }
+
+    @Override
+    public Map<String, String> getLabels(Context context, String field, Collection<String> values)
+        throws SQLException {
+        Map<String, String> result = new LinkedHashMap<>();
+        if (!isResolved(field)) {
+            for (String value : values) {
+                result.put(value, value);
+            }
+            return result;
+        }
+
+        Map<String, String> found = new HashMap<>();
+        List<UUID> missing = new ArrayList<>();
+        for (String value : values) {
+            String label = StringUtils.isBlank(value) ? null : labels.getIfPresent(key(field, value));
+            if (label != null) {
+                found.put(value, label);
+            } else if (!StringUtils.isBlank(value)) {
+                try {
+                    missing.add(UUID.fromString(value));
+                } catch (IllegalArgumentException e) {
+                    log.warn("Invalid " + field + " facet value: " + value);
+                }
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            int type = COMMUNITY_FIELD.equals(field) ? Constants.COMMUNITY : Constants.COLLECTION;
+            List<? extends DSpaceObject> dsos = contentServiceFactory.getDSpaceObjectService(type)
+                                                                     .findByIds(context, missing);
+            for (DSpaceObject dso : dsos) {
+                String name = dso.getName();
+                String id = dso.getID().toString();
+                found.put(id, name != null ? name : id);
+                labels.put(key(field, id), found.get(id));
+            }
+        }
+
+        // Values which are not the id of an object are their own label
+        for (String value : values) {
+            String label = found.get(value);
+            result.put(value, label != null ? label : value);
+        }
+        return result;
+    }
+
+    @Override
+    public void invalidate(UUID id) {
+        labels.invalidate(key(COMMUNITY_FIELD, id.toString()));
+        labels.invalidate(key(COLLECTION_FIELD, id.toString()));
+    }
+
+    @Override
+    public void invalidateAll() {
+        labels.invalidateAll();
+    }
+
+    protected String key(String field, String value) {
+        return field + ":" + value;
+    }
+}
@@ -142,6 +142,28 @@ public class FullTextContentStreams extends ContentStreamBase {
         return CollectionUtils.isEmpty(fullTextStreams);
     }
 
+    /**
+     * Identify the content of the full text bitstreams, so that a full text which has already
+     * been indexed does not need to be extracted again.
+     *
+     * @return the identifiers and checksums of all full text bitstreams, or null if there are none
+     * or one of them has no checksum
+     */
+    public String getChecksum() {
+        if (isEmpty()) {
+            return null;
+        }
+        List<String> checksums = new LinkedList<>();
+        for (FullTextBitstream fullTextStream : fullTextStreams) {
+            String checksum = fullTextStream.getChecksum();
+            if (StringUtils.isBlank(checksum)) {
+                return null;
+            }
+            checksums.add(checksum);
+        }
+        return StringUtils.join(checksums, ";");
+    }
+
     private BitstreamService getBitstreamService() {
         if (bitstreamService == null) {
             bitstreamService = ContentServiceFactory.getInstance().getBitstreamService();
@@ -171,6 +193,13 @@ public class FullTextContentStreams extends ContentStreamBase {
             return bitstream.getSize();
         }
 
+        public String getChecksum() {
+            if (StringUtils.isBlank(bitstream.getChecksum())) {
+                return null;
+            }
+            return bitstream.getID() + ":" + bitstream.getChecksumAlgorithm() + ":" + bitstream.getChecksum();
+        }
+
         public InputStream getInputStream() throws SQLException, IOException, AuthorizeException {
             return getBitstreamService().retrieve(context, bitstream);
         }
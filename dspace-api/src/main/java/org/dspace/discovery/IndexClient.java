@@ -27,6 +27,7 @@ import org.dspace.core.Constants;
 import org.dspace.core.Context;
 import org.dspace.handle.factory.HandleServiceFactory;
 import org.dspace.services.factory.DSpaceServicesFactory;
+import org.dspace.util.SolrCommitPolicy;
 
 /**
  * Class used to reindex dspace communities/collections/items into discovery
@@ -58,8 +59,8 @@ public class IndexClient {
         Context context = new Context(Context.Mode.READ_ONLY);
         context.turnOffAuthorisationSystem();
 
-        String usage = "org.dspace.discovery.IndexClient [-cbhf] | [-r <handle>] | [-i <handle>] or nothing to " +
-            "update/clean an existing index.";
+        String usage = "org.dspace.discovery.IndexClient [-cbhf] [-t <workers>] [-u] | [-r <handle>] | [-i <handle>] " +
+            "or nothing to update/clean an existing index.";
         Options options = new Options();
         HelpFormatter formatter = new HelpFormatter();
         CommandLine line = null;
@@ -90,6 +91,20 @@ public class IndexClient {
                                   "(re)build index, wiping out current one if it exists")
                               .create("b"));
 
+        options.addOption(OptionBuilder
+                              .withArgName("number of workers")
+                              .hasArg(true)
+                              .withDescription(
+                                  "(re)build the index using the given number of worker threads, used with -b. " +
+                                      "Defaults to discovery.index.workers")
+                              .create("t"));
+
+        options.addOption(OptionBuilder
+                              .isRequired(false)
+                              .withDescription(
+                                  "resume an interrupted parallel (re)build from its checkpoints, used with -b")
+                              .create("u"));
+
         options.addOption(OptionBuilder
                               .isRequired(false)
                               .withDescription(
@@ -142,8 +157,18 @@ public class IndexClient {
             log.info("Cleaning Index");
             indexer.cleanIndex(line.hasOption("f"));
         } else if (line.hasOption("b")) {
-            log.info("(Re)building index from scratch.");
-            indexer.createIndex(context);
+            int workers = DSpaceServicesFactory.getInstance().getConfigurationService()
+                                               .getIntProperty("discovery.index.workers", 1);
+            if (line.hasOption("t")) {
+                workers = Integer.parseInt(line.getOptionValue("t"));
+            }
+            if (workers > 1 || line.hasOption("u")) {
+                log.info("(Re)building index from scratch using " + workers + " workers.");
+                indexer.createIndex(context, workers, line.hasOption("u"));
+            } else {
+                log.info("(Re)building index from scratch.");
+                indexer.createIndex(context);
+            }
             checkRebuildSpellCheck(line, indexer);
         } else if (line.hasOption("o")) {
             log.info("Optimizing search core.");
@@ -169,6 +194,7 @@ public class IndexClient {
             checkRebuildSpellCheck(line, indexer);
         }
 
+        SolrCommitPolicy.logSummary();
         log.info("Done with indexing");
     }
 
@@ -42,6 +42,18 @@ public class IndexEventConsumer implements Consumer {
                                                    .getServiceByName(IndexingService.class.getName(),
                                                                      IndexingService.class);
 
+    IndexingQueueService indexingQueue = DSpaceServicesFactory.getInstance().getServiceManager()
+                                                              .getServiceByName(IndexingQueueService.class.getName(),
+                                                                                IndexingQueueService.class);
+
+    FacetLabelService facetLabelService = DSpaceServicesFactory.getInstance().getServiceManager()
+                                                               .getServiceByName(FacetLabelService.class.getName(),
+                                                                                 FacetLabelService.class);
+
+    ReadFilterService readFilterService = DSpaceServicesFactory.getInstance().getServiceManager()
+                                                               .getServiceByName(ReadFilterService.class.getName(),
+                                                                                 ReadFilterService.class);
+
     @Override
     public void initialize() throws Exception {
 
@@ -63,6 +75,13 @@ public class IndexEventConsumer implements Consumer {
         }
 
         int st = event.getSubjectType();
+        if (st == Constants.GROUP) {
+            // Group memberships changed, the read filters of the members may no longer be valid
+            if (readFilterService != null) {
+                readFilterService.invalidateAll();
+            }
+            return;
+        }
         if (!(st == Constants.ITEM || st == Constants.BUNDLE
             || st == Constants.COLLECTION || st == Constants.COMMUNITY)) {
             log
@@ -71,6 +90,16 @@ public class IndexEventConsumer implements Consumer {
             return;
         }
 
+        if ((st == Constants.COLLECTION || st == Constants.COMMUNITY) && event.getSubjectID() != null
+            && facetLabelService != null) {
+            // The name shown for this container in the location facets may have changed
+            facetLabelService.invalidate(event.getSubjectID());
+        }
+        if ((st == Constants.COLLECTION || st == Constants.COMMUNITY) && readFilterService != null) {
+            // Administrative rights on this container or its structure may have changed
+            readFilterService.invalidateAll();
+        }
+
         DSpaceObject subject = event.getSubject(ctx);
 
         DSpaceObject object = event.getObject(ctx);
@@ -153,6 +182,10 @@ public class IndexEventConsumer implements Consumer {
 
         if (objectsToUpdate != null && handlesToDelete != null) {
 
+            // With the background queue enabled, only hand the objects over; whatever
+            // the queue cannot take is indexed right here as before
+            boolean queued = indexingQueue != null && indexingQueue.isEnabled();
+
             // update the changed Items not deleted because they were on create list
             for (DSpaceObject o : objectsToUpdate) {
                 /* we let all types through here and
@@ -162,6 +195,9 @@ public class IndexEventConsumer implements Consumer {
                 DSpaceObject iu = ctx.reloadEntity(o);
                 String hdl = iu.getHandle();
                 if (hdl != null && !handlesToDelete.contains(hdl)) {
+                    if (queued && indexingQueue.enqueueUpdate(iu)) {
+                        continue;
+                    }
                     try {
                         indexer.indexContent(ctx, iu, true);
                         log.debug("Indexed "
@@ -174,9 +210,14 @@ public class IndexEventConsumer implements Consumer {
                 }
             }
 
+            int removed = 0;
             for (String hdl : handlesToDelete) {
+                if (queued && indexingQueue.enqueueDelete(hdl)) {
+                    continue;
+                }
                 try {
-                    indexer.unIndexContent(ctx, hdl, true);
+                    indexer.unIndexContent(ctx, hdl, false);
+                    removed++;
                     if (log.isDebugEnabled()) {
                         log.debug("UN-Indexed Item, handle=" + hdl);
                     }
@@ -186,6 +227,15 @@ public class IndexEventConsumer implements Consumer {
 
             }
 
+            if (removed > 0) {
+                // One commit for all removals, made according to the configured commit policy
+                try {
+                    indexer.commit();
+                } catch (Exception e) {
+                    log.error("Failed to commit the removal of " + removed + " objects", e);
+                }
+            }
+
         }
 
         // "free" the resources
@@ -0,0 +1,61 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import org.dspace.content.DSpaceObject;
+
+/**
+ * Queue of pending Discovery index updates, processed in the background so that
+ * the request committing a change does not wait for Solr. Pending updates of the
+ * same object are collapsed into one.
+ */
+public interface IndexingQueueService {
+
+    /**
+     * Whether updates should be queued at all ("discovery.index.async.enabled").
+     *
+     * @return true if the queue is enabled
+     */
+    public boolean isEnabled();
+
+    /**
+     * Queue an object to be (re)indexed.
+     *
+     * @param dso the Item, Collection or Community to index
+     * @return false if the update could not be queued and should be indexed by the caller
+     */
+    public boolean enqueueUpdate(DSpaceObject dso);
+
+    /**
+     * Queue the removal of an object from the index.
+     *
+     * @param handle the handle of the object to remove
+     * @return false if the removal could not be queued and should be done by the caller
+     */
+    public boolean enqueueDelete(String handle);
+
+    /**
+     * @return the number of pending updates held in memory
+     */
+    public int getQueueDepth();
+
+    /**
+     * @return the number of pending updates spilled to the journal file
+     */
+    public long getJournalDepth();
+
+    /**
+     * @return the time in milliseconds the oldest pending update has been waiting, 0 if the queue is empty
+     */
+    public long getLag();
+
+    /**
+     * @return the number of updates indexed since startup
+     */
+    public long getProcessedCount();
+}
@@ -0,0 +1,491 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.dspace.content.DSpaceObject;
+import org.dspace.content.factory.ContentServiceFactory;
+import org.dspace.core.Context;
+import org.dspace.services.ConfigurationService;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * In-memory implementation of the {@link IndexingQueueService}.
+ * <p>
+ * Pending updates are kept in insertion order, keyed by object, so that a second
+ * update of an object still waiting in the queue replaces the first one. The queue
+ * holds at most "discovery.index.async.capacity" updates; once full, further updates
+ * are appended to the journal file "discovery.index.async.journal" if one is
+ * configured, or handed back to the caller to be indexed synchronously. The journal
+ * is read back as soon as the workers have emptied the queue, and is also where the
+ * updates still pending at shutdown are saved. Without a journal, the updates still
+ * pending at shutdown are indexed before the shutdown completes.
+ * <p>
+ * "discovery.index.async.workers" threads take up to "discovery.index.async.batch.size"
+ * updates at a time, index them in their own context with a single Solr request and
+ * commit once per batch. An object is indexed by one worker at a time: an update of an
+ * object being indexed waits in the queue until the worker is done with it.
+ * <p>
+ * The updates of a failed batch are queued again, after the worker has waited
+ * "discovery.index.async.retry.delay" seconds. An update failing
+ * "discovery.index.async.retries" times is written to the journal, or logged if there
+ * is none.
+ */
+public class IndexingQueueServiceImpl implements IndexingQueueService, InitializingBean, DisposableBean {
+
+    private static final Logger log = Logger.getLogger(IndexingQueueServiceImpl.class);
+
+    @Autowired(required = true)
+    protected ConfigurationService configurationService;
+
+    @Autowired(required = true)
+    protected ContentServiceFactory contentServiceFactory;
+
+    @Autowired(required = true)
+    protected IndexingService indexingService;
+
+    protected final Object lock = new Object();
+    protected final LinkedHashMap<String, IndexRequest> queue = new LinkedHashMap<>();
+
+    /**
+     * The keys of the updates being indexed by the workers
+     */
+    protected final Set<String> inProgress = new HashSet<>();
+
+    protected final AtomicLong processed = new AtomicLong();
+    protected long journalDepth = 0;
+
+    protected boolean enabled;
+    protected int capacity;
+    protected int batchSize;
+    protected int retries;
+    protected long retryDelay;
+    protected File journal;
+    protected volatile boolean running;
+
+    protected ExecutorService workers;
+    protected ScheduledExecutorService reporter;
+
+    protected IndexingQueueServiceImpl() {
+
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        enabled = configurationService.getBooleanProperty("discovery.index.async.enabled", false);
+        if (!enabled) {
+            return;
+        }
+        capacity = configurationService.getIntProperty("discovery.index.async.capacity", 10000);
+        batchSize = configurationService.getIntProperty("discovery.index.async.batch.size", 100);
+        retries = configurationService.getIntProperty("discovery.index.async.retries", 3);
+        retryDelay = TimeUnit.SECONDS.toMillis(
+            configurationService.getLongProperty("discovery.index.async.retry.delay", 5));
+        String journalPath = configurationService.getProperty("discovery.index.async.journal");
+        if (StringUtils.isNotBlank(journalPath)) {
+            journal = new File(journalPath);
+            journalDepth = countJournal();
+        }
+
+        running = true;
+        int threads = Math.max(1, configurationService.getIntProperty("discovery.index.async.workers", 1));
+        workers = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            workers.submit(this::work);
+        }
+
+        long interval = configurationService.getLongProperty("discovery.index.async.report.interval", 60);
+        if (interval > 0) {
+            reporter = Executors.newSingleThreadScheduledExecutor();
+            reporter.scheduleAtFixedRate(this::report, interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (!enabled) {
+            return;
+        }
+        synchronized (lock) {
+            running = false;
+            lock.notifyAll();
+        }
+        if (reporter != null) {
+            reporter.shutdownNow();
+        }
+        workers.shutdown();
+        long timeout = configurationService.getLongProperty("discovery.index.async.shutdown.timeout", 30);
+        if (!workers.awaitTermination(timeout, TimeUnit.SECONDS)) {
+            workers.shutdownNow();
+            workers.awaitTermination(timeout, TimeUnit.SECONDS);
+        }
+
+        if (journal != null) {
+            synchronized (lock) {
+                if (!queue.isEmpty()) {
+                    for (IndexRequest request : queue.values()) {
+                        spill(request);
+                    }
+                    log.info("Saved " + queue.size() + " pending index updates to " + journal.getAbsolutePath());
+                    queue.clear();
+                }
+            }
+        } else {
+            int pending = getQueueDepth();
+            if (pending > 0) {
+                log.info("Indexing " + pending + " pending index updates before shutdown");
+            }
+            // Failed updates are queued again until they run out of retries
+            for (List<IndexRequest> batch = take(); !batch.isEmpty(); batch = take()) {
+                process(batch);
+            }
+        }
+
+        synchronized (lock) {
+            if (!inProgress.isEmpty()) {
+                log.error("Workers still indexing " + inProgress + " at shutdown, "
+                              + "run index-discovery to bring the index up to date");
+            }
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled && running;
+    }
+
+    @Override
+    public boolean enqueueUpdate(DSpaceObject dso) {
+        return enqueue(new IndexRequest(dso.getType(), dso.getID(), null));
+    }
+
+    @Override
+    public boolean enqueueDelete(String handle) {
+        return enqueue(new IndexRequest(-1, null, handle));
+    }
+
+    protected boolean enqueue(IndexRequest request) {
+        synchronized (lock) {
+            if (!isEnabled()) {
+                return false;
+            }
+            IndexRequest pending = queue.get(request.key());
+            if (pending != null) {
+                // Already waiting: keep its place (and age) in the queue. An update of an
+                // object being indexed is queued, the worker may have read the object already.
+                return true;
+            }
+            if (queue.size() >= capacity) {
+                return journal != null && spill(request);
+            }
+            queue.put(request.key(), request);
+            lock.notify();
+            return true;
+        }
+    }
+
+    @Override
+    public int getQueueDepth() {
+        synchronized (lock) {
+            return queue.size();
+        }
+    }
+
+    @Override
+    public long getJournalDepth() {
+        synchronized (lock) {
+            return journalDepth;
+        }
+    }
+
+    @Override
+    public long getLag() {
+        synchronized (lock) {
+            if (queue.isEmpty()) {
+                return 0;
+            }
+            return System.currentTimeMillis() - queue.values().iterator().next().enqueued;
+        }
+    }
+
+    @Override
+    public long getProcessedCount() {
+        return processed.get();
+    }
+
+    protected void report() {
+        int depth = getQueueDepth();
+        long spilled = getJournalDepth();
+        if (depth > 0 || spilled > 0) {
+            log.info("Discovery index queue: depth=" + depth + ", journal=" + spilled + ", lag=" + getLag()
+                         + "ms, processed=" + getProcessedCount());
+        }
+    }
+
+    /**
+     * Worker loop: take batches off the queue until shutdown and the queue is empty.
+     */
+    protected void work() {
+        while (!Thread.currentThread().isInterrupted()) {
+            List<IndexRequest> batch = take();
+            if (batch.isEmpty()) {
+                if (!running) {
+                    return;
+                }
+                continue;
+            }
+            if (!process(batch) && retryDelay > 0) {
+                try {
+                    Thread.sleep(retryDelay);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Take the next batch of updates, waiting for a while if there are none. Updates of
+     * objects another worker is indexing are left in the queue.
+     *
+     * @return the batch, empty if nothing arrived in time
+     */
+    protected List<IndexRequest> take() {
+        List<IndexRequest> batch = new ArrayList<>();
+        synchronized (lock) {
+            if (queue.isEmpty() && journalDepth > 0) {
+                reload();
+            }
+            if (queue.isEmpty() && running) {
+                try {
+                    lock.wait(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    running = false;
+                }
+            }
+            Iterator<IndexRequest> iterator = queue.values().iterator();
+            while (iterator.hasNext() && batch.size() < batchSize) {
+                IndexRequest request = iterator.next();
+                if (inProgress.add(request.key())) {
+                    batch.add(request);
+                    iterator.remove();
+                }
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Index one batch of updates in a dedicated context. If the batch fails, its updates
+     * are queued again or, once they have run out of retries, journaled.
+     *
+     * @param batch the updates, taken off the queue
+     * @return whether the batch was indexed
+     */
+    protected boolean process(List<IndexRequest> batch) {
+        Context context = null;
+        boolean indexed = false;
+        try {
+            context = newContext();
+            context.turnOffAuthorisationSystem();
+
+            Map<Integer, List<UUID>> updates = new LinkedHashMap<>();
+            List<String> deletes = new ArrayList<>();
+            for (IndexRequest request : batch) {
+                if (request.handle != null) {
+                    deletes.add(request.handle);
+                } else {
+                    if (!updates.containsKey(request.type)) {
+                        updates.put(request.type, new ArrayList<UUID>());
+                    }
+                    updates.get(request.type).add(request.id);
+                }
+            }
+
+            for (Map.Entry<Integer, List<UUID>> entry : updates.entrySet()) {
+                List<? extends DSpaceObject> dsos = contentServiceFactory.getDSpaceObjectService(entry.getKey())
+                                                                         .findByIds(context, entry.getValue());
+                indexingService.indexContent(context, dsos, true);
+            }
+            for (String handle : deletes) {
+                indexingService.unIndexContent(context, handle);
+            }
+            indexingService.commit();
+            processed.addAndGet(batch.size());
+            indexed = true;
+        } catch (Exception e) {
+            log.error("Failed to index a batch of " + batch.size() + " queued updates", e);
+        } finally {
+            if (context != null) {
+                context.abort();
+            }
+            done(batch, indexed);
+        }
+        return indexed;
+    }
+
+    /**
+     * @return the context the updates of a batch are read with, on the primary database
+     * as a replica may not have the changes just committed yet
+     */
+    protected Context newContext() {
+        return new Context(Context.Mode.READ_ONLY_PRIMARY);
+    }
+
+    /**
+     * Release the objects of a batch for the other workers and, if the batch failed,
+     * queue its updates again, unless the same update was queued meanwhile.
+     *
+     * @param batch   the updates
+     * @param indexed whether the batch was indexed
+     */
+    protected void done(List<IndexRequest> batch, boolean indexed) {
+        synchronized (lock) {
+            for (IndexRequest request : batch) {
+                inProgress.remove(request.key());
+                if (indexed || queue.containsKey(request.key())) {
+                    continue;
+                }
+                request.attempts++;
+                if (request.attempts < retries) {
+                    queue.put(request.key(), request);
+                } else if (journal == null || !spill(request)) {
+                    log.error("Giving up index update " + request.toLine() + " after " + request.attempts
+                                  + " attempts, run index-discovery to bring the index up to date");
+                }
+            }
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Append an update to the journal. Must be called holding the lock.
+     *
+     * @param request the update
+     * @return true if it was written
+     */
+    protected boolean spill(IndexRequest request) {
+        try (PrintWriter writer = new PrintWriter(new FileWriter(journal, true))) {
+            writer.println(request.toLine());
+            journalDepth++;
+            return true;
+        } catch (IOException e) {
+            log.error("Unable to write index update to journal " + journal.getAbsolutePath(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Move the journal into the queue, up to its capacity; whatever does not fit is
+     * written back to the journal. Must be called holding the lock.
+     */
+    protected void reload() {
+        List<IndexRequest> requests = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(journal))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                IndexRequest request = IndexRequest.fromLine(line);
+                if (request != null) {
+                    requests.add(request);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Unable to read index update journal " + journal.getAbsolutePath(), e);
+            return;
+        }
+
+        if (!journal.delete()) {
+            log.error("Unable to truncate index update journal " + journal.getAbsolutePath());
+            return;
+        }
+        journalDepth = 0;
+        for (IndexRequest request : requests) {
+            if (queue.size() < capacity) {
+                if (!queue.containsKey(request.key())) {
+                    queue.put(request.key(), request);
+                }
+            } else {
+                spill(request);
+            }
+        }
+    }
+
+    protected long countJournal() {
+        long count = 0;
+        if (journal.exists()) {
+            try (BufferedReader reader = new BufferedReader(new FileReader(journal))) {
+                while (reader.readLine() != null) {
+                    count++;
+                }
+            } catch (IOException e) {
+                log.error("Unable to read index update journal " + journal.getAbsolutePath(), e);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * A pending update: either an object to index (type and id) or a handle to remove.
+     */
+    protected static class IndexRequest {
+        private final int type;
+        private final UUID id;
+        private final String handle;
+        private final long enqueued = System.currentTimeMillis();
+        private int attempts = 0;
+
+        protected IndexRequest(int type, UUID id, String handle) {
+            this.type = type;
+            this.id = id;
+            this.handle = handle;
+        }
+
+        protected String key() {
+            return handle != null ? "delete-" + handle : type + "-" + id;
+        }
+
+        protected String toLine() {
+            return handle != null ? "D " + handle : "U " + type + " " + id;
+        }
+
+        protected static IndexRequest fromLine(String line) {
+            String[] parts = StringUtils.split(line, ' ');
+            if (parts.length == 2 && "D".equals(parts[0])) {
+                return new IndexRequest(-1, null, parts[1]);
+            } else if (parts.length == 3 && "U".equals(parts[0])) {
+                return new IndexRequest(Integer.parseInt(parts[1]), UUID.fromString(parts[2]), null);
+            }
+            log.warn("Skipping invalid index journal line: " + line);
+            return null;
+        }
+    }
+}
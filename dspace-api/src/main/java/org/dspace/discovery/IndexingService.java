@@ -9,6 +9,7 @@ package org.dspace.discovery;
 
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.List;
 
 import org.dspace.content.DSpaceObject;
 import org.dspace.core.Context;
@@ -31,6 +32,9 @@ public interface IndexingService {
     void indexContent(Context context, DSpaceObject dso,
                       boolean force, boolean commit) throws SQLException, SearchServiceException;
 
+    void indexContent(Context context, List<? extends DSpaceObject> dsos,
+                      boolean force) throws SQLException, SearchServiceException;
+
     void unIndexContent(Context context, DSpaceObject dso)
         throws SQLException, IOException;
 
@@ -48,6 +52,18 @@ public interface IndexingService {
 
     void createIndex(Context context) throws SQLException, IOException;
 
+    /**
+     * Create a full index, indexing the Items on several worker threads which send their documents to the
+     * index in batches. Progress is checkpointed so that an interrupted run can be resumed.
+     *
+     * @param context context to use
+     * @param workers number of worker threads
+     * @param resume  whether to continue from the checkpoints of an interrupted run
+     * @throws SQLException if database error
+     * @throws IOException  if IO error
+     */
+    void createIndex(Context context, int workers, boolean resume) throws SQLException, IOException;
+
     void updateIndex(Context context);
 
     void updateIndex(Context context, boolean force);
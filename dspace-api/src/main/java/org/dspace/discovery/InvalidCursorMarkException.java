@@ -0,0 +1,23 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+/**
+ * Exception thrown when the cursor mark of a query is not one Solr returned for a query sorted
+ * the same way, see {@link DiscoverQuery#setCursorMark(String)}
+ */
+public class InvalidCursorMarkException extends SearchServiceException {
+
+    public InvalidCursorMarkException(String s) {
+        super(s);
+    }
+
+    public InvalidCursorMarkException(String s, Throwable throwable) {
+        super(s, throwable);
+    }
+}
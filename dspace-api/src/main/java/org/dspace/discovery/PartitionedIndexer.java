@@ -0,0 +1,292 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.common.SolrInputDocument;
+import org.dspace.content.Item;
+import org.dspace.content.service.ItemService;
+import org.dspace.core.Context;
+
+/**
+ * Rebuilds the Discovery index for all Items using a pool of worker threads.
+ * <p>
+ * The item identifiers are split into ranges of roughly equal size, one per worker. Every worker uses
+ * its own {@link Context}, sends the documents it builds to Solr in batches and records the last item of
+ * every batch sent in a checkpoint file, so that an interrupted rebuild can be resumed where it stopped.
+ * Collections and Communities are not handled here, there are few enough of them to index them in the
+ * calling thread.
+ */
+public class PartitionedIndexer {
+
+    private static final Logger log = Logger.getLogger(PartitionedIndexer.class);
+
+    private static final String CHECKPOINT_PREFIX = "partition-";
+    private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+
+    private final SolrServiceImpl indexer;
+    private final ItemService itemService;
+    private final int workers;
+    private final int batchSize;
+    private final File checkpointDir;
+
+    /**
+     * @param indexer       the indexing service used to build the documents
+     * @param itemService   the item service used to list the items
+     * @param workers       number of worker threads (and item ranges)
+     * @param batchSize     number of documents sent to Solr at once
+     * @param checkpointDir directory holding the checkpoint files
+     */
+    public PartitionedIndexer(SolrServiceImpl indexer, ItemService itemService, int workers, int batchSize,
+                              File checkpointDir) {
+        this.indexer = indexer;
+        this.itemService = itemService;
+        this.workers = Math.max(1, workers);
+        this.batchSize = Math.max(1, batchSize);
+        this.checkpointDir = checkpointDir;
+    }
+
+    /**
+     * Index all archived and withdrawn Items.
+     *
+     * @param context the calling context, only used to compute the item ranges
+     * @param resume  if <code>true</code>, continue from the checkpoints of an earlier, interrupted run
+     * @return the number of items indexed
+     * @throws SQLException if database error
+     * @throws IOException  if the checkpoints cannot be read or written, or a worker failed
+     */
+    public long index(Context context, boolean resume) throws SQLException, IOException {
+        if (!checkpointDir.exists() && !checkpointDir.mkdirs()) {
+            throw new IOException("Unable to create checkpoint directory " + checkpointDir.getAbsolutePath());
+        }
+
+        List<Checkpoint> partitions = resume ? loadCheckpoints() : new ArrayList<Checkpoint>();
+        if (partitions.isEmpty()) {
+            clearCheckpoints();
+            partitions = createPartitions(context);
+        } else {
+            log.info("Resuming Discovery reindex from " + partitions.size() + " checkpoint(s) in "
+                         + checkpointDir.getAbsolutePath());
+        }
+
+        // Make sure the shared Solr client is initialized before the workers start using it
+        if (indexer.getSolr() == null) {
+            throw new IOException("Discovery Solr server is not available");
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(workers, partitions.size()));
+        List<Future<Long>> results = new ArrayList<>();
+        try {
+            for (final Checkpoint partition : partitions) {
+                if (!partition.complete) {
+                    results.add(executor.submit(() -> indexPartition(partition)));
+                }
+            }
+
+            long count = 0;
+            for (Future<Long> result : results) {
+                count += result.get();
+            }
+            clearCheckpoints();
+            return count;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Discovery reindex interrupted, rerun with resume to continue", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Discovery reindex failed, rerun with resume to continue", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Index all items of one range in a dedicated context.
+     *
+     * @param partition the range to index, updated as batches are sent
+     * @return the number of items indexed
+     * @throws Exception if the range could not be indexed
+     */
+    protected long indexPartition(Checkpoint partition) throws Exception {
+        Context context = new Context(Context.Mode.READ_ONLY);
+        context.turnOffAuthorisationSystem();
+        long count = 0;
+        try {
+            SolrServer solr = indexer.getSolr();
+            List<SolrInputDocument> batch = new ArrayList<>(batchSize);
+            UUID last = partition.last;
+            Iterator<Item> items = itemService.findAllUnfilteredInRange(context, partition.last, partition.upTo);
+            while (items.hasNext()) {
+                Item item = items.next();
+                String handle = item.getHandle();
+                if (handle == null) {
+                    handle = indexer.handleService.findHandle(context, item);
+                }
+
+                SolrInputDocument doc = indexer.buildItemDocument(context, item, handle);
+                FullTextContentStreams streams = new FullTextContentStreams(context, item);
+                if (streams.isEmpty() || indexer.reuseFullText(doc, streams)) {
+                    batch.add(doc);
+                } else {
+                    // Full text has to go through the extracting request handler, one document at a time
+                    indexer.extractDocument(doc, streams);
+                }
+                last = item.getID();
+                count++;
+
+                //To prevent memory issues, discard an object from the cache after processing
+                context.uncacheEntity(item);
+
+                if (batch.size() >= batchSize) {
+                    flush(solr, batch);
+                    partition.save(last);
+                    log.info("Partition " + partition.index + ": indexed " + count + " items");
+                }
+            }
+            flush(solr, batch);
+            partition.complete = true;
+            partition.save(last);
+            log.info("Partition " + partition.index + " done: indexed " + count + " items");
+        } finally {
+            context.abort();
+        }
+        return count;
+    }
+
+    protected void flush(SolrServer solr, List<SolrInputDocument> batch) throws IOException, SolrServerException {
+        if (!batch.isEmpty()) {
+            indexer.getCommitPolicy().add(solr, batch);
+            batch.clear();
+        }
+    }
+
+    protected List<Checkpoint> createPartitions(Context context) throws SQLException, IOException {
+        List<UUID> boundaries = itemService.findUnfilteredPartitionBoundaries(context, workers);
+        List<Checkpoint> partitions = new ArrayList<>();
+        UUID after = null;
+        for (int i = 0; i <= boundaries.size(); i++) {
+            UUID upTo = i < boundaries.size() ? boundaries.get(i) : null;
+            Checkpoint partition = new Checkpoint(new File(checkpointDir, CHECKPOINT_PREFIX + i + CHECKPOINT_SUFFIX),
+                                                  i, upTo);
+            partition.save(after);
+            partitions.add(partition);
+            after = upTo;
+        }
+        return partitions;
+    }
+
+    protected List<Checkpoint> loadCheckpoints() throws IOException {
+        List<Checkpoint> partitions = new ArrayList<>();
+        File[] files = checkpointDir.listFiles((dir, name) -> name.startsWith(CHECKPOINT_PREFIX)
+            && name.endsWith(CHECKPOINT_SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                partitions.add(Checkpoint.load(file));
+            }
+        }
+        return partitions;
+    }
+
+    protected void clearCheckpoints() {
+        File[] files = checkpointDir.listFiles((dir, name) -> name.startsWith(CHECKPOINT_PREFIX)
+            && name.endsWith(CHECKPOINT_SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                if (!file.delete()) {
+                    log.warn("Unable to delete checkpoint " + file.getAbsolutePath());
+                }
+            }
+        }
+    }
+
+    /**
+     * Progress of a single item range: the range upper bound and the last item sent to Solr.
+     */
+    protected static class Checkpoint {
+        private final File file;
+        private final int index;
+        private final UUID upTo;
+        private UUID last;
+        private boolean complete;
+
+        protected Checkpoint(File file, int index, UUID upTo) {
+            this.file = file;
+            this.index = index;
+            this.upTo = upTo;
+        }
+
+        protected int getIndex() {
+            return index;
+        }
+
+        protected UUID getUpTo() {
+            return upTo;
+        }
+
+        protected UUID getLast() {
+            return last;
+        }
+
+        protected boolean isComplete() {
+            return complete;
+        }
+
+        protected static Checkpoint load(File file) throws IOException {
+            Properties properties = new Properties();
+            try (InputStream in = new FileInputStream(file)) {
+                properties.load(in);
+            }
+            Checkpoint checkpoint = new Checkpoint(file, Integer.parseInt(properties.getProperty("index")),
+                                                   toUUID(properties.getProperty("upTo")));
+            checkpoint.last = toUUID(properties.getProperty("last"));
+            checkpoint.complete = Boolean.parseBoolean(properties.getProperty("complete"));
+            return checkpoint;
+        }
+
+        protected synchronized void save(UUID last) throws IOException {
+            this.last = last;
+            Properties properties = new Properties();
+            properties.setProperty("index", String.valueOf(index));
+            properties.setProperty("upTo", upTo == null ? "" : upTo.toString());
+            properties.setProperty("last", last == null ? "" : last.toString());
+            properties.setProperty("complete", String.valueOf(complete));
+
+            // Write to a temporary file first so an interruption never leaves a truncated checkpoint behind
+            File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+            try (OutputStream out = new FileOutputStream(tmp)) {
+                properties.store(out, "Discovery reindex checkpoint");
+            }
+            if (!tmp.renameTo(file)) {
+                throw new IOException("Unable to write checkpoint " + file.getAbsolutePath());
+            }
+        }
+
+        private static UUID toUUID(String value) {
+            return StringUtils.isBlank(value) ? null : UUID.fromString(value);
+        }
+    }
+}
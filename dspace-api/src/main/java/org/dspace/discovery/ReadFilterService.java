@@ -0,0 +1,33 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import java.sql.SQLException;
+
+import org.dspace.core.Context;
+
+/**
+ * Builds the filter query restricting Discovery searches to the objects the current user may read,
+ * from the user's groups and the communities and collections the user administers.
+ */
+public interface ReadFilterService {
+
+    /**
+     * Get the read filter query of the current user of a context.
+     *
+     * @param context the context of the search
+     * @return the filter query, or null if the user is an administrator and may read everything
+     * @throws SQLException if database error
+     */
+    public String getReadFilter(Context context) throws SQLException;
+
+    /**
+     * Forget all cached filter queries, after group memberships or administrative rights changed.
+     */
+    public void invalidateAll();
+}
@@ -0,0 +1,169 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.commons.lang.StringUtils;
+import org.dspace.authorize.service.AuthorizeService;
+import org.dspace.core.Context;
+import org.dspace.eperson.EPerson;
+import org.dspace.eperson.Group;
+import org.dspace.eperson.service.GroupService;
+import org.dspace.services.ConfigurationService;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Read filter service caching the filter query of every user, keyed by the user and the special
+ * groups of the context (e.g. granted by IP authentication), so that the groups and administrative
+ * rights of a user are only looked up once. The cache holds at most "discovery.search.read.cache.size"
+ * filters for "discovery.search.read.cache.ttl" seconds and is emptied by the {@link IndexEventConsumer}
+ * whenever a group, community or collection changes, which includes changes to their policies.
+ * <p>
+ * The groups are listed in a terms query rather than a boolean query when there are more than
+ * "discovery.search.read.terms.threshold" of them, which Solr evaluates much faster.
+ */
+public class ReadFilterServiceImpl implements ReadFilterService, InitializingBean {
+
+    protected static final String READ_FIELD = "read";
+
+    /**
+     * Cached value of administrators, as a cache cannot hold nulls
+     */
+    protected static final String NO_FILTER = "";
+
+    @Autowired(required = true)
+    protected ConfigurationService configurationService;
+
+    @Autowired(required = true)
+    protected AuthorizeService authorizeService;
+
+    @Autowired(required = true)
+    protected GroupService groupService;
+
+    @Autowired(required = true)
+    protected SearchService searchService;
+
+    protected Cache<String, String> filters;
+
+    protected final AtomicLong generation = new AtomicLong();
+
+    protected int termsThreshold;
+
+    protected ReadFilterServiceImpl() {
+
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        filters = CacheBuilder.newBuilder()
+                              .maximumSize(configurationService.getLongProperty("discovery.search.read.cache.size",
+                                                                                10000))
+                              .expireAfterWrite(configurationService.getLongProperty("discovery.search.read.cache.ttl",
+                                                                                     600), TimeUnit.SECONDS)
+                              .build();
+        termsThreshold = configurationService.getIntProperty("discovery.search.read.terms.threshold", 100);
+    }
+
+    @Override
+    public String getReadFilter(Context context) throws SQLException {
+        if (context.ignoreAuthorization()) {
+            return null;
+        }
+        String key = key(context);
+        String filter = filters.getIfPresent(key);
+        if (filter == null) {
+            long before = generation.get();
+            filter = buildReadFilter(context);
+            // Do not cache a filter built while the groups or rights were changing
+            if (before == generation.get()) {
+                filters.put(key, filter);
+            }
+        }
+        return NO_FILTER.equals(filter) ? null : filter;
+    }
+
+    @Override
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        filters.invalidateAll();
+    }
+
+    protected String key(Context context) throws SQLException {
+        StringBuilder key = new StringBuilder();
+        EPerson currentUser = context.getCurrentUser();
+        key.append(currentUser == null ? "anonymous" : currentUser.getID().toString());
+        List<String> specialGroups = new ArrayList<>();
+        for (Group group : context.getSpecialGroups()) {
+            specialGroups.add(group.getID().toString());
+        }
+        Collections.sort(specialGroups);
+        for (String specialGroup : specialGroups) {
+            key.append(',').append(specialGroup);
+        }
+        return key.toString();
+    }
+
+    /**
+     * Build the read filter of the current user.
+     *
+     * @param context the context of the search
+     * @return the filter query, or {@link #NO_FILTER} for administrators
+     * @throws SQLException if database error
+     */
+    protected String buildReadFilter(Context context) throws SQLException {
+        if (authorizeService.isAdmin(context)) {
+            return NO_FILTER;
+        }
+
+        List<String> values = new ArrayList<>();
+        //Always add the anonymous group id to the query
+        Group anonymousGroup = groupService.findByName(context, Group.ANONYMOUS);
+        values.add("g" + (anonymousGroup != null ? anonymousGroup.getID().toString() : ""));
+        EPerson currentUser = context.getCurrentUser();
+        if (currentUser != null) {
+            values.add("e" + currentUser.getID());
+        }
+
+        //Retrieve all the groups the current user is a member of !
+        Set<Group> groups = groupService.allMemberGroupsSet(context, currentUser);
+        for (Group group : groups) {
+            values.add("g" + group.getID());
+        }
+
+        String locationQuery = null;
+        if (authorizeService.isCommunityAdmin(context) || authorizeService.isCollectionAdmin(context)) {
+            locationQuery = searchService.createLocationQueryForAdministrableItems(context);
+        }
+
+        StringBuilder resourceQuery = new StringBuilder();
+        if (values.size() > termsThreshold) {
+            String terms = "{!terms f=" + READ_FIELD + "}" + StringUtils.join(values, ",");
+            if (StringUtils.isNotBlank(locationQuery)) {
+                resourceQuery.append("_query_:\"").append(terms).append("\" OR ").append(locationQuery);
+            } else {
+                resourceQuery.append(terms);
+            }
+        } else {
+            resourceQuery.append(READ_FIELD).append(":(").append(StringUtils.join(values, " OR ")).append(")");
+            if (StringUtils.isNotBlank(locationQuery)) {
+                resourceQuery.append(" OR ").append(locationQuery);
+            }
+        }
+        return resourceQuery.toString();
+    }
+}
@@ -9,6 +9,7 @@ package org.dspace.discovery;
 
 import java.io.InputStream;
 import java.sql.SQLException;
+import java.util.Iterator;
 import java.util.List;
 
 import org.dspace.content.DSpaceObject;
@@ -77,6 +78,22 @@ public interface SearchService {
     DiscoverResult search(Context context, DSpaceObject dso, DiscoverQuery query, boolean includeWithdrawn)
         throws SearchServiceException;
 
+    /**
+     * Iterate over all objects matching a query, however many there are. The results are fetched a
+     * page of {@link DiscoverQuery#getMaxResults()} objects at a time using a cursor, so every page
+     * costs the same. The start offset and cursor mark of the query are ignored; facets should not be
+     * requested as they would be computed again for every page.
+     *
+     * @param context DSpace Context object
+     * @param dso     a DSpace Object to use as scope of the search (only results
+     *                within this object), or null
+     * @param query   the discovery query object
+     * @return an iterator over the matching objects
+     * @throws SearchServiceException if the first page cannot be retrieved
+     */
+    Iterator<DSpaceObject> iterateSearch(Context context, DSpaceObject dso, DiscoverQuery query)
+        throws SearchServiceException;
+
 
     InputStream searchJSON(Context context, DiscoverQuery query, String jsonIdentifier) throws SearchServiceException;
 
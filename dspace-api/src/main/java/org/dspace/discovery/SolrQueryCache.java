@@ -0,0 +1,116 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.params.CommonParams;
+
+/**
+ * Cache of Solr responses to Discovery searches, shared by all requests.
+ * <p>
+ * Entries are keyed by the final Solr query, which holds everything that
+ * determines the response: the normalized DiscoverQuery, the scope filter and
+ * the read authorization filter built from the caller's groups. The cache holds
+ * Solr responses rather than DiscoverResults because the DSpace objects of a
+ * result belong to the Hibernate session of the request that loaded them.
+ * <p>
+ * Every commit to the index starts a new generation: all entries are dropped and
+ * responses of searches started before the commit are not stored anymore. A new
+ * generation must only start once the commit is visible to searches, which is when
+ * the commits of the "immediate" and "soft" commit policies return (they wait for the
+ * new searcher). The cache cannot be used with the "within" policy, where Solr makes
+ * changes visible on its own, some time after DSpace sent them.
+ */
+public class SolrQueryCache {
+
+    private final Cache<String, QueryResponse> responses;
+
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * @param maxSize    maximum number of cached responses
+     * @param ttlSeconds number of seconds a response is kept
+     */
+    public SolrQueryCache(long maxSize, long ttlSeconds) {
+        responses = CacheBuilder.newBuilder()
+                                .maximumSize(maxSize)
+                                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                                .build();
+    }
+
+    /**
+     * Build the cache key of a query in the current generation.
+     *
+     * @param query the Solr query
+     * @return the key
+     */
+    public String key(SolrQuery query) {
+        StringBuilder key = new StringBuilder();
+        key.append(generation.get());
+
+        List<String> names = new ArrayList<>(query.getParameterNames());
+        Collections.sort(names);
+        for (String name : names) {
+            List<String> values = Arrays.asList(query.getParams(name));
+            if (CommonParams.FQ.equals(name)) {
+                // The order of the filter queries does not change the response, unlike e.g. facet.field
+                values = new ArrayList<>(values);
+                Collections.sort(values);
+            }
+            for (String value : values) {
+                key.append('&').append(name).append('=').append(value);
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * @param key the key of the query
+     * @return the cached response, or null
+     */
+    public QueryResponse get(String key) {
+        return responses.getIfPresent(key);
+    }
+
+    /**
+     * Cache a response, unless the index has been committed since its key was built.
+     *
+     * @param key      the key of the query, built before the query was sent
+     * @param response the response
+     */
+    public void put(String key, QueryResponse response) {
+        if (key.startsWith(generation.get() + "&")) {
+            responses.put(key, response);
+        }
+    }
+
+    /**
+     * Start a new generation once a commit to the index is visible, dropping all cached responses.
+     */
+    public void nextGeneration() {
+        generation.incrementAndGet();
+        responses.invalidateAll();
+    }
+
+    /**
+     * @return the number of cached responses
+     */
+    public long size() {
+        return responses.size();
+    }
+}
@@ -9,6 +9,8 @@ package org.dspace.discovery;
 
 import static org.dspace.discovery.configuration.DiscoverySortConfiguration.SCORE;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
@@ -44,10 +46,10 @@ import org.apache.http.client.methods.HttpGet;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.log4j.Logger;
 import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrRequest;
 import org.apache.solr.client.solrj.SolrServer;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.impl.HttpSolrServer;
-import org.apache.solr.client.solrj.request.AbstractUpdateRequest;
 import org.apache.solr.client.solrj.request.ContentStreamUpdateRequest;
 import org.apache.solr.client.solrj.response.FacetField;
 import org.apache.solr.client.solrj.response.QueryResponse;
@@ -56,11 +58,14 @@ import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.CursorMarkParams;
 import org.apache.solr.common.params.FacetParams;
 import org.apache.solr.common.params.HighlightParams;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.params.MoreLikeThisParams;
 import org.apache.solr.common.params.SpellingParams;
+import org.apache.solr.common.util.Base64;
+import org.apache.solr.common.util.JavaBinCodec;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.handler.extraction.ExtractingParams;
 import org.dspace.authorize.ResourcePolicy;
@@ -99,9 +104,11 @@ import org.dspace.discovery.configuration.HierarchicalSidebarFacetConfiguration;
 import org.dspace.eperson.Group;
 import org.dspace.eperson.factory.EPersonServiceFactory;
 import org.dspace.handle.service.HandleService;
+import org.dspace.services.ConfigurationService;
 import org.dspace.services.factory.DSpaceServicesFactory;
 import org.dspace.storage.rdbms.DatabaseUtils;
 import org.dspace.util.MultiFormatDateParser;
+import org.dspace.util.SolrCommitPolicy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -134,6 +141,13 @@ public class SolrServiceImpl implements SearchService, IndexingService {
     protected static final String HANDLE_FIELD = "handle";
     protected static final String RESOURCE_TYPE_FIELD = "search.resourcetype";
     protected static final String RESOURCE_ID_FIELD = "search.resourceid";
+    protected static final String FULLTEXT_FIELD = "fulltext";
+    protected static final String FULLTEXT_CHECKSUM_FIELD = "SolrIndexer.fulltextChecksum";
+
+    /**
+     * Maximum number of objects whose index documents are fetched by a single staleness query
+     */
+    protected static final int STALENESS_QUERY_LIMIT = 1000;
 
     public static final String FILTER_SEPARATOR = "\n|||\n";
 
@@ -157,12 +171,21 @@ public class SolrServiceImpl implements SearchService, IndexingService {
     protected HandleService handleService;
     @Autowired(required = true)
     protected MetadataAuthorityService metadataAuthorityService;
+    @Autowired(required = true)
+    protected FacetLabelService facetLabelService;
 
     /**
      * Non-Static SolrServer for processing indexing events.
      */
     protected SolrServer solr = null;
 
+    /**
+     * Cache of search responses, null until first used or when "discovery.search.cache.enabled" is off.
+     */
+    protected volatile SolrQueryCache queryCache = null;
+
+    protected volatile boolean queryCacheInitialized = false;
+
 
     protected SolrServiceImpl() {
 
@@ -205,6 +228,65 @@ public class SolrServiceImpl implements SearchService, IndexingService {
         return solr;
     }
 
+    /**
+     * The policy deciding how the changes sent to the search core are committed ("discovery.commit.policy").
+     *
+     * @return the commit policy of the search core
+     */
+    protected SolrCommitPolicy getCommitPolicy() {
+        return SolrCommitPolicy.getInstance("discovery");
+    }
+
+    /**
+     * Get the search response cache, creating it on first use.
+     *
+     * @return the cache, or null if disabled
+     */
+    protected SolrQueryCache getQueryCache() {
+        if (!queryCacheInitialized) {
+            synchronized (this) {
+                if (!queryCacheInitialized) {
+                    queryCache = createQueryCache(DSpaceServicesFactory.getInstance().getConfigurationService());
+                    queryCacheInitialized = true;
+                }
+            }
+        }
+        return queryCache;
+    }
+
+    /**
+     * Create the search response cache if it is enabled. It is not created when the commit
+     * policy lets Solr make changes visible after DSpace commits, as the responses cached
+     * in between would outlive the commit that should drop them.
+     *
+     * @param configurationService the configuration
+     * @return the cache, or null if disabled
+     */
+    protected SolrQueryCache createQueryCache(ConfigurationService configurationService) {
+        if (!configurationService.getBooleanProperty("discovery.search.cache.enabled", false)) {
+            return null;
+        }
+        if (!getCommitPolicy().isVisibleOnCommit()) {
+            log.warn("Not caching search responses: with the " + getCommitPolicy().getMode().name()
+                         .toLowerCase(Locale.ROOT) + " discovery.commit.policy, changes become visible after the "
+                         + "commits that would drop the cached responses");
+            return null;
+        }
+        return new SolrQueryCache(configurationService.getLongProperty("discovery.search.cache.size", 1000),
+                                  configurationService.getLongProperty("discovery.search.cache.ttl", 60));
+    }
+
+    /**
+     * Called after every commit sent to Solr, once the commit is visible: cached search
+     * responses may now be outdated.
+     */
+    protected void indexCommitted() {
+        SolrQueryCache cache = queryCache;
+        if (cache != null) {
+            cache.nextGeneration();
+        }
+    }
+
     /**
      * If the handle for the "dso" already exists in the index, and the "dso"
      * has a lastModified timestamp that is newer than the document in the index
@@ -283,6 +365,69 @@ public class SolrServiceImpl implements SearchService, IndexingService {
         }
     }
 
+    /**
+     * Index several objects at once. Documents without full text are sent to
+     * Solr in a single request and Items that are neither archived nor withdrawn
+     * are removed from the index with a single delete.
+     *
+     * @param context Users Context
+     * @param dsos    DSpace Objects (Items, Collections or Communities)
+     * @param force   Force update even if not stale.
+     * @throws SQLException           if database error
+     * @throws SearchServiceException if something went wrong with the solr server
+     */
+    @Override
+    public void indexContent(Context context, List<? extends DSpaceObject> dsos, boolean force)
+        throws SQLException, SearchServiceException {
+        if (getSolr() == null || dsos.isEmpty()) {
+            return;
+        }
+
+        List<SolrInputDocument> docs = new ArrayList<>();
+        List<String> toDelete = new ArrayList<>();
+        try {
+            for (DSpaceObject dso : dsos) {
+                switch (dso.getType()) {
+                    case Constants.ITEM:
+                        Item item = (Item) dso;
+                        String handle = item.getHandle();
+                        if (handle == null) {
+                            handle = handleService.findHandle(context, item);
+                        }
+                        if (!item.isArchived() && !item.isWithdrawn()) {
+                            toDelete.add(item.getType() + "-" + item.getID());
+                        } else if (force || requiresIndexing(handle, item.getLastModified())) {
+                            SolrInputDocument doc = buildItemDocument(context, item, handle);
+                            FullTextContentStreams streams = new FullTextContentStreams(context, item);
+                            if (streams.isEmpty() || reuseFullText(doc, streams)) {
+                                docs.add(doc);
+                            } else {
+                                extractDocument(doc, streams);
+                            }
+                        }
+                        break;
+                    case Constants.COLLECTION:
+                        docs.add(buildCollectionDocument(context, (Collection) dso));
+                        break;
+                    case Constants.COMMUNITY:
+                        docs.add(buildCommunityDocument(context, (Community) dso));
+                        break;
+                    default:
+                        log.error("Only Items, Collections and Communities can be Indexed");
+                }
+            }
+
+            if (!docs.isEmpty()) {
+                getCommitPolicy().add(getSolr(), docs);
+            }
+            if (!toDelete.isEmpty()) {
+                getCommitPolicy().deleteById(getSolr(), toDelete);
+            }
+        } catch (SolrServerException | IOException e) {
+            throw new SearchServiceException(e.getMessage(), e);
+        }
+    }
+
     /**
      * unIndex removes an Item, Collection, or Community
      *
@@ -314,9 +459,10 @@ public class SolrServiceImpl implements SearchService, IndexingService {
                 return;
             }
             String uniqueID = dso.getType() + "-" + dso.getID();
-            getSolr().deleteById(uniqueID);
+            getCommitPolicy().deleteById(getSolr(), uniqueID);
             if (commit) {
-                getSolr().commit();
+                getCommitPolicy().commit(getSolr());
+                indexCommitted();
             }
         } catch (Exception exception) {
             log.error(exception.getMessage(), exception);
@@ -351,9 +497,10 @@ public class SolrServiceImpl implements SearchService, IndexingService {
 
         try {
             if (getSolr() != null) {
-                getSolr().deleteByQuery(HANDLE_FIELD + ":\"" + handle + "\"");
+                getCommitPolicy().deleteByQuery(getSolr(), HANDLE_FIELD + ":\"" + handle + "\"");
                 if (commit) {
-                    getSolr().commit();
+                    getCommitPolicy().commit(getSolr());
+                    indexCommitted();
                 }
             }
         } catch (SolrServerException e) {
@@ -392,6 +539,47 @@ public class SolrServiceImpl implements SearchService, IndexingService {
     }
 
 
+    /**
+     * create full index using a pool of workers, each one indexing a range of
+     * the Items in its own context and sending the documents to Solr in batches
+     * of "discovery.index.batch.size". The progress of every range is written to
+     * "discovery.index.checkpoint.dir" so an interrupted run can be resumed.
+     *
+     * @param context context to use
+     * @param workers number of worker threads
+     * @param resume  continue from the checkpoints of an interrupted run
+     */
+    @Override
+    public void createIndex(Context context, int workers, boolean resume) throws SQLException, IOException {
+        int batchSize = DSpaceServicesFactory.getInstance().getConfigurationService()
+                                             .getIntProperty("discovery.index.batch.size", 500);
+        String checkpointDir = DSpaceServicesFactory.getInstance().getConfigurationService()
+                                                    .getProperty("discovery.index.checkpoint.dir");
+        if (StringUtils.isBlank(checkpointDir)) {
+            checkpointDir = DSpaceServicesFactory.getInstance().getConfigurationService().getProperty("dspace.dir")
+                + File.separator + "var" + File.separator + "discovery-reindex";
+        }
+
+        long start = System.currentTimeMillis();
+        long count = new PartitionedIndexer(this, itemService, workers, batchSize, new File(checkpointDir))
+            .index(context, resume);
+        log.info("Indexed " + count + " items on " + workers + " workers in "
+                     + (System.currentTimeMillis() - start) / 1000 + " seconds");
+
+        for (Collection collection : collectionService.findAll(context)) {
+            indexContent(context, collection, true);
+        }
+        for (Community community : communityService.findAll(context)) {
+            indexContent(context, community, true);
+        }
+
+        try {
+            commit();
+        } catch (SearchServiceException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
     /**
      * Iterates over all Items, Collections and Communities. And updates them in
      * the index. Uses decaching to control memory footprint. Uses indexContent
@@ -421,25 +609,52 @@ public class SolrServiceImpl implements SearchService, IndexingService {
     public void updateIndex(Context context, boolean force) {
         try {
             Iterator<Item> items = null;
-            for (items = itemService.findAllUnfiltered(context); items.hasNext(); ) {
-                Item item = items.next();
-                indexContent(context, item, force);
-                //To prevent memory issues, discard an object from the cache after processing
-                context.uncacheEntity(item);
+            if (force) {
+                for (items = itemService.findAllUnfiltered(context); items.hasNext(); ) {
+                    Item item = items.next();
+                    indexContent(context, item, force);
+                    //To prevent memory issues, discard an object from the cache after processing
+                    context.uncacheEntity(item);
+                }
+            } else {
+                // Check the items against the index a page at a time rather than with one query per item
+                int pageSize = getStalenessBatchSize();
+                List<Item> page = new ArrayList<>(pageSize);
+                for (items = itemService.findAllUnfiltered(context); items.hasNext(); ) {
+                    page.add(items.next());
+                    if (page.size() >= pageSize) {
+                        indexStale(context, Constants.ITEM, page);
+                        page.clear();
+                    }
+                }
+                indexStale(context, Constants.ITEM, page);
             }
 
+            // Collections and communities are sent to Solr a page at a time
+            int pageSize = getStalenessBatchSize();
             List<Collection> collections = collectionService.findAll(context);
-            for (Collection collection : collections) {
-                indexContent(context, collection, force);
+            for (int start = 0; start < collections.size(); start += pageSize) {
+                List<Collection> page = collections.subList(start, Math.min(collections.size(), start + pageSize));
+                if (force) {
+                    indexContent(context, page, true);
+                } else {
+                    indexStale(context, Constants.COLLECTION, page);
+                }
             }
 
             List<Community> communities = communityService.findAll(context);
-            for (Community community : communities) {
-                indexContent(context, community, force);
+            for (int start = 0; start < communities.size(); start += pageSize) {
+                List<Community> page = communities.subList(start, Math.min(communities.size(), start + pageSize));
+                if (force) {
+                    indexContent(context, page, true);
+                } else {
+                    indexStale(context, Constants.COMMUNITY, page);
+                }
             }
 
             if (getSolr() != null) {
-                getSolr().commit();
+                getCommitPolicy().commit(getSolr());
+                indexCommitted();
             }
 
         } catch (Exception e) {
@@ -468,7 +683,7 @@ public class SolrServiceImpl implements SearchService, IndexingService {
                 return;
             }
             if (force) {
-                getSolr().deleteByQuery(RESOURCE_TYPE_FIELD + ":[2 TO 4]");
+                getCommitPolicy().deleteByQuery(getSolr(), RESOURCE_TYPE_FIELD + ":[2 TO 4]");
             } else {
                 SolrQuery query = new SolrQuery();
                 // Query for all indexed Items, Collections and Communities,
@@ -643,6 +858,114 @@ public class SolrServiceImpl implements SearchService, IndexingService {
     }
 
 
+    /**
+     * @return the number of objects checked against the index and sent to Solr at once by
+     * {@link #updateIndex(Context, boolean)}
+     */
+    protected int getStalenessBatchSize() {
+        return Math.max(1, DSpaceServicesFactory.getInstance().getConfigurationService()
+                                                .getIntProperty("discovery.index.staleness.batch.size", 500));
+    }
+
+    /**
+     * Reindex the objects of the given page that are missing from the index or
+     * whose index document is older than their last modification, then discard
+     * all of them from the context cache. Collections and communities have no
+     * last modification date, so they are always reindexed.
+     *
+     * @param context DSpace context
+     * @param type    the type of the DSpace objects
+     * @param dsos    the page of objects to check
+     * @throws SQLException           sql exception
+     * @throws SearchServiceException if something went wrong with querying the solr server
+     */
+    protected void indexStale(Context context, int type, List<? extends DSpaceObject> dsos)
+        throws SQLException, SearchServiceException {
+        if (dsos.isEmpty()) {
+            return;
+        }
+        Map<UUID, Date> lastModified = new HashMap<>();
+        for (DSpaceObject dso : dsos) {
+            lastModified.put(dso.getID(), dso instanceof Item ? ((Item) dso).getLastModified() : null);
+        }
+        Set<UUID> staleIds = requiresIndexing(type, lastModified);
+        List<DSpaceObject> stale = new ArrayList<>(staleIds.size());
+        for (DSpaceObject dso : dsos) {
+            if (staleIds.contains(dso.getID())) {
+                stale.add(dso);
+            }
+        }
+        indexContent(context, stale, true);
+        for (DSpaceObject dso : dsos) {
+            //To prevent memory issues, discard an object from the cache after processing
+            context.uncacheEntity(dso);
+        }
+    }
+
+    /**
+     * Batch version of {@link #requiresIndexing(String, Date)}: fetches the
+     * last indexed time stamps of the given objects with one query per
+     * {@link #STALENESS_QUERY_LIMIT} objects and compares them with the last
+     * modified time stamps from the database.
+     *
+     * @param type         the type of the DSpace objects
+     * @param lastModified the last modified date of every DSpace object, by id, null
+     *                     when the object has none and must always be reindexed
+     * @return the ids of the objects that are not in the index or whose index
+     * document is older than their last modification
+     * @throws SearchServiceException if something went wrong with querying the solr server
+     */
+    protected Set<UUID> requiresIndexing(int type, Map<UUID, Date> lastModified) throws SearchServiceException {
+        Set<UUID> stale = new HashSet<>();
+        if (lastModified.isEmpty() || getSolr() == null) {
+            return stale;
+        }
+
+        List<UUID> ids = new ArrayList<>(lastModified.size());
+        for (Map.Entry<UUID, Date> entry : lastModified.entrySet()) {
+            if (entry.getValue() == null) {
+                stale.add(entry.getKey());
+            } else {
+                ids.add(entry.getKey());
+            }
+        }
+
+        Set<UUID> inIndex = new HashSet<>();
+        for (int start = 0; start < ids.size(); start += STALENESS_QUERY_LIMIT) {
+            List<UUID> chunk = ids.subList(start, Math.min(ids.size(), start + STALENESS_QUERY_LIMIT));
+            SolrQuery query = new SolrQuery();
+            query.setQuery(RESOURCE_TYPE_FIELD + ":" + type);
+            // The terms parser matches the ids without a boolean clause per id
+            query.addFilterQuery("{!terms f=" + RESOURCE_ID_FIELD + "}" + StringUtils.join(chunk, ","));
+            query.setFields(RESOURCE_ID_FIELD, LAST_INDEXED_FIELD);
+            query.setRows(chunk.size());
+
+            QueryResponse rsp;
+            try {
+                // The list of ids is too long for a GET request
+                rsp = getSolr().query(query, SolrRequest.METHOD.POST);
+            } catch (SolrServerException e) {
+                throw new SearchServiceException(e.getMessage(), e);
+            }
+
+            for (SolrDocument doc : rsp.getResults()) {
+                UUID id = UUID.fromString(String.valueOf(doc.getFirstValue(RESOURCE_ID_FIELD)));
+                inIndex.add(id);
+                Object value = doc.getFieldValue(LAST_INDEXED_FIELD);
+                Date modified = lastModified.get(id);
+                if (value instanceof Date && modified != null && ((Date) value).before(modified)) {
+                    stale.add(id);
+                }
+            }
+        }
+        for (UUID id : ids) {
+            if (!inIndex.contains(id)) {
+                stale.add(id);
+            }
+        }
+        return stale;
+    }
+
     /**
      * @param context DSpace context
      * @param myitem  the item for which our locations are to be retrieved
@@ -763,34 +1086,104 @@ public class SolrServiceImpl implements SearchService, IndexingService {
 
         try {
             if (getSolr() != null) {
-                if (streams != null && !streams.isEmpty()) {
-                    ContentStreamUpdateRequest req = new ContentStreamUpdateRequest("/update/extract");
-                    req.addContentStream(streams);
+                if (streams != null && !streams.isEmpty() && !reuseFullText(doc, streams)) {
+                    extractDocument(doc, streams);
+                } else {
+                    getCommitPolicy().add(getSolr(), doc);
+                }
+            }
+        } catch (SolrServerException e) {
+            log.error(e.getMessage(), e);
+        }
+    }
 
-                    ModifiableSolrParams params = new ModifiableSolrParams();
+    /**
+     * Write the document to the index along with the text extracted from its full text
+     * bitstreams, once {@link #reuseFullText(SolrInputDocument, FullTextContentStreams)}
+     * found that the full text has to be extracted.
+     *
+     * @param doc     the solr document to be written to the server
+     * @param streams list of bitstream content streams
+     * @throws IOException A general class of exceptions produced by failed or interrupted I/O operations.
+     */
+    protected void extractDocument(SolrInputDocument doc, FullTextContentStreams streams) throws IOException {
+        if (getSolr() == null) {
+            return;
+        }
+        ContentStreamUpdateRequest req = new ContentStreamUpdateRequest("/update/extract");
+        req.addContentStream(streams);
 
-                    //req.setParam(ExtractingParams.EXTRACT_ONLY, "true");
-                    for (String name : doc.getFieldNames()) {
-                        for (Object val : doc.getFieldValues(name)) {
-                            params.add(ExtractingParams.LITERALS_PREFIX + name, val.toString());
-                        }
-                    }
+        ModifiableSolrParams params = new ModifiableSolrParams();
 
-                    req.setParams(params);
-                    req.setParam(ExtractingParams.UNKNOWN_FIELD_PREFIX, "attr_");
-                    req.setParam(ExtractingParams.MAP_PREFIX + "content", "fulltext");
-                    req.setParam(ExtractingParams.EXTRACT_FORMAT, "text");
-                    req.setAction(AbstractUpdateRequest.ACTION.COMMIT, true, true);
-                    req.process(getSolr());
-                } else {
-                    getSolr().add(doc);
-                }
+        //req.setParam(ExtractingParams.EXTRACT_ONLY, "true");
+        for (String name : doc.getFieldNames()) {
+            for (Object val : doc.getFieldValues(name)) {
+                params.add(ExtractingParams.LITERALS_PREFIX + name, val.toString());
             }
+        }
+
+        req.setParams(params);
+        req.setParam(ExtractingParams.UNKNOWN_FIELD_PREFIX, "attr_");
+        req.setParam(ExtractingParams.MAP_PREFIX + "content", "fulltext");
+        req.setParam(ExtractingParams.EXTRACT_FORMAT, "text");
+        try {
+            getCommitPolicy().prepare(req);
+            getCommitPolicy().process(getSolr(), req);
+            indexCommitted();
         } catch (SolrServerException e) {
             log.error(e.getMessage(), e);
         }
     }
 
+    /**
+     * Complete an item document with the full text already in the index, if the full text
+     * bitstreams have not changed since it was extracted. The document can then be sent as a
+     * plain update, without streaming the bitstreams through the extracting request handler.
+     * Otherwise the checksums of the bitstreams are added to the document, to be stored along
+     * with the newly extracted text.
+     *
+     * @param doc     the item document
+     * @param streams the full text bitstreams of the item
+     * @return true if the document now holds the full text, false if it has to be extracted
+     * @throws SolrServerException if the indexed document cannot be retrieved
+     */
+    protected boolean reuseFullText(SolrInputDocument doc, FullTextContentStreams streams)
+        throws SolrServerException {
+        String checksum = streams.getChecksum();
+        if (checksum == null) {
+            return false;
+        }
+        doc.setField(FULLTEXT_CHECKSUM_FIELD, checksum);
+        if (!DSpaceServicesFactory.getInstance().getConfigurationService()
+                                  .getBooleanProperty("discovery.index.fulltext.reuse", true)) {
+            return false;
+        }
+
+        SolrQuery query = new SolrQuery("*:*");
+        query.addFilterQuery("search.uniqueid:\"" + doc.getFieldValue("search.uniqueid") + "\"");
+        // The extracting request handler stores the Tika metadata in the attr_ fields
+        query.setFields(FULLTEXT_CHECKSUM_FIELD, FULLTEXT_FIELD, "attr_*");
+        query.setRows(1);
+        SolrDocumentList results = getSolr().query(query).getResults();
+        if (results.isEmpty()) {
+            return false;
+        }
+        SolrDocument indexed = results.get(0);
+        if (!checksum.equals(indexed.getFieldValue(FULLTEXT_CHECKSUM_FIELD))
+            || indexed.getFieldValues(FULLTEXT_FIELD) == null) {
+            return false;
+        }
+
+        for (String name : indexed.getFieldNames()) {
+            if (!FULLTEXT_CHECKSUM_FIELD.equals(name)) {
+                for (Object value : indexed.getFieldValues(name)) {
+                    doc.addField(name, value);
+                }
+            }
+        }
+        return true;
+    }
+
     /**
      * Build a solr document for a DSpace Community.
      *
@@ -801,6 +1194,19 @@ public class SolrServiceImpl implements SearchService, IndexingService {
      */
     protected void buildDocument(Context context, Community community)
         throws SQLException, IOException {
+        writeDocument(buildCommunityDocument(context, community), null);
+    }
+
+    /**
+     * Build the Solr document for a DSpace Community without writing it to the index.
+     *
+     * @param context   The relevant DSpace Context.
+     * @param community Community to be indexed
+     * @return the Solr document
+     * @throws SQLException if database error
+     */
+    protected SolrInputDocument buildCommunityDocument(Context context, Community community)
+        throws SQLException {
         // Create Document
         SolrInputDocument doc = buildDocument(Constants.COMMUNITY, community.getID(),
                                               community.getHandle(), null);
@@ -841,7 +1247,7 @@ public class SolrServiceImpl implements SearchService, IndexingService {
             solrServiceIndexPlugin.additionalIndex(context, community, doc);
         }
 
-        writeDocument(doc, null);
+        return doc;
     }
 
     /**
@@ -854,6 +1260,19 @@ public class SolrServiceImpl implements SearchService, IndexingService {
      */
     protected void buildDocument(Context context, Collection collection)
         throws SQLException, IOException {
+        writeDocument(buildCollectionDocument(context, collection), null);
+    }
+
+    /**
+     * Build the Solr document for a DSpace Collection without writing it to the index.
+     *
+     * @param context    The relevant DSpace Context.
+     * @param collection Collection to be indexed
+     * @return the Solr document
+     * @throws SQLException sql exception
+     */
+    protected SolrInputDocument buildCollectionDocument(Context context, Collection collection)
+        throws SQLException {
         List<String> locations = getCollectionLocations(context, collection);
 
         // Create Lucene Document
@@ -903,7 +1322,7 @@ public class SolrServiceImpl implements SearchService, IndexingService {
             solrServiceIndexPlugin.additionalIndex(context, collection, doc);
         }
 
-        writeDocument(doc, null);
+        return doc;
     }
 
     /**
@@ -944,6 +1363,29 @@ public class SolrServiceImpl implements SearchService, IndexingService {
             handle = handleService.findHandle(context, item);
         }
 
+        SolrInputDocument doc = buildItemDocument(context, item, handle);
+
+        // write the index and close the inputstreamreaders
+        try {
+            writeDocument(doc, new FullTextContentStreams(context, item));
+            log.info("Wrote Item: " + handle + " to Index");
+        } catch (RuntimeException e) {
+            log.error("Error while writing item to discovery index: " + handle + " message:" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Build the Solr document for a DSpace Item without writing it to the index.
+     *
+     * @param context Users Context
+     * @param item    The DSpace Item to be indexed
+     * @param handle  The handle of the item
+     * @return the Solr document, without the full text of the item's bitstreams
+     * @throws SQLException if database error
+     */
+    protected SolrInputDocument buildItemDocument(Context context, Item item, String handle)
+        throws SQLException {
+
         // get the location string (for searching by collection & community)
         List<String> locations = getItemLocations(context, item);
 
@@ -1380,13 +1822,7 @@ public class SolrServiceImpl implements SearchService, IndexingService {
             solrServiceIndexPlugin.additionalIndex(context, item, doc);
         }
 
-        // write the index and close the inputstreamreaders
-        try {
-            writeDocument(doc, new FullTextContentStreams(context, item));
-            log.info("Wrote Item: " + handle + " to Index");
-        } catch (RuntimeException e) {
-            log.error("Error while writing item to discovery index: " + handle + " message:" + e.getMessage(), e);
-        }
+        return doc;
     }
 
     /**
@@ -1503,15 +1939,7 @@ public class SolrServiceImpl implements SearchService, IndexingService {
 
     public String locationToName(Context context, String field, String value) throws SQLException {
         if ("location.comm".equals(field) || "location.coll".equals(field)) {
-            int type = ("location.comm").equals(field) ? Constants.COMMUNITY : Constants.COLLECTION;
-            DSpaceObject commColl = null;
-            if (StringUtils.isNotBlank(value)) {
-                commColl = contentServiceFactory.getDSpaceObjectService(type).find(context, UUID.fromString(value));
-            }
-            if (commColl != null) {
-                return commColl.getName();
-            }
-
+            return facetLabelService.getLabel(context, field, value);
         }
         return value;
     }
@@ -1532,6 +1960,12 @@ public class SolrServiceImpl implements SearchService, IndexingService {
     @Override
     public DiscoverResult search(Context context, DSpaceObject dso, DiscoverQuery discoveryQuery,
                                  boolean includeUnDiscoverable) throws SearchServiceException {
+        addScopeFilter(discoveryQuery, dso);
+        return search(context, discoveryQuery, includeUnDiscoverable);
+
+    }
+
+    protected void addScopeFilter(DiscoverQuery discoveryQuery, DSpaceObject dso) {
         if (dso != null) {
             if (dso instanceof Community) {
                 discoveryQuery.addFilterQueries("location:m" + dso.getID());
@@ -1541,8 +1975,17 @@ public class SolrServiceImpl implements SearchService, IndexingService {
                 discoveryQuery.addFilterQueries(HANDLE_FIELD + ":" + dso.getHandle());
             }
         }
-        return search(context, discoveryQuery, includeUnDiscoverable);
+    }
 
+    @Override
+    public Iterator<DSpaceObject> iterateSearch(Context context, DSpaceObject dso, DiscoverQuery discoveryQuery)
+        throws SearchServiceException {
+        addScopeFilter(discoveryQuery, dso);
+        if (discoveryQuery.getMaxResults() <= 0) {
+            discoveryQuery.setMaxResults(DSpaceServicesFactory.getInstance().getConfigurationService()
+                                                              .getIntProperty("discovery.search.cursor.rows", 100));
+        }
+        return new DiscoverResultIterator(this, context, discoveryQuery);
     }
 
 
@@ -1554,16 +1997,56 @@ public class SolrServiceImpl implements SearchService, IndexingService {
                 return new DiscoverResult();
             }
             SolrQuery solrQuery = resolveToSolrQuery(context, discoveryQuery, includeUnDiscoverable);
-
-
-            QueryResponse queryResponse = getSolr().query(solrQuery);
+            checkCursorMark(solrQuery);
+
+            // The Solr query holds the scope and the read filter of the current user's groups, so
+            // identical queries from users with the same groups share a cache entry
+            SolrQueryCache cache = getQueryCache();
+            String cacheKey = null;
+            QueryResponse queryResponse = null;
+            if (cache != null) {
+                cacheKey = cache.key(solrQuery);
+                queryResponse = cache.get(cacheKey);
+            }
+            if (queryResponse == null) {
+                queryResponse = getSolr().query(solrQuery);
+                if (cache != null) {
+                    cache.put(cacheKey, queryResponse);
+                }
+            }
             return retrieveResult(context, discoveryQuery, queryResponse);
 
+        } catch (InvalidCursorMarkException e) {
+            throw e;
         } catch (Exception e) {
             throw new org.dspace.discovery.SearchServiceException(e.getMessage(), e);
         }
     }
 
+    /**
+     * Check the cursor mark of a query before sending it: Solr issues the sort values of the last
+     * result of a page, serialized and encoded in Base64, as the cursor mark of the next page.
+     *
+     * @param solrQuery the query, with its sort fields
+     * @throws InvalidCursorMarkException if the cursor mark does not hold a value per sort field
+     */
+    protected void checkCursorMark(SolrQuery solrQuery) throws InvalidCursorMarkException {
+        String cursorMark = solrQuery.get(CursorMarkParams.CURSOR_MARK_PARAM);
+        if (cursorMark == null || CursorMarkParams.CURSOR_MARK_START.equals(cursorMark)) {
+            return;
+        }
+        Object values;
+        try {
+            values = new JavaBinCodec().unmarshal(new ByteArrayInputStream(Base64.base64ToByteArray(cursorMark)));
+        } catch (IOException | RuntimeException e) {
+            throw new InvalidCursorMarkException("Invalid cursor mark " + cursorMark, e);
+        }
+        int sortFields = StringUtils.split(solrQuery.get(CommonParams.SORT, ""), ',').length;
+        if (!(values instanceof List) || ((List<?>) values).size() != sortFields) {
+            throw new InvalidCursorMarkException("Cursor mark " + cursorMark + " does not match the sort of the query");
+        }
+    }
+
     protected SolrQuery resolveToSolrQuery(Context context, DiscoverQuery discoveryQuery,
                                            boolean includeUnDiscoverable) {
         SolrQuery solrQuery = new SolrQuery();
@@ -1609,7 +2092,10 @@ public class SolrServiceImpl implements SearchService, IndexingService {
             solrQuery.addFilterQuery(filterQuery + ":[* TO *]");
         }
 
-        if (discoveryQuery.getStart() != -1) {
+        if (discoveryQuery.getCursorMark() != null) {
+            // A cursor replaces the start offset
+            solrQuery.set(CursorMarkParams.CURSOR_MARK_PARAM, discoveryQuery.getCursorMark());
+        } else if (discoveryQuery.getStart() != -1) {
             solrQuery.setStart(discoveryQuery.getStart());
         }
 
@@ -1625,6 +2111,13 @@ public class SolrServiceImpl implements SearchService, IndexingService {
 
             solrQuery.addSortField(discoveryQuery.getSortField(), order);
         }
+        if (discoveryQuery.getCursorMark() != null) {
+            // A cursor needs a total order, break ties on the unique key
+            if (discoveryQuery.getSortField() == null) {
+                solrQuery.addSortField("score", SolrQuery.ORDER.desc);
+            }
+            solrQuery.addSortField("search.uniqueid", SolrQuery.ORDER.asc);
+        }
 
         for (String property : discoveryQuery.getProperties().keySet()) {
             List<String> values = discoveryQuery.getProperties().get(property);
@@ -1748,11 +2241,15 @@ public class SolrServiceImpl implements SearchService, IndexingService {
             result.setSearchTime(solrQueryResponse.getQTime());
             result.setStart(query.getStart());
             result.setMaxResults(query.getMaxResults());
+            result.setNextCursorMark(solrQueryResponse.getNextCursorMark());
             result.setTotalSearchResults(solrQueryResponse.getResults().getNumFound());
 
             List<String> searchFields = query.getSearchFields();
-            for (SolrDocument doc : solrQueryResponse.getResults()) {
-                DSpaceObject dso = findDSpaceObject(context, doc);
+            SolrDocumentList docs = solrQueryResponse.getResults();
+            List<DSpaceObject> dsos = findDSpaceObjects(context, docs);
+            for (int d = 0; d < docs.size(); d++) {
+                SolrDocument doc = docs.get(d);
+                DSpaceObject dso = dsos.get(d);
 
                 if (dso != null) {
                     result.addDSpaceObject(dso);
@@ -1796,12 +2293,22 @@ public class SolrServiceImpl implements SearchService, IndexingService {
                     FacetField facetField = facetFields.get(i);
                     DiscoverFacetField facetFieldConfig = query.getFacetFields().get(i);
                     List<FacetField.Count> facetValues = facetField.getValues();
+                    if (facetValues != null && facetLabelService.isResolved(facetField.getName())) {
+                        // Resolve the labels of all values of this facet at once, the transform methods
+                        // below then find them in the cache
+                        List<String> names = new ArrayList<>(facetValues.size());
+                        for (FacetField.Count facetValue : facetValues) {
+                            names.add(facetValue.getName());
+                        }
+                        facetLabelService.getLabels(context, facetField.getName(), names);
+                    }
                     if (facetValues != null) {
                         if (facetFieldConfig.getType()
                                             .equals(DiscoveryConfigurationParameters.TYPE_DATE) && facetFieldConfig
                             .getSortOrder().equals(DiscoveryConfigurationParameters.SORT.VALUE)) {
                             //If we have a date & are sorting by value, ensure that the results are flipped for a
-                            // proper result
+                            // proper result. Reverse a copy, the response may be cached.
+                            facetValues = new ArrayList<>(facetValues);
                             Collections.reverse(facetValues);
                         }
 
@@ -1893,6 +2400,52 @@ public class SolrServiceImpl implements SearchService, IndexingService {
         return null;
     }
 
+    /**
+     * Find the DSpace objects of the given Solr documents, loading all objects
+     * of the same type with a single query rather than one query per document.
+     *
+     * @param context The relevant DSpace Context.
+     * @param docs    the solr documents
+     * @return the DSpace objects, in the order of the documents. The list holds
+     * null for every document whose object could not be found.
+     * @throws SQLException An exception that provides information on a database access error or other errors.
+     */
+    protected List<DSpaceObject> findDSpaceObjects(Context context, List<SolrDocument> docs) throws SQLException {
+        // Group the identifiers by type, keeping the order of the documents
+        Map<Integer, List<UUID>> idsByType = new LinkedHashMap<>();
+        for (SolrDocument doc : docs) {
+            Object type = doc.getFirstValue(RESOURCE_TYPE_FIELD);
+            Object id = doc.getFirstValue(RESOURCE_ID_FIELD);
+            if (type != null && id != null) {
+                Integer typeId = Integer.valueOf(String.valueOf(type));
+                if (!idsByType.containsKey(typeId)) {
+                    idsByType.put(typeId, new ArrayList<UUID>());
+                }
+                idsByType.get(typeId).add(UUID.fromString(String.valueOf(id)));
+            }
+        }
+
+        Map<UUID, DSpaceObject> found = new HashMap<>();
+        for (Map.Entry<Integer, List<UUID>> entry : idsByType.entrySet()) {
+            List<? extends DSpaceObject> dsos = contentServiceFactory.getDSpaceObjectService(entry.getKey())
+                                                                     .findByIds(context, entry.getValue());
+            for (DSpaceObject dso : dsos) {
+                found.put(dso.getID(), dso);
+            }
+        }
+
+        List<DSpaceObject> result = new ArrayList<>(docs.size());
+        for (SolrDocument doc : docs) {
+            Object id = doc.getFirstValue(RESOURCE_ID_FIELD);
+            DSpaceObject dso = id != null ? found.get(UUID.fromString(String.valueOf(id))) : null;
+            if (dso == null && doc.getFirstValue(HANDLE_FIELD) != null) {
+                dso = findDSpaceObject(context, doc);
+            }
+            result.add(dso);
+        }
+        return result;
+    }
+
     public List<DSpaceObject> search(Context context, String query, int offset, int max, String... filterquery) {
         return search(context, query, null, true, offset, max, filterquery);
     }
@@ -1921,15 +2474,8 @@ public class SolrServiceImpl implements SearchService, IndexingService {
             QueryResponse rsp = getSolr().query(solrQuery);
             SolrDocumentList docs = rsp.getResults();
 
-            Iterator iter = docs.iterator();
             List<DSpaceObject> result = new ArrayList<DSpaceObject>();
-            while (iter.hasNext()) {
-                SolrDocument doc = (SolrDocument) iter.next();
-
-                DSpaceObject o = contentServiceFactory
-                    .getDSpaceObjectService((Integer) doc.getFirstValue(RESOURCE_TYPE_FIELD))
-                    .find(context, UUID.fromString((String) doc.getFirstValue(RESOURCE_ID_FIELD)));
-
+            for (DSpaceObject o : findDSpaceObjects(context, docs)) {
                 if (o != null) {
                     result.add(o);
                 }
@@ -2027,10 +2573,8 @@ public class SolrServiceImpl implements SearchService, IndexingService {
             NamedList mltResults = (NamedList) rsp.getResponse().get("moreLikeThis");
             if (mltResults != null && mltResults.get(item.getType() + "-" + item.getID()) != null) {
                 SolrDocumentList relatedDocs = (SolrDocumentList) mltResults.get(item.getType() + "-" + item.getID());
-                for (Object relatedDoc : relatedDocs) {
-                    SolrDocument relatedDocument = (SolrDocument) relatedDoc;
-                    DSpaceObject relatedItem = findDSpaceObject(context, relatedDocument);
-                    if (relatedItem.getType() == Constants.ITEM) {
+                for (DSpaceObject relatedItem : findDSpaceObjects(context, relatedDocs)) {
+                    if (relatedItem != null && relatedItem.getType() == Constants.ITEM) {
                         results.add((Item) relatedItem);
                     }
                 }
@@ -2193,7 +2737,8 @@ public class SolrServiceImpl implements SearchService, IndexingService {
     public void commit() throws SearchServiceException {
         try {
             if (getSolr() != null) {
-                getSolr().commit();
+                getCommitPolicy().commit(getSolr());
+                indexCommitted();
             }
         } catch (Exception e) {
             throw new SearchServiceException(e.getMessage(), e);
@@ -9,7 +9,6 @@ package org.dspace.discovery;
 
 import java.sql.SQLException;
 import java.util.List;
-import java.util.Set;
 
 import org.apache.log4j.Logger;
 import org.apache.solr.client.solrj.SolrQuery;
@@ -23,10 +22,7 @@ import org.dspace.content.service.CommunityService;
 import org.dspace.core.Constants;
 import org.dspace.core.Context;
 import org.dspace.core.LogManager;
-import org.dspace.eperson.EPerson;
-import org.dspace.eperson.Group;
 import org.dspace.eperson.service.GroupService;
-import org.dspace.services.factory.DSpaceServicesFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
 /**
@@ -51,6 +47,8 @@ public class SolrServiceResourceRestrictionPlugin implements SolrServiceIndexPlu
     protected GroupService groupService;
     @Autowired(required = true)
     protected ResourcePolicyService resourcePolicyService;
+    @Autowired(required = true)
+    protected ReadFilterService readFilterService;
 
     @Override
     public void additionalIndex(Context context, DSpaceObject dso, SolrInputDocument document) {
@@ -81,39 +79,9 @@ public class SolrServiceResourceRestrictionPlugin implements SolrServiceIndexPlu
     @Override
     public void additionalSearchParameters(Context context, DiscoverQuery discoveryQuery, SolrQuery solrQuery) {
         try {
-            if (!authorizeService.isAdmin(context)) {
-                StringBuilder resourceQuery = new StringBuilder();
-                //Always add the anonymous group id to the query
-                Group anonymousGroup = groupService.findByName(context, Group.ANONYMOUS);
-                String anonGroupId = "";
-                if (anonymousGroup != null) {
-                    anonGroupId = anonymousGroup.getID().toString();
-                }
-                resourceQuery.append("read:(g" + anonGroupId);
-                EPerson currentUser = context.getCurrentUser();
-                if (currentUser != null) {
-                    resourceQuery.append(" OR e").append(currentUser.getID());
-                }
-
-                //Retrieve all the groups the current user is a member of !
-                Set<Group> groups = groupService.allMemberGroupsSet(context, currentUser);
-                for (Group group : groups) {
-                    resourceQuery.append(" OR g").append(group.getID());
-                }
-
-                resourceQuery.append(")");
-
-                if (authorizeService.isCommunityAdmin(context)
-                    || authorizeService.isCollectionAdmin(context)) {
-                    resourceQuery.append(" OR ");
-                    resourceQuery.append(DSpaceServicesFactory.getInstance()
-                                                              .getServiceManager()
-                                                              .getServiceByName(SearchService.class.getName(),
-                                                                                SearchService.class)
-                                                              .createLocationQueryForAdministrableItems(context));
-                }
-
-                solrQuery.addFilterQuery(resourceQuery.toString());
+            String readFilter = readFilterService.getReadFilter(context);
+            if (readFilter != null) {
+                solrQuery.addFilterQuery(readFilter);
             }
         } catch (SQLException e) {
             log.error(LogManager.getHeader(context, "Error while adding resource policy information to query", ""), e);
@@ -289,7 +289,8 @@ public class RDFConsumer implements Consumer {
         // create a new context, to be sure to work as anonymous user
         // we don't want to store private data in a triplestore with public
         // SPARQL endpoint.
-        ctx = new Context(Context.Mode.READ_ONLY);
+        // The changes just committed may not have reached the database replicas yet.
+        ctx = new Context(Context.Mode.READ_ONLY_PRIMARY);
         if (toDelete == null) {
             log.debug("Deletion queue does not exists, creating empty queue.");
             this.toDelete = new LinkedList<>();
@@ -0,0 +1,166 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.commons.lang.StringUtils;
+import org.dspace.content.Bitstream;
+import org.dspace.content.service.BitstreamService;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+
+/**
+ * Looks up the bundle names of the bitstreams recorded in usage events, many at a
+ * time, and keeps them in memory. Bitstreams in no bundle are named after the logo
+ * they are, if any.
+ */
+public class BitstreamBundleLookup {
+
+    public static final String LOGO_COLLECTION = "LOGO-COLLECTION";
+    public static final String LOGO_COMMUNITY = "LOGO-COMMUNITY";
+
+    /**
+     * The largest number of bitstreams looked up in one query, some databases limit
+     * the size of "in" lists
+     */
+    protected static final int QUERY_SIZE = 1000;
+
+    /**
+     * Cached for bitstreams which do not exist or have no bundle name
+     */
+    private static final String NONE = "";
+
+    protected final BitstreamService bitstreamService;
+    protected final Cache<String, String> cache;
+
+    /**
+     * @param bitstreamService looks up the bundle names
+     * @param size             the maximum number of bitstreams to cache
+     */
+    public BitstreamBundleLookup(BitstreamService bitstreamService, long size) {
+        this.bitstreamService = bitstreamService;
+        this.cache = CacheBuilder.newBuilder().maximumSize(size).build();
+    }
+
+    /**
+     * @param context the DSpace context
+     * @param ids     the bitstream ids of usage events, UUIDs or legacy ids
+     * @return the bundle name per bitstream id, without the bitstreams which do not
+     * exist anymore or have no bundle name
+     * @throws SQLException if database error
+     */
+    public Map<String, String> getBundleNames(Context context, List<String> ids) throws SQLException {
+        Map<String, String> names = new HashMap<>();
+        Map<Integer, UUID> legacyIds = findLegacyIds(context, ids);
+        // a bitstream may be recorded under its UUID and its legacy id
+        Map<UUID, List<String>> missing = new HashMap<>();
+        for (String id : new LinkedHashSet<>(ids)) {
+            String name = cache.getIfPresent(id);
+            if (name == null) {
+                UUID uuid = toUUID(id, legacyIds);
+                if (uuid != null) {
+                    if (!missing.containsKey(uuid)) {
+                        missing.put(uuid, new ArrayList<String>());
+                    }
+                    missing.get(uuid).add(id);
+                    continue;
+                }
+                name = NONE;
+                cache.put(id, name);
+            }
+            if (!NONE.equals(name)) {
+                names.put(id, name);
+            }
+        }
+
+        List<UUID> uuids = new ArrayList<>(missing.keySet());
+        for (int i = 0; i < uuids.size(); i += QUERY_SIZE) {
+            List<UUID> batch = uuids.subList(i, Math.min(uuids.size(), i + QUERY_SIZE));
+            Map<UUID, String> bundleNames = bitstreamService.getBundleNames(context, batch);
+            Map<UUID, Integer> logoTypes = bitstreamService.getLogoTypes(context, batch);
+            for (UUID uuid : batch) {
+                String name = bundleNames.get(uuid);
+                if (name == null && logoTypes.containsKey(uuid)) {
+                    name = logoTypes.get(uuid) == Constants.COLLECTION ? LOGO_COLLECTION : LOGO_COMMUNITY;
+                }
+                for (String id : missing.get(uuid)) {
+                    cache.put(id, name != null ? name : NONE);
+                    if (name != null) {
+                        names.put(id, name);
+                    }
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Look up the bitstreams recorded under their legacy ids, which are not cached, at once.
+     *
+     * @return the UUID of each legacy id of an existing bitstream
+     */
+    protected Map<Integer, UUID> findLegacyIds(Context context, List<String> ids) throws SQLException {
+        Map<Integer, UUID> uuids = new HashMap<>();
+        List<Integer> legacyIds = new ArrayList<>();
+        for (String id : new LinkedHashSet<>(ids)) {
+            Integer legacyId = toLegacyId(id);
+            if (legacyId != null && cache.getIfPresent(id) == null) {
+                legacyIds.add(legacyId);
+            }
+        }
+        if (legacyIds.isEmpty()) {
+            return uuids;
+        }
+        for (Bitstream bitstream : bitstreamService.findByLegacyIds(context, legacyIds)) {
+            uuids.put(bitstream.getLegacyId(), bitstream.getID());
+            context.uncacheEntity(bitstream);
+        }
+        return uuids;
+    }
+
+    /**
+     * @return the UUID of a bitstream id, null if it is not a bitstream
+     */
+    protected UUID toUUID(String id, Map<Integer, UUID> legacyIds) {
+        if (StringUtils.isEmpty(id)) {
+            return null;
+        }
+        if (StringUtils.isNumeric(id)) {
+            Integer legacyId = toLegacyId(id);
+            return legacyId != null ? legacyIds.get(legacyId) : null;
+        }
+        try {
+            return UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the legacy id of a bitstream id, null if it is not a legacy id
+     */
+    private static Integer toLegacyId(String id) {
+        if (StringUtils.isEmpty(id) || !StringUtils.isNumeric(id)) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(id);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
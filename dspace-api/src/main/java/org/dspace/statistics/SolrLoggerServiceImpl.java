@@ -7,49 +7,57 @@
  */
 package org.dspace.statistics;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileNotFoundException;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.sql.SQLException;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
 import javax.servlet.http.HttpServletRequest;
 
-import au.com.bytecode.opencsv.CSVReader;
-import au.com.bytecode.opencsv.CSVWriter;
 import com.maxmind.geoip.Location;
-import com.maxmind.geoip.LookupService;
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.time.DateFormatUtils;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.log4j.Logger;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServer;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.impl.HttpSolrServer;
-import org.apache.solr.client.solrj.request.AbstractUpdateRequest;
-import org.apache.solr.client.solrj.request.ContentStreamUpdateRequest;
 import org.apache.solr.client.solrj.request.CoreAdminRequest;
 import org.apache.solr.client.solrj.request.LukeRequest;
 import org.apache.solr.client.solrj.response.FacetField;
@@ -62,10 +70,9 @@ import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.luke.FieldFlag;
-import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.CursorMarkParams;
 import org.apache.solr.common.params.FacetParams;
 import org.apache.solr.common.params.MapSolrParams;
-import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.params.ShardParams;
 import org.dspace.content.Bitstream;
 import org.dspace.content.Bundle;
@@ -83,10 +90,15 @@ import org.dspace.eperson.EPerson;
 import org.dspace.eperson.Group;
 import org.dspace.services.ConfigurationService;
 import org.dspace.statistics.service.SolrLoggerService;
-import org.dspace.statistics.util.DnsLookup;
+import org.dspace.statistics.util.CachingHostnameResolver;
+import org.dspace.statistics.util.HostnameResolver;
+import org.dspace.statistics.util.LocationResolver;
+import org.dspace.statistics.util.LocationResolverFactory;
 import org.dspace.statistics.util.LocationUtils;
 import org.dspace.statistics.util.SpiderDetector;
 import org.dspace.usage.UsageWorkflowEvent;
+import org.dspace.util.SolrCommitPolicy;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -99,16 +111,50 @@ import org.springframework.beans.factory.annotation.Autowired;
  * @author kevinvandevelde at atmire.com
  * @author mdiggory at atmire.com
  */
-public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBean {
+public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBean, DisposableBean {
     private static final Logger log = Logger.getLogger(SolrLoggerServiceImpl.class);
     private static final String MULTIPLE_VALUES_SPLITTER = "|";
+    /**
+     * The events exported by {@link #exportHits()}: views and downloads
+     */
+    private static final String EXPORT_QUERY = "statistics_type:view OR (*:* AND -statistics_type:*)";
+    /**
+     * The largest number of usage events waiting for the sender
+     */
+    protected static final int SENDER_CAPACITY = 10000;
     protected SolrServer solr;
 
+    /**
+     * Sends usage events in the background, null when they are sent synchronously
+     */
+    protected SolrStatisticsWriter writer;
+
+    /**
+     * Fills in the host names of usage events, null when there is no statistics core
+     */
+    protected CachingHostnameResolver hostnameResolver;
+
+    /**
+     * Adds the usage events whose host name was resolved in the background to Solr,
+     * when there is no background writer
+     */
+    protected ExecutorService sender;
+
+    /**
+     * The daily usage rollups, null when there is no statistics core
+     */
+    protected StatisticsRollup rollup;
+
+    /**
+     * The name of the core created for the daily usage rollups, unless "solr-statistics.rollup.server" is set
+     */
+    public static final String ROLLUP_CORE = "statistics-rollup";
+
     public static final String DATE_FORMAT_8601 = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'";
 
     public static final String DATE_FORMAT_DCDATE = "yyyy-MM-dd'T'HH:mm:ss'Z'";
 
-    protected LookupService locationService;
+    protected LocationResolver locationService;
 
     protected boolean useProxies;
 
@@ -143,6 +189,16 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
 
     }
 
+    /**
+     * The policy deciding how the changes sent to the statistics core are committed
+     * ("solr-statistics.commit.policy").
+     *
+     * @return the commit policy of the statistics core
+     */
+    protected SolrCommitPolicy getCommitPolicy() {
+        return SolrCommitPolicy.getInstance("solr-statistics");
+    }
+
 
     @Override
     public void afterPropertiesSet() throws Exception {
@@ -161,16 +217,43 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
         }
         solr = server;
 
+        if (server != null && configurationService.getBooleanProperty("solr-statistics.async.enabled", false)) {
+            String journal = configurationService.getProperty("solr-statistics.async.journal");
+            writer = new SolrStatisticsWriter(server, getCommitPolicy(),
+                configurationService.getIntProperty("solr-statistics.async.capacity", 10000),
+                configurationService.getIntProperty("solr-statistics.async.batch.size", 100),
+                StringUtils.isNotBlank(journal) ? new File(journal) : null);
+            writer.setReportInterval(
+                configurationService.getLongProperty("solr-statistics.async.report.interval", 60) * 1000);
+            writer.start();
+        }
+
+        if (server != null) {
+            hostnameResolver = createHostnameResolver(HostnameResolver.DNS);
+            if (writer == null && hostnameResolver.isAsynchronous()) {
+                sender = createSender();
+            }
+        }
+
+        if (server != null) {
+            String rollupServer = configurationService.getProperty("solr-statistics.rollup.server");
+            if (rollupServer == null) {
+                rollupServer = server.getBaseURL().replaceAll("/[^/]*/?$", "/" + ROLLUP_CORE);
+            }
+            rollup = new StatisticsRollup(new HttpSolrServer(rollupServer), getCommitPolicy(),
+                configurationService.getIntProperty("solr-statistics.maintenance.batch.size", 10000));
+        }
+
         // Read in the file so we don't have to do it all the time
         //spiderIps = SpiderDetector.getSpiderIpAddresses();
 
-        LookupService service = null;
+        LocationResolver service = null;
         // Get the db file for the location
         String dbfile = configurationService.getProperty("usage-statistics.dbfile");
         if (dbfile != null) {
             try {
-                service = new LookupService(dbfile,
-                                            LookupService.GEOIP_STANDARD);
+                service = LocationResolverFactory.create(dbfile,
+                    configurationService.getLongProperty("usage-statistics.location.cache.size", 10000));
             } catch (FileNotFoundException fe) {
                 log.error(
                     "The GeoLite Database file is missing (" + dbfile + ")! Solr Statistics cannot generate location " +
@@ -192,6 +275,141 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
         log.info("useProxies=" + useProxies);
     }
 
+    /**
+     * Cache the host names of usage events ("usage-statistics.resolver.*").
+     *
+     * @param resolver resolves the host names
+     * @return the resolver filling in the host names of usage events
+     */
+    protected CachingHostnameResolver createHostnameResolver(HostnameResolver resolver) {
+        return new CachingHostnameResolver(resolver,
+            configurationService.getLongProperty("usage-statistics.resolver.cache.size", 10000),
+            configurationService.getLongProperty("usage-statistics.resolver.cache.ttl", 3600) * 1000,
+            configurationService.getLongProperty("usage-statistics.resolver.cache.negative.ttl", 300) * 1000,
+            configurationService.getIntProperty("usage-statistics.resolver.threads", 4),
+            configurationService.getLongProperty("usage-statistics.resolver.timeout", 200));
+    }
+
+    /**
+     * The thread adding the usage events whose host name was resolved in the background
+     * to Solr, when there is no background writer.
+     *
+     * @return the sender, dropping the events beyond {@link #SENDER_CAPACITY}
+     */
+    protected ExecutorService createSender() {
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<Runnable>(SENDER_CAPACITY),
+            CachingHostnameResolver.daemonThreads("solr-statistics-sender"));
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (hostnameResolver != null) {
+            // the events waiting for their host name are sent without it
+            hostnameResolver.shutdown(
+                configurationService.getLongProperty("usage-statistics.resolver.timeout", 200));
+        }
+        if (sender != null) {
+            sender.shutdown();
+            sender.awaitTermination(
+                configurationService.getLongProperty("solr-statistics.async.shutdown.timeout", 30), TimeUnit.SECONDS);
+        }
+        if (writer != null) {
+            writer.shutdown(configurationService.getLongProperty("solr-statistics.async.shutdown.timeout", 30) * 1000);
+        }
+    }
+
+    /**
+     * Send a usage event to the statistics core once the host name of its IP address
+     * is filled in. The host name is resolved in the background when
+     * "usage-statistics.resolver.threads" is set, the event being sent without it if
+     * it is not known within "usage-statistics.resolver.timeout" milliseconds.
+     * <p>
+     * The resolver threads only hand the event over to the background writer or, without
+     * background writer, to the sender thread, so that the calling thread does not wait.
+     *
+     * @param doc the usage event
+     * @throws SolrServerException if Solr rejected the event
+     * @throws IOException         if Solr cannot be reached
+     */
+    protected void write(final SolrInputDocument doc) throws SolrServerException, IOException {
+        final String ip = (String) doc.getFieldValue("ip");
+        if (hostnameResolver == null || ip == null) {
+            send(doc);
+            return;
+        }
+        if (writer == null && sender == null) {
+            // resolved in the calling thread
+            String hostname = null;
+            try {
+                hostname = hostnameResolver.reverseDns(ip);
+            } catch (IOException e) {
+                log.debug("Failed DNS Lookup for IP:" + ip, e);
+            }
+            addHostname(doc, ip, hostname);
+            send(doc);
+            return;
+        }
+        hostnameResolver.reverseDns(ip, new CachingHostnameResolver.Callback() {
+            @Override
+            public void resolved(String hostname) {
+                addHostname(doc, ip, hostname);
+                if (writer != null) {
+                    // a dropped event is counted and reported by the writer
+                    writer.offer(doc);
+                } else {
+                    sendLater(doc);
+                }
+            }
+        });
+    }
+
+    /**
+     * Add a usage event to Solr in the sender thread.
+     *
+     * @param doc the usage event
+     */
+    private void sendLater(final SolrInputDocument doc) {
+        try {
+            sender.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        send(doc);
+                    } catch (SolrServerException | IOException | RuntimeException e) {
+                        log.error(e.getMessage(), e);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("Usage event of " + doc.getFieldValue("ip") + " dropped, the sender is full or shut down");
+        }
+    }
+
+    private void addHostname(SolrInputDocument doc, String ip, String hostname) {
+        if (hostname != null) {
+            doc.addField("dns", hostname.toLowerCase());
+        } else {
+            log.info("Failed DNS Lookup for IP:" + ip);
+        }
+    }
+
+    /**
+     * Send a usage event to the statistics core, through the background writer if
+     * "solr-statistics.async.enabled" is set.
+     *
+     * @param doc the usage event
+     * @throws SolrServerException if Solr rejected the event
+     * @throws IOException         if Solr cannot be reached
+     */
+    protected void send(SolrInputDocument doc) throws SolrServerException, IOException {
+        if (writer != null) {
+            writer.offer(doc);
+        } else {
+            getCommitPolicy().add(solr, doc);
+        }
+    }
+
     @Override
     public void post(DSpaceObject dspaceObject, HttpServletRequest request,
                      EPerson currentUser) {
@@ -223,7 +441,7 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
             doc1.addField("statistics_type", StatisticsType.VIEW.text());
 
 
-            solr.add(doc1);
+            write(doc1);
             //commits are executed automatically using the solr autocommit
 //            solr.commit(false, false);
 
@@ -258,7 +476,7 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
 
             doc1.addField("statistics_type", StatisticsType.VIEW.text());
 
-            solr.add(doc1);
+            write(doc1);
             // commits are executed automatically using the solr autocommit
             // solr.commit(false, false);
 
@@ -318,13 +536,6 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
                 doc1.addField("referrer", request.getHeader("referer"));
             }
 
-            try {
-                String dns = DnsLookup.reverseDns(ip);
-                doc1.addField("dns", dns.toLowerCase());
-            } catch (Exception e) {
-                log.info("Failed DNS Lookup for IP:" + ip);
-                log.debug(e.getMessage(), e);
-            }
             if (request.getHeader("User-Agent") != null) {
                 doc1.addField("userAgent", request.getHeader("User-Agent"));
             }
@@ -397,13 +608,6 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
 
             doc1.addField("ip", ip);
 
-            try {
-                String dns = DnsLookup.reverseDns(ip);
-                doc1.addField("dns", dns.toLowerCase());
-            } catch (Exception e) {
-                log.info("Failed DNS Lookup for IP:" + ip);
-                log.debug(e.getMessage(), e);
-            }
             if (userAgent != null) {
                 doc1.addField("userAgent", userAgent);
             }
@@ -488,7 +692,7 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
                 solrDoc.addField("page", page);
             }
 
-            solr.add(solrDoc);
+            write(solrDoc);
         } catch (RuntimeException re) {
             throw re;
         } catch (Exception e) {
@@ -536,7 +740,7 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
                 solrDoc.addField("actor", usageWorkflowEvent.getActor().getID());
             }
 
-            solr.add(solrDoc);
+            write(solrDoc);
         } catch (Exception e) {
             //Log the exception, no need to send it through, the workflow shouldn't crash because of this !
             log.error(e.getMessage(), e);
@@ -589,8 +793,8 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
     @Override
     public void removeIndex(String query) throws IOException,
         SolrServerException {
-        solr.deleteByQuery(query);
-        solr.commit();
+        getCommitPolicy().deleteByQuery(solr, query);
+        getCommitPolicy().commit(solr);
     }
 
     @Override
@@ -644,7 +848,7 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
         }
 
         public void commit() throws IOException, SolrServerException {
-            solr.commit();
+            getCommitPolicy().commit(solr);
         }
 
         /**
@@ -674,57 +878,104 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
     }
 
 
-    @Override
-    public void markRobotsByIP() {
-        for (String ip : SpiderDetector.getSpiderIpAddresses()) {
-
-            try {
+    /**
+     * @return the main statistics core followed by the year cores created by sharding
+     */
+    protected List<SolrServer> getStatisticsCores() {
+        initSolrYearCores();
+        List<SolrServer> cores = new ArrayList<>();
+        cores.add(solr);
+        if (solr instanceof HttpSolrServer) {
+            String baseUrl = ((HttpSolrServer) solr).getBaseURL();
+            String scheme = baseUrl.startsWith("https://") ? "https://" : "http://";
+            for (String core : statisticYearCores) {
+                if (!baseUrl.endsWith(core)) {
+                    cores.add(new HttpSolrServer(scheme + core));
+                }
+            }
+        }
+        return cores;
+    }
 
-                /* Result Process to alter record to be identified as a bot */
-                ResultProcessor processor = new ResultProcessor() {
-                    @Override
-                    public void process(SolrDocument doc) throws IOException, SolrServerException {
-                        doc.removeFields("isBot");
-                        doc.addField("isBot", true);
-                        SolrInputDocument newInput = ClientUtils.toSolrInputDocument(doc);
-                        solr.add(newInput);
-                        log.info("Marked " + doc.getFieldValue("ip") + " as bot");
-                    }
-                };
+    /**
+     * Apply atomic updates to all documents matching a query, in every statistics core.
+     * See {@link StatisticsBulkUpdater}.
+     *
+     * @param query   the documents to update
+     * @param changes the atomic update operation per field
+     * @return the number of documents updated
+     * @throws SolrServerException if Solr rejected a request
+     * @throws IOException         if Solr or the checkpoint directory cannot be reached
+     */
+    protected long bulkUpdate(String query, Map<String, Map<String, Object>> changes)
+        throws SolrServerException, IOException {
+        long updated = 0;
+        for (SolrServer core : getStatisticsCores()) {
+            updated += createBulkUpdater(core).update(query, changes);
+        }
+        return updated;
+    }
 
-                /* query for ip, exclude results previously set as bots. */
-                processor.execute("ip:" + ip + "* AND -isBot:true");
+    /**
+     * @param core a statistics core
+     * @return a bulk updater of the core, configured by the "solr-statistics.maintenance.*" settings
+     */
+    protected StatisticsBulkUpdater createBulkUpdater(SolrServer core) {
+        int batchSize = configurationService.getIntProperty("solr-statistics.maintenance.batch.size", 10000);
+        String checkpointDir = configurationService.getProperty("solr-statistics.maintenance.checkpoint.dir",
+            configurationService.getProperty("dspace.dir") + File.separator + "var" + File.separator
+                + "statistics-maintenance");
+        StatisticsBulkUpdater updater = new StatisticsBulkUpdater(core, getCommitPolicy(), batchSize,
+                                                                  new File(checkpointDir));
+        updater.setThreads(configurationService.getIntProperty("solr-statistics.maintenance.threads", 4));
+        return updater;
+    }
 
-                solr.commit();
+    /**
+     * Combine IP addresses and prefixes into queries matching any of them, so that
+     * long spider lists need few requests.
+     *
+     * @param ips the addresses and prefixes, as returned by {@link SpiderDetector#getSpiderIpAddresses()}
+     * @return the queries
+     */
+    protected List<String> getIpQueries(Set<String> ips) {
+        int size = configurationService.getIntProperty("solr-statistics.maintenance.ips.per.query", 500);
+        List<String> queries = new ArrayList<>();
+        List<String> sorted = new ArrayList<>(ips);
+        Collections.sort(sorted);
+        for (int i = 0; i < sorted.size(); i += size) {
+            StringBuilder query = new StringBuilder("ip:(");
+            for (String ip : sorted.subList(i, Math.min(sorted.size(), i + size))) {
+                query.append(query.length() > 4 ? " OR " : "").append(ClientUtils.escapeQueryChars(ip)).append('*');
+            }
+            queries.add(query.append(')').toString());
+        }
+        return queries;
+    }
 
+    @Override
+    public void markRobotsByIP() {
+        Map<String, Map<String, Object>> changes = new LinkedHashMap<>();
+        changes.put("isBot", Collections.<String, Object>singletonMap("set", true));
+        for (String query : getIpQueries(SpiderDetector.getSpiderIpAddresses())) {
+            try {
+                /* query for ip, exclude results previously set as bots. */
+                long marked = bulkUpdate(query + " AND -isBot:true", changes);
+                log.info("Marked " + marked + " events as bot");
             } catch (Exception e) {
                 log.error(e.getMessage(), e);
             }
-
-
         }
-
     }
 
     @Override
     public void markRobotByUserAgent(String agent) {
+        Map<String, Map<String, Object>> changes = new LinkedHashMap<>();
+        changes.put("isBot", Collections.<String, Object>singletonMap("set", true));
         try {
-
-            /* Result Process to alter record to be identified as a bot */
-            ResultProcessor processor = new ResultProcessor() {
-                @Override
-                public void process(SolrDocument doc) throws IOException, SolrServerException {
-                    doc.removeFields("isBot");
-                    doc.addField("isBot", true);
-                    SolrInputDocument newInput = ClientUtils.toSolrInputDocument(doc);
-                    solr.add(newInput);
-                }
-            };
-
-            /* query for ip, exclude results previously set as bots. */
-            processor.execute("userAgent:" + agent + " AND -isBot:true");
-
-            solr.commit();
+            /* query for agent, exclude results previously set as bots. */
+            long marked = bulkUpdate("userAgent:" + agent + " AND -isBot:true", changes);
+            log.info("Marked " + marked + " events of " + agent + " as bot");
         } catch (Exception e) {
             log.error(e.getMessage(), e);
         }
@@ -733,7 +984,7 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
     @Override
     public void deleteRobotsByIsBotFlag() {
         try {
-            solr.deleteByQuery("isBot:true");
+            getCommitPolicy().deleteByQuery(solr, "isBot:true");
         } catch (Exception e) {
             log.error(e.getMessage(), e);
         }
@@ -742,7 +993,7 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
     @Override
     public void deleteIP(String ip) {
         try {
-            solr.deleteByQuery("ip:" + ip + "*");
+            getCommitPolicy().deleteByQuery(solr, "ip:" + ClientUtils.escapeQueryChars(ip) + "*");
         } catch (Exception e) {
             log.error(e.getMessage(), e);
         }
@@ -750,8 +1001,15 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
 
     @Override
     public void deleteRobotsByIP() {
-        for (String ip : SpiderDetector.getSpiderIpAddresses()) {
-            deleteIP(ip);
+        for (String query : getIpQueries(SpiderDetector.getSpiderIpAddresses())) {
+            try {
+                for (SolrServer core : getStatisticsCores()) {
+                    getCommitPolicy().deleteByQuery(core, query);
+                    getCommitPolicy().commit(core);
+                }
+            } catch (Exception e) {
+                log.error(e.getMessage(), e);
+            }
         }
     }
 
@@ -759,61 +1017,21 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
     public void update(String query, String action,
                        List<String> fieldNames, List<List<Object>> fieldValuesList)
         throws SolrServerException, IOException {
-        // Since there is NO update
-        // We need to get our documents
-        // QueryResponse queryResponse = solr.query()//query(query, null, -1,
-        // null, null, null);
-
-        final List<SolrDocument> docsToUpdate = new ArrayList<SolrDocument>();
-
-        ResultProcessor processor = new ResultProcessor() {
-            @Override
-            public void process(List<SolrDocument> docs) throws IOException, SolrServerException {
-                docsToUpdate.addAll(docs);
-            }
-        };
-
-        processor.execute(query);
-
-        // We have all the docs delete the ones we don't need
-        solr.deleteByQuery(query);
-
-        // Add the new (updated onces
-        for (int i = 0; i < docsToUpdate.size(); i++) {
-            SolrDocument solrDocument = docsToUpdate.get(i);
-            // Now loop over our fieldname actions
-            for (int j = 0; j < fieldNames.size(); j++) {
-                String fieldName = fieldNames.get(j);
-                List<Object> fieldValues = fieldValuesList.get(j);
-
-                if (action.equals("addOne") || action.equals("replace")) {
-                    if (action.equals("replace")) {
-                        solrDocument.removeFields(fieldName);
-                    }
-
-                    for (Object fieldValue : fieldValues) {
-                        solrDocument.addField(fieldName, fieldValue);
-                    }
-                } else if (action.equals("remOne")) {
-                    // Remove the field
-                    java.util.Collection<Object> values = solrDocument
-                        .getFieldValues(fieldName);
-                    solrDocument.removeFields(fieldName);
-                    for (Object value : values) {
-                        // Keep all the values besides the one we need to remove
-                        if (!fieldValues.contains((value))) {
-                            solrDocument.addField(fieldName, value);
-                        }
-                    }
-                }
-            }
-            SolrInputDocument newInput = ClientUtils
-                .toSolrInputDocument(solrDocument);
-            solr.add(newInput);
+        String operation;
+        if (action.equals("addOne")) {
+            operation = "add";
+        } else if (action.equals("replace")) {
+            operation = "set";
+        } else if (action.equals("remOne")) {
+            operation = "remove";
+        } else {
+            return;
+        }
+        Map<String, Map<String, Object>> changes = new LinkedHashMap<>();
+        for (int j = 0; j < fieldNames.size(); j++) {
+            changes.put(fieldNames.get(j), Collections.<String, Object>singletonMap(operation, fieldValuesList.get(j)));
         }
-        solr.commit();
-        // System.out.println("SolrLogger.update(\""+query+"\"):"+(new
-        // Date().getTime() - start)+"ms,"+numbFound+"records");
+        bulkUpdate(query, changes);
     }
 
     @Override
@@ -825,6 +1043,15 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
     public ObjectCount[] queryFacetField(String query,
                                          String filterQuery, String facetField, int max, boolean showTotal,
                                          List<String> facetQueries) throws SolrServerException {
+        // the rollups have no facet queries to answer
+        if (facetQueries == null || facetQueries.isEmpty()) {
+            Map<String, Long> facetCounts = new HashMap<>();
+            long total = queryRollups(query, filterQuery, facetField, facetCounts);
+            if (total >= 0) {
+                return toObjectCounts(facetCounts, max, showTotal, total);
+            }
+        }
+
         QueryResponse queryResponse = query(query, filterQuery, facetField,
                                             0, max, null, null, null, facetQueries, null, false);
         if (queryResponse == null) {
@@ -901,6 +1128,13 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
     @Override
     public ObjectCount queryTotal(String query, String filterQuery)
         throws SolrServerException {
+        long total = queryRollups(query, filterQuery, null, null);
+        if (total >= 0) {
+            ObjectCount objCount = new ObjectCount();
+            objCount.setCount(total);
+            return objCount;
+        }
+
         QueryResponse queryResponse = query(query, filterQuery, null, 0, -1, null,
                                             null, null, null, null, false);
         ObjectCount objCount = new ObjectCount();
@@ -909,6 +1143,109 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
         return objCount;
     }
 
+    /**
+     * Count the usage events matching a query from the daily rollups for the days rolled up,
+     * and from the usage events themselves for the later days, if "solr-statistics.rollup.enabled"
+     * is set and the query can be answered from the rollups.
+     *
+     * @param query       the query
+     * @param filterQuery the filter query, may be null
+     * @param facetField  the field to count the values of, may be null
+     * @param facetCounts receives the count per value of the facet field
+     * @return the number of matching events, -1 if the usage events have to be queried instead
+     */
+    protected long queryRollups(String query, String filterQuery, String facetField, Map<String, Long> facetCounts) {
+        if (rollup == null || !configurationService.getBooleanProperty("solr-statistics.rollup.enabled", false)
+            || !rollup.canAnswer(query, filterQuery, facetField)) {
+            return -1;
+        }
+        try {
+            Date cutoff = rollup.getCutoff();
+            if (cutoff == null) {
+                return -1;
+            }
+            // the later days are counted with the same day ranges as the rollups
+            SolrQuery recent = createQuery(StatisticsRollup.toDayRanges(query),
+                                           filterQuery == null ? null : StatisticsRollup.toDayRanges(filterQuery),
+                                           facetField, 0, -1, null, null, null, null, null, false);
+            // the robots filters are no-ops on the rollups, they were applied when rolling up
+            List<String> filterQueries = recent.getFilterQueries() == null ? new ArrayList<String>()
+                : Arrays.asList(recent.getFilterQueries());
+            long total = rollup.sum(query, filterQueries, facetField, cutoff, facetCounts);
+
+            recent.addFilterQuery("time:[" + StatisticsRollup.format(cutoff) + " TO *]");
+            if (facetField != null) {
+                recent.setFacetLimit(-1);
+            }
+            QueryResponse response = solr.query(recent);
+            total += response.getResults().getNumFound();
+            if (facetField != null && response.getFacetField(facetField) != null
+                && response.getFacetField(facetField).getValues() != null) {
+                for (FacetField.Count count : response.getFacetField(facetField).getValues()) {
+                    Long previous = facetCounts.get(count.getName());
+                    facetCounts.put(count.getName(), previous == null ? count.getCount()
+                        : previous + count.getCount());
+                }
+            }
+            return total;
+        } catch (SolrServerException e) {
+            log.warn("Unable to query the usage rollups, counting the usage events instead", e);
+            return -1;
+        }
+    }
+
+    /**
+     * @return the values with the highest counts, as a facet on the usage events would return them
+     */
+    protected ObjectCount[] toObjectCounts(Map<String, Long> facetCounts, int max, boolean showTotal, long total) {
+        if (facetCounts.isEmpty()) {
+            return new ObjectCount[0];
+        }
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(facetCounts.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, Long>>() {
+            @Override
+            public int compare(Map.Entry<String, Long> a, Map.Entry<String, Long> b) {
+                int c = Long.compare(b.getValue(), a.getValue());
+                return c != 0 ? c : a.getKey().compareTo(b.getKey());
+            }
+        });
+        // Solr returns 100 values when no limit is given
+        int size = Math.min(entries.size(), max == -1 ? 100 : max);
+        ObjectCount[] result = new ObjectCount[size + (showTotal ? 1 : 0)];
+        for (int i = 0; i < size; i++) {
+            result[i] = new ObjectCount();
+            result[i].setCount(entries.get(i).getValue());
+            result[i].setValue(entries.get(i).getKey());
+        }
+        if (showTotal) {
+            result[size] = new ObjectCount();
+            result[size].setCount(total);
+            result[size].setValue("total");
+        }
+        return result;
+    }
+
+    @Override
+    public void updateRollups() throws SolrServerException, IOException {
+        if (rollup == null) {
+            return;
+        }
+        if (configurationService.getProperty("solr-statistics.rollup.server") == null
+            && solr instanceof HttpSolrServer) {
+            createCore((HttpSolrServer) solr, ROLLUP_CORE);
+        }
+        List<String> filterQueries = new ArrayList<>();
+        if (configurationService.getBooleanProperty("solr-statistics.query.filter.spiderIp", false)) {
+            filterQueries.add(getIgnoreSpiderIPs());
+        }
+        if (configurationService.getBooleanProperty("solr-statistics.query.filter.isBot", true)) {
+            filterQueries.add("-isBot:true");
+        }
+        long written = rollup.update(getStatisticsCores(), filterQueries,
+            configurationService.getIntProperty("solr-statistics.rollup.recompute.days", 1));
+        log.info("Wrote " + written + " usage rollups");
+    }
+
     protected String getDateView(String name, String type, Context context) {
         if (name != null && name.matches("^[0-9]{4}\\-[0-9]{2}.*")) {
             /*
@@ -963,6 +1300,26 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
             return null;
         }
 
+        SolrQuery solrQuery = createQuery(query, filterQuery, facetField, rows, max, dateType, dateStart, dateEnd,
+                                          facetQueries, sort, ascending);
+        QueryResponse response;
+        try {
+            // solr.set
+            response = solr.query(solrQuery);
+        } catch (SolrServerException e) {
+            System.err.println("Error using query " + query);
+            throw e;
+        }
+        return response;
+    }
+
+    /**
+     * Build the query of {@link #query(String, String, String, int, int, String, String, String, List, String,
+     * boolean)}, with the filters configured for all statistics queries.
+     */
+    protected SolrQuery createQuery(String query, String filterQuery,
+                                    String facetField, int rows, int max, String dateType, String dateStart,
+                                    String dateEnd, List<String> facetQueries, String sort, boolean ascending) {
         // System.out.println("QUERY");
         SolrQuery solrQuery = new SolrQuery().setRows(rows).setQuery(query)
                                              .setFacetMinCount(1);
@@ -1046,16 +1403,7 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
         if (filterQuery != null) {
             solrQuery.addFilterQuery(filterQuery);
         }
-
-        QueryResponse response;
-        try {
-            // solr.set
-            response = solr.query(solrQuery);
-        } catch (SolrServerException e) {
-            System.err.println("Error using query " + query);
-            throw e;
-        }
-        return response;
+        return solrQuery;
     }
 
 
@@ -1075,7 +1423,9 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
                     first = false;
                 }
 
-                query.append(" NOT(ip: ").append(ip).append(")");
+                // addresses ending with a dot are prefixes of a whole subnet
+                query.append(" NOT(ip: ").append(ClientUtils.escapeQueryChars(ip)).append(ip.endsWith(".") ? "*" : "")
+                     .append(")");
             }
             filterQuery = query.toString();
         }
@@ -1123,107 +1473,71 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
         yearRangeQuery.add(FacetParams.FACET_RANGE_GAP, "+1YEAR");
         yearRangeQuery.add(FacetParams.FACET_MINCOUNT, String.valueOf(1));
 
-        //Create a temp directory to store our files in !
-        File tempDirectory = new File(
-            configurationService.getProperty("dspace.dir") + File.separator + "temp" + File.separator);
-        tempDirectory.mkdirs();
-
-
         QueryResponse queryResponse = solr.query(yearRangeQuery);
         //We only have one range query !
         List<RangeFacet.Count> yearResults = queryResponse.getFacetRanges().get(0).getCounts();
-        for (RangeFacet.Count count : yearResults) {
-            long totalRecords = count.getCount();
-
-            //Create a range query from this !
-            //We start with out current year
-            DCDate dcStart = new DCDate(count.getValue());
-            Calendar endDate = Calendar.getInstance();
-            //Advance one year for the start of the next one !
-            endDate.setTime(dcStart.toDate());
-            endDate.add(Calendar.YEAR, 1);
-            DCDate dcEndDate = new DCDate(endDate.getTime());
-
-
-            StringBuilder filterQuery = new StringBuilder();
-            filterQuery.append("time:([");
-            filterQuery.append(ClientUtils.escapeQueryChars(dcStart.toString()));
-            filterQuery.append(" TO ");
-            filterQuery.append(ClientUtils.escapeQueryChars(dcEndDate.toString()));
-            filterQuery.append("]");
-            //The next part of the filter query excludes the content from midnight of the next year !
-            filterQuery.append(" NOT ").append(ClientUtils.escapeQueryChars(dcEndDate.toString()));
-            filterQuery.append(")");
-
-
-            Map<String, String> yearQueryParams = new HashMap<String, String>();
-            yearQueryParams.put(CommonParams.Q, "*:*");
-            yearQueryParams.put(CommonParams.ROWS, String.valueOf(10000));
-            yearQueryParams.put(CommonParams.FQ, filterQuery.toString());
-            yearQueryParams.put(CommonParams.WT, "csv");
-
-            //Tell SOLR how to escape and separate the values of multi-valued fields
-            yearQueryParams.put("csv.escape", "\\");
-            yearQueryParams.put("csv.mv.separator", MULTIPLE_VALUES_SPLITTER);
-
-            //Start by creating a new core
-            String coreName = "statistics-" + dcStart.getYearUTC();
-            HttpSolrServer statisticsYearServer = createCore((HttpSolrServer) solr, coreName);
-
-            System.out.println("Moving: " + totalRecords + " into core " + coreName);
-            log.info("Moving: " + totalRecords + " records into core " + coreName);
-
-            List<File> filesToUpload = new ArrayList<File>();
-            for (int i = 0; i < totalRecords; i += 10000) {
-                String solrRequestUrl = ((HttpSolrServer) solr).getBaseURL() + "/select";
-                solrRequestUrl = generateURL(solrRequestUrl, yearQueryParams);
-
-                HttpGet get = new HttpGet(solrRequestUrl);
-                HttpResponse response = new DefaultHttpClient().execute(get);
-                InputStream csvInputstream = response.getEntity().getContent();
-                //Write the csv ouput to a file !
-                File csvFile = new File(
-                    tempDirectory.getPath() + File.separatorChar + "temp." + dcStart.getYearUTC() + "." + i + ".csv");
-                FileUtils.copyInputStreamToFile(csvInputstream, csvFile);
-                filesToUpload.add(csvFile);
-
-                //Add 10000 & start over again
-                yearQueryParams.put(CommonParams.START, String.valueOf((i + 10000)));
-            }
-
-            Set<String> multivaluedFields = getMultivaluedFieldNames();
-
-            for (File tempCsv : filesToUpload) {
-                //Upload the data in the csv files to our new solr core
-                ContentStreamUpdateRequest contentStreamUpdateRequest = new ContentStreamUpdateRequest("/update/csv");
-                contentStreamUpdateRequest.setParam("stream.contentType", "text/plain;charset=utf-8");
-                contentStreamUpdateRequest.setParam("escape", "\\");
-                contentStreamUpdateRequest.setParam("skip", "_version_");
-                contentStreamUpdateRequest.setAction(AbstractUpdateRequest.ACTION.COMMIT, true, true);
-                contentStreamUpdateRequest.addFile(tempCsv, "text/plain;charset=utf-8");
-
-                //Add parsing directives for the multivalued fields so that they are stored as separate values
-                // instead of one value
-                for (String multivaluedField : multivaluedFields) {
-                    contentStreamUpdateRequest.setParam("f." + multivaluedField + ".split", Boolean.TRUE.toString());
-                    contentStreamUpdateRequest
-                        .setParam("f." + multivaluedField + ".separator", MULTIPLE_VALUES_SPLITTER);
-                }
-
-                statisticsYearServer.request(contentStreamUpdateRequest);
-            }
 
-            statisticsYearServer.commit(true, true);
+        // The years are moved in parallel, streaming their documents to the year cores in batches.
+        // An interrupted run continues from the last batch of each year when started again.
+        final StatisticsBulkUpdater updater = createBulkUpdater(solr);
+        // the years are copied in parallel already
+        updater.setThreads(1);
+        ExecutorService executor = Executors.newFixedThreadPool(
+            Math.max(1, configurationService.getIntProperty("solr-statistics.shard.threads", 4)));
+        List<Future<Long>> moves = new ArrayList<>();
+        try {
+            for (RangeFacet.Count count : yearResults) {
+                final long totalRecords = count.getCount();
+
+                //Create a range query from this !
+                //We start with out current year
+                DCDate dcStart = new DCDate(count.getValue());
+                Calendar endDate = Calendar.getInstance();
+                //Advance one year for the start of the next one !
+                endDate.setTime(dcStart.toDate());
+                endDate.add(Calendar.YEAR, 1);
+                DCDate dcEndDate = new DCDate(endDate.getTime());
+
+                //The range excludes the content from midnight of the next year !
+                final String filterQuery = "time:[" + ClientUtils.escapeQueryChars(dcStart.toString()) + " TO "
+                    + ClientUtils.escapeQueryChars(dcEndDate.toString()) + "}";
+
+                //Start by creating a new core
+                final String coreName = "statistics-" + dcStart.getYearUTC();
+                final HttpSolrServer statisticsYearServer = createCore((HttpSolrServer) solr, coreName);
+
+                System.out.println("Moving: " + totalRecords + " into core " + coreName);
+                log.info("Moving: " + totalRecords + " records into core " + coreName);
+
+                moves.add(executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() throws Exception {
+                        long moved = updater.copy(filterQuery, statisticsYearServer, totalRecords);
 
+                        //Delete contents of this year from our year query !
+                        getCommitPolicy().deleteByQuery(solr, filterQuery);
+                        getCommitPolicy().commit(solr);
 
-            //Delete contents of this year from our year query !
-            solr.deleteByQuery(filterQuery.toString());
-            solr.commit(true, true);
+                        log.info("Moved " + moved + " records into core: " + coreName);
+                        return moved;
+                    }
+                }));
+            }
 
-            log.info("Moved " + totalRecords + " records into core: " + coreName);
+            for (Future<Long> move : moves) {
+                move.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while sharding the statistics core", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SolrServerException) {
+                throw (SolrServerException) e.getCause();
+            }
+            throw new IOException("Unable to shard the statistics core", e.getCause());
+        } finally {
+            executor.shutdownNow();
         }
-
-        FileUtils.deleteDirectory(tempDirectory);
     }
 
     protected HttpSolrServer createCore(HttpSolrServer solr, String coreName) throws IOException, SolrServerException {
@@ -1284,177 +1598,213 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
 
     @Override
     public void reindexBitstreamHits(boolean removeDeletedBitstreams) throws Exception {
-        if (!(solr instanceof HttpSolrServer)) {
+        reindexBitstreamHits(removeDeletedBitstreams, null, null);
+    }
+
+    @Override
+    public void reindexBitstreamHits(final boolean removeDeletedBitstreams, Date from, Date until)
+        throws Exception {
+        if (solr == null) {
             return;
         }
 
-        Context context = new Context();
+        //Only retrieve records which do not have a bundle name
+        String query = "type:" + Constants.BITSTREAM + " AND -bundleName:[* TO *]";
+        if (from != null || until != null) {
+            query += " AND time:[" + (from != null ? ClientUtils.escapeQueryChars(new DCDate(from).toString()) : "*")
+                + " TO " + (until != null ? ClientUtils.escapeQueryChars(new DCDate(until).toString()) : "*") + "}";
+        }
 
-        try {
-            //First of all retrieve the total number of records to be updated
-            SolrQuery query = new SolrQuery();
-            query.setQuery("*:*");
-            query.addFilterQuery("type:" + Constants.BITSTREAM);
-            //Only retrieve records which do not have a bundle name
-            query.addFilterQuery("-bundleName:[* TO *]");
-            query.setRows(0);
-            addAdditionalSolrYearCores(query);
-            long totalRecords = solr.query(query).getResults().getNumFound();
-
-            File tempDirectory = new File(
-                configurationService.getProperty("dspace.dir") + File.separator + "temp" + File.separator);
-            tempDirectory.mkdirs();
-            List<File> tempCsvFiles = new ArrayList<File>();
-            for (int i = 0; i < totalRecords; i += 10000) {
-                Map<String, String> params = new HashMap<String, String>();
-                params.put(CommonParams.Q, "*:*");
-                params.put(CommonParams.FQ, "-bundleName:[* TO *] AND type:" + Constants.BITSTREAM);
-                params.put(CommonParams.WT, "csv");
-                params.put(CommonParams.ROWS, String.valueOf(10000));
-                params.put(CommonParams.START, String.valueOf(i));
-
-                String solrRequestUrl = ((HttpSolrServer) solr).getBaseURL() + "/select";
-                solrRequestUrl = generateURL(solrRequestUrl, params);
-
-                HttpGet get = new HttpGet(solrRequestUrl);
-                HttpResponse response = new DefaultHttpClient().execute(get);
-
-                InputStream csvOutput = response.getEntity().getContent();
-                Reader csvReader = new InputStreamReader(csvOutput);
-                List<String[]> rows = new CSVReader(csvReader).readAll();
-                String[][] csvParsed = rows.toArray(new String[rows.size()][]);
-                String[] header = csvParsed[0];
-                //Attempt to find the bitstream id index !
-                int idIndex = 0;
-                for (int j = 0; j < header.length; j++) {
-                    if (header[j].equals("id")) {
-                        idIndex = j;
-                    }
+        // The bundle names are looked up for a whole batch of hits at once, and kept for the next batches
+        final BitstreamBundleLookup lookup = new BitstreamBundleLookup(bitstreamService,
+            configurationService.getLongProperty("solr-statistics.reindex.bitstreams.cache.size", 100000));
+        StatisticsBulkUpdater.BatchUpdate update = new StatisticsBulkUpdater.BatchUpdate() {
+            @Override
+            public void apply(List<SolrDocument> docs, List<SolrInputDocument> updates, List<String> deletes)
+                throws IOException {
+                List<String> ids = new ArrayList<>(docs.size());
+                for (SolrDocument doc : docs) {
+                    ids.add(String.valueOf(doc.getFieldValue("id")));
+                }
+                Map<String, String> bundleNames;
+                Context context = new Context(Context.Mode.READ_ONLY);
+                try {
+                    bundleNames = lookup.getBundleNames(context, ids);
+                } catch (SQLException e) {
+                    throw new IOException("Unable to look up the bundles of the bitstreams", e);
+                } finally {
+                    context.abort();
                 }
 
-                File tempCsv = new File(tempDirectory.getPath() + File.separatorChar + "temp." + i + ".csv");
-                tempCsvFiles.add(tempCsv);
-                CSVWriter csvp = new CSVWriter(new FileWriter(tempCsv));
-                //csvp.setAlwaysQuote(false);
-
-                //Write the header !
-                csvp.writeNext((String[]) ArrayUtils.add(header, "bundleName"));
-                Map<String, String> bitBundleCache = new HashMap<>();
-                //Loop over each line (skip the headers though)!
-                for (int j = 1; j < csvParsed.length; j++) {
-                    String[] csvLine = csvParsed[j];
-                    //Write the default line !
-                    String bitstreamId = csvLine[idIndex];
-                    //Attempt to retrieve our bundle name from the cache !
-                    String bundleName = bitBundleCache.get(bitstreamId);
+                for (SolrDocument doc : docs) {
+                    String uid = (String) doc.getFieldValue("uid");
+                    String bundleName = bundleNames.get(String.valueOf(doc.getFieldValue("id")));
                     if (bundleName == null) {
-                        //Nothing found retrieve the bitstream
-                        Bitstream bitstream = bitstreamService.findByIdOrLegacyId(context, bitstreamId);
-                        //Attempt to retrieve our bitstream !
-                        if (bitstream != null) {
-                            List<Bundle> bundles = bitstream.getBundles();
-                            if (bundles != null && 0 < bundles.size()) {
-                                Bundle bundle = bundles.get(0);
-                                bundleName = bundle.getName();
-                            } else {
-                                //No bundle found, we are either a collection or a community logo, check for it !
-                                DSpaceObject parentObject = bitstreamService.getParentObject(context, bitstream);
-                                if (parentObject instanceof Collection) {
-                                    bundleName = "LOGO-COLLECTION";
-                                } else if (parentObject instanceof Community) {
-                                    bundleName = "LOGO-COMMUNITY";
-                                }
-
-                            }
-                            //Cache the bundle name
-                            bitBundleCache.put(bitstream.getID().toString(), bundleName);
-                            //Remove the bitstream from cache
-                        }
-                        //Check if we don't have a bundlename
-                        //If we don't have one & we do not need to delete the deleted bitstreams ensure that a
-                        // BITSTREAM_DELETED bundle name is given !
-                        if (bundleName == null && !removeDeletedBitstreams) {
-                            bundleName = "BITSTREAM_DELETED";
+                        if (removeDeletedBitstreams) {
+                            deletes.add(uid);
+                            continue;
                         }
+                        bundleName = "BITSTREAM_DELETED";
                     }
-                    csvp.writeNext((String[]) ArrayUtils.add(csvLine, bundleName));
+                    SolrInputDocument doc1 = new SolrInputDocument();
+                    doc1.addField("uid", uid);
+                    doc1.addField("bundleName", Collections.singletonMap("set", bundleName));
+                    updates.add(doc1);
                 }
-
-                //Loop over our parsed csv
-                csvp.flush();
-                csvp.close();
             }
+        };
 
-            //Add all the separate csv files
-            for (File tempCsv : tempCsvFiles) {
-                ContentStreamUpdateRequest contentStreamUpdateRequest = new ContentStreamUpdateRequest("/update/csv");
-                contentStreamUpdateRequest.setParam("stream.contentType", "text/plain;charset=utf-8");
-                contentStreamUpdateRequest.setAction(AbstractUpdateRequest.ACTION.COMMIT, true, true);
-                contentStreamUpdateRequest.addFile(tempCsv, "text/plain;charset=utf-8");
-
-                solr.request(contentStreamUpdateRequest);
+        try {
+            for (SolrServer core : getStatisticsCores()) {
+                long processed = createBulkUpdater(core).update(query, "id", "bundleName " + removeDeletedBitstreams,
+                                                                update);
+                log.info("Indexed the bundle names of " + processed + " bitstream hits");
             }
-
-            //Now that all our new bitstream stats are in place, delete all the old ones !
-            solr.deleteByQuery("-bundleName:[* TO *] AND type:" + Constants.BITSTREAM);
-            //Commit everything to wrap up
-            solr.commit(true, true);
-            //Clean up our directory !
-            FileUtils.deleteDirectory(tempDirectory);
         } catch (Exception e) {
             log.error("Error while updating the bitstream statistics", e);
             throw e;
-        } finally {
-            context.abort();
         }
     }
 
 
     @Override
     public void exportHits() throws Exception {
-        Context context = new Context();
-
         File tempDirectory = new File(
             configurationService.getProperty("dspace.dir") + File.separator + "temp" + File.separator);
         tempDirectory.mkdirs();
-
+        File exportOutput = new File(tempDirectory, "usagestats.csv.gz");
+
+        // the years are exported in parallel, each to a gzip file of its own, and these
+        // files are joined in the end: a sequence of gzip members is a gzip file
+        List<String> years = getExportYears();
+        ExecutorService executor = Executors.newFixedThreadPool(
+            Math.max(1, configurationService.getIntProperty("solr-statistics.export.threads", 4)));
+        List<File> parts = new ArrayList<>();
+        List<Future<Long>> exports = new ArrayList<>();
         try {
-            //First of all retrieve the total number of records to be updated
-            SolrQuery query = new SolrQuery();
-            query.setQuery("*:*");
+            for (final String year : years) {
+                final File part = new File(tempDirectory, "usagestats-" + parts.size() + ".csv.gz");
+                parts.add(part);
+                exports.add(executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() throws Exception {
+                        return exportHits(year, part);
+                    }
+                }));
+            }
+            long exported = 0;
+            for (Future<Long> export : exports) {
+                exported += export.get();
+            }
 
-            ModifiableSolrParams solrParams = new ModifiableSolrParams();
-            solrParams.set(CommonParams.Q, "statistics_type:view OR (*:* AND -statistics_type:*)");
-            solrParams.set(CommonParams.WT, "javabin");
-            solrParams.set(CommonParams.ROWS, String.valueOf(10000));
+            try (OutputStream out = new FileOutputStream(exportOutput)) {
+                if (parts.isEmpty()) {
+                    new GZIPOutputStream(out).finish();
+                }
+                for (File part : parts) {
+                    Files.copy(part.toPath(), out);
+                }
+            }
+            log.info("Exported " + exported + " usage events to " + exportOutput.getCanonicalPath());
+        } catch (ExecutionException e) {
+            log.error("Error while exporting SOLR data", e.getCause());
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        } catch (Exception e) {
+            log.error("Error while exporting SOLR data", e);
+            throw e;
+        } finally {
+            executor.shutdownNow();
+            for (File part : parts) {
+                part.delete();
+            }
+        }
+    }
 
+    /**
+     * @return a filter query per year with usage events to export, the first and last
+     * ones open ended, none if there are no events
+     */
+    protected List<String> getExportYears() throws SolrServerException {
+        List<String> years = new ArrayList<>();
+        Date first = null;
+        Date last = null;
+        for (SolrQuery.ORDER order : SolrQuery.ORDER.values()) {
+            SolrQuery query = new SolrQuery(EXPORT_QUERY);
+            query.setFields("time");
+            query.setRows(1);
+            query.setSort("time", order);
             addAdditionalSolrYearCores(query);
-            long totalRecords = solr.query(query).getResults().getNumFound();
-            System.out.println("There are " + totalRecords + " usage events in SOLR for download/view.");
+            SolrDocumentList docs = solr.query(query).getResults();
+            if (docs.isEmpty()) {
+                return years;
+            }
+            if (order == SolrQuery.ORDER.asc) {
+                first = (Date) docs.get(0).getFieldValue("time");
+            } else {
+                last = (Date) docs.get(0).getFieldValue("time");
+            }
+        }
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        calendar.setTime(last);
+        int lastYear = calendar.get(Calendar.YEAR);
+        calendar.setTime(first);
+        int firstYear = calendar.get(Calendar.YEAR);
+        for (int year = firstYear; year <= lastYear; year++) {
+            years.add("time:[" + (year == firstYear ? "*" : year + "-01-01T00:00:00Z") + " TO "
+                          + (year == lastYear ? "*]" : (year + 1) + "-01-01T00:00:00Z}"));
+        }
+        return years;
+    }
 
-            for (int i = 0; i < totalRecords; i += 10000) {
-                solrParams.set(CommonParams.START, String.valueOf(i));
-                QueryResponse queryResponse = solr.query(solrParams);
-                SolrDocumentList docs = queryResponse.getResults();
+    /**
+     * Export the view events matching a filter query, with a context of their own.
+     *
+     * @param filterQuery the events to export
+     * @param output      the gzip file to write
+     * @return the number of events read
+     * @throws Exception if error
+     */
+    protected long exportHits(String filterQuery, File output) throws Exception {
+        Context context = new Context();
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+            new GZIPOutputStream(new FileOutputStream(output), 64 * 1024), StandardCharsets.UTF_8))) {
+            SolrQuery query = new SolrQuery(EXPORT_QUERY);
+            query.addFilterQuery(filterQuery);
+            query.setFields("uid", "id", "type", "time", "ip");
+            query.setRows(10000);
+            // a cursor does not slow down deep in the results as start does
+            query.setSort("uid", SolrQuery.ORDER.asc);
+            addAdditionalSolrYearCores(query);
 
-                File exportOutput = new File(tempDirectory.getPath() + File.separatorChar + "usagestats_" + i + ".csv");
-                exportOutput.delete();
+            String cursor = CursorMarkParams.CURSOR_MARK_START;
+            long exported = 0;
+            while (true) {
+                query.set(CursorMarkParams.CURSOR_MARK_PARAM, cursor);
+                QueryResponse queryResponse = solr.query(query);
+                SolrDocumentList docs = queryResponse.getResults();
 
                 //export docs
-                addDocumentsToFile(context, docs, exportOutput);
-                System.out.println(
-                    "Export hits [" + i + " - " + String.valueOf(i + 9999) + "] to " + exportOutput.getCanonicalPath());
+                addDocumentsToFile(context, docs, writer);
+                exported += docs.size();
+                log.info("Export hits of " + filterQuery + " [" + exported + "/" + docs.getNumFound() + "]");
+
+                String next = queryResponse.getNextCursorMark();
+                if (next == null || next.equals(cursor)) {
+                    return exported;
+                }
+                cursor = next;
             }
-        } catch (Exception e) {
-            log.error("Error while exporting SOLR data", e);
-            throw e;
         } finally {
             context.abort();
         }
     }
 
-    protected void addDocumentsToFile(Context context, SolrDocumentList docs, File exportOutput)
+    protected void addDocumentsToFile(Context context, SolrDocumentList docs, Writer exportOutput)
         throws SQLException, ParseException, IOException {
+        //InputFormat: Mon May 19 07:21:27 EDT 2014
+        DateFormat inputDateFormat = new SimpleDateFormat("EEE MMM dd HH:mm:ss z yyyy");
+        //OutputFormat: 2014-05-27T16:24:09
+        DateFormat outputDateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
         for (SolrDocument doc : docs) {
             String ip = doc.get("ip").toString();
             if (ip.equals("::1")) {
@@ -1474,18 +1824,14 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
                 continue;
             }
 
-            //InputFormat: Mon May 19 07:21:27 EDT 2014
-            DateFormat inputDateFormat = new SimpleDateFormat("EEE MMM dd HH:mm:ss z yyyy");
             Date solrDate = inputDateFormat.parse(time);
 
-            //OutputFormat: 2014-05-27T16:24:09
-            DateFormat outputDateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
-
             String out = time + "," + "view_" + contentServiceFactory.getDSpaceObjectService(dso).getTypeText(dso)
                                                                      .toLowerCase() + "," + id + "," + outputDateFormat
                 .format(solrDate) + ",anonymous," + ip + "\n";
-            FileUtils.writeStringToFile(exportOutput, out, true);
-
+            exportOutput.write(out);
+            // the objects of the exported events are not needed anymore
+            context.uncacheEntity(dso);
         }
     }
 
@@ -0,0 +1,377 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.request.DirectXmlRequest;
+import org.apache.solr.client.solrj.util.ClientUtils;
+import org.apache.solr.common.SolrInputDocument;
+import org.dspace.util.SolrCommitPolicy;
+
+/**
+ * Sends usage events to the statistics core from a background thread, so that the
+ * requests logging them do not wait for Solr.
+ * <p>
+ * Events are held in a bounded queue and sent in batches of at most "batchSize"
+ * documents. When the queue is full, or a batch cannot be sent, the events are
+ * either dropped (and counted) or, when a journal file is given, appended to it as
+ * Solr XML. The journal is sent to Solr as soon as the queue is idle again, and
+ * is also where the events still queued at shutdown end up if they cannot be sent
+ * in time. While it is sent, the journal is renamed with a ".replay" suffix and
+ * new events are spilled to a new journal.
+ */
+public class SolrStatisticsWriter {
+
+    private static final Logger log = Logger.getLogger(SolrStatisticsWriter.class);
+
+    protected final SolrServer solr;
+    protected final SolrCommitPolicy commitPolicy;
+    protected final BlockingQueue<SolrInputDocument> queue;
+    protected final int batchSize;
+    protected final File journal;
+
+    protected final Object journalLock = new Object();
+    protected long journalDepth = 0;
+
+    /**
+     * The number of events in the journal being sent, only updated by the worker
+     */
+    protected volatile long replayDepth = 0;
+
+    protected final AtomicLong written = new AtomicLong();
+    protected final AtomicLong dropped = new AtomicLong();
+
+    protected volatile boolean running;
+    protected Thread worker;
+    protected long reportInterval = 0;
+    protected long lastReport = System.currentTimeMillis();
+
+    /**
+     * @param solr         the statistics core
+     * @param commitPolicy the commit policy of the statistics core
+     * @param capacity     the maximum number of events waiting in memory
+     * @param batchSize    the maximum number of events sent at once
+     * @param journal      the file to spill events to when the queue is full, null to drop them
+     */
+    public SolrStatisticsWriter(SolrServer solr, SolrCommitPolicy commitPolicy, int capacity, int batchSize,
+                                File journal) {
+        this.solr = solr;
+        this.commitPolicy = commitPolicy;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.journal = journal;
+        if (journal != null) {
+            journalDepth = countJournal(journal);
+            replayDepth = countJournal(getReplayFile());
+        }
+    }
+
+    /**
+     * @param reportInterval how often (in milliseconds) to log the queue depth and drop count while
+     *                       events are waiting or being dropped, 0 to only log them at shutdown
+     */
+    public void setReportInterval(long reportInterval) {
+        this.reportInterval = reportInterval;
+    }
+
+    /**
+     * Start the background thread sending the events.
+     */
+    public void start() {
+        running = true;
+        worker = new Thread(this::work, "solr-statistics-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Stop accepting events and send those still queued, spilling them to the journal
+     * (if any) when they cannot be sent within the timeout.
+     *
+     * @param timeout the maximum number of milliseconds to wait for the queue to be sent
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void shutdown(long timeout) throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            worker.join(timeout);
+            worker.interrupt();
+        }
+        List<SolrInputDocument> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            if (journal != null) {
+                spill(remaining);
+                log.info("Saved " + remaining.size() + " pending usage events to " + journal.getAbsolutePath());
+            } else {
+                dropped.addAndGet(remaining.size());
+                log.warn("Discarding " + remaining.size() + " pending usage events at shutdown");
+            }
+        }
+        report();
+    }
+
+    /**
+     * Queue an event to be sent.
+     *
+     * @param doc the usage event
+     * @return false if the event was dropped
+     */
+    public boolean offer(SolrInputDocument doc) {
+        if (running && queue.offer(doc)) {
+            return true;
+        }
+        List<SolrInputDocument> docs = new ArrayList<>(1);
+        docs.add(doc);
+        return journal != null ? spill(docs) : drop(docs);
+    }
+
+    /**
+     * @return the number of events waiting in memory
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * @return the number of events waiting in the journal files
+     */
+    public long getJournalDepth() {
+        synchronized (journalLock) {
+            return journalDepth + replayDepth;
+        }
+    }
+
+    /**
+     * @return the number of events sent to Solr since startup
+     */
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    /**
+     * @return the number of events lost since startup
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    protected void report() {
+        log.info("Usage statistics writer: depth=" + getQueueDepth() + ", journal=" + getJournalDepth()
+                     + ", written=" + getWrittenCount() + ", dropped=" + getDroppedCount());
+    }
+
+    /**
+     * Worker loop: send batches until shutdown and the queue is empty, and send the
+     * journal whenever there is nothing else to do.
+     */
+    protected void work() {
+        long droppedAtReport = 0;
+        while (running || !queue.isEmpty()) {
+            if (reportInterval > 0 && System.currentTimeMillis() - lastReport >= reportInterval) {
+                if (getQueueDepth() > 0 || getJournalDepth() > 0 || getDroppedCount() > droppedAtReport) {
+                    report();
+                }
+                droppedAtReport = getDroppedCount();
+                lastReport = System.currentTimeMillis();
+            }
+            List<SolrInputDocument> batch = new ArrayList<>(batchSize);
+            try {
+                SolrInputDocument first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    if (running && getJournalDepth() > 0) {
+                        replay();
+                    }
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queue.drainTo(batch, batchSize - 1);
+            send(batch);
+        }
+    }
+
+    /**
+     * Send a batch of events, spilling or dropping it if Solr cannot take it.
+     *
+     * @param batch the events
+     */
+    protected void send(List<SolrInputDocument> batch) {
+        try {
+            commitPolicy.add(solr, batch);
+            written.addAndGet(batch.size());
+        } catch (Exception e) {
+            log.error("Unable to send " + batch.size() + " usage events to Solr", e);
+            if (journal != null) {
+                spill(batch);
+            } else {
+                drop(batch);
+            }
+        }
+    }
+
+    protected boolean drop(List<SolrInputDocument> docs) {
+        long count = dropped.addAndGet(docs.size());
+        if (count == docs.size() || count / 1000 != (count - docs.size()) / 1000) {
+            log.warn("Usage statistics writer is falling behind, " + count + " events dropped so far");
+        }
+        return false;
+    }
+
+    /**
+     * Append events to the journal, one Solr XML document per line.
+     *
+     * @param docs the events
+     * @return true if they were written
+     */
+    protected boolean spill(List<SolrInputDocument> docs) {
+        synchronized (journalLock) {
+            try (PrintWriter writer = new PrintWriter(new FileWriter(journal, true))) {
+                for (SolrInputDocument doc : docs) {
+                    writer.println(toLine(doc));
+                }
+                journalDepth += docs.size();
+                return true;
+            } catch (IOException e) {
+                log.error("Unable to write usage events to journal " + journal.getAbsolutePath(), e);
+                drop(docs);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Send the journal to Solr in batches. The journal is first moved aside under the
+     * lock, so that events can be spilled to a new journal while the moved one is sent.
+     * Whatever cannot be sent is kept in the moved journal, which is sent first at the
+     * next attempt.
+     */
+    protected void replay() {
+        File replaying = getReplayFile();
+        synchronized (journalLock) {
+            if (!replaying.exists()) {
+                if (!journal.exists()) {
+                    journalDepth = 0;
+                    return;
+                }
+                if (!journal.renameTo(replaying)) {
+                    log.error("Unable to move usage event journal " + journal.getAbsolutePath() + " to "
+                                  + replaying.getAbsolutePath());
+                    return;
+                }
+                replayDepth = journalDepth;
+                journalDepth = 0;
+            }
+        }
+
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(replaying))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    lines.add(line);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Unable to read usage event journal " + replaying.getAbsolutePath(), e);
+            return;
+        }
+
+        int sent = 0;
+        try {
+            while (sent < lines.size()) {
+                List<String> batch = lines.subList(sent, Math.min(lines.size(), sent + batchSize));
+                solr.request(new DirectXmlRequest("/update", toAddRequest(batch)));
+                sent += batch.size();
+            }
+        } catch (Exception e) {
+            log.warn("Unable to send the usage event journal to Solr, will retry later: " + e.getMessage());
+        }
+        written.addAndGet(sent);
+
+        if (sent == lines.size()) {
+            if (!replaying.delete()) {
+                log.error("Unable to delete usage event journal " + replaying.getAbsolutePath());
+                return;
+            }
+            replayDepth = 0;
+        } else if (sent > 0) {
+            try (PrintWriter writer = new PrintWriter(new FileWriter(replaying))) {
+                for (String line : lines.subList(sent, lines.size())) {
+                    writer.println(line);
+                }
+                replayDepth = lines.size() - sent;
+            } catch (IOException e) {
+                log.error("Unable to write usage events to journal " + replaying.getAbsolutePath(), e);
+                dropped.addAndGet(lines.size() - sent);
+                replaying.delete();
+                replayDepth = 0;
+            }
+        } else {
+            replayDepth = lines.size();
+        }
+    }
+
+    /**
+     * @return the file the journal is moved to while it is sent to Solr
+     */
+    protected File getReplayFile() {
+        return new File(journal.getPath() + ".replay");
+    }
+
+    protected String toAddRequest(List<String> lines) {
+        StringBuilder xml = new StringBuilder("<add");
+        if (commitPolicy.getCommitWithin() > 0) {
+            xml.append(" commitWithin=\"").append(commitPolicy.getCommitWithin()).append('"');
+        }
+        xml.append('>');
+        for (String line : lines) {
+            xml.append(line);
+        }
+        return xml.append("</add>").toString();
+    }
+
+    /**
+     * @param doc an event
+     * @return the event as Solr XML, on a single line
+     */
+    protected static String toLine(SolrInputDocument doc) {
+        return ClientUtils.toXML(doc).replace("\r", "&#13;").replace("\n", "&#10;");
+    }
+
+    protected long countJournal(File file) {
+        long count = 0;
+        if (file.exists()) {
+            try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+                while (reader.readLine() != null) {
+                    count++;
+                }
+            } catch (IOException e) {
+                log.error("Unable to read usage event journal " + file.getAbsolutePath(), e);
+            }
+        }
+        return count;
+    }
+}
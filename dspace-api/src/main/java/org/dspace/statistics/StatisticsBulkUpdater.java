@@ -0,0 +1,356 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.log4j.Logger;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.impl.HttpSolrServer;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.CursorMarkParams;
+import org.dspace.util.SolrCommitPolicy;
+
+/**
+ * Changes fields of all statistics documents matching a query with Solr atomic
+ * updates, without reading and re-adding the whole documents, or copies them to
+ * another core.
+ * <p>
+ * The matching documents are streamed with a cursor sorted on their unique key, so
+ * documents that stop matching because of the update itself are not skipped. Updates
+ * only fetch the keys, and are sent in batches. After each batch the
+ * cursor is saved in a checkpoint file, from which an interrupted run resumes when
+ * it is started again with the same core, query and changes (or target core).
+ * <p>
+ * With several threads, the next batches are fetched while the previous ones are
+ * being processed. The checkpoint only moves past a batch once it and all batches
+ * before it are done.
+ */
+public class StatisticsBulkUpdater {
+
+    private static final Logger log = Logger.getLogger(StatisticsBulkUpdater.class);
+
+    protected static final String UNIQUE_KEY = "uid";
+
+    protected final SolrServer core;
+    protected final SolrCommitPolicy commitPolicy;
+    protected final int batchSize;
+    protected final File checkpointDir;
+    protected int threads = 1;
+
+    /**
+     * @param core          the statistics core to update
+     * @param commitPolicy  the commit policy of the statistics core
+     * @param batchSize     the number of documents fetched and updated at once
+     * @param checkpointDir the directory to keep the progress in, null to always start from scratch
+     */
+    public StatisticsBulkUpdater(SolrServer core, SolrCommitPolicy commitPolicy, int batchSize, File checkpointDir) {
+        this.core = core;
+        this.commitPolicy = commitPolicy;
+        this.batchSize = Math.max(1, batchSize);
+        this.checkpointDir = checkpointDir;
+    }
+
+    /**
+     * @param threads the number of batches processed at the same time
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Apply atomic update operations to all documents matching a query.
+     *
+     * @param query   the documents to update
+     * @param changes the operation per field, e.g. {"isBot": {"set": true}}
+     * @return the number of documents updated
+     * @throws SolrServerException if Solr rejected a request
+     * @throws IOException         if Solr or the checkpoint file cannot be reached
+     */
+    public long update(String query, final Map<String, Map<String, Object>> changes)
+        throws SolrServerException, IOException {
+        long processed = process(query, UNIQUE_KEY, query + '\n' + changes, "Updated", -1, new BatchProcessor() {
+            @Override
+            public void process(List<SolrDocument> docs) throws SolrServerException, IOException {
+                List<SolrInputDocument> batch = new ArrayList<>(docs.size());
+                for (SolrDocument doc : docs) {
+                    SolrInputDocument update = new SolrInputDocument();
+                    update.addField(UNIQUE_KEY, doc.getFieldValue(UNIQUE_KEY));
+                    for (Map.Entry<String, Map<String, Object>> change : changes.entrySet()) {
+                        update.addField(change.getKey(), change.getValue());
+                    }
+                    batch.add(update);
+                }
+                commitPolicy.add(core, batch);
+            }
+        });
+        commitPolicy.commit(core);
+        return processed;
+    }
+
+    /**
+     * Update or delete all documents matching a query, computing the changes of each
+     * batch of documents.
+     *
+     * @param query  the documents to update
+     * @param fields the fields the changes are computed from
+     * @param name   identifies the update in the checkpoint directory
+     * @param update computes the changes
+     * @return the number of documents processed
+     * @throws SolrServerException if Solr rejected a request
+     * @throws IOException         if Solr or the checkpoint file cannot be reached
+     */
+    public long update(String query, String fields, String name, final BatchUpdate update)
+        throws SolrServerException, IOException {
+        String checkpointKey = query + '\n' + name;
+        long processed = process(query, UNIQUE_KEY + "," + fields, checkpointKey, "Updated", -1, new BatchProcessor() {
+            @Override
+            public void process(List<SolrDocument> docs) throws SolrServerException, IOException {
+                List<SolrInputDocument> updates = new ArrayList<>();
+                List<String> deletes = new ArrayList<>();
+                update.apply(docs, updates, deletes);
+                if (!updates.isEmpty()) {
+                    commitPolicy.add(core, updates);
+                }
+                if (!deletes.isEmpty()) {
+                    commitPolicy.deleteById(core, deletes);
+                }
+            }
+        });
+        commitPolicy.commit(core);
+        return processed;
+    }
+
+    /**
+     * Copy all documents matching a query to another core. The documents are not removed
+     * from this core.
+     *
+     * @param query    the documents to copy
+     * @param target   the core to copy them to
+     * @param expected the number of documents expected, to report the progress, -1 if unknown
+     * @return the number of documents copied
+     * @throws SolrServerException if Solr rejected a request
+     * @throws IOException         if Solr or the checkpoint file cannot be reached
+     */
+    public long copy(String query, final SolrServer target, long expected) throws SolrServerException, IOException {
+        String targetName = target instanceof HttpSolrServer ? ((HttpSolrServer) target).getBaseURL() : "";
+        long processed = process(query, "*", query + '\n' + targetName, "Copied", expected, new BatchProcessor() {
+            @Override
+            public void process(List<SolrDocument> docs) throws SolrServerException, IOException {
+                List<SolrInputDocument> batch = new ArrayList<>(docs.size());
+                for (SolrDocument doc : docs) {
+                    SolrInputDocument copy = new SolrInputDocument();
+                    for (String field : doc.getFieldNames()) {
+                        // the version is the one of this core
+                        if (!"_version_".equals(field)) {
+                            copy.addField(field, doc.getFieldValue(field));
+                        }
+                    }
+                    batch.add(copy);
+                }
+                target.add(batch);
+            }
+        });
+        // hard commit, the caller usually deletes the documents from this core next
+        target.commit(true, true);
+        return processed;
+    }
+
+    /**
+     * Stream the documents matching a query in batches, resuming from and saving to a
+     * checkpoint.
+     *
+     * @param query         the documents to process
+     * @param fields        the fields to fetch
+     * @param checkpointKey identifies the operation in the checkpoint directory
+     * @param action        describes the processing in the progress reports
+     * @param expected      the number of documents expected, -1 if unknown
+     * @param processor     processes each batch
+     * @return the number of documents processed
+     */
+    protected long process(String query, String fields, String checkpointKey, String action, long expected,
+                           BatchProcessor processor) throws SolrServerException, IOException {
+        File checkpoint = getCheckpoint(checkpointKey);
+        String cursor = CursorMarkParams.CURSOR_MARK_START;
+        long processed = 0;
+        if (checkpoint != null && checkpoint.exists()) {
+            List<String> lines = Files.readAllLines(checkpoint.toPath(), StandardCharsets.UTF_8);
+            if (lines.size() >= 2) {
+                cursor = lines.get(0);
+                processed = Long.parseLong(lines.get(1));
+                log.info("Resuming " + describe(query) + " after " + processed + " documents");
+            }
+        }
+
+        SolrQuery solrQuery = new SolrQuery(query);
+        solrQuery.setFields(fields);
+        solrQuery.setRows(batchSize);
+        solrQuery.setSort(UNIQUE_KEY, SolrQuery.ORDER.asc);
+
+        long start = System.currentTimeMillis();
+        long processedAtStart = processed;
+        ExecutorService pool = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+        Deque<Batch> batches = new ArrayDeque<>();
+        try {
+            while (true) {
+                solrQuery.set(CursorMarkParams.CURSOR_MARK_PARAM, cursor);
+                // the queries can be long lists of addresses
+                QueryResponse response = core.query(solrQuery, SolrRequest.METHOD.POST);
+                String next = response.getNextCursorMark();
+                boolean last = next == null || next.equals(cursor);
+                if (!response.getResults().isEmpty()) {
+                    processed += response.getResults().size();
+                    Batch batch = new Batch(processor, response.getResults(), last ? null : next, processed);
+                    if (pool != null) {
+                        pool.execute(batch.task);
+                    } else {
+                        batch.task.run();
+                    }
+                    batches.add(batch);
+                }
+                if (last) {
+                    break;
+                }
+                cursor = next;
+                while (batches.size() >= threads) {
+                    finish(batches.poll(), checkpoint, query, action, expected, start, processedAtStart);
+                }
+            }
+            while (!batches.isEmpty()) {
+                finish(batches.poll(), checkpoint, query, action, expected, start, processedAtStart);
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
+
+        if (checkpoint != null && checkpoint.exists() && !checkpoint.delete()) {
+            log.warn("Unable to remove checkpoint " + checkpoint.getAbsolutePath());
+        }
+        log.info(action + " " + processed + " documents matching " + describe(query) + " in "
+                     + (System.currentTimeMillis() - start) + "ms");
+        return processed;
+    }
+
+    /**
+     * Wait for a batch to be processed, then save the checkpoint after it.
+     */
+    private void finish(Batch batch, File checkpoint, String query, String action, long expected, long start,
+                        long processedAtStart) throws SolrServerException, IOException {
+        try {
+            batch.task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SolrServerException) {
+                throw (SolrServerException) cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+        if (batch.cursor == null) {
+            return;
+        }
+        if (checkpoint != null) {
+            Files.write(checkpoint.toPath(), Arrays.asList(batch.cursor, String.valueOf(batch.processed)),
+                        StandardCharsets.UTF_8);
+        }
+        long elapsed = Math.max(1, System.currentTimeMillis() - start);
+        log.info(action + " " + batch.processed + (expected >= 0 ? " of " + expected : "") + " documents matching "
+                     + describe(query) + " (" + (batch.processed - processedAtStart) * 1000 / elapsed
+                     + " documents/s)");
+    }
+
+    /**
+     * @return the checkpoint file of an operation on this core, null if checkpoints are disabled
+     */
+    protected File getCheckpoint(String key) throws IOException {
+        if (checkpointDir == null) {
+            return null;
+        }
+        if (!checkpointDir.isDirectory() && !checkpointDir.mkdirs()) {
+            throw new IOException("Unable to create checkpoint directory " + checkpointDir.getAbsolutePath());
+        }
+        String coreName = core instanceof HttpSolrServer ? ((HttpSolrServer) core).getBaseURL() : "";
+        return new File(checkpointDir, DigestUtils.md5Hex(coreName + '\n' + key) + ".cursor");
+    }
+
+    private String describe(String query) {
+        return query.length() > 100 ? query.substring(0, 100) + "..." : query;
+    }
+
+    /**
+     * Processes a batch of documents streamed by {@link #process}.
+     */
+    protected interface BatchProcessor {
+        void process(List<SolrDocument> docs) throws SolrServerException, IOException;
+    }
+
+    /**
+     * Computes the changes to a batch of documents for {@link #update(String, String, String, BatchUpdate)}.
+     * With several threads, batches are computed at the same time.
+     */
+    public interface BatchUpdate {
+        /**
+         * @param docs    the documents, with their unique key and the fields requested
+         * @param updates receives the atomic updates to send
+         * @param deletes receives the unique keys of the documents to delete
+         * @throws SolrServerException if Solr rejected a request
+         * @throws IOException         if Solr cannot be reached
+         */
+        void apply(List<SolrDocument> docs, List<SolrInputDocument> updates, List<String> deletes)
+            throws SolrServerException, IOException;
+    }
+
+    /**
+     * A batch being processed, with the checkpoint to save once it is done.
+     */
+    private static class Batch {
+        private final FutureTask<Void> task;
+        private final String cursor;
+        private final long processed;
+
+        Batch(final BatchProcessor processor, final List<SolrDocument> docs, String cursor, long processed) {
+            this.task = new FutureTask<>(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    processor.process(docs);
+                    return null;
+                }
+            });
+            this.cursor = cursor;
+            this.processed = processed;
+        }
+    }
+}
@@ -0,0 +1,504 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.time.DateFormatUtils;
+import org.apache.commons.lang.time.DateUtils;
+import org.apache.log4j.Logger;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.response.FieldStatsInfo;
+import org.apache.solr.client.solrj.response.PivotField;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.util.NamedList;
+import org.dspace.util.SolrCommitPolicy;
+
+/**
+ * Daily usage counts, pre-aggregated from the usage events so that statistics
+ * reports do not have to count the raw events every time they are shown.
+ * <p>
+ * The rollups are kept in a separate core with the statistics schema. There is one
+ * rollup document per day for each combination of the {@link #FACET_FIELDS} found in
+ * the events of that day (which object, which kind of event, which country), with the
+ * owning containers of its object, the number of events in its {@link #COUNT_FIELD} and
+ * the start of the day (UTC) as its time. Each day also gets a marker document recording that it was rolled up.
+ * <p>
+ * Queries only using these fields, with day aligned time ranges, can be answered by
+ * summing the counts of the matching rollups of the days rolled up, plus the events
+ * of the later days. The time ranges are taken as whole days (see {@link #toDayRanges}),
+ * on the rollups and on the events of the later days alike.
+ */
+public class StatisticsRollup {
+
+    private static final Logger log = Logger.getLogger(StatisticsRollup.class);
+
+    /**
+     * The usage event fields kept in the rollups
+     */
+    public static final List<String> FIELDS = Arrays.asList("type", "id", "statistics_type", "countryCode",
+                                                            "bundleName", "owningComm", "owningColl", "owningItem");
+
+    /**
+     * The fields of {@link #FIELDS} with a single value per event, which can be faceted on
+     */
+    public static final List<String> FACET_FIELDS = Arrays.asList("type", "id", "statistics_type", "countryCode");
+
+    /**
+     * The field with the number of events of a rollup
+     */
+    public static final String COUNT_FIELD = "count";
+
+    /**
+     * The statistics_type of the documents marking the days rolled up
+     */
+    public static final String MARKER_TYPE = "rollup";
+
+    /**
+     * How long the last day rolled up is remembered by {@link #getCutoff()}, in milliseconds
+     */
+    protected static final long CUTOFF_TTL = 60 * 1000;
+
+    private static final String UNIQUE_KEY = "uid";
+
+    private static final String DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss'Z'";
+
+    /* field names in queries, not preceded by a character which would make them part of a value */
+    private static final Pattern FIELD = Pattern.compile("(?<![\\w.\\\\])([A-Za-z_][\\w.]*)\\s*:");
+
+    private static final Pattern TIME_RANGE =
+        Pattern.compile("time\\s*:\\s*([\\[{])\\s*(\\S+)\\s+TO\\s+(\\S+?)\\s*([\\]}])");
+
+    /* date math which only ends up on the start of a day */
+    private static final Pattern DAY_MATH = Pattern.compile(
+        "(\\*|NOW/(DAY|MONTH|YEAR)|\\d{4}-\\d{2}-\\d{2}T00:00:00(\\.0+)?Z)([+-]\\d+(DAY|MONTH|YEAR)S?)*");
+
+    protected final SolrServer rollups;
+    protected final SolrCommitPolicy commitPolicy;
+    protected final int batchSize;
+
+    protected volatile Date cutoff;
+    protected volatile long cutoffCheckedAt;
+
+    /**
+     * @param rollups      the core keeping the rollups
+     * @param commitPolicy the commit policy of the rollup core
+     * @param batchSize    the number of rollups written at once
+     */
+    public StatisticsRollup(SolrServer rollups, SolrCommitPolicy commitPolicy, int batchSize) {
+        this.rollups = rollups;
+        this.commitPolicy = commitPolicy;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Roll up the days since the last day rolled up, until yesterday (UTC). The last days
+     * already rolled up are computed again, to include events logged or changed late.
+     *
+     * @param eventCores     the statistics cores holding the usage events
+     * @param filterQueries  the events to leave out of the rollups, e.g. robots
+     * @param recomputeDays  the number of days already rolled up to compute again
+     * @return the number of rollups written
+     * @throws SolrServerException if Solr rejected a request
+     * @throws IOException         if Solr cannot be reached
+     */
+    public long update(List<SolrServer> eventCores, List<String> filterQueries, int recomputeDays)
+        throws SolrServerException, IOException {
+        Date start = getRolledUpTo();
+        if (start == null) {
+            start = getFirstEventDay(eventCores);
+            if (start == null) {
+                log.info("No usage events to roll up");
+                return 0;
+            }
+        } else {
+            start = DateUtils.addDays(start, -Math.max(0, recomputeDays));
+        }
+        return rollup(eventCores, filterQueries, start, startOfDay(new Date()));
+    }
+
+    /**
+     * Roll up a range of days, replacing their existing rollups.
+     *
+     * @param eventCores    the statistics cores holding the usage events
+     * @param filterQueries the events to leave out of the rollups
+     * @param from          the first day to roll up
+     * @param to            the day after the last day to roll up
+     * @return the number of rollups written
+     * @throws SolrServerException if Solr rejected a request
+     * @throws IOException         if Solr cannot be reached
+     */
+    public long rollup(List<SolrServer> eventCores, List<String> filterQueries, Date from, Date to)
+        throws SolrServerException, IOException {
+        long written = 0;
+        for (Date day = startOfDay(from); day.before(to); day = DateUtils.addDays(day, 1)) {
+            written += rollupDay(eventCores, filterQueries, day);
+        }
+        commitPolicy.commit(rollups);
+        cutoffCheckedAt = 0;
+        return written;
+    }
+
+    /**
+     * Count the events of one day per combination of {@link #FACET_FIELDS}, with facet
+     * pivots so that the events are counted by Solr, and replace the rollups of that day.
+     * The values of the multi-valued fields of a rollup (its owning containers and bundle)
+     * are those found in the events of its object on that day, as they are not part of
+     * the combinations counted.
+     */
+    protected long rollupDay(List<SolrServer> eventCores, List<String> filterQueries, Date day)
+        throws SolrServerException, IOException {
+        String range = "time:[" + format(day) + " TO " + format(DateUtils.addDays(day, 1)) + "}";
+        String countPivot = StringUtils.join(FACET_FIELDS, ",");
+        Map<List<Object>, long[]> counts = new HashMap<>();
+        Map<List<Object>, Map<String, Set<Object>>> objectValues = new HashMap<>();
+        long events = 0;
+        for (SolrServer core : eventCores) {
+            SolrQuery query = new SolrQuery("*:*");
+            query.addFilterQuery(range);
+            if (filterQueries != null) {
+                for (String filterQuery : filterQueries) {
+                    query.addFilterQuery(filterQuery);
+                }
+            }
+            query.setRows(0);
+            query.setFacet(true);
+            query.setFacetLimit(-1);
+            query.setFacetMinCount(1);
+            query.setFacetMissing(true);
+            query.addFacetPivotField(countPivot);
+            for (String field : FIELDS) {
+                if (!FACET_FIELDS.contains(field)) {
+                    query.addFacetPivotField("type,id," + field);
+                }
+            }
+            QueryResponse response = core.query(query, SolrRequest.METHOD.POST);
+            NamedList<List<PivotField>> pivots = response.getFacetPivot();
+            long found = response.getResults().getNumFound();
+            long counted = addCounts(pivots == null ? null : pivots.get(countPivot), new ArrayList<Object>(), counts);
+            if (counted != found) {
+                // e.g. events without some of the fields, not counted by a Solr ignoring facet.missing in pivots
+                throw new SolrServerException("Only " + counted + " of the " + found + " usage events of "
+                                                  + range + " were counted by the facet pivots");
+            }
+            events += found;
+            for (String field : FIELDS) {
+                if (!FACET_FIELDS.contains(field) && pivots != null) {
+                    addValues(pivots.get("type,id," + field), new ArrayList<Object>(), field, objectValues);
+                }
+            }
+        }
+
+        String dayName = DateFormatUtils.formatUTC(day, "yyyy-MM-dd");
+        commitPolicy.deleteByQuery(rollups, range);
+        List<SolrInputDocument> batch = new ArrayList<>();
+        for (Map.Entry<List<Object>, long[]> entry : counts.entrySet()) {
+            List<Object> key = entry.getKey();
+            SolrInputDocument doc = new SolrInputDocument();
+            doc.addField(UNIQUE_KEY, "rollup-" + dayName + "-" + DigestUtils.md5Hex(key.toString()));
+            for (int i = 0; i < FACET_FIELDS.size(); i++) {
+                if (key.get(i) != null) {
+                    doc.addField(FACET_FIELDS.get(i), key.get(i));
+                }
+            }
+            Map<String, Set<Object>> values = objectValues.get(key.subList(0, 2));
+            if (values != null) {
+                for (Map.Entry<String, Set<Object>> field : values.entrySet()) {
+                    for (Object value : field.getValue()) {
+                        doc.addField(field.getKey(), value);
+                    }
+                }
+            }
+            doc.addField("time", day);
+            doc.addField(COUNT_FIELD, entry.getValue()[0]);
+            batch.add(doc);
+            if (batch.size() >= batchSize) {
+                commitPolicy.add(rollups, batch);
+                batch = new ArrayList<>();
+            }
+        }
+        SolrInputDocument marker = new SolrInputDocument();
+        marker.addField(UNIQUE_KEY, "rollup-" + dayName);
+        marker.addField("statistics_type", MARKER_TYPE);
+        marker.addField("time", day);
+        marker.addField(COUNT_FIELD, events);
+        batch.add(marker);
+        commitPolicy.add(rollups, batch);
+
+        log.info("Rolled up " + events + " usage events of " + dayName + " into " + counts.size() + " rollups");
+        return counts.size();
+    }
+
+    /**
+     * Add the counts of the leaves of a facet pivot, by the values on their path.
+     *
+     * @return the number of events counted
+     */
+    private static long addCounts(List<PivotField> pivot, List<Object> path, Map<List<Object>, long[]> counts) {
+        long counted = 0;
+        if (pivot == null) {
+            return counted;
+        }
+        for (PivotField value : pivot) {
+            List<Object> key = new ArrayList<>(path);
+            key.add(value.getValue());
+            if (key.size() < FACET_FIELDS.size()) {
+                counted += addCounts(value.getPivot(), key, counts);
+                continue;
+            }
+            long[] count = counts.get(key);
+            if (count == null) {
+                count = new long[1];
+                counts.put(key, count);
+            }
+            count[0] += value.getCount();
+            counted += value.getCount();
+        }
+        return counted;
+    }
+
+    /**
+     * Collect the values of a field per type and id, from a "type,id,field" facet pivot.
+     */
+    private static void addValues(List<PivotField> pivot, List<Object> path, String field,
+                                  Map<List<Object>, Map<String, Set<Object>>> objectValues) {
+        if (pivot == null) {
+            return;
+        }
+        for (PivotField value : pivot) {
+            if (path.size() < 2) {
+                List<Object> key = new ArrayList<>(path);
+                key.add(value.getValue());
+                addValues(value.getPivot(), key, field, objectValues);
+            } else if (value.getValue() != null) {
+                Map<String, Set<Object>> values = objectValues.get(path);
+                if (values == null) {
+                    values = new TreeMap<>();
+                    objectValues.put(path, values);
+                }
+                Set<Object> fieldValues = values.get(field);
+                if (fieldValues == null) {
+                    fieldValues = new LinkedHashSet<>();
+                    values.put(field, fieldValues);
+                }
+                fieldValues.add(value.getValue());
+            }
+        }
+    }
+
+    /**
+     * @return the day after the last day rolled up, null if nothing was rolled up yet
+     * @throws SolrServerException if Solr rejected the query
+     */
+    public Date getRolledUpTo() throws SolrServerException {
+        SolrQuery query = new SolrQuery("statistics_type:" + MARKER_TYPE);
+        query.setFields("time");
+        query.setRows(1);
+        query.setSort("time", SolrQuery.ORDER.desc);
+        QueryResponse response = rollups.query(query);
+        if (response.getResults().isEmpty()) {
+            return null;
+        }
+        return DateUtils.addDays((Date) response.getResults().get(0).getFieldValue("time"), 1);
+    }
+
+    /**
+     * The end of the rollups, remembered for {@link #CUTOFF_TTL} so that reports do not
+     * have to look it up for every query.
+     *
+     * @return the day after the last day rolled up, null if nothing was rolled up yet
+     * @throws SolrServerException if Solr rejected the query
+     */
+    public Date getCutoff() throws SolrServerException {
+        long now = System.currentTimeMillis();
+        if (now - cutoffCheckedAt > CUTOFF_TTL) {
+            cutoff = getRolledUpTo();
+            cutoffCheckedAt = now;
+        }
+        return cutoff;
+    }
+
+    /**
+     * @return the first day with usage events, null if there are none
+     */
+    protected Date getFirstEventDay(List<SolrServer> eventCores) throws SolrServerException {
+        Date first = null;
+        for (SolrServer core : eventCores) {
+            SolrQuery query = new SolrQuery("*:*");
+            query.setFields("time");
+            query.setRows(1);
+            query.setSort("time", SolrQuery.ORDER.asc);
+            QueryResponse response = core.query(query);
+            if (!response.getResults().isEmpty()) {
+                Date time = (Date) response.getResults().get(0).getFieldValue("time");
+                if (first == null || time.before(first)) {
+                    first = time;
+                }
+            }
+        }
+        return first == null ? null : startOfDay(first);
+    }
+
+    /**
+     * Whether a query can be answered from the rollups: it only refers to fields kept in
+     * the rollups, its time ranges start and end on day boundaries, and the facet field
+     * (if any) has a single value per event.
+     *
+     * @param query       the query
+     * @param filterQuery the filter query, may be null
+     * @param facetField  the field to count the values of, may be null
+     * @return true if the rollups give the same counts as the usage events
+     */
+    public boolean canAnswer(String query, String filterQuery, String facetField) {
+        if (facetField != null && !FACET_FIELDS.contains(facetField)) {
+            return false;
+        }
+        for (String q : new String[] {query, filterQuery}) {
+            if (q == null) {
+                continue;
+            }
+            // phrases and local parameters could hide anything
+            if (q.contains("\"") || q.contains("{!")) {
+                return false;
+            }
+            Matcher field = FIELD.matcher(q);
+            while (field.find()) {
+                if (!FIELDS.contains(field.group(1)) && !"time".equals(field.group(1))) {
+                    return false;
+                }
+            }
+            int ranges = 0;
+            Matcher range = TIME_RANGE.matcher(q);
+            while (range.find()) {
+                ranges++;
+                if (!DAY_MATH.matcher(range.group(2)).matches() || !DAY_MATH.matcher(range.group(3)).matches()) {
+                    return false;
+                }
+            }
+            // a time other than a range, e.g. a single date
+            if (ranges < countMatches(Pattern.compile("time\\s*:"), q)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sum the counts of the rollups matching a query, for the days before a given day.
+     *
+     * @param query         the query
+     * @param filterQueries filter queries, may be null
+     * @param facetField    the field to sum the counts per value of, may be null
+     * @param before        the day after the last day to count
+     * @param facetCounts   the count per value of the facet field, to which the counts are added
+     * @return the total count
+     * @throws SolrServerException if Solr rejected the query
+     */
+    public long sum(String query, List<String> filterQueries, String facetField, Date before,
+                    Map<String, Long> facetCounts) throws SolrServerException {
+        SolrQuery solrQuery = new SolrQuery(toDayRanges(query));
+        solrQuery.setRows(0);
+        solrQuery.addFilterQuery("time:[* TO " + format(before) + "}");
+        solrQuery.addFilterQuery("-statistics_type:" + MARKER_TYPE);
+        if (filterQueries != null) {
+            for (String filterQuery : filterQueries) {
+                solrQuery.addFilterQuery(toDayRanges(filterQuery));
+            }
+        }
+        solrQuery.setGetFieldStatistics(COUNT_FIELD);
+        if (facetField != null) {
+            solrQuery.addStatsFieldFacets(COUNT_FIELD, facetField);
+        }
+        QueryResponse response = rollups.query(solrQuery);
+        FieldStatsInfo stats = response.getFieldStatsInfo() == null ? null
+            : response.getFieldStatsInfo().get(COUNT_FIELD);
+        if (stats == null) {
+            return 0;
+        }
+        if (facetField != null && stats.getFacets() != null && stats.getFacets().get(facetField) != null) {
+            for (FieldStatsInfo value : stats.getFacets().get(facetField)) {
+                long count = toLong(value.getSum());
+                if (count > 0 && value.getName() != null) {
+                    Long previous = facetCounts.get(value.getName());
+                    facetCounts.put(value.getName(), previous == null ? count : previous + count);
+                }
+            }
+        }
+        return toLong(stats.getSum());
+    }
+
+    /**
+     * Make the time ranges of a query include their start day and exclude their end day.
+     * On the usage events, a range excluding its start or including its end only differs
+     * from this by the events logged in the very millisecond of that bound. Both the
+     * rollups and the usage events of the later days are queried with these ranges, so
+     * that a count made of both has the same bounds throughout.
+     */
+    protected static String toDayRanges(String query) {
+        Matcher range = TIME_RANGE.matcher(query);
+        StringBuffer result = new StringBuffer();
+        while (range.find()) {
+            range.appendReplacement(result, Matcher.quoteReplacement(
+                "time:[" + range.group(2) + " TO " + range.group(3) + ("*".equals(range.group(3)) ? "]" : "}")));
+        }
+        range.appendTail(result);
+        return result.toString();
+    }
+
+    private static int countMatches(Pattern pattern, String s) {
+        int count = 0;
+        Matcher matcher = pattern.matcher(s);
+        while (matcher.find()) {
+            count++;
+        }
+        return count;
+    }
+
+    private static long toLong(Object sum) {
+        return sum instanceof Number ? Math.round(((Number) sum).doubleValue()) : 0;
+    }
+
+    /**
+     * @return a date formatted for Solr queries
+     */
+    public static String format(Date date) {
+        return DateFormatUtils.formatUTC(date, DATE_FORMAT);
+    }
+
+    /**
+     * @return the start of the (UTC) day of a date
+     */
+    public static Date startOfDay(Date date) {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        calendar.setTime(date);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTime();
+    }
+}
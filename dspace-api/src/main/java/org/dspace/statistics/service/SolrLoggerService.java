@@ -9,6 +9,7 @@ package org.dspace.statistics.service;
 
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import javax.servlet.http.HttpServletRequest;
@@ -186,12 +187,32 @@ public interface SolrLoggerService {
 
     public void reindexBitstreamHits(boolean removeDeletedBitstreams) throws Exception;
 
+    /**
+     * Add the bundle name to the bitstream hits which do not have one yet.
+     *
+     * @param removeDeletedBitstreams delete the hits of bitstreams which do not exist anymore,
+     *                                instead of naming their bundle "BITSTREAM_DELETED"
+     * @param from                    only the hits from this time on, null for all
+     * @param until                   only the hits before this time, null for all
+     * @throws Exception if the hits or the bitstreams cannot be read or updated
+     */
+    public void reindexBitstreamHits(boolean removeDeletedBitstreams, Date from, Date until) throws Exception;
+
     /**
      * Export all SOLR usage statistics for viewing/downloading content to a flat text file.
-     * The file goes to a series
+     * The file is compressed with gzip and goes to [dspace]/temp/usagestats.csv.gz
      *
      * @throws Exception if error
      */
     public void exportHits() throws Exception;
 
+    /**
+     * Update the daily usage rollups with the days since they were last updated.
+     * Statistics reports read the rollups when "solr-statistics.rollup.enabled" is set.
+     *
+     * @throws SolrServerException if Solr rejected a request
+     * @throws IOException         if Solr cannot be reached
+     */
+    public void updateRollups() throws SolrServerException, IOException;
+
 }
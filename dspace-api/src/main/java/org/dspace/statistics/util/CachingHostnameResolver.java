@@ -0,0 +1,325 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.log4j.Logger;
+
+/**
+ * Keeps resolved host names in memory for a limited time, so that the many hits of
+ * the same address (e.g. a crawler) are only resolved once. Addresses which could
+ * not be resolved are remembered as well, for a shorter time.
+ * <p>
+ * With resolver threads, {@link #reverseDns(String, Callback)} resolves addresses in
+ * the background: the callback is called with the host name as soon as it is known,
+ * or without it once the timeout has passed, so that the request being logged never
+ * waits for a slow DNS. A late answer is still cached for the next hits. Concurrent
+ * lookups of the same address are combined into one.
+ */
+public class CachingHostnameResolver implements HostnameResolver {
+
+    private static final Logger log = Logger.getLogger(CachingHostnameResolver.class);
+
+    /**
+     * The largest number of addresses waiting to be resolved, further addresses are
+     * not resolved until the resolver catches up
+     */
+    protected static final int MAX_PENDING = 1000;
+
+    /**
+     * Receives the result of a background lookup.
+     */
+    public interface Callback {
+        /**
+         * @param hostname the host name, or null if it could not be resolved in time
+         */
+        void resolved(String hostname);
+    }
+
+    protected final HostnameResolver resolver;
+    protected final Cache<String, String> names;
+    protected final Cache<String, Boolean> failures;
+    protected final long timeout;
+    protected final ExecutorService executor;
+    protected final ScheduledExecutorService scheduler;
+
+    /**
+     * Addresses being resolved, with the callbacks waiting for them
+     */
+    protected final Map<String, List<Request>> pending = new HashMap<>();
+
+    /**
+     * @param resolver    the resolver to cache
+     * @param size        the maximum number of addresses to cache
+     * @param ttl         how long a host name is cached, in milliseconds
+     * @param negativeTtl how long an address which could not be resolved is cached, in milliseconds
+     * @param threads     the number of background lookups at the same time, 0 to resolve
+     *                    addresses in the caller thread
+     * @param timeout     how long callbacks wait for a background lookup, in milliseconds
+     */
+    public CachingHostnameResolver(HostnameResolver resolver, long size, long ttl, long negativeTtl,
+                                   int threads, long timeout) {
+        this.resolver = resolver;
+        this.names = CacheBuilder.newBuilder()
+                                 .maximumSize(size)
+                                 .expireAfterWrite(ttl, TimeUnit.MILLISECONDS)
+                                 .build();
+        this.failures = CacheBuilder.newBuilder()
+                                    .maximumSize(size)
+                                    .expireAfterWrite(negativeTtl, TimeUnit.MILLISECONDS)
+                                    .build();
+        this.timeout = timeout;
+        if (threads > 0) {
+            this.executor = Executors.newFixedThreadPool(threads, daemonThreads("hostname-resolver"));
+            // the timeouts have a thread of their own, so that they are not held up by slow lookups
+            ScheduledThreadPoolExecutor timeouts = new ScheduledThreadPoolExecutor(1,
+                daemonThreads("hostname-resolver-timeout"));
+            timeouts.setRemoveOnCancelPolicy(true);
+            this.scheduler = timeouts;
+        } else {
+            this.executor = null;
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * The background threads do not keep the JVM alive when the resolver is not shut down.
+     *
+     * @param name the prefix of the thread names
+     * @return creates daemon threads
+     */
+    public static ThreadFactory daemonThreads(final String name) {
+        final AtomicInteger count = new AtomicInteger();
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    /**
+     * Resolve an address in the caller thread, unless its result is cached.
+     *
+     * @param ip an IP address
+     * @return the host name of the address, or the address itself if it has none
+     * @throws IOException if the address could not be resolved, now or recently
+     */
+    @Override
+    public String reverseDns(String ip) throws IOException {
+        String hostname = names.getIfPresent(ip);
+        if (hostname != null) {
+            return hostname;
+        }
+        if (failures.getIfPresent(ip) != null) {
+            throw new IOException("Failed to resolve " + ip + " recently");
+        }
+        return resolve(ip);
+    }
+
+    /**
+     * Resolve an address in the background, unless its result is cached. The callback
+     * is called exactly once: in the caller thread when the result is cached or when
+     * there are no resolver threads, otherwise in a resolver or timeout thread. It
+     * should not take long.
+     *
+     * @param ip       an IP address
+     * @param callback receives the host name
+     */
+    public void reverseDns(String ip, Callback callback) {
+        String hostname = names.getIfPresent(ip);
+        if (hostname != null || failures.getIfPresent(ip) != null) {
+            callback.resolved(hostname);
+            return;
+        }
+        if (executor == null) {
+            try {
+                hostname = resolve(ip);
+            } catch (IOException e) {
+                log.debug("Failed DNS Lookup for IP:" + ip, e);
+            }
+            callback.resolved(hostname);
+            return;
+        }
+
+        final Request request = new Request(callback);
+        boolean lookup = false;
+        boolean accepted = true;
+        synchronized (pending) {
+            List<Request> waiting = pending.get(ip);
+            if (waiting == null) {
+                if (pending.size() >= MAX_PENDING) {
+                    accepted = false;
+                } else {
+                    waiting = new ArrayList<>();
+                    pending.put(ip, waiting);
+                    lookup = true;
+                }
+            }
+            if (accepted) {
+                waiting.add(request);
+            }
+        }
+        if (!accepted) {
+            // too many addresses waiting already
+            callback.resolved(null);
+            return;
+        }
+
+        try {
+            request.timeout = scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    request.complete(null);
+                }
+            }, timeout, TimeUnit.MILLISECONDS);
+            if (lookup) {
+                executor.execute(new Lookup(ip));
+            }
+        } catch (RejectedExecutionException e) {
+            // shut down
+            complete(ip, null);
+            request.complete(null);
+        }
+    }
+
+    /**
+     * Stop resolving addresses in the background. The callbacks still waiting are
+     * called without host name.
+     *
+     * @param wait how long to wait for the lookups in progress, in milliseconds
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void shutdown(long wait) throws InterruptedException {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        executor.awaitTermination(wait, TimeUnit.MILLISECONDS);
+        executor.shutdownNow();
+        scheduler.shutdownNow();
+        List<String> ips;
+        synchronized (pending) {
+            ips = new ArrayList<>(pending.keySet());
+        }
+        for (String ip : ips) {
+            complete(ip, null);
+        }
+    }
+
+    /**
+     * Resolve an address and cache the result.
+     */
+    protected String resolve(String ip) throws IOException {
+        try {
+            String hostname = resolver.reverseDns(ip);
+            names.put(ip, hostname);
+            return hostname;
+        } catch (IOException | RuntimeException e) {
+            failures.put(ip, Boolean.TRUE);
+            throw e;
+        }
+    }
+
+    /**
+     * Call the callbacks waiting for an address.
+     */
+    protected void complete(String ip, String hostname) {
+        List<Request> waiting;
+        synchronized (pending) {
+            waiting = pending.remove(ip);
+        }
+        if (waiting != null) {
+            for (Request request : waiting) {
+                request.complete(hostname);
+            }
+        }
+    }
+
+    /**
+     * @return whether addresses are resolved by background threads
+     */
+    public boolean isAsynchronous() {
+        return executor != null;
+    }
+
+    /**
+     * @return the number of host names cached
+     */
+    public long size() {
+        return names.size();
+    }
+
+    /**
+     * Looks an address up in a resolver thread.
+     */
+    protected class Lookup implements Runnable {
+        private final String ip;
+
+        protected Lookup(String ip) {
+            this.ip = ip;
+        }
+
+        @Override
+        public void run() {
+            String hostname = null;
+            try {
+                hostname = resolve(ip);
+            } catch (IOException | RuntimeException e) {
+                log.debug("Failed DNS Lookup for IP:" + ip, e);
+            } finally {
+                complete(ip, hostname);
+            }
+        }
+    }
+
+    /**
+     * A callback waiting for a lookup or its timeout, whichever comes first.
+     */
+    protected static class Request {
+        private final Callback callback;
+        private final AtomicBoolean done = new AtomicBoolean();
+        private volatile ScheduledFuture<?> timeout;
+
+        protected Request(Callback callback) {
+            this.callback = callback;
+        }
+
+        protected void complete(String hostname) {
+            if (done.compareAndSet(false, true)) {
+                if (timeout != null) {
+                    timeout.cancel(false);
+                }
+                try {
+                    callback.resolved(hostname);
+                } catch (RuntimeException e) {
+                    log.error(e.getMessage(), e);
+                }
+            }
+        }
+    }
+}
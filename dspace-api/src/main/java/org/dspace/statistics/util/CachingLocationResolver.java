@@ -0,0 +1,66 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics.util;
+
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.maxmind.geoip.Location;
+
+/**
+ * Keeps the most recently resolved locations in memory, so that the many hits of
+ * the same address (e.g. a crawler) are only resolved once. Unknown locations are
+ * cached as well.
+ */
+public class CachingLocationResolver implements LocationResolver {
+
+    private static final Location UNKNOWN = new Location();
+
+    protected final LocationResolver resolver;
+    protected final LoadingCache<String, Location> cache;
+
+    /**
+     * @param resolver the resolver to cache
+     * @param size     the maximum number of addresses to cache
+     */
+    public CachingLocationResolver(final LocationResolver resolver, long size) {
+        this.resolver = resolver;
+        this.cache = CacheBuilder.newBuilder()
+                                 .maximumSize(size)
+                                 .build(new CacheLoader<String, Location>() {
+                                     @Override
+                                     public Location load(String ip) {
+                                         Location location = resolver.getLocation(ip);
+                                         return location != null ? location : UNKNOWN;
+                                     }
+                                 });
+    }
+
+    @Override
+    public Location getLocation(String ip) {
+        if (ip == null) {
+            return null;
+        }
+        try {
+            Location location = cache.get(ip);
+            return location != UNKNOWN ? location : null;
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            return resolver.getLocation(ip);
+        }
+    }
+
+    /**
+     * @return the number of addresses cached
+     */
+    public long size() {
+        return cache.size();
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+
+import com.google.common.net.InetAddresses;
+import com.maxmind.db.Reader;
+import com.maxmind.geoip.Location;
+import com.maxmind.geoip2.DatabaseReader;
+import com.maxmind.geoip2.exception.AddressNotFoundException;
+import com.maxmind.geoip2.exception.GeoIp2Exception;
+import com.maxmind.geoip2.model.AbstractCountryResponse;
+import com.maxmind.geoip2.model.CityResponse;
+import org.apache.log4j.Logger;
+
+/**
+ * Resolves IPv4 and IPv6 addresses with a GeoIP2 / GeoLite2 (MMDB format) City or
+ * Country database. The database file is memory-mapped, so lookups do not read
+ * from disk once the pages are cached by the operating system.
+ */
+public class GeoIp2LocationResolver implements LocationResolver {
+
+    private static final Logger log = Logger.getLogger(GeoIp2LocationResolver.class);
+
+    protected final DatabaseReader reader;
+    protected final boolean city;
+
+    /**
+     * @param dbfile the MMDB database file
+     * @throws IOException if the database cannot be opened
+     */
+    public GeoIp2LocationResolver(File dbfile) throws IOException {
+        reader = new DatabaseReader.Builder(dbfile).fileMode(Reader.FileMode.MEMORY_MAPPED).build();
+        city = reader.getMetadata().getDatabaseType().contains("City");
+    }
+
+    @Override
+    public Location getLocation(String ip) {
+        InetAddress address;
+        try {
+            // Parse the literal address, never resolve a host name here
+            address = InetAddresses.forString(ip);
+        } catch (IllegalArgumentException e) {
+            log.debug("Not an IP address: " + ip);
+            return null;
+        }
+        try {
+            return toLocation(city ? reader.city(address) : reader.country(address));
+        } catch (AddressNotFoundException e) {
+            return null;
+        } catch (IOException | GeoIp2Exception e) {
+            log.warn("Unable to resolve the location of " + ip + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Convert a GeoIP2 response to the legacy location record stored in the
+     * statistics core.
+     *
+     * @param response a City or Country response
+     * @return the location, null if the country of the address is unknown
+     */
+    protected static Location toLocation(AbstractCountryResponse response) {
+        String countryCode = response.getCountry().getIsoCode();
+        if (countryCode == null) {
+            countryCode = response.getRegisteredCountry().getIsoCode();
+        }
+        if (countryCode == null) {
+            return null;
+        }
+        Location location = new Location();
+        location.countryCode = countryCode;
+        location.countryName = response.getCountry().getName();
+        if (response instanceof CityResponse) {
+            CityResponse cityResponse = (CityResponse) response;
+            location.city = cityResponse.getCity().getName();
+            location.region = cityResponse.getMostSpecificSubdivision().getIsoCode();
+            location.postalCode = cityResponse.getPostal().getCode();
+            com.maxmind.geoip2.record.Location record = cityResponse.getLocation();
+            if (record.getLatitude() != null && record.getLongitude() != null) {
+                location.latitude = record.getLatitude().floatValue();
+                location.longitude = record.getLongitude().floatValue();
+            }
+            if (record.getMetroCode() != null) {
+                location.metro_code = record.getMetroCode();
+                location.dma_code = record.getMetroCode();
+            }
+        }
+        return location;
+    }
+}
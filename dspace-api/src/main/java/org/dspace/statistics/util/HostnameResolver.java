@@ -0,0 +1,35 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics.util;
+
+import java.io.IOException;
+
+/**
+ * Resolves the host names of the IP addresses recorded in usage events.
+ *
+ * @see CachingHostnameResolver
+ */
+public interface HostnameResolver {
+
+    /**
+     * A resolver asking the DNS, see {@link DnsLookup#reverseDns(String)}.
+     */
+    public static final HostnameResolver DNS = new HostnameResolver() {
+        @Override
+        public String reverseDns(String ip) throws IOException {
+            return DnsLookup.reverseDns(ip);
+        }
+    };
+
+    /**
+     * @param ip an IP address
+     * @return the host name of the address, or the address itself if it has none
+     * @throws IOException if the address could not be resolved
+     */
+    public String reverseDns(String ip) throws IOException;
+}
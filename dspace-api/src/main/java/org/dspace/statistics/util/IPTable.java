@@ -7,107 +7,94 @@
  */
 package org.dspace.statistics.util;
 
-import java.util.HashMap;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashSet;
-import java.util.Map;
+import java.util.List;
 import java.util.Set;
 
+import com.google.common.net.InetAddresses;
+
 /**
- * A Spare v4 IPTable implementation that uses nested HashMaps
- * to optimize IP address matching over ranges of IP addresses.
+ * An IPv4 and IPv6 address table matching addresses against sorted ranges.
+ * <p>
+ * Addresses and ranges are converted to numbers: an IPv4 address to one long, an
+ * IPv6 address to two longs (high and low 64 bits, compared unsigned). The ranges
+ * are sorted and merged when the table is first searched after a change, so that
+ * looking up an address is a binary search over primitive arrays which can run
+ * concurrently without locking.
  *
  * @author mdiggory at atmire.com
  */
 public class IPTable {
 
-    /* A lookup tree for IP addresses and SubnetRanges */
-    private Map<String, Map<String, Map<String, Set<String>>>> map =
-        new HashMap<String, Map<String, Map<String, Set<String>>>>();
+    /* Ranges added since the table was last compiled */
+    private final List<long[]> ranges4 = new ArrayList<>();
+    private final List<long[]> ranges6 = new ArrayList<>();
+
+    /* The compiled ranges, null when they have to be (re)compiled */
+    private volatile Compiled compiled;
 
     /**
-     * Can be full v4 IP, subnet or range string
+     * Can be a full IPv4 or IPv6 address, a three part IPv4 subnet (e.g. "10.0.0"), a CIDR
+     * block (e.g. "10.0.0.0/16" or "2001:db8::/32") or a range of two full addresses
+     * separated by a dash.
      *
      * @param ip IP address(es)
      * @throws IPFormatException Exception Class to deal with IPFormat errors.
      */
     public void add(String ip) throws IPFormatException {
-
-        String[] start;
-
-        String[] end;
-
         String[] range = ip.split("-");
+        long[] start;
+        long[] end;
 
         if (range.length >= 2) {
-
-            start = range[0].trim().split("/")[0].split("\\.");
-            end = range[1].trim().split("/")[0].split("\\.");
-
-            if (start.length != 4 || end.length != 4) {
-                throw new IPFormatException(ip + " - Ranges need to be full IPv4 Addresses");
-            }
-
-            if (!(start[0].equals(end[0]) && start[1].equals(end[1]) && start[2].equals(end[2]))) {
-                throw new IPFormatException(ip + " - Ranges can only be across the last subnet x.y.z.0 - x.y.z.254");
-            }
-
-        } else {
-            //need to ignore CIDR notation for the moment.
-            //ip = ip.split("\\/")[0];
-
-            String[] subnets = ip.split("\\.");
-
-            if (subnets.length < 3) {
-                throw new IPFormatException(ip + " - require at least three subnet places (255.255.255.0");
-
+            start = parse(range[0].trim().split("/")[0], ip);
+            end = parse(range[1].trim().split("/")[0], ip);
+            if (start.length != end.length) {
+                throw new IPFormatException(ip + " - Ranges cannot mix IPv4 and IPv6 addresses");
             }
-
-            start = subnets;
-            end = subnets;
-        }
-
-        if (start.length >= 3) {
-
-
-            Map<String, Map<String, Set<String>>> first = map.get(start[0]);
-
-            if (first == null) {
-                first = new HashMap<String, Map<String, Set<String>>>();
-                map.put(start[0], first);
+            if (compare(start, end) > 0) {
+                long[] swap = start;
+                start = end;
+                end = swap;
             }
-
-            Map<String, Set<String>> second = first.get(start[1]);
-
-
-            if (second == null) {
-                second = new HashMap<String, Set<String>>();
-                first.put(start[1], second);
+        } else if (ip.contains("/")) {
+            String[] cidr = ip.trim().split("/");
+            long[] address = parse(cidr[0], ip);
+            int prefix;
+            try {
+                prefix = Integer.parseInt(cidr[1].trim());
+            } catch (NumberFormatException e) {
+                throw new IPFormatException(ip + " - Invalid CIDR prefix length");
             }
-
-            Set<String> third = second.get(start[2]);
-
-            if (third == null) {
-                third = new HashSet<String>();
-                second.put(start[2], third);
-            }
-
-            //now populate fourth place (* or value 0-254);
-
-            if (start.length == 3) {
-                third.add("*");
+            int bits = address.length == 1 ? 32 : 128;
+            if (prefix < 0 || prefix > bits) {
+                throw new IPFormatException(ip + " - Invalid CIDR prefix length");
             }
+            start = mask(address, bits - prefix, false);
+            end = mask(address, bits - prefix, true);
+        } else if (!ip.contains(":") && ip.split("\\.").length == 3) {
+            // a.b.c: the whole subnet a.b.c.0 - a.b.c.255
+            long subnet = parse(ip.trim() + ".0", ip)[0];
+            start = new long[] {subnet};
+            end = new long[] {subnet | 0xFF};
+        } else {
+            start = parse(ip.trim(), ip);
+            end = start;
+        }
 
-            if (third.contains("*")) {
-                return;
-            }
-
-            if (start.length >= 4) {
-                int s = Integer.valueOf(start[3]);
-                int e = Integer.valueOf(end[3]);
-                for (int i = s; i <= e; i++) {
-                    third.add(String.valueOf(i));
-                }
+        synchronized (this) {
+            if (start.length == 1) {
+                ranges4.add(new long[] {start[0], end[0]});
+            } else {
+                ranges6.add(new long[] {start[0], start[1], end[0], end[1]});
             }
+            compiled = null;
         }
     }
 
@@ -119,71 +106,261 @@ public class IPTable {
      * @throws IPFormatException Exception Class to deal with IPFormat errors.
      */
     public boolean contains(String ip) throws IPFormatException {
+        long[] address = parse(ip.trim(), ip);
+        Compiled table = compile();
+        if (address.length == 1) {
+            return table.contains4(address[0]);
+        }
+        return table.contains6(address[0], address[1]);
+    }
 
-        String[] subnets = ip.split("\\.");
+    /**
+     * Convert to a Set of addresses and address prefixes (ending with a dot) matching the
+     * addresses of this table, e.g. for prefix queries. IPv6 ranges are only included when
+     * they are single addresses.
+     *
+     * @return this table's content as a Set
+     */
+    public Set<String> toSet() {
+        Compiled table = compile();
+        Set<String> set = new HashSet<>();
+        for (int i = 0; i < table.starts4.length; i++) {
+            addPrefixes(set, table.starts4[i], table.ends4[i]);
+        }
+        for (int i = 0; i < table.startsHi6.length; i++) {
+            if (table.startsHi6[i] == table.endsHi6[i] && table.startsLo6[i] == table.endsLo6[i]) {
+                set.add(InetAddresses.toAddrString(toInetAddress(table.startsHi6[i], table.startsLo6[i])));
+            }
+        }
+        return set;
+    }
 
-        if (subnets.length != 4) {
-            throw new IPFormatException("needs to be a single IP address");
+    /**
+     * Add the octet-aligned prefixes covering an IPv4 range.
+     */
+    private void addPrefixes(Set<String> set, long start, long end) {
+        long address = start;
+        while (address <= end) {
+            // the largest whole octet block starting at this address and within the range
+            int octets = 0;
+            while (octets < 3) {
+                long size = 1L << (8 * (octets + 1));
+                if ((address & (size - 1)) != 0 || address + size - 1 > end) {
+                    break;
+                }
+                octets++;
+            }
+            StringBuilder prefix = new StringBuilder();
+            for (int i = 3; i >= octets; i--) {
+                prefix.append((address >> (8 * i)) & 0xFF);
+                prefix.append(i > octets ? "." : "");
+            }
+            if (octets > 0) {
+                prefix.append('.');
+            }
+            set.add(prefix.toString());
+            address += 1L << (8 * octets);
         }
+    }
 
-        Map<String, Map<String, Set<String>>> first = map.get(subnets[0]);
+    /**
+     * Sort and merge the ranges added so far, unless that was already done.
+     */
+    private Compiled compile() {
+        Compiled table = compiled;
+        if (table == null) {
+            synchronized (this) {
+                table = compiled;
+                if (table == null) {
+                    table = new Compiled(merge(ranges4, 1), merge(ranges6, 2));
+                    compiled = table;
+                }
+            }
+        }
+        return table;
+    }
 
-        if (first == null) {
-            return false;
+    /**
+     * @param ranges the ranges as start followed by end, each made of {@code width} longs
+     * @param width  1 for IPv4, 2 for IPv6
+     * @return the sorted ranges, with overlapping and adjacent ranges merged
+     */
+    private static List<long[]> merge(List<long[]> ranges, final int width) {
+        List<long[]> sorted = new ArrayList<>(ranges);
+        sorted.sort(new Comparator<long[]>() {
+            @Override
+            public int compare(long[] a, long[] b) {
+                return IPTable.compare(Arrays.copyOfRange(a, 0, width), Arrays.copyOfRange(b, 0, width));
+            }
+        });
+        List<long[]> merged = new ArrayList<>();
+        long[] current = null;
+        for (long[] range : sorted) {
+            long[] start = Arrays.copyOfRange(range, 0, width);
+            long[] end = Arrays.copyOfRange(range, width, 2 * width);
+            if (current != null) {
+                long[] currentEnd = Arrays.copyOfRange(current, width, 2 * width);
+                if (compare(start, currentEnd) <= 0 || isNext(currentEnd, start)) {
+                    if (compare(end, currentEnd) > 0) {
+                        System.arraycopy(end, 0, current, width, width);
+                    }
+                    continue;
+                }
+            }
+            current = range.clone();
+            merged.add(current);
         }
+        return merged;
+    }
 
-        Map<String, Set<String>> second = first.get(subnets[1]);
+    private static boolean isNext(long[] address, long[] next) {
+        if (address.length == 1) {
+            return address[0] + 1 == next[0];
+        }
+        if (address[1] == -1L) {
+            return address[0] + 1 == next[0] && next[1] == 0;
+        }
+        return address[0] == next[0] && address[1] + 1 == next[1];
+    }
 
-        if (second == null) {
-            return false;
+    /**
+     * Compare two addresses of the same family as unsigned numbers.
+     */
+    private static int compare(long[] a, long[] b) {
+        for (int i = 0; i < a.length; i++) {
+            int c = Long.compareUnsigned(a[i], b[i]);
+            if (c != 0) {
+                return c;
+            }
         }
+        return 0;
+    }
 
-        Set<String> third = second.get(subnets[2]);
+    /**
+     * Clear or set the lowest bits of an address.
+     */
+    private static long[] mask(long[] address, int hostBits, boolean set) {
+        long[] result = address.clone();
+        for (int i = result.length - 1; i >= 0 && hostBits > 0; i--) {
+            int bits = Math.min(64, hostBits);
+            long mask = bits == 64 ? -1L : (1L << bits) - 1;
+            result[i] = set ? result[i] | mask : result[i] & ~mask;
+            hostBits -= bits;
+        }
+        return result;
+    }
 
-        if (third == null) {
-            return false;
+    /**
+     * Parse an IP address literal, without resolving host names.
+     *
+     * @param ip    the address
+     * @param input the full input, for error messages
+     * @return one long for an IPv4 address, two for IPv6
+     * @throws IPFormatException if this is not an IP address
+     */
+    private static long[] parse(String ip, String input) throws IPFormatException {
+        InetAddress address;
+        try {
+            address = InetAddresses.forString(ip);
+        } catch (IllegalArgumentException e) {
+            throw new IPFormatException(input + " - not a valid IPv4 or IPv6 address");
         }
+        byte[] bytes = address.getAddress();
+        if (address instanceof Inet4Address) {
+            return new long[] {toLong(bytes, 0, 4)};
+        }
+        return new long[] {toLong(bytes, 0, 8), toLong(bytes, 8, 8)};
+    }
 
-        return third.contains(subnets[3]) || third.contains("*");
+    private static long toLong(byte[] bytes, int offset, int length) {
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            value = (value << 8) | (bytes[i] & 0xFF);
+        }
+        return value;
+    }
 
+    private static InetAddress toInetAddress(long hi, long lo) {
+        byte[] bytes = new byte[16];
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (hi >>> (8 * (7 - i)));
+            bytes[8 + i] = (byte) (lo >>> (8 * (7 - i)));
+        }
+        try {
+            return InetAddress.getByAddress(bytes);
+        } catch (UnknownHostException e) {
+            // not possible for 16 bytes
+            throw new IllegalStateException(e);
+        }
     }
 
     /**
-     * Convert to a Set.
-     *
-     * @return this table's content as a Set
+     * The sorted, merged and immutable ranges of the table.
      */
-    public Set<String> toSet() {
-        HashSet<String> set = new HashSet<String>();
-
-        for (Map.Entry<String, Map<String, Map<String, Set<String>>>> first : map.entrySet()) {
-            String firstString = first.getKey();
-            Map<String, Map<String, Set<String>>> secondMap = first.getValue();
-
-            for (Map.Entry<String, Map<String, Set<String>>> second : secondMap.entrySet()) {
-                String secondString = second.getKey();
-                Map<String, Set<String>> thirdMap = second.getValue();
-
-                for (Map.Entry<String, Set<String>> third : thirdMap.entrySet()) {
-                    String thirdString = third.getKey();
-                    Set<String> fourthSet = third.getValue();
-
-                    if (fourthSet.contains("*")) {
-                        set.add(firstString + "." + secondString + "." + thirdString);
-                    } else {
-                        for (String fourth : fourthSet) {
-                            set.add(firstString + "." + secondString + "." + thirdString + "." + fourth);
-                        }
-                    }
+    private static class Compiled {
+        private final long[] starts4;
+        private final long[] ends4;
+        private final long[] startsHi6;
+        private final long[] startsLo6;
+        private final long[] endsHi6;
+        private final long[] endsLo6;
+
+        Compiled(List<long[]> ranges4, List<long[]> ranges6) {
+            starts4 = new long[ranges4.size()];
+            ends4 = new long[ranges4.size()];
+            for (int i = 0; i < starts4.length; i++) {
+                starts4[i] = ranges4.get(i)[0];
+                ends4[i] = ranges4.get(i)[1];
+            }
+            startsHi6 = new long[ranges6.size()];
+            startsLo6 = new long[ranges6.size()];
+            endsHi6 = new long[ranges6.size()];
+            endsLo6 = new long[ranges6.size()];
+            for (int i = 0; i < startsHi6.length; i++) {
+                long[] range = ranges6.get(i);
+                startsHi6[i] = range[0];
+                startsLo6[i] = range[1];
+                endsHi6[i] = range[2];
+                endsLo6[i] = range[3];
+            }
+        }
 
-                }
+        boolean contains4(long address) {
+            // IPv4 addresses are positive longs, a plain binary search will do
+            int index = Arrays.binarySearch(starts4, address);
+            if (index >= 0) {
+                return true;
             }
+            // the last range starting before the address
+            index = -index - 2;
+            return index >= 0 && address <= ends4[index];
         }
 
-        return set;
+        boolean contains6(long hi, long lo) {
+            int low = 0;
+            int high = startsHi6.length - 1;
+            int candidate = -1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int c = Long.compareUnsigned(startsHi6[middle], hi);
+                if (c == 0) {
+                    c = Long.compareUnsigned(startsLo6[middle], lo);
+                }
+                if (c <= 0) {
+                    candidate = middle;
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            if (candidate < 0) {
+                return false;
+            }
+            int c = Long.compareUnsigned(hi, endsHi6[candidate]);
+            return c < 0 || (c == 0 && Long.compareUnsigned(lo, endsLo6[candidate]) <= 0);
+        }
     }
 
-
     /**
      * Exception Class to deal with IPFormat errors.
      */
@@ -0,0 +1,43 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics.util;
+
+import java.io.IOException;
+
+import com.maxmind.geoip.Location;
+import com.maxmind.geoip.LookupService;
+
+/**
+ * Resolves locations with a legacy GeoIP database (e.g. GeoLiteCity.dat). IPv6
+ * addresses can only be resolved with an IPv6 edition of the database.
+ */
+public class LegacyLocationResolver implements LocationResolver {
+
+    protected final LookupService lookupService;
+
+    /**
+     * @param dbfile  path of the database file
+     * @param options the {@link LookupService} caching options, e.g. {@link LookupService#GEOIP_STANDARD}
+     * @throws IOException if the database cannot be read
+     */
+    public LegacyLocationResolver(String dbfile, int options) throws IOException {
+        this(new LookupService(dbfile, options));
+    }
+
+    public LegacyLocationResolver(LookupService lookupService) {
+        this.lookupService = lookupService;
+    }
+
+    @Override
+    public Location getLocation(String ip) {
+        if (ip.indexOf(':') >= 0) {
+            return lookupService.getLocationV6(ip);
+        }
+        return lookupService.getLocation(ip);
+    }
+}
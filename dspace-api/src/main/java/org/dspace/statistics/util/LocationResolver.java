@@ -0,0 +1,24 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics.util;
+
+import com.maxmind.geoip.Location;
+
+/**
+ * Resolves the geographical location of the IP addresses recorded in usage events.
+ *
+ * @see LocationResolverFactory
+ */
+public interface LocationResolver {
+
+    /**
+     * @param ip an IPv4 or IPv6 address
+     * @return the location of the address, or null if it is unknown
+     */
+    public Location getLocation(String ip);
+}
@@ -0,0 +1,133 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics.util;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.maxmind.geoip.LookupService;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.PosixParser;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Compares the time taken to resolve the location of usage events by the
+ * different {@link LocationResolver}s, e.g. to check the gain of moving from a
+ * legacy GeoIP database read from disk to a memory-mapped GeoIP2 database with a
+ * cache in front of it. Run with:
+ * <pre>
+ * dspace dsrun org.dspace.statistics.util.LocationResolverBenchmark -l GeoLiteCity.dat -m GeoLite2-City.mmdb
+ * </pre>
+ * The addresses looked up are either read from a file (one per line, e.g. the
+ * "ip" column of a statistics export) or drawn at random from a set of distinct
+ * addresses, so that repeated hits of the same address are represented.
+ */
+public class LocationResolverBenchmark {
+
+    /**
+     * Default constructor
+     */
+    private LocationResolverBenchmark() { }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineParser parser = new PosixParser();
+        Options options = new Options();
+        options.addOption("l", "legacy", true, "legacy GeoIP database (*.dat)");
+        options.addOption("m", "mmdb", true, "GeoIP2 database (*.mmdb)");
+        options.addOption("i", "input", true, "file with the addresses to look up, one per line");
+        options.addOption("n", "lookups", true, "number of lookups per run (default 100000)");
+        options.addOption("d", "distinct", true, "number of distinct random addresses (default 5000)");
+        options.addOption("c", "cache", true, "cache size of the cached resolvers (default 10000)");
+        options.addOption("h", "help", false, "help");
+        CommandLine line = parser.parse(options, args);
+
+        if (line.hasOption('h') || (!line.hasOption('l') && !line.hasOption('m'))) {
+            new HelpFormatter().printHelp("LocationResolverBenchmark", options);
+            System.exit(line.hasOption('h') ? 0 : 1);
+        }
+
+        int lookups = Integer.parseInt(line.getOptionValue('n', "100000"));
+        long cacheSize = Long.parseLong(line.getOptionValue('c', "10000"));
+        List<String> addresses;
+        if (line.hasOption('i')) {
+            addresses = new ArrayList<>();
+            for (String address : Files.readAllLines(new File(line.getOptionValue('i')).toPath(),
+                                                      StandardCharsets.UTF_8)) {
+                if (StringUtils.isNotBlank(address)) {
+                    addresses.add(address.trim());
+                }
+            }
+        } else {
+            addresses = randomAddresses(Integer.parseInt(line.getOptionValue('d', "5000")), lookups);
+        }
+
+        Map<String, LocationResolver> resolvers = new LinkedHashMap<>();
+        if (line.hasOption('l')) {
+            String dbfile = line.getOptionValue('l');
+            resolvers.put("legacy (standard)", new LegacyLocationResolver(dbfile, LookupService.GEOIP_STANDARD));
+            resolvers.put("legacy (standard) + cache", new CachingLocationResolver(
+                new LegacyLocationResolver(dbfile, LookupService.GEOIP_STANDARD), cacheSize));
+        }
+        if (line.hasOption('m')) {
+            File dbfile = new File(line.getOptionValue('m'));
+            resolvers.put("geoip2 (mmap)", new GeoIp2LocationResolver(dbfile));
+            resolvers.put("geoip2 (mmap) + cache", new CachingLocationResolver(
+                new GeoIp2LocationResolver(dbfile), cacheSize));
+        }
+
+        System.out.println(addresses.size() + " lookups per run");
+        for (Map.Entry<String, LocationResolver> entry : resolvers.entrySet()) {
+            // Warm up once, then measure
+            run(entry.getValue(), addresses);
+            long start = System.nanoTime();
+            int found = run(entry.getValue(), addresses);
+            long elapsed = System.nanoTime() - start;
+            System.out.println(String.format("%-28s %10.0f ns/lookup %10.0f lookups/s  (%d resolved)",
+                                             entry.getKey(), (double) elapsed / addresses.size(),
+                                             addresses.size() * 1e9 / elapsed, found));
+        }
+    }
+
+    protected static int run(LocationResolver resolver, List<String> addresses) {
+        int found = 0;
+        for (String address : addresses) {
+            if (resolver.getLocation(address) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @param distinct the number of distinct addresses
+     * @param lookups  the number of addresses to return
+     * @return random public IPv4 addresses, drawn from a set of distinct ones
+     */
+    protected static List<String> randomAddresses(int distinct, int lookups) {
+        Random random = new Random(42);
+        List<String> pool = new ArrayList<>(distinct);
+        for (int i = 0; i < distinct; i++) {
+            pool.add((1 + random.nextInt(222)) + "." + random.nextInt(256) + "." + random.nextInt(256) + "."
+                         + (1 + random.nextInt(254)));
+        }
+        List<String> addresses = new ArrayList<>(lookups);
+        for (int i = 0; i < lookups; i++) {
+            addresses.add(pool.get(random.nextInt(pool.size())));
+        }
+        return addresses;
+    }
+}
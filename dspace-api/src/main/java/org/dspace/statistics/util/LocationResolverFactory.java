@@ -0,0 +1,47 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics.util;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.maxmind.geoip.LookupService;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Opens the {@link LocationResolver} matching the configured GeoIP database
+ * ("usage-statistics.dbfile"): GeoIP2 / GeoLite2 databases (*.mmdb) are
+ * memory-mapped, legacy databases (*.dat) are read with the legacy GeoIP API.
+ */
+public class LocationResolverFactory {
+
+    /**
+     * Default constructor
+     */
+    private LocationResolverFactory() { }
+
+    /**
+     * @param dbfile    path of the GeoIP database
+     * @param cacheSize number of resolved addresses to keep in memory, 0 for none
+     *                  ("usage-statistics.location.cache.size")
+     * @return the resolver
+     * @throws IOException if the database is missing or cannot be read
+     */
+    public static LocationResolver create(String dbfile, long cacheSize) throws IOException {
+        LocationResolver resolver;
+        if (StringUtils.endsWithIgnoreCase(dbfile, ".mmdb")) {
+            resolver = new GeoIp2LocationResolver(new File(dbfile));
+        } else {
+            resolver = new LegacyLocationResolver(dbfile, LookupService.GEOIP_STANDARD);
+        }
+        if (cacheSize > 0) {
+            resolver = new CachingLocationResolver(resolver, cacheSize);
+        }
+        return resolver;
+    }
+}
@@ -0,0 +1,164 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics.util;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.PosixParser;
+import org.apache.commons.lang.StringUtils;
+import org.dspace.services.ConfigurationService;
+import org.dspace.services.factory.DSpaceServicesFactory;
+
+/**
+ * Measures the time spent by the {@link SpiderDetectorService} on each usage event,
+ * comparing the User-Agent patterns matched one by one with the combined pattern,
+ * and looking up addresses in the {@link IPTable}, with and without the cache of
+ * verdicts. Uses the spider lists of the installation; run with:
+ * <pre>
+ * dspace dsrun org.dspace.statistics.util.SpiderDetectorBenchmark [-i user-agents.txt]
+ * </pre>
+ */
+public class SpiderDetectorBenchmark {
+
+    /**
+     * Default constructor
+     */
+    private SpiderDetectorBenchmark() { }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineParser parser = new PosixParser();
+        Options options = new Options();
+        options.addOption("i", "input", true, "file with the User-Agent headers to match, one per line");
+        options.addOption("n", "lookups", true, "number of lookups per run (default 100000)");
+        options.addOption("h", "help", false, "help");
+        CommandLine line = parser.parse(options, args);
+        if (line.hasOption('h')) {
+            new HelpFormatter().printHelp("SpiderDetectorBenchmark", options);
+            System.exit(0);
+        }
+        int lookups = Integer.parseInt(line.getOptionValue('n', "100000"));
+
+        ConfigurationService configurationService = DSpaceServicesFactory.getInstance().getConfigurationService();
+        SpiderDetectorServiceImpl service = new SpiderDetectorServiceImpl(configurationService);
+
+        List<String> patterns = new ArrayList<>();
+        File agentsDir = new File(configurationService.getProperty("dspace.dir"), "config/spiders/agents");
+        File[] files = agentsDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                patterns.addAll(service.readPatterns(file));
+            }
+        }
+        List<Pattern> sequential = new ArrayList<>();
+        for (String pattern : patterns) {
+            try {
+                sequential.add(Pattern.compile(pattern));
+            } catch (PatternSyntaxException e) {
+                // skipped by the combined pattern as well
+            }
+        }
+        SpiderDetectorServiceImpl.PatternSet combined = new SpiderDetectorServiceImpl.PatternSet(patterns);
+
+        List<String> agents = new ArrayList<>();
+        if (line.hasOption('i')) {
+            for (String agent : Files.readAllLines(new File(line.getOptionValue('i')).toPath(),
+                                                    StandardCharsets.UTF_8)) {
+                if (StringUtils.isNotBlank(agent)) {
+                    agents.add(agent);
+                }
+            }
+        } else {
+            agents.add("Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) "
+                           + "Chrome/70.0.3538.77 Safari/537.36");
+            agents.add("Mozilla/5.0 (X11; Linux x86_64; rv:63.0) Gecko/20100101 Firefox/63.0");
+            agents.add("Mozilla/5.0 (compatible; Googlebot/2.1; +http://www.google.com/bot.html)");
+            agents.add("Mozilla/5.0 (compatible; bingbot/2.0; +http://www.bing.com/bingbot.htm)");
+        }
+        Random random = new Random(42);
+        List<String> events = new ArrayList<>(lookups);
+        List<String> addresses = new ArrayList<>(lookups);
+        for (int i = 0; i < lookups; i++) {
+            events.add(agents.get(random.nextInt(agents.size())));
+            addresses.add(random.nextInt(224) + "." + random.nextInt(256) + "." + random.nextInt(8) + "."
+                              + random.nextInt(4));
+        }
+
+        System.out.println(patterns.size() + " agent patterns, " + lookups + " lookups per run");
+        for (int run = 0; run < 2; run++) {
+            // the first run warms up
+            boolean print = run == 1;
+
+            long start = System.nanoTime();
+            int found = 0;
+            for (String agent : events) {
+                for (Pattern pattern : sequential) {
+                    if (pattern.matcher(agent).find()) {
+                        found++;
+                        break;
+                    }
+                }
+            }
+            report(print, "agents, one pattern at a time", start, lookups, found);
+
+            start = System.nanoTime();
+            found = 0;
+            for (String agent : events) {
+                if (combined.find(agent)) {
+                    found++;
+                }
+            }
+            report(print, "agents, combined pattern", start, lookups, found);
+
+            start = System.nanoTime();
+            found = 0;
+            for (String address : addresses) {
+                if (service.isSpider(address)) {
+                    found++;
+                }
+            }
+            report(print, "addresses, range table", start, lookups, found);
+
+            start = System.nanoTime();
+            found = 0;
+            for (int i = 0; i < lookups; i++) {
+                if (service.detect(addresses.get(i), null, null, events.get(i))) {
+                    found++;
+                }
+            }
+            report(print, "full check, no cache", start, lookups, found);
+
+            start = System.nanoTime();
+            found = 0;
+            for (int i = 0; i < lookups; i++) {
+                if (service.isSpider(addresses.get(i), null, null, events.get(i))) {
+                    found++;
+                }
+            }
+            report(print, "full check, cached verdicts", start, lookups, found);
+        }
+    }
+
+    private static void report(boolean print, String name, long start, int lookups, int found) {
+        long elapsed = System.nanoTime() - start;
+        if (print) {
+            System.out.println(String.format("%-32s %10.0f ns/lookup  (%d matched)", name,
+                                             (double) elapsed / lookups, found));
+        }
+    }
+}
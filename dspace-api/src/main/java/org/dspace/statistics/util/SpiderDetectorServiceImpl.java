@@ -12,13 +12,15 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 import javax.servlet.http.HttpServletRequest;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.apache.commons.configuration.ConversionException;
 import org.apache.commons.lang.StringUtils;
 import org.dspace.services.ConfigurationService;
@@ -44,22 +46,33 @@ public class SpiderDetectorServiceImpl implements SpiderDetectorService {
 
     private Boolean useCaseInsensitiveMatching;
 
-    private final List<Pattern> agents
-        = Collections.synchronizedList(new ArrayList<Pattern>());
+    /**
+     * All agent patterns, compiled into one; null until loaded.
+     */
+    private volatile PatternSet agents;
 
-    private final List<Pattern> domains
-        = Collections.synchronizedList(new ArrayList<Pattern>());
+    /**
+     * All domain patterns, compiled into one; null until loaded.
+     */
+    private volatile PatternSet domains;
 
     private ConfigurationService configurationService;
 
     /**
-     * Sparse HashTable structure to hold IP address ranges.
+     * Sorted ranges of IP addresses.
      */
-    private IPTable table = null;
+    private volatile IPTable table = null;
+
+    /**
+     * Recent verdicts of {@link #isSpider(String, String, String, String)}, null if disabled.
+     */
+    private final Cache<String, Boolean> verdicts;
 
     @Autowired(required = true)
     public SpiderDetectorServiceImpl(ConfigurationService configurationService) {
         this.configurationService = configurationService;
+        long cacheSize = configurationService.getLongProperty("usage-statistics.bots.cache.size", 10000);
+        verdicts = cacheSize > 0 ? CacheBuilder.newBuilder().maximumSize(cacheSize).<String, Boolean>build() : null;
     }
 
     public IPTable getTable() {
@@ -79,27 +92,41 @@ public class SpiderDetectorServiceImpl implements SpiderDetectorService {
      * @return true if the client matches any spider characteristics list.
      */
     public boolean isSpider(String clientIP, String proxyIPs, String hostname, String agent) {
+        if (verdicts == null) {
+            return detect(clientIP, proxyIPs, hostname, agent);
+        }
+        String key = clientIP + '\n' + proxyIPs + '\n' + hostname + '\n' + agent;
+        Boolean verdict = verdicts.getIfPresent(key);
+        if (verdict == null) {
+            verdict = detect(clientIP, proxyIPs, hostname, agent);
+            verdicts.put(key, verdict);
+        }
+        return verdict;
+    }
+
+    /**
+     * Check a client against the spider lists, without consulting the cache of verdicts.
+     *
+     * @param clientIP address of the client.
+     * @param proxyIPs comma-list of X-Forwarded-For addresses, or null.
+     * @param hostname domain name of host, or null.
+     * @param agent    User-Agent header value, or null.
+     * @return true if the client matches any spider characteristics list.
+     */
+    protected boolean detect(String clientIP, String proxyIPs, String hostname, String agent) {
+        if (isUseCaseInsensitiveMatching()) {
+            agent = StringUtils.lowerCase(agent);
+            hostname = StringUtils.lowerCase(hostname);
+        }
+
         // See if any agent patterns match
         if (null != agent) {
-            synchronized (agents) {
-                if (agents.isEmpty()) {
-                    loadPatterns("agents", agents);
-                }
-            }
-
-            if (isUseCaseInsensitiveMatching()) {
-                agent = StringUtils.lowerCase(agent);
-                hostname = StringUtils.lowerCase(hostname);
+            PatternSet patterns = agents;
+            if (patterns == null) {
+                patterns = loadAgents();
             }
-
-            for (Pattern candidate : agents) {
-
-                // prevent matcher() invocation from a null Pattern object
-                if (null != candidate && candidate.matcher(agent).find()) {
-                    return true;
-                }
-
-
+            if (patterns.find(agent)) {
+                return true;
             }
         }
 
@@ -107,7 +134,7 @@ public class SpiderDetectorServiceImpl implements SpiderDetectorService {
         if (isUseProxies() && proxyIPs != null) {
             /* This header is a comma delimited list */
             for (String xfip : proxyIPs.split(",")) {
-                if (isSpider(xfip)) {
+                if (isSpider(xfip.trim())) {
                     return true;
                 }
             }
@@ -119,16 +146,12 @@ public class SpiderDetectorServiceImpl implements SpiderDetectorService {
 
         // No.  See if any DNS names match
         if (null != hostname) {
-            synchronized (domains) {
-                if (domains.isEmpty()) {
-                    loadPatterns("domains", domains);
-                }
+            PatternSet patterns = domains;
+            if (patterns == null) {
+                patterns = loadDomains();
             }
-            for (Pattern candidate : domains) {
-                // prevent matcher() invocation from a null Pattern object
-                if (null != candidate && candidate.matcher(hostname).find()) {
-                    return true;
-                }
+            if (patterns.find(hostname)) {
+                return true;
             }
         }
 
@@ -136,6 +159,20 @@ public class SpiderDetectorServiceImpl implements SpiderDetectorService {
         return false;
     }
 
+    private synchronized PatternSet loadAgents() {
+        if (agents == null) {
+            agents = new PatternSet(loadPatterns("agents"));
+        }
+        return agents;
+    }
+
+    private synchronized PatternSet loadDomains() {
+        if (domains == null) {
+            domains = new PatternSet(loadPatterns("domains"));
+        }
+        return domains;
+    }
+
     /**
      * Utility method which reads lines from a file & returns them in a Set.
      *
@@ -173,13 +210,13 @@ public class SpiderDetectorServiceImpl implements SpiderDetectorService {
     /**
      * Load agent name patterns from all files in a single subdirectory of config/spiders.
      *
-     * @param directory   simple directory name (e.g. "agents").
-     *                    "${dspace.dir}/config/spiders" will be prepended to yield the path to
-     *                    the directory of pattern files.
-     * @param patternList patterns read from the files in {@code directory} will
-     *                    be added to this List.
+     * @param directory simple directory name (e.g. "agents").
+     *                  "${dspace.dir}/config/spiders" will be prepended to yield the path to
+     *                  the directory of pattern files.
+     * @return the patterns read from the files in {@code directory}
      */
-    private void loadPatterns(String directory, List<Pattern> patternList) {
+    private List<String> loadPatterns(String directory) {
+        List<String> patternList = new ArrayList<>();
         String dspaceHome = configurationService.getProperty("dspace.dir");
         File spidersDir = new File(dspaceHome, "config/spiders");
         File patternsDir = new File(spidersDir, directory);
@@ -198,7 +235,7 @@ public class SpiderDetectorServiceImpl implements SpiderDetectorService {
                     if (isUseCaseInsensitiveMatching()) {
                         pattern = StringUtils.lowerCase(pattern);
                     }
-                    patternList.add(Pattern.compile(pattern));
+                    patternList.add(pattern);
                 }
 
 
@@ -207,6 +244,7 @@ public class SpiderDetectorServiceImpl implements SpiderDetectorService {
         } else {
             log.info("No patterns loaded from {}", patternsDir.getPath());
         }
+        return patternList;
     }
 
     /**
@@ -229,12 +267,14 @@ public class SpiderDetectorServiceImpl implements SpiderDetectorService {
      * @return if is spider IP
      */
     public boolean isSpider(String ip) {
-        if (table == null) {
+        IPTable ipTable = table;
+        if (ipTable == null) {
             loadSpiderIpAddresses();
+            ipTable = table;
         }
 
         try {
-            if (table.contains(ip)) {
+            if (ipTable.contains(ip)) {
                 return true;
             }
         } catch (Exception e) {
@@ -250,7 +290,8 @@ public class SpiderDetectorServiceImpl implements SpiderDetectorService {
     public synchronized void loadSpiderIpAddresses() {
 
         if (table == null) {
-            table = new IPTable();
+            // Fill the table before publishing it, so that lookups never see it half loaded
+            IPTable ipTable = new IPTable();
 
             String filePath = configurationService.getProperty("dspace.dir");
 
@@ -271,7 +312,11 @@ public class SpiderDetectorServiceImpl implements SpiderDetectorService {
                                         continue;
                                     }
                                 }
-                                table.add(ip);
+                                try {
+                                    ipTable.add(ip);
+                                } catch (IPTable.IPFormatException e) {
+                                    log.warn("Not loading {}:  {}", ip, e.getMessage());
+                                }
                             }
                             log.info("Loaded Spider IP file: " + file);
                         }
@@ -279,9 +324,10 @@ public class SpiderDetectorServiceImpl implements SpiderDetectorService {
                 } else {
                     log.info("No spider file loaded");
                 }
-            } catch (IOException | IPTable.IPFormatException e) {
+            } catch (IOException e) {
                 log.error("Error Loading Spiders:" + e.getMessage(), e);
             }
+            table = ipTable;
 
         }
 
@@ -314,4 +360,46 @@ public class SpiderDetectorServiceImpl implements SpiderDetectorService {
         return useProxies;
     }
 
+    /**
+     * A set of regular expressions compiled into a single alternation, so that a string
+     * is scanned once instead of once per pattern. Patterns using back references
+     * cannot be combined and are matched on their own; invalid patterns are skipped.
+     */
+    protected static class PatternSet {
+        private static final Pattern BACK_REFERENCE = Pattern.compile("\\\\(?:[1-9]|k<)");
+
+        private final Pattern combined;
+        private final List<Pattern> separate = new ArrayList<>();
+
+        protected PatternSet(List<String> patterns) {
+            StringBuilder alternation = new StringBuilder();
+            for (String pattern : patterns) {
+                Pattern compiled;
+                try {
+                    compiled = Pattern.compile(pattern);
+                } catch (PatternSyntaxException e) {
+                    log.warn("Skipping invalid spider pattern {}:  {}", pattern, e.getDescription());
+                    continue;
+                }
+                if (BACK_REFERENCE.matcher(pattern).find()) {
+                    separate.add(compiled);
+                } else {
+                    alternation.append(alternation.length() > 0 ? "|" : "").append("(?:").append(pattern).append(')');
+                }
+            }
+            combined = alternation.length() > 0 ? Pattern.compile(alternation.toString()) : null;
+        }
+
+        protected boolean find(String input) {
+            if (combined != null && combined.matcher(input).find()) {
+                return true;
+            }
+            for (Pattern pattern : separate) {
+                if (pattern.matcher(input).find()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
 }
@@ -9,17 +9,21 @@ package org.dspace.statistics.util;
 
 import java.io.File;
 import java.net.URL;
+import java.text.ParseException;
+import java.util.Date;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.PosixParser;
+import org.apache.commons.lang.time.DateUtils;
 import org.apache.log4j.Logger;
 import org.apache.tools.ant.taskdefs.Get;
 import org.dspace.services.factory.DSpaceServicesFactory;
 import org.dspace.statistics.factory.StatisticsServiceFactory;
 import org.dspace.statistics.service.SolrLoggerService;
+import org.dspace.util.SolrCommitPolicy;
 
 /**
  * Class to load intermediate statistics files into solr
@@ -72,8 +76,14 @@ public class StatisticsClient {
                           "Export SOLR view statistics data to usage-statistics-intermediate-format");
         options.addOption("r", "remove-deleted-bitstreams", false,
                           "While indexing the bundle names remove the statistics about deleted bitstreams");
+        options.addOption(null, "from", true,
+                          "While indexing the bundle names only index the hits from this date (yyyy-MM-dd) on");
+        options.addOption(null, "until", true,
+                          "While indexing the bundle names only index the hits before this date (yyyy-MM-dd)");
         options.addOption("s", "shard-solr-index", false,
                           "Split the data from the main Solr core into separate Solr cores per year");
+        options.addOption("a", "update-rollups", false,
+                          "Update the daily usage rollups with the days since the last update");
         options.addOption("h", "help", false, "help");
 
         CommandLine line = parser.parse(options, args);
@@ -95,14 +105,27 @@ public class StatisticsClient {
         } else if (line.hasOption('o')) {
             solrLoggerService.optimizeSOLR();
         } else if (line.hasOption('b')) {
-            solrLoggerService.reindexBitstreamHits(line.hasOption('r'));
+            solrLoggerService.reindexBitstreamHits(line.hasOption('r'), toDate(line.getOptionValue("from")),
+                                                   toDate(line.getOptionValue("until")));
         } else if (line.hasOption('e')) {
             solrLoggerService.exportHits();
         } else if (line.hasOption('s')) {
             solrLoggerService.shardSolrIndex();
+        } else if (line.hasOption('a')) {
+            solrLoggerService.updateRollups();
         } else {
             printHelp(options, 0);
         }
+        SolrCommitPolicy.logSummary();
+    }
+
+    /**
+     * @param date a date (yyyy-MM-dd), null for none
+     * @return the start of the date, null for none
+     * @throws ParseException if the date is not in the expected format
+     */
+    private static Date toDate(String date) throws ParseException {
+        return date != null ? DateUtils.parseDateStrictly(date, new String[] {"yyyy-MM-dd"}) : null;
     }
 
     /**
@@ -26,7 +26,6 @@ import java.util.Random;
 import java.util.UUID;
 
 import com.maxmind.geoip.Location;
-import com.maxmind.geoip.LookupService;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.HelpFormatter;
@@ -84,7 +83,7 @@ public class StatisticsImporter {
     /**
      * GEOIP lookup service
      */
-    private static LookupService geoipLookup;
+    private static LocationResolver geoipLookup;
 
     /**
      * Whether to skip the DNS reverse lookup or not
@@ -471,7 +470,8 @@ public class StatisticsImporter {
 
         String dbfile = ConfigurationManager.getProperty("usage-statistics", "dbfile");
         try {
-            geoipLookup = new LookupService(dbfile, LookupService.GEOIP_STANDARD);
+            geoipLookup = LocationResolverFactory.create(dbfile,
+                ConfigurationManager.getLongProperty("usage-statistics", "location.cache.size", 10000));
         } catch (FileNotFoundException fe) {
             log.error(
                 "The GeoLite Database file is missing (" + dbfile + ")! Solr Statistics cannot generate location " +
@@ -0,0 +1,266 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.storage.rdbms;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.apache.log4j.Logger;
+import org.dspace.services.ConfigurationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+/**
+ * DataSource sending the connections requested by read-only transactions to a pool of
+ * replica databases, and all other connections to the primary database.
+ *
+ * The threads mark their transactions as read-only with {@link #setReadOnly(boolean)} while
+ * they begin them. The replicas are used in turn, as long as their replication lag, measured
+ * by the <code>db.replica.lagquery</code> at most every <code>db.replica.lagcheckinterval</code>
+ * seconds, is at most <code>db.replica.maxlag</code> seconds. When no replica is usable, the
+ * connection comes from the primary database.
+ *
+ * Without replicas configured in <code>db.replica.url</code>, all connections come from the
+ * primary database.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    private static final Logger log = Logger.getLogger(ReplicaRoutingDataSource.class);
+
+    /**
+     * PostgreSQL (10 or later) replication lag in seconds: 0 on the primary database and on a
+     * replica which has replayed all it received, otherwise the time since the last replayed
+     * transaction. A replica is thus not taken as lagging while the primary database is idle.
+     */
+    public static final String DEFAULT_LAG_QUERY =
+        "SELECT CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+            + "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END";
+
+    private static final ThreadLocal<Boolean> readOnly = new ThreadLocal<Boolean>() {
+        @Override
+        protected Boolean initialValue() {
+            return false;
+        }
+    };
+
+    @Autowired(required = true)
+    protected ConfigurationService configurationService;
+
+    private DataSource primary;
+
+    private List<Replica> replicas = Collections.emptyList();
+
+    /**
+     * The replica data sources created from the configuration, closed with this data source
+     */
+    private final List<BasicDataSource> ownedDataSources = new ArrayList<>();
+
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    private long maxLag = 30;
+
+    private long lagCheckInterval = TimeUnit.SECONDS.toMillis(10);
+
+    private String lagQuery = DEFAULT_LAG_QUERY;
+
+    /**
+     * Route the connections of the transactions the current thread begins from now on.
+     *
+     * @param readOnly whether they are read-only transactions, which may use a replica
+     */
+    public static void setReadOnly(boolean readOnly) {
+        ReplicaRoutingDataSource.readOnly.set(readOnly);
+    }
+
+    /**
+     * @return whether the current thread begins read-only transactions
+     */
+    public static boolean isReadOnly() {
+        return readOnly.get();
+    }
+
+    public void setPrimary(DataSource primary) {
+        this.primary = primary;
+    }
+
+    public void setReplicas(List<DataSource> replicas) {
+        List<Replica> list = new ArrayList<>(replicas.size());
+        for (DataSource replica : replicas) {
+            list.add(new Replica(replica));
+        }
+        this.replicas = list;
+    }
+
+    /**
+     * @param maxLag the replication lag above which a replica is not used, in seconds
+     */
+    public void setMaxLag(long maxLag) {
+        this.maxLag = maxLag;
+    }
+
+    /**
+     * @param lagCheckInterval the time the replication lag of a replica is trusted, in milliseconds
+     */
+    public void setLagCheckInterval(long lagCheckInterval) {
+        this.lagCheckInterval = lagCheckInterval;
+    }
+
+    /**
+     * @param lagQuery query returning the replication lag of a database in seconds
+     */
+    public void setLagQuery(String lagQuery) {
+        this.lagQuery = lagQuery;
+    }
+
+    /**
+     * Create the replica data sources from the configuration, unless replicas were set.
+     * Called by "init-method" in Spring config.
+     */
+    public void init() {
+        String[] urls = configurationService.getArrayProperty("db.replica.url");
+        if (!replicas.isEmpty() || urls.length == 0) {
+            return;
+        }
+        for (String url : urls) {
+            BasicDataSource dataSource = new BasicDataSource();
+            dataSource.setDriverClassName(configurationService.getProperty("db.driver"));
+            dataSource.setUrl(url);
+            dataSource.setUsername(configurationService.getProperty("db.replica.username",
+                                                                    configurationService.getProperty("db.username")));
+            dataSource.setPassword(configurationService.getProperty("db.replica.password",
+                                                                    configurationService.getProperty("db.password")));
+            dataSource.setMaxWaitMillis(configurationService.getLongProperty("db.maxwait", 5000));
+            dataSource.setMaxIdle(configurationService.getIntProperty("db.maxidle", 10));
+            dataSource.setMaxTotal(configurationService.getIntProperty("db.replica.maxconnections",
+                                                                       configurationService
+                                                                           .getIntProperty("db.maxconnections", 30)));
+            dataSource.setDefaultReadOnly(true);
+            ownedDataSources.add(dataSource);
+        }
+        setReplicas(new ArrayList<DataSource>(ownedDataSources));
+        maxLag = configurationService.getLongProperty("db.replica.maxlag", maxLag);
+        lagCheckInterval = TimeUnit.SECONDS.toMillis(
+            configurationService.getLongProperty("db.replica.lagcheckinterval",
+                                                 TimeUnit.MILLISECONDS.toSeconds(lagCheckInterval)));
+        lagQuery = configurationService.getProperty("db.replica.lagquery", lagQuery);
+        log.info("Routing read-only transactions to " + urls.length + " database replicas");
+    }
+
+    /**
+     * Close the replica data sources created from the configuration.
+     * Called by "destroy-method" in Spring config.
+     *
+     * @throws SQLException if a data source cannot be closed
+     */
+    public void close() throws SQLException {
+        for (BasicDataSource dataSource : ownedDataSources) {
+            dataSource.close();
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (isReadOnly() && !replicas.isEmpty()) {
+            Connection connection = getReplicaConnection();
+            if (connection != null) {
+                return connection;
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    /**
+     * @return a connection to the next usable replica, or null if none is usable
+     */
+    protected Connection getReplicaConnection() {
+        int start = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.isUsable()) {
+                try {
+                    return replica.dataSource.getConnection();
+                } catch (SQLException e) {
+                    replica.setUsable(false, "cannot connect: " + e.getMessage());
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A replica database and whether it was usable at the last lag check
+     */
+    protected class Replica {
+        private final DataSource dataSource;
+        private final AtomicBoolean checking = new AtomicBoolean();
+        private volatile boolean usable = false;
+        private volatile long checkedAt = 0;
+
+        Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        /**
+         * Check the lag of the replica when the last check is too old. While a thread checks,
+         * the others rely on the last check.
+         *
+         * @return whether the replica may be used
+         */
+        boolean isUsable() {
+            if (System.currentTimeMillis() - checkedAt >= lagCheckInterval && checking.compareAndSet(false, true)) {
+                try {
+                    checkLag();
+                } finally {
+                    checkedAt = System.currentTimeMillis();
+                    checking.set(false);
+                }
+            }
+            return usable;
+        }
+
+        private void checkLag() {
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(lagQuery)) {
+                double lag = resultSet.next() ? resultSet.getDouble(1) : Double.MAX_VALUE;
+                setUsable(lag <= maxLag, "replication lag is " + lag + "s");
+            } catch (SQLException e) {
+                setUsable(false, "cannot check the replication lag: " + e.getMessage());
+            }
+        }
+
+        void setUsable(boolean usable, String reason) {
+            if (usable != this.usable) {
+                if (usable) {
+                    log.info("Using database replica " + dataSource + ", " + reason);
+                } else {
+                    log.warn("Not using database replica " + dataSource + ", " + reason);
+                }
+            }
+            this.usable = usable;
+            if (!usable) {
+                checkedAt = System.currentTimeMillis();
+            }
+        }
+    }
+}
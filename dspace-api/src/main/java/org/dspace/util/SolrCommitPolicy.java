@@ -0,0 +1,272 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.util;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.request.AbstractUpdateRequest;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.client.solrj.response.UpdateResponse;
+import org.apache.solr.common.SolrInputDocument;
+import org.dspace.services.ConfigurationService;
+import org.dspace.services.factory.DSpaceServicesFactory;
+
+/**
+ * Decides how the changes DSpace sends to a Solr core are made visible, so that writers do not
+ * each open a new searcher with a hard commit. The policy of a core is read from
+ * "&lt;name&gt;.commit.policy":
+ * <ul>
+ * <li>"immediate" (default): every commit is a hard commit, as DSpace has always done;</li>
+ * <li>"soft": commits are soft commits, which make the changes visible without flushing the index
+ * to disk; durability is left to the autoCommit of the core;</li>
+ * <li>"within": every update asks Solr to make it visible within "&lt;name&gt;.commit.within"
+ * milliseconds, and explicit commits are skipped.</li>
+ * </ul>
+ * Writers therefore send all their updates and commits through the policy of their core, which
+ * counts the update requests, the documents added and the commits actually sent, and the time
+ * spent committing. The policies in use are listed by {@link #getInstances()}, and the command line
+ * tools writing to Solr log them with {@link #logSummary()} when they are done.
+ */
+public class SolrCommitPolicy {
+
+    private static final Logger log = Logger.getLogger(SolrCommitPolicy.class);
+
+    private static final ConcurrentMap<String, SolrCommitPolicy> POLICIES = new ConcurrentHashMap<>();
+
+    public enum Mode {
+        IMMEDIATE,
+        SOFT,
+        WITHIN
+    }
+
+    private final String name;
+    private final Mode mode;
+    private final int commitWithin;
+
+    private final AtomicLong updates = new AtomicLong();
+    private final AtomicLong documents = new AtomicLong();
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong commitTime = new AtomicLong();
+
+    /**
+     * @param name         name of the core, used in log messages and as configuration prefix
+     * @param mode         how changes are committed
+     * @param commitWithin milliseconds within which changes should be visible, for {@link Mode#WITHIN}
+     */
+    public SolrCommitPolicy(String name, Mode mode, int commitWithin) {
+        this.name = name;
+        this.mode = mode;
+        this.commitWithin = commitWithin;
+    }
+
+    /**
+     * Get the configured policy of a core.
+     *
+     * @param name the configuration prefix of the core, e.g. "discovery", "solr-statistics" or "oai"
+     * @return the shared policy instance of that core
+     */
+    public static SolrCommitPolicy getInstance(String name) {
+        SolrCommitPolicy policy = POLICIES.get(name);
+        if (policy == null) {
+            ConfigurationService configurationService = DSpaceServicesFactory.getInstance().getConfigurationService();
+            String value = configurationService.getProperty(name + ".commit.policy", "immediate");
+            Mode mode;
+            try {
+                mode = Mode.valueOf(StringUtils.trim(value).toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                log.error("Invalid " + name + ".commit.policy \"" + value + "\", using immediate commits");
+                mode = Mode.IMMEDIATE;
+            }
+            int within = configurationService.getIntProperty(name + ".commit.within", 1000);
+            POLICIES.putIfAbsent(name, new SolrCommitPolicy(name, mode, within));
+            policy = POLICIES.get(name);
+        }
+        return policy;
+    }
+
+    /**
+     * @return the policies of the cores written to so far
+     */
+    public static Collection<SolrCommitPolicy> getInstances() {
+        return Collections.unmodifiableCollection(POLICIES.values());
+    }
+
+    /**
+     * Log the updates and commits sent through each policy so far.
+     */
+    public static void logSummary() {
+        for (SolrCommitPolicy policy : POLICIES.values()) {
+            log.info(policy);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return whether changes are visible to searches as soon as {@link #commit(SolrServer)}
+     * returns, true unless Solr commits on its own ({@link Mode#WITHIN})
+     */
+    public boolean isVisibleOnCommit() {
+        return mode != Mode.WITHIN;
+    }
+
+    /**
+     * @return the commitWithin value to pass along with updates, -1 for none
+     */
+    public int getCommitWithin() {
+        return mode == Mode.WITHIN ? commitWithin : -1;
+    }
+
+    public UpdateResponse add(SolrServer solr, SolrInputDocument doc) throws SolrServerException, IOException {
+        updates.incrementAndGet();
+        documents.incrementAndGet();
+        return solr.add(doc, getCommitWithin());
+    }
+
+    public UpdateResponse add(SolrServer solr, Collection<SolrInputDocument> docs)
+        throws SolrServerException, IOException {
+        updates.incrementAndGet();
+        documents.addAndGet(docs.size());
+        return solr.add(docs, getCommitWithin());
+    }
+
+    public UpdateResponse deleteById(SolrServer solr, String id) throws SolrServerException, IOException {
+        updates.incrementAndGet();
+        return solr.deleteById(id, getCommitWithin());
+    }
+
+    public UpdateResponse deleteById(SolrServer solr, List<String> ids) throws SolrServerException, IOException {
+        updates.incrementAndGet();
+        return solr.deleteById(ids, getCommitWithin());
+    }
+
+    public UpdateResponse deleteByQuery(SolrServer solr, String query) throws SolrServerException, IOException {
+        updates.incrementAndGet();
+        return solr.deleteByQuery(query, getCommitWithin());
+    }
+
+    /**
+     * Make an update request (e.g. to the extracting request handler) commit according to this policy.
+     *
+     * @param request the request, not yet sent
+     */
+    public void prepare(AbstractUpdateRequest request) {
+        switch (mode) {
+            case WITHIN:
+                request.setCommitWithin(commitWithin);
+                break;
+            case SOFT:
+                request.setAction(AbstractUpdateRequest.ACTION.COMMIT, true, true, true);
+                break;
+            default:
+                request.setAction(AbstractUpdateRequest.ACTION.COMMIT, true, true);
+        }
+    }
+
+    /**
+     * Process an update request prepared with {@link #prepare(AbstractUpdateRequest)}, counting the commit it
+     * includes.
+     *
+     * @param solr    the core
+     * @param request the request
+     * @return the response
+     * @throws SolrServerException if the request failed
+     * @throws IOException         if the core cannot be reached
+     */
+    public UpdateResponse process(SolrServer solr, AbstractUpdateRequest request)
+        throws SolrServerException, IOException {
+        long start = System.currentTimeMillis();
+        updates.incrementAndGet();
+        if (!(request instanceof UpdateRequest)) {
+            // an extraction request sends one document
+            documents.incrementAndGet();
+        } else if (((UpdateRequest) request).getDocuments() != null) {
+            documents.addAndGet(((UpdateRequest) request).getDocuments().size());
+        }
+        UpdateResponse response = request.process(solr);
+        if (mode != Mode.WITHIN) {
+            record(start);
+        }
+        return response;
+    }
+
+    /**
+     * Make the changes sent so far visible, according to this policy. Does nothing for
+     * {@link Mode#WITHIN}, where Solr commits on its own.
+     *
+     * @param solr the core
+     * @throws SolrServerException if the commit failed
+     * @throws IOException         if the core cannot be reached
+     */
+    public void commit(SolrServer solr) throws SolrServerException, IOException {
+        if (mode == Mode.WITHIN) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        solr.commit(true, true, mode == Mode.SOFT);
+        record(start);
+    }
+
+    protected void record(long start) {
+        commits.incrementAndGet();
+        commitTime.addAndGet(System.currentTimeMillis() - start);
+    }
+
+    /**
+     * @return the number of update requests sent: additions, deletions and extraction requests
+     */
+    public long getUpdateCount() {
+        return updates.get();
+    }
+
+    /**
+     * @return the number of documents sent by the update requests
+     */
+    public long getDocumentCount() {
+        return documents.get();
+    }
+
+    /**
+     * @return the number of commits sent
+     */
+    public long getCommitCount() {
+        return commits.get();
+    }
+
+    /**
+     * @return the total time spent on the commits sent, in milliseconds
+     */
+    public long getCommitTime() {
+        return commitTime.get();
+    }
+
+    @Override
+    public String toString() {
+        return name + " commit policy " + mode.name().toLowerCase(Locale.ROOT)
+            + (mode == Mode.WITHIN ? " (" + commitWithin + "ms)" : "")
+            + ": " + getUpdateCount() + " updates, " + getDocumentCount() + " documents, " + getCommitCount()
+            + " commits, " + getCommitTime() + "ms";
+    }
+}
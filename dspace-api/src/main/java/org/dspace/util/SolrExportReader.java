@@ -0,0 +1,107 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.util;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.zip.GZIPInputStream;
+
+import au.com.bytecode.opencsv.CSVParser;
+import au.com.bytecode.opencsv.CSVReader;
+import org.apache.solr.common.SolrInputDocument;
+
+/**
+ * Reads the Solr documents of a CSV export file written by {@link SolrExportWriter},
+ * or by the Solr CSV response writer with "," as multi-valued separator. Files
+ * named *.gz are decompressed while they are read.
+ */
+public class SolrExportReader implements Closeable {
+
+    protected final CSVReader csv;
+    protected final String[] fields;
+    protected final Collection<String> multiValuedFields;
+
+    /**
+     * @param file              the file to read
+     * @param multiValuedFields the fields whose values are split
+     * @throws IOException if the file cannot be read
+     */
+    public SolrExportReader(File file, Collection<String> multiValuedFields) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(file));
+        if (isCompressed(file)) {
+            in = new GZIPInputStream(in, 64 * 1024);
+        }
+        // quotes in values are doubled, backslashes are the escapes of multi-valued fields
+        this.csv = new CSVReader(new InputStreamReader(in, StandardCharsets.UTF_8), CSVParser.DEFAULT_SEPARATOR,
+                                 CSVParser.DEFAULT_QUOTE_CHARACTER, CSVParser.NULL_CHARACTER, 0, false, false);
+        String[] header = csv.readNext();
+        this.fields = header != null ? header : new String[0];
+        this.multiValuedFields = multiValuedFields;
+    }
+
+    /**
+     * @return the next document, null at the end of the file. The version is left out,
+     * so that documents can be imported in any index.
+     * @throws IOException if the file cannot be read
+     */
+    public SolrInputDocument next() throws IOException {
+        String[] line = csv.readNext();
+        if (line == null) {
+            return null;
+        }
+        SolrInputDocument doc = new SolrInputDocument();
+        for (int i = 0; i < line.length && i < fields.length; i++) {
+            // the Solr CSV loader skips empty values too
+            if (line[i].isEmpty() || "_version_".equals(fields[i])) {
+                continue;
+            }
+            if (multiValuedFields.contains(fields[i])) {
+                split(doc, fields[i], line[i]);
+            } else {
+                doc.addField(fields[i], line[i]);
+            }
+        }
+        return doc;
+    }
+
+    @Override
+    public void close() throws IOException {
+        csv.close();
+    }
+
+    /**
+     * @param file an export file
+     * @return whether the file is compressed with gzip
+     */
+    public static boolean isCompressed(File file) {
+        return file.getName().endsWith(".gz");
+    }
+
+    private static void split(SolrInputDocument doc, String field, String values) {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < values.length(); i++) {
+            char c = values.charAt(i);
+            if (c == SolrExportWriter.MULTIPLE_VALUES_ESCAPE && i + 1 < values.length()) {
+                value.append(values.charAt(++i));
+            } else if (c == SolrExportWriter.MULTIPLE_VALUES_SEPARATOR) {
+                doc.addField(field, value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        doc.addField(field, value.toString());
+    }
+}
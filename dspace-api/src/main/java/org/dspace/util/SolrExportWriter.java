@@ -0,0 +1,129 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.util;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.zip.GZIPOutputStream;
+
+import au.com.bytecode.opencsv.CSVWriter;
+import org.apache.log4j.Logger;
+import org.apache.solr.common.SolrDocument;
+
+/**
+ * Writes Solr documents to a CSV export file, in the format of the Solr CSV response
+ * writer: one column per field, the values of multi-valued fields separated by
+ * {@link #MULTIPLE_VALUES_SEPARATOR}. Files named *.gz are compressed with gzip.
+ *
+ * @see SolrExportReader
+ */
+public class SolrExportWriter implements Closeable {
+
+    private static final Logger log = Logger.getLogger(SolrExportWriter.class);
+
+    public static final char MULTIPLE_VALUES_SEPARATOR = ',';
+    public static final char MULTIPLE_VALUES_ESCAPE = '\\';
+
+    protected final CSVWriter csv;
+    protected final List<String> fields;
+    protected final DateFormat dateFormat;
+    protected final Set<String> unknownFields = new HashSet<>();
+    protected long count = 0;
+
+    /**
+     * @param file   the file to write, compressed if its name ends with .gz
+     * @param fields the columns of the file
+     * @throws IOException if the file cannot be written
+     */
+    public SolrExportWriter(File file, List<String> fields) throws IOException {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+        if (SolrExportReader.isCompressed(file)) {
+            out = new GZIPOutputStream(out, 64 * 1024);
+        }
+        this.csv = new CSVWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        this.fields = new ArrayList<>(fields);
+        this.dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+        this.dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        csv.writeNext(this.fields.toArray(new String[this.fields.size()]));
+    }
+
+    /**
+     * @param doc a document, its fields which are not columns of the file are left out
+     */
+    public void write(SolrDocument doc) {
+        String[] line = new String[fields.size()];
+        for (int i = 0; i < line.length; i++) {
+            Object value = doc.getFieldValue(fields.get(i));
+            if (value instanceof Collection) {
+                StringBuilder values = new StringBuilder();
+                for (Object v : (Collection<?>) value) {
+                    if (values.length() > 0) {
+                        values.append(MULTIPLE_VALUES_SEPARATOR);
+                    }
+                    escape(values, format(v));
+                }
+                line[i] = values.toString();
+            } else {
+                line[i] = format(value);
+            }
+        }
+        for (String field : doc.getFieldNames()) {
+            if (!fields.contains(field) && unknownFields.add(field)) {
+                log.warn("Not exporting field " + field + ", it was not in the index when the export started");
+            }
+        }
+        csv.writeNext(line);
+        count++;
+    }
+
+    /**
+     * @return the number of documents written
+     */
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        csv.close();
+    }
+
+    protected String format(Object value) {
+        if (value == null) {
+            return "";
+        } else if (value instanceof Date) {
+            return dateFormat.format((Date) value);
+        }
+        return value.toString();
+    }
+
+    private static void escape(StringBuilder values, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == MULTIPLE_VALUES_SEPARATOR || c == MULTIPLE_VALUES_ESCAPE) {
+                values.append(MULTIPLE_VALUES_ESCAPE);
+            }
+            values.append(c);
+        }
+    }
+}
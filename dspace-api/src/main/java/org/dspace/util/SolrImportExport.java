@@ -10,15 +10,24 @@ package org.dspace.util;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
-import java.net.URL;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -30,18 +39,21 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrServer;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.impl.HttpSolrServer;
-import org.apache.solr.client.solrj.request.AbstractUpdateRequest;
-import org.apache.solr.client.solrj.request.ContentStreamUpdateRequest;
 import org.apache.solr.client.solrj.request.CoreAdminRequest;
 import org.apache.solr.client.solrj.request.LukeRequest;
 import org.apache.solr.client.solrj.response.CoreAdminResponse;
 import org.apache.solr.client.solrj.response.FieldStatsInfo;
 import org.apache.solr.client.solrj.response.LukeResponse;
+import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.client.solrj.response.RangeFacet;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.luke.FieldFlag;
 import org.apache.solr.common.params.CoreAdminParams;
+import org.apache.solr.common.params.CursorMarkParams;
 import org.apache.solr.common.params.FacetParams;
 import org.dspace.core.ConfigurationManager;
 
@@ -90,10 +102,19 @@ public class SolrImportExport {
     private static final String INDEX_NAME_OPTION = "i";
     private static final String KEEP_OPTION = "k";
     private static final String LAST_OPTION = "l";
+    private static final String THREADS_OPTION = "t";
 
+    /**
+     * The number of documents fetched from Solr at a time when exporting
+     */
     public static final int ROWS_PER_FILE = 10_000;
 
-    private static final String MULTIPLE_VALUES_SPLITTER = ",";
+    /**
+     * The number of documents sent to Solr at a time when importing
+     */
+    public static final int IMPORT_BATCH_SIZE = 1_000;
+
+    public static final int DEFAULT_THREADS = 4;
 
     private static final Logger log = Logger.getLogger(SolrImportExport.class);
 
@@ -128,6 +149,7 @@ public class SolrImportExport {
             String directoryName = makeDirectoryName(line.getOptionValue(DIRECTORY_OPTION));
 
             String action = line.getOptionValue(ACTION_OPTION, "export");
+            int threads = Integer.parseInt(line.getOptionValue(THREADS_OPTION, String.valueOf(DEFAULT_THREADS)));
             if ("import".equals(action)) {
                 for (String indexName : indexNames) {
                     File importDir = new File(directoryName);
@@ -141,7 +163,7 @@ public class SolrImportExport {
                     try {
                         String solrUrl = makeSolrUrl(indexName);
                         boolean clear = line.hasOption(CLEAR_OPTION);
-                        importIndex(indexName, importDir, solrUrl, clear);
+                        importIndex(indexName, importDir, solrUrl, clear, threads);
                     } catch (IOException | SolrServerException | SolrImportExportException e) {
                         System.err.println("Problem encountered while trying to import index " + indexName + ".");
                         e.printStackTrace(System.err);
@@ -171,7 +193,7 @@ public class SolrImportExport {
                         String solrUrl = makeSolrUrl(indexName);
                         String timeField = makeTimeField(indexName);
                         exportIndex(indexName, exportDir, solrUrl, timeField, lastValue,
-                                    line.hasOption(OVERWRITE_OPTION));
+                                    line.hasOption(OVERWRITE_OPTION), threads);
                     } catch (SolrServerException | IOException | SolrImportExportException e) {
                         System.err.println("Problem encountered while trying to export index " + indexName + ".");
                         e.printStackTrace(System.err);
@@ -182,7 +204,7 @@ public class SolrImportExport {
                     try {
                         boolean keepExport = line.hasOption(KEEP_OPTION);
                         boolean overwrite = line.hasOption(OVERWRITE_OPTION);
-                        reindex(indexName, directoryName, keepExport, overwrite);
+                        reindex(indexName, directoryName, keepExport, overwrite, threads);
                     } catch (IOException | SolrServerException | SolrImportExportException e) {
                         e.printStackTrace();
                     }
@@ -222,6 +244,8 @@ public class SolrImportExport {
             " a number, in which case the last [number] of days are exported, through to now (use 0 for today's data)" +
             "." +
             " Date calculation is done in UTC. If omitted, all documents are exported.");
+        options.addOption(THREADS_OPTION, "threads", true, "The number of months exported, or of batches imported," +
+            " at the same time. Default: " + DEFAULT_THREADS + ".");
         return options;
     }
 
@@ -236,8 +260,10 @@ public class SolrImportExport {
      *                      export directory was created by this method, the export directory will be deleted at the
      *                      end of the reimport.
      * @param overwrite     allow export files to be overwritten during re-index
+     * @param threads       the number of threads exporting and importing
      */
-    private static void reindex(String indexName, String exportDirName, boolean keepExport, boolean overwrite)
+    private static void reindex(String indexName, String exportDirName, boolean keepExport, boolean overwrite,
+                                int threads)
         throws IOException, SolrServerException, SolrImportExportException {
         String tempIndexName = indexName + "-temp";
 
@@ -330,10 +356,10 @@ public class SolrImportExport {
 
             try {
                 // export from the actual core (from temp core name, actual data dir)
-                exportIndex(indexName, exportDir, tempSolrUrl, timeField, overwrite);
+                exportIndex(indexName, exportDir, tempSolrUrl, timeField, null, overwrite, threads);
 
                 // clear actual core (temp core name, clearing actual data dir) & import
-                importIndex(indexName, exportDir, tempSolrUrl, true);
+                importIndex(indexName, exportDir, tempSolrUrl, true, threads);
             } catch (Exception e) {
                 // we ran into some problems with the export/import -- keep going to try and restore the solr cores
                 System.err.println(
@@ -355,9 +381,9 @@ public class SolrImportExport {
             // export all docs from now-temp core into export directory -- this won't cause name collisions with the
             // actual export
             // because the core name for the temporary export has -temp in it while the actual core doesn't
-            exportIndex(tempIndexName, exportDir, tempSolrUrl, timeField, overwrite);
+            exportIndex(tempIndexName, exportDir, tempSolrUrl, timeField, null, overwrite, threads);
             // ...and import them into the now-again-actual core *without* clearing
-            importIndex(tempIndexName, exportDir, origSolrUrl, false);
+            importIndex(tempIndexName, exportDir, origSolrUrl, false, threads);
 
             // commit changes
             origSolr.commit();
@@ -378,7 +404,7 @@ public class SolrImportExport {
     }
 
     /**
-     * Exports all documents in the given index to the specified target directory in batches of #ROWS_PER_FILE.
+     * Exports all documents in the given index to the specified target directory, one file per month.
      * See #makeExportFilename for the file names that are generated.
      *
      * @param indexName The index to export.
@@ -403,16 +429,38 @@ public class SolrImportExport {
      * @param indexName the index to import.
      * @param fromDir   the source directory. Must exist and be readable.
      *                  The importer will look for files whose name starts with <pre>indexName</pre>
-     *                  and ends with .csv (to match what is generated by #makeExportFilename).
+     *                  and ends with .csv or .csv.gz (to match what is generated by #makeExportFilename).
      * @param solrUrl   The solr URL for the index to export. Must not be null.
      * @param clear     if true, clear the index before importing.
-     * @param overwrite if true, skip _version_ field on import to disable Solr's optimistic concurrency functionality
      * @throws IOException               if there is a problem reading the files or communicating with Solr.
      * @throws SolrServerException       if there is a problem reading the files or communicating with Solr.
      * @throws SolrImportExportException if there is a problem communicating with Solr.
      */
     public static void importIndex(final String indexName, File fromDir, String solrUrl, boolean clear)
         throws IOException, SolrServerException, SolrImportExportException {
+        importIndex(indexName, fromDir, solrUrl, clear, DEFAULT_THREADS);
+    }
+
+    /**
+     * Import previously exported documents (or externally created CSV files that have the appropriate structure)
+     * into the specified index. The files are read one after the other, and their documents sent to Solr in
+     * batches of #IMPORT_BATCH_SIZE by several threads.
+     *
+     * @param indexName the index to import.
+     * @param fromDir   the source directory. Must exist and be readable.
+     *                  The importer will look for files whose name starts with <pre>indexName</pre>
+     *                  and ends with .csv or .csv.gz (to match what is generated by #makeExportFilename).
+     * @param solrUrl   The solr URL for the index to export. Must not be null.
+     * @param clear     if true, clear the index before importing.
+     * @param threads   the number of batches to send to Solr at the same time.
+     * @throws IOException               if there is a problem reading the files or communicating with Solr.
+     * @throws SolrServerException       if there is a problem reading the files or communicating with Solr.
+     * @throws SolrImportExportException if there is a problem communicating with Solr.
+     */
+    public static void importIndex(final String indexName, File fromDir, String solrUrl, boolean clear,
+                                   int threads)
+        throws IOException, SolrServerException, SolrImportExportException {
+        threads = Math.max(1, threads);
         if (StringUtils.isBlank(solrUrl)) {
             throw new SolrImportExportException(
                 "Could not construct solr URL for index" + indexName + ", aborting export.");
@@ -436,7 +484,7 @@ public class SolrImportExport {
         File[] files = fromDir.listFiles(new FilenameFilter() {
             @Override
             public boolean accept(File dir, String name) {
-                return name.startsWith(indexName + EXPORT_SEP) && name.endsWith(".csv");
+                return name.startsWith(indexName + EXPORT_SEP) && (name.endsWith(".csv") || name.endsWith(".csv.gz"));
             }
         });
 
@@ -447,24 +495,84 @@ public class SolrImportExport {
 
         Arrays.sort(files);
 
-        for (File file : files) {
-            log.info("Importing file " + file.getCanonicalPath());
-            ContentStreamUpdateRequest contentStreamUpdateRequest = new ContentStreamUpdateRequest("/update/csv");
-            contentStreamUpdateRequest.setParam("skip", "_version_");
-            for (String mvField : multivaluedFields) {
-                contentStreamUpdateRequest.setParam("f." + mvField + ".split", "true");
-                contentStreamUpdateRequest.setParam("f." + mvField + ".separator", MULTIPLE_VALUES_SPLITTER);
+        // the batches are sent while the next ones are read, the reader sends them itself when all threads are busy
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                                                         new ArrayBlockingQueue<Runnable>(threads),
+                                                         new ThreadPoolExecutor.CallerRunsPolicy());
+        AtomicReference<Exception> error = new AtomicReference<>();
+        try {
+            for (File file : files) {
+                log.info("Importing file " + file.getCanonicalPath());
+                long imported = 0;
+                try (SolrExportReader reader = new SolrExportReader(file, multivaluedFields)) {
+                    List<SolrInputDocument> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+                    for (SolrInputDocument doc = reader.next(); doc != null && error.get() == null;
+                         doc = reader.next()) {
+                        batch.add(doc);
+                        if (batch.size() == IMPORT_BATCH_SIZE) {
+                            pool.execute(new ImportBatch(solr, batch, error));
+                            imported += batch.size();
+                            batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+                        }
+                    }
+                    if (!batch.isEmpty()) {
+                        pool.execute(new ImportBatch(solr, batch, error));
+                        imported += batch.size();
+                    }
+                }
+                if (error.get() != null) {
+                    break;
+                }
+                log.info("Read " + imported + " documents from file " + file.getCanonicalPath());
             }
-            contentStreamUpdateRequest.setParam("stream.contentType", "text/csv;charset=utf-8");
-            contentStreamUpdateRequest.setAction(AbstractUpdateRequest.ACTION.COMMIT, true, true);
-            contentStreamUpdateRequest.addFile(file, "text/csv;charset=utf-8");
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SolrImportExportException("Import of index " + indexName + " interrupted", e);
+        } finally {
+            pool.shutdownNow();
+        }
 
-            solr.request(contentStreamUpdateRequest);
+        Exception e = error.get();
+        if (e instanceof SolrServerException) {
+            throw (SolrServerException) e;
+        } else if (e instanceof IOException) {
+            throw (IOException) e;
+        } else if (e != null) {
+            throw new SolrImportExportException("Import of index " + indexName + " failed", e);
         }
 
         solr.commit(true, true);
     }
 
+    /**
+     * Sends a batch of imported documents to Solr, unless an earlier batch failed.
+     */
+    private static class ImportBatch implements Runnable {
+        private final SolrServer solr;
+        private final List<SolrInputDocument> docs;
+        private final AtomicReference<Exception> error;
+
+        ImportBatch(SolrServer solr, List<SolrInputDocument> docs, AtomicReference<Exception> error) {
+            this.solr = solr;
+            this.docs = docs;
+            this.error = error;
+        }
+
+        @Override
+        public void run() {
+            if (error.get() != null) {
+                return;
+            }
+            try {
+                solr.add(docs);
+            } catch (SolrServerException | IOException | RuntimeException e) {
+                error.compareAndSet(null, e);
+            }
+        }
+    }
+
     /**
      * Determine the names of all multi-valued fields from the data in the index.
      *
@@ -475,6 +583,8 @@ public class SolrImportExport {
         List<String> result = new ArrayList<>();
         try {
             LukeRequest request = new LukeRequest();
+            // the top terms of the fields are not needed
+            request.setNumTerms(0);
             // this needs to be a non-schema request, otherwise we'll miss dynamic fields
             LukeResponse response = request.process(solr);
             Map<String, LukeResponse.FieldInfo> fields = response.getFieldInfo();
@@ -489,6 +599,23 @@ public class SolrImportExport {
         return result;
     }
 
+    /**
+     * Determine the names of all fields from the data in the index, except the version.
+     *
+     * @param solr the solr server to query.
+     * @return A list containing all fields in the index.
+     * @throws IOException         if there is a problem in communicating with Solr.
+     * @throws SolrServerException if there is a problem in communicating with Solr.
+     */
+    private static List<String> getFields(HttpSolrServer solr) throws IOException, SolrServerException {
+        LukeRequest request = new LukeRequest();
+        request.setNumTerms(0);
+        List<String> result = new ArrayList<>(request.process(solr).getFieldInfo().keySet());
+        result.remove("_version_");
+        Collections.sort(result);
+        return result;
+    }
+
     /**
      * Remove all documents from the Solr index with the given URL, then commit and optimise the index.
      *
@@ -504,8 +631,8 @@ public class SolrImportExport {
     }
 
     /**
-     * Exports documents from the given index to the specified target directory in batches of #ROWS_PER_FILE,
-     * starting at fromWhen (or all documents).
+     * Exports documents from the given index to the specified target directory, starting at fromWhen (or all
+     * documents). The months of documents are exported in parallel, with the default number of threads.
      * See #makeExportFilename for the file names that are generated.
      *
      * @param indexName The index to export.
@@ -523,6 +650,31 @@ public class SolrImportExport {
     public static void exportIndex(String indexName, File toDir, String solrUrl, String timeField, String fromWhen,
                                    boolean overwrite)
         throws SolrServerException, IOException, SolrImportExportException {
+        exportIndex(indexName, toDir, solrUrl, timeField, fromWhen, overwrite, DEFAULT_THREADS);
+    }
+
+    /**
+     * Exports documents from the given index to the specified target directory, one compressed file per month,
+     * starting at fromWhen (or all documents). Each month is streamed from Solr with a cursor, in pages of
+     * #ROWS_PER_FILE documents.
+     * See #makeExportFilename for the file names that are generated.
+     *
+     * @param indexName The index to export.
+     * @param toDir     The target directory for the export. Will be created if it doesn't exist yet. The directory
+     *                  must be writeable.
+     * @param solrUrl   The solr URL for the index to export. Must not be null.
+     * @param timeField The time field to use for sorting the export. Must not be null.
+     * @param fromWhen  Optionally, from when to export. See options for allowed values. If null or empty, all
+     *                  documents will be exported.
+     * @param overwrite If set, allow export files to be overwritten
+     * @param threads   The number of months to export at the same time.
+     * @throws SolrServerException       if there is a problem with exporting the index.
+     * @throws IOException               if there is a problem creating the files or communicating with Solr.
+     * @throws SolrImportExportException if there is a problem in communicating with Solr.
+     */
+    public static void exportIndex(final String indexName, final File toDir, String solrUrl, final String timeField,
+                                   String fromWhen, final boolean overwrite, int threads)
+        throws SolrServerException, IOException, SolrImportExportException {
         log.info(String.format("Export Index [%s] to [%s] using [%s] Time Field[%s] FromWhen[%s]", indexName, toDir,
                                solrUrl, timeField, fromWhen));
         if (StringUtils.isBlank(solrUrl)) {
@@ -536,11 +688,12 @@ public class SolrImportExport {
                                                     + indexName);
         }
 
-        HttpSolrServer solr = new HttpSolrServer(solrUrl);
+        final HttpSolrServer solr = new HttpSolrServer(solrUrl);
 
         SolrQuery query = new SolrQuery("*:*");
+        String lastValueFilter = null;
         if (StringUtils.isNotBlank(fromWhen)) {
-            String lastValueFilter = makeFilterQuery(timeField, fromWhen);
+            lastValueFilter = makeFilterQuery(timeField, fromWhen);
             if (StringUtils.isNotBlank(lastValueFilter)) {
                 query.addFilterQuery(lastValueFilter);
             }
@@ -578,50 +731,98 @@ public class SolrImportExport {
 
         List<RangeFacet.Count> monthFacets = solr.query(query).getFacetRanges().get(0).getCounts();
 
-        for (RangeFacet.Count monthFacet : monthFacets) {
-            Date monthStartDate;
-            String monthStart = monthFacet.getValue();
-            try {
-                monthStartDate = SOLR_DATE_FORMAT_NO_MS.get().parse(monthStart);
-            } catch (java.text.ParseException e) {
-                throw new SolrImportExportException("Could not read start of month batch as date: " + monthStart, e);
+        // the columns are the same in all files, so that they can be imported together
+        final List<String> fields = getFields(solr);
+        final String uniqueKeyField = makeUniqueKeyField(indexName);
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        List<Future<Void>> months = new ArrayList<>();
+        try {
+            for (RangeFacet.Count monthFacet : monthFacets) {
+                final String monthStart = monthFacet.getValue();
+                final Date monthStartDate;
+                try {
+                    monthStartDate = SOLR_DATE_FORMAT_NO_MS.get().parse(monthStart);
+                } catch (java.text.ParseException e) {
+                    throw new SolrImportExportException("Could not read start of month batch as date: " + monthStart,
+                                                        e);
+                }
+                final int docsThisMonth = monthFacet.getCount();
+
+                final SolrQuery monthQuery = new SolrQuery("*:*");
+                monthQuery.setRows(ROWS_PER_FILE);
+                monthQuery.set("fl", "*");
+                monthQuery.setSort(uniqueKeyField, SolrQuery.ORDER.asc);
+                // the end of the month is excluded, it is the start of the next month
+                monthQuery.addFilterQuery(timeField + ":[" + monthStart + " TO " + monthStart + "+1MONTH}");
+                if (StringUtils.isNotBlank(lastValueFilter)) {
+                    monthQuery.addFilterQuery(lastValueFilter);
+                }
+
+                months.add(pool.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        File file = new File(toDir.getCanonicalPath(), makeExportFilename(indexName, monthStartDate));
+                        if (!file.createNewFile() && !overwrite) {
+                            String message = String.format(
+                                "%s [%s].  Export failed for Index [%s] Month [%s] Num Docs [%d]",
+                                file.exists() ? "Solr export file already exists" : "Cannot create solr export file",
+                                file.getCanonicalPath(), indexName, monthStart, docsThisMonth);
+                            throw new SolrImportExportException(message);
+                        }
+                        long exported = exportMonth(solr, monthQuery, file, fields);
+                        log.info(String.format(
+                            "Solr export to file [%s] complete.  Export for Index [%s] Month [%s] Num Docs [%d]",
+                            file.getCanonicalPath(), indexName, monthStart, exported));
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> month : months) {
+                month.get();
             }
-            int docsThisMonth = monthFacet.getCount();
-
-            SolrQuery monthQuery = new SolrQuery("*:*");
-            monthQuery.setRows(ROWS_PER_FILE);
-            monthQuery.set("wt", "csv");
-            monthQuery.set("fl", "*");
-            monthQuery.setParam("csv.mv.separator", MULTIPLE_VALUES_SPLITTER);
-
-            monthQuery.addFilterQuery(timeField + ":[" + monthStart + " TO " + monthStart + "+1MONTH]");
-
-            for (int i = 0; i < docsThisMonth; i += ROWS_PER_FILE) {
-                monthQuery.setStart(i);
-                URL url = new URL(solrUrl + "/select?" + monthQuery.toString());
-
-                File file = new File(toDir.getCanonicalPath(),
-                                     makeExportFilename(indexName, monthStartDate, docsThisMonth, i));
-                if (file.createNewFile() || overwrite) {
-                    FileUtils.copyURLToFile(url, file);
-                    String message = String.format(
-                        "Solr export to file [%s] complete.  Export for Index [%s] Month [%s] Batch [%d] Num Docs [%d]",
-                        file.getCanonicalPath(), indexName, monthStart, i, docsThisMonth);
-                    log.info(message);
-                } else if (file.exists()) {
-                    String message = String.format(
-                        "Solr export file [%s] already exists.  Export failed for Index [%s] Month [%s] Batch [%d] " +
-                            "Num Docs [%d]",
-                        file.getCanonicalPath(), indexName, monthStart, i, docsThisMonth);
-                    throw new SolrImportExportException(message);
-                } else {
-                    String message = String.format(
-                        "Cannot create solr export file [%s].  Export failed for Index [%s] Month [%s] Batch [%d] Num" +
-                            " Docs [%d]",
-                        file.getCanonicalPath(), indexName, monthStart, i, docsThisMonth);
-                    throw new
-                        SolrImportExportException(message);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SolrImportExportException("Export of index " + indexName + " interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SolrServerException) {
+                throw (SolrServerException) cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof SolrImportExportException) {
+                throw (SolrImportExportException) cause;
+            }
+            throw new SolrImportExportException("Export of index " + indexName + " failed", cause);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Streams the documents of a month to an export file, page by page with a cursor.
+     *
+     * @param solr   the index to export.
+     * @param query  the documents of the month, sorted on the unique key.
+     * @param file   the file to write.
+     * @param fields the columns of the file.
+     * @return the number of documents exported.
+     */
+    private static long exportMonth(HttpSolrServer solr, SolrQuery query, File file, List<String> fields)
+        throws SolrServerException, IOException {
+        try (SolrExportWriter writer = new SolrExportWriter(file, fields)) {
+            String cursor = CursorMarkParams.CURSOR_MARK_START;
+            while (true) {
+                query.set(CursorMarkParams.CURSOR_MARK_PARAM, cursor);
+                QueryResponse response = solr.query(query);
+                for (SolrDocument doc : response.getResults()) {
+                    writer.write(doc);
+                }
+                String next = response.getNextCursorMark();
+                if (next == null || next.equals(cursor)) {
+                    return writer.getCount();
                 }
+                cursor = next;
             }
         }
     }
@@ -663,25 +864,17 @@ public class SolrImportExport {
     }
 
     /**
-     * Creates a filename for the export batch.
+     * Creates a filename for the export of a month.
      *
-     * @param indexName    The name of the index being exported.
-     * @param exportStart  The start timestamp of the export
-     * @param totalRecords The total number of records in the export.
-     * @param index        The index of the current batch.
-     * @return A file name that is appropriate to use for exporting the batch of data described by the parameters.
+     * @param indexName   The name of the index being exported.
+     * @param exportStart The start timestamp of the export
+     * @return A file name that is appropriate to use for exporting the month of data described by the parameters.
      */
-    private static String makeExportFilename(String indexName, Date exportStart, long totalRecords, int index) {
-        String exportFileNumber = "";
-        if (totalRecords > ROWS_PER_FILE) {
-            exportFileNumber = StringUtils
-                .leftPad("" + (index / ROWS_PER_FILE), (int) Math.ceil(Math.log10(totalRecords / ROWS_PER_FILE)), "0");
-        }
+    private static String makeExportFilename(String indexName, Date exportStart) {
         return indexName
             + EXPORT_SEP
             + EXPORT_DATE_FORMAT.get().format(exportStart)
-            + (StringUtils.isNotBlank(exportFileNumber) ? "_" + exportFileNumber : "")
-            + ".csv";
+            + ".csv.gz";
     }
 
     /**
@@ -718,6 +911,19 @@ public class SolrImportExport {
         return null; // TODO some sort of default?
     }
 
+    /**
+     * Returns the unique key field of the specified index name, which the export is sorted on.
+     *
+     * @param indexName the index name whose unique key field is required.
+     * @return the name of the unique key field.
+     */
+    private static String makeUniqueKeyField(String indexName) {
+        if (indexName.startsWith("statistics")) {
+            return "uid";
+        }
+        return "id";
+    }
+
     /**
      * A utility method to print out all available command-line options and exit given the specified code.
      *
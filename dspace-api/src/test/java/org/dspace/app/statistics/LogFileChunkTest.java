@@ -0,0 +1,97 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.app.statistics;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LogFileChunkTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final List<String> LINES = Arrays.asList(
+        "2018-01-01 10:00:00,000 INFO  org.dspace.usage.LoggerUsageEventListener @ anonymous:session_id=1:view_item",
+        "",
+        "a",
+        "2018-01-01 10:00:01,000 WARN  org.dspace.app.webui.servlet.DSpaceServlet @ anonymous:session_id=2:search",
+        "ü",
+        "last line");
+
+    @Test
+    public void testEveryLineOnce() throws Exception {
+        File file = write("\n", "\n");
+        for (long chunkSize = 1; chunkSize <= file.length(); chunkSize++) {
+            assertEquals("chunks of " + chunkSize + " bytes", LINES, readAll(file, chunkSize));
+        }
+    }
+
+    @Test
+    public void testCarriageReturns() throws Exception {
+        File file = write("\r\n", "");
+        for (long chunkSize = 1; chunkSize <= file.length(); chunkSize++) {
+            assertEquals("chunks of " + chunkSize + " bytes", LINES, readAll(file, chunkSize));
+        }
+    }
+
+    @Test
+    public void testStop() throws Exception {
+        File file = write("\n", "\n");
+        final List<String> read = new ArrayList<>();
+        new LogFileChunk(file, 0, file.length()).read(StandardCharsets.UTF_8, new LogFileChunk.LineHandler() {
+            @Override
+            public boolean line(String line) {
+                read.add(line);
+                return read.size() < 3;
+            }
+        });
+        assertEquals(LINES.subList(0, 3), read);
+    }
+
+    @Test
+    public void testEmptyFile() throws Exception {
+        assertEquals(0, LogFileChunk.split(folder.newFile(), 16).size());
+    }
+
+    private File write(String separator, String end) throws IOException {
+        File file = folder.newFile();
+        StringBuilder contents = new StringBuilder();
+        for (String line : LINES) {
+            contents.append(line).append(separator);
+        }
+        contents.setLength(contents.length() - separator.length());
+        contents.append(end);
+        Files.write(file.toPath(), contents.toString().getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private List<String> readAll(File file, long chunkSize) throws IOException {
+        final List<String> read = new ArrayList<>();
+        for (LogFileChunk chunk : LogFileChunk.split(file, chunkSize)) {
+            chunk.read(StandardCharsets.UTF_8, new LogFileChunk.LineHandler() {
+                @Override
+                public boolean line(String line) {
+                    read.add(line);
+                    return true;
+                }
+            });
+        }
+        return read;
+    }
+}
@@ -20,6 +20,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -128,6 +129,21 @@ public class BitstreamTest extends AbstractDSpaceObjectTest {
         assertTrue("testFindAll 2", added);
     }
 
+    /**
+     * Test of findByLegacyIds method, of class Bitstream.
+     */
+    @Test
+    public void testFindByLegacyIds() throws SQLException {
+        List<Integer> legacyIds = new ArrayList<>();
+        for (int i = 1; i <= 2500; i++) {
+            legacyIds.add(i);
+        }
+        // the bitstreams created by the tests have no legacy id
+        List<Bitstream> found = bitstreamService.findByLegacyIds(context, legacyIds);
+        assertThat("testFindByLegacyIds 0", found, notNullValue());
+        assertTrue("testFindByLegacyIds 1", found.isEmpty());
+    }
+
     /**
      * Test of create method, of class Bitstream.
      */
@@ -23,6 +23,8 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.UUID;
@@ -762,4 +764,24 @@ public class BundleTest extends AbstractDSpaceObjectTest {
         assertThat("testGetParentObject 0", bundleService.getParentObject(context, b), instanceOf(Item.class));
     }
 
+    /**
+     * Test of getBundleNames and getLogoTypes methods, of class BitstreamService.
+     */
+    @Test
+    public void testGetBundleNames() throws IOException, SQLException, AuthorizeException {
+        context.turnOffAuthorisationSystem();
+        File f = new File(testProps.get("test.bitstream").toString());
+        Bitstream bs = bitstreamService.create(context, new FileInputStream(f));
+        bundleService.addBitstream(context, b, bs);
+        Bitstream logo = collectionService.setLogo(context, collection, new FileInputStream(f));
+        Bitstream other = bitstreamService.create(context, new FileInputStream(f));
+        context.restoreAuthSystemState();
+        List<UUID> ids = Arrays.asList(bs.getID(), logo.getID(), other.getID());
+
+        assertThat("testGetBundleNames 0", bitstreamService.getBundleNames(context, ids),
+                   equalTo(Collections.singletonMap(bs.getID(), "TESTBUNDLE")));
+        assertThat("testGetBundleNames 1", bitstreamService.getLogoTypes(context, ids),
+                   equalTo(Collections.singletonMap(logo.getID(), Constants.COLLECTION)));
+    }
+
 }
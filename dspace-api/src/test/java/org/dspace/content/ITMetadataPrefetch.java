@@ -0,0 +1,123 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.dspace.AbstractIntegrationTest;
+import org.dspace.content.factory.ContentServiceFactory;
+import org.dspace.content.service.BitstreamService;
+import org.dspace.content.service.CollectionService;
+import org.dspace.content.service.CommunityService;
+import org.dspace.content.service.InstallItemService;
+import org.dspace.content.service.ItemService;
+import org.dspace.content.service.WorkspaceItemService;
+import org.dspace.utils.DSpace;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Integration test of the loading of the metadata, handles and bitstreams of lists of items,
+ * counting the SQL statements sent to the database.
+ */
+public class ITMetadataPrefetch extends AbstractIntegrationTest {
+
+    private static final int ITEMS = 10;
+
+    protected CommunityService communityService = ContentServiceFactory.getInstance().getCommunityService();
+    protected CollectionService collectionService = ContentServiceFactory.getInstance().getCollectionService();
+    protected ItemService itemService = ContentServiceFactory.getInstance().getItemService();
+    protected BitstreamService bitstreamService = ContentServiceFactory.getInstance().getBitstreamService();
+    protected WorkspaceItemService workspaceItemService = ContentServiceFactory.getInstance().getWorkspaceItemService();
+    protected InstallItemService installItemService = ContentServiceFactory.getInstance().getInstallItemService();
+
+    private SessionFactory sessionFactory;
+    private Statistics statistics;
+    private boolean statisticsEnabled;
+
+    private Community owningCommunity;
+    private List<UUID> itemIds = new ArrayList<>();
+
+    @Before
+    @Override
+    public void init() {
+        super.init();
+        sessionFactory = new DSpace().getServiceManager().getServiceByName("sessionFactory", SessionFactory.class);
+        statistics = sessionFactory.getStatistics();
+        statisticsEnabled = statistics.isStatisticsEnabled();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @After
+    @Override
+    public void destroy() {
+        statistics.setStatisticsEnabled(statisticsEnabled);
+        super.destroy();
+    }
+
+    @Test
+    public void testPrefetchItems() throws Exception {
+        context.turnOffAuthorisationSystem();
+        owningCommunity = communityService.create(null, context);
+        Collection collection = collectionService.create(context, owningCommunity);
+        for (int i = 0; i < ITEMS; i++) {
+            WorkspaceItem workspaceItem = workspaceItemService.create(context, collection, false);
+            Item item = workspaceItem.getItem();
+            itemService.addMetadata(context, item, "dc", "title", null, null, "Item " + i);
+            Bitstream bitstream = itemService.createSingleBitstream(
+                context, new ByteArrayInputStream(("File " + i).getBytes(StandardCharsets.UTF_8)), item);
+            bitstream.setName(context, "file" + i + ".txt");
+            bitstreamService.update(context, bitstream);
+            itemIds.add(installItemService.installItem(context, workspaceItem).getID());
+        }
+
+        // start from an empty session, as a request listing items would
+        Session session = sessionFactory.getCurrentSession();
+        session.flush();
+        session.clear();
+        List<Item> items = new ArrayList<>();
+        for (UUID id : itemIds) {
+            items.add(itemService.find(context, id));
+        }
+        assertFalse(Hibernate.isInitialized(items.get(0).getMetadata()));
+
+        statistics.clear();
+        itemService.prefetchMetadata(context, items, true);
+        itemService.prefetchBundles(context, items);
+        long prefetched = statistics.getPrepareStatementCount();
+        assertTrue("prefetching issues a fixed number of statements, not " + prefetched, prefetched < ITEMS);
+
+        for (Item item : items) {
+            assertNotNull(item.getHandle());
+            assertTrue(item.getName().startsWith("Item "));
+            List<Bundle> bundles = itemService.getBundles(item, "ORIGINAL");
+            assertEquals(1, bundles.size());
+            assertTrue(bundles.get(0).getBitstreams().get(0).getName().endsWith(".txt"));
+        }
+        assertEquals("reading the prefetched items issues no statement", prefetched,
+                     statistics.getPrepareStatementCount());
+
+        owningCommunity = context.reloadEntity(owningCommunity);
+        communityService.delete(context, owningCommunity);
+        context.restoreAuthSystemState();
+    }
+}
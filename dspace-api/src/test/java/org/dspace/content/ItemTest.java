@@ -198,6 +198,50 @@ public class ItemTest extends AbstractDSpaceObjectTest {
         assertTrue("testFindAll 1", added);
     }
 
+    /**
+     * Test of findByIds method, of class Item.
+     */
+    @Test
+    public void testFindByIds() throws Exception {
+        context.turnOffAuthorisationSystem();
+        Item other = installItemService.installItem(context, workspaceItemService.create(context, collection, false));
+        context.restoreAuthSystemState();
+
+        List<Item> found = itemService.findByIds(context, Arrays.asList(other.getID(), UUID.randomUUID(), it.getID()));
+        assertThat("testFindByIds 0", found, equalTo(Arrays.asList(other, it)));
+        found = itemService.findByIds(context, Arrays.asList(it.getID(), other.getID()));
+        assertThat("testFindByIds 1", found, equalTo(Arrays.asList(it, other)));
+        assertTrue("testFindByIds 2", itemService.findByIds(context, new ArrayList<UUID>()).isEmpty());
+
+        context.turnOffAuthorisationSystem();
+        itemService.delete(context, other);
+        context.restoreAuthSystemState();
+    }
+
+    /**
+     * Test of findByIds method, of class Item, with more ids than a single IN clause takes.
+     */
+    @Test
+    public void testFindByIdsInBatches() throws Exception {
+        context.turnOffAuthorisationSystem();
+        Item other = installItemService.installItem(context, workspaceItemService.create(context, collection, false));
+        context.restoreAuthSystemState();
+
+        // the items fall in the second and the third batch of ids
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            ids.add(UUID.randomUUID());
+        }
+        ids.set(2200, it.getID());
+        ids.set(1100, other.getID());
+        assertThat("testFindByIdsInBatches 0", itemService.findByIds(context, ids),
+                   equalTo(Arrays.asList(other, it)));
+
+        context.turnOffAuthorisationSystem();
+        itemService.delete(context, other);
+        context.restoreAuthSystemState();
+    }
+
     /**
      * Test of findBySubmitter method, of class Item.
      */
@@ -324,6 +324,33 @@ public class MetadataFieldTest extends AbstractUnitTest {
         assertThat("testUpdateAuth 0", found.getID(), equalTo(m.getID()));
     }
 
+    /**
+     * Test of findByElement method after a field is renamed, of class MetadataField.
+     */
+    @Test
+    public void testFindByElementAfterRename() throws Exception {
+        new NonStrictExpectations(authorizeService.getClass()) {{
+            // Allow full admin permissions
+            authorizeService.isAdmin(context);
+            result = true;
+        }};
+
+        MetadataField m = metadataFieldService.create(context, dcSchema, "elem3", "qual3", null);
+        assertThat("testFindByElementAfterRename 0",
+                   metadataFieldService.findByElement(context, MetadataSchema.DC_SCHEMA, "elem3", "qual3").getID(),
+                   equalTo(m.getID()));
+
+        m.setQualifier("qual4");
+        metadataFieldService.update(context, m);
+
+        assertThat("testFindByElementAfterRename 1",
+                   metadataFieldService.findByElement(context, MetadataSchema.DC_SCHEMA, "elem3", "qual3"),
+                   nullValue());
+        assertThat("testFindByElementAfterRename 2",
+                   metadataFieldService.findByElement(context, MetadataSchema.DC_SCHEMA, "elem3", "qual4").getID(),
+                   equalTo(m.getID()));
+    }
+
     /**
      * Test of update method, of class MetadataField.
      */
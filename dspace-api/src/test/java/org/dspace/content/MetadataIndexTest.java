@@ -0,0 +1,126 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class MetadataIndexTest {
+
+    private final ItemServiceImpl itemService = new ItemServiceImpl();
+
+    private MetadataSchema dc;
+    private MetadataField title;
+    private MetadataField titleAlternative;
+    private MetadataField contributorAuthor;
+    private Item item;
+
+    @Before
+    public void setUp() {
+        dc = mock(MetadataSchema.class);
+        when(dc.getName()).thenReturn("dc");
+        title = field(1, "title", null);
+        titleAlternative = field(2, "title", "alternative");
+        contributorAuthor = field(3, "contributor", "author");
+        item = new Item();
+    }
+
+    @Test
+    public void testFindsFieldValuesInOrder() {
+        MetadataValue first = value(title, "A title", "en");
+        MetadataValue alternative = value(titleAlternative, "Another title", null);
+        MetadataValue second = value(title, "Un titre", "fr");
+        List<MetadataValue> authors = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            authors.add(value(contributorAuthor, "Author " + i, null));
+        }
+
+        assertValues(Arrays.asList(first, second), itemService.getMetadata(item, "dc", "title", null, Item.ANY));
+        assertValues(Arrays.asList(first, alternative, second),
+                     itemService.getMetadata(item, "dc", "title", Item.ANY, Item.ANY));
+        assertValues(Collections.singletonList(second), itemService.getMetadata(item, "dc", "title", "", "fr"));
+        assertValues(authors, itemService.getMetadata(item, "dc", "contributor", "author", Item.ANY));
+        assertValues(item.getMetadata(), itemService.getMetadata(item, "dc", Item.ANY, Item.ANY, Item.ANY));
+        assertValues(item.getMetadata(), itemService.getMetadata(item, Item.ANY, Item.ANY, Item.ANY, Item.ANY));
+        assertEquals(0, itemService.getMetadata(item, "dc", "subject", Item.ANY, Item.ANY).size());
+        assertEquals(0, itemService.getMetadata(item, "local", "title", Item.ANY, Item.ANY).size());
+    }
+
+    @Test
+    public void testKeptUpToDate() {
+        MetadataValue first = value(title, "A title", null);
+        assertValues(Collections.singletonList(first), itemService.getMetadata(item, "dc", "title", null, Item.ANY));
+        MetadataIndex index = item.getMetadataIndex();
+
+        MetadataValue second = value(title, "Another title", null);
+        assertSame("values added are indexed", index, item.getMetadataIndex());
+        assertValues(Arrays.asList(first, second), itemService.getMetadata(item, "dc", "title", null, Item.ANY));
+
+        item.removeMetadata(first);
+        assertValues(Collections.singletonList(second), itemService.getMetadata(item, "dc", "title", null, Item.ANY));
+
+        item.getMetadata().remove(0);
+        assertEquals("changes to the list are noticed", 0,
+                     itemService.getMetadata(item, "dc", "title", null, Item.ANY).size());
+
+        List<MetadataValue> metadata = new ArrayList<>();
+        metadata.add(first);
+        item.setMetadata(metadata);
+        assertValues(Collections.singletonList(first), itemService.getMetadata(item, "dc", "title", null, Item.ANY));
+    }
+
+    @Test
+    public void testFieldsWithoutSchema() {
+        MetadataField unsaved = mock(MetadataField.class);
+        when(unsaved.getElement()).thenReturn("title");
+        MetadataValue first = value(title, "A title", null);
+        MetadataValue second = value(unsaved, "Draft title", null);
+
+        // a value without schema matches any schema
+        assertValues(Arrays.asList(first, second), itemService.getMetadata(item, "dc", "title", null, Item.ANY));
+    }
+
+    /**
+     * Compare the values themselves, all unsaved values are equal
+     */
+    private void assertValues(List<MetadataValue> expected, List<MetadataValue> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i), actual.get(i));
+        }
+    }
+
+    private MetadataField field(int id, String element, String qualifier) {
+        MetadataField field = mock(MetadataField.class);
+        when(field.getID()).thenReturn(id);
+        when(field.getMetadataSchema()).thenReturn(dc);
+        when(field.getElement()).thenReturn(element);
+        when(field.getQualifier()).thenReturn(qualifier);
+        return field;
+    }
+
+    private MetadataValue value(MetadataField field, String text, String language) {
+        MetadataValue value = new MetadataValue();
+        value.setMetadataField(field);
+        value.setValue(text);
+        value.setLanguage(language);
+        value.setDSpaceObject(item);
+        item.addMetadata(value);
+        return value;
+    }
+}
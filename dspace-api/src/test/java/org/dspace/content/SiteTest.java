@@ -14,6 +14,10 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
 
 import org.apache.log4j.Logger;
 import org.dspace.AbstractUnitTest;
@@ -126,6 +130,16 @@ public class SiteTest extends AbstractUnitTest {
         assertThat("testSiteFind 1", found, equalTo(s));
     }
 
+    /**
+     * Test of findByIds method, of class Site.
+     */
+    @Test
+    public void testFindByIds() throws Exception {
+        List<Site> found = siteService.findByIds(context, Arrays.asList(UUID.randomUUID(), s.getID()));
+        assertThat("testFindByIds 0", found, equalTo(Collections.singletonList(s)));
+        assertTrue("testFindByIds 1", siteService.findByIds(context, Collections.<UUID>emptyList()).isEmpty());
+    }
+
     /**
      * Test of getName method, of class Site.
      */
@@ -188,6 +188,26 @@ public class ContextTest extends AbstractUnitTest {
         assertThat("testGetExtraLogInfo 1", context.getExtraLogInfo(), equalTo(defaultValue));
     }
 
+    /**
+     * Test of getStatistics method, of class Context.
+     */
+    @Test
+    public void testGetStatistics() throws SQLException {
+        Context instance = new Context();
+        assertThat("testGetStatistics 0", instance.getStatistics().getStatementCount(), equalTo(0L));
+
+        ePersonService.findByEmail(instance, "no-such-user@example.com");
+        DBStatistics statistics = instance.getStatistics();
+        assertTrue("testGetStatistics 1", statistics.getStatementCount() > 0);
+
+        // The statistics of a completed context are kept
+        instance.complete();
+        assertThat("testGetStatistics 2", instance.getStatistics().getStatementCount(),
+                   equalTo(statistics.getStatementCount()));
+
+        cleanupContext(instance);
+    }
+
     /**
      * Test of complete method, of class Context.
      */
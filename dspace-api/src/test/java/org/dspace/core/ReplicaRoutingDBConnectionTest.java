@@ -0,0 +1,148 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.dspace.storage.rdbms.ReplicaRoutingDataSource;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.jdbc.ReturningWork;
+import org.hibernate.service.spi.ServiceRegistryImplementor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Routing of the transactions of a thread whose contexts alternate between read-only and
+ * read-write mode, with a session whose connection is read-only when it was obtained while
+ * the thread was routed to a replica.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class ReplicaRoutingDBConnectionTest {
+
+    @Mock
+    private SessionFactoryImplementor sessionFactory;
+
+    @Mock
+    private Session session;
+
+    @Mock
+    private Transaction transaction;
+
+    @InjectMocks
+    private ReplicaRoutingDBConnection connection;
+
+    /**
+     * Whether each transaction begun ran on a replica
+     */
+    private final List<Boolean> transactions = new ArrayList<>();
+
+    private boolean active = false;
+
+    @Before
+    public void setUp() {
+        ServiceRegistryImplementor serviceRegistry = mock(ServiceRegistryImplementor.class);
+        when(sessionFactory.getServiceRegistry()).thenReturn(serviceRegistry);
+        when(serviceRegistry.getService(EventListenerRegistry.class)).thenReturn(mock(EventListenerRegistry.class));
+        when(sessionFactory.getCurrentSession()).thenReturn(session);
+        when(session.getTransaction()).thenReturn(transaction);
+        when(transaction.isActive()).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) {
+                return active;
+            }
+        });
+        when(session.beginTransaction()).thenAnswer(new Answer<Transaction>() {
+            @Override
+            public Transaction answer(InvocationOnMock invocation) {
+                transactions.add(ReplicaRoutingDataSource.isReadOnly());
+                active = true;
+                return transaction;
+            }
+        });
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                active = false;
+                return null;
+            }
+        }).when(transaction).rollback();
+        when(session.doReturningWork(any(ReturningWork.class))).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) {
+                return transactions.get(transactions.size() - 1);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        ReplicaRoutingDataSource.setReadOnly(false);
+    }
+
+    @Test
+    public void testAlternatingContexts() throws Exception {
+        // a read-only context begins the transaction on a replica
+        connection.getSession(true);
+        assertEquals(Arrays.asList(true), transactions);
+        assertFalse("only the connection of the transaction is routed", ReplicaRoutingDataSource.isReadOnly());
+        verify(session).setCacheMode(CacheMode.GET);
+
+        // the read-only context keeps it, the session is used internally without rollback
+        connection.getSession(true);
+        connection.getSession();
+        verify(transaction, times(0)).rollback();
+
+        // a read-write context cannot write on the replica
+        connection.getSession(false);
+        verify(transaction, times(1)).rollback();
+        assertEquals(Arrays.asList(true, false), transactions);
+        verify(session).setCacheMode(CacheMode.NORMAL);
+
+        // a read-only context may read in the transaction of the primary database
+        connection.getSession(true);
+        assertEquals(Arrays.asList(true, false), transactions);
+
+        // the next transaction follows the mode of the context which begins it
+        connection.rollback();
+        connection.getSession(false);
+        connection.getSession(true);
+        connection.rollback();
+        connection.getSession(true);
+        connection.getSession(true);
+        assertEquals(Arrays.asList(true, false, false, true), transactions);
+        verify(transaction, times(3)).rollback();
+    }
+
+    @Test
+    public void testTransactionWithoutContextModeUsesPrimary() throws Exception {
+        connection.getSession();
+        assertEquals(Arrays.asList(false), transactions);
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.dspace.content.DSpaceObject;
+import org.dspace.content.Item;
+import org.dspace.core.Context;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DiscoverResultIteratorTest {
+
+    @Mock
+    private SearchService searchService;
+
+    @Mock
+    private Context context;
+
+    @Mock
+    private Item item1;
+
+    @Mock
+    private Item item2;
+
+    @Mock
+    private Item item3;
+
+    @Test
+    public void testIteratesOverAllPages() throws Exception {
+        final List<String> cursors = new ArrayList<>();
+        when(searchService.search(eq(context), any(DiscoverQuery.class), eq(false))).thenAnswer(
+            new Answer<DiscoverResult>() {
+                @Override
+                public DiscoverResult answer(InvocationOnMock invocation) {
+                    String cursor = ((DiscoverQuery) invocation.getArguments()[1]).getCursorMark();
+                    cursors.add(cursor);
+                    DiscoverResult result = new DiscoverResult();
+                    if (DiscoverQuery.CURSOR_MARK_START.equals(cursor)) {
+                        result.addDSpaceObject(item1);
+                        result.addDSpaceObject(item2);
+                        result.setNextCursorMark("A");
+                    } else if ("A".equals(cursor)) {
+                        result.addDSpaceObject(item3);
+                        result.setNextCursorMark("B");
+                    } else {
+                        result.setNextCursorMark(cursor);
+                    }
+                    return result;
+                }
+            });
+
+        DiscoverQuery query = new DiscoverQuery();
+        query.setStart(50);
+        DiscoverResultIterator iterator = new DiscoverResultIterator(searchService, context, query);
+
+        List<DSpaceObject> found = new ArrayList<>();
+        while (iterator.hasNext()) {
+            found.add(iterator.next());
+        }
+
+        List<DSpaceObject> expected = new ArrayList<>();
+        expected.add(item1);
+        expected.add(item2);
+        expected.add(item3);
+        assertEquals("All objects of all pages should be returned in order", expected, found);
+        List<String> expectedCursors = new ArrayList<>();
+        expectedCursors.add(DiscoverQuery.CURSOR_MARK_START);
+        expectedCursors.add("A");
+        expectedCursors.add("B");
+        assertEquals("Every page should be requested with the cursor of the previous one", expectedCursors, cursors);
+        assertEquals("The start offset should not be used", 0, query.getStart());
+    }
+
+    @Test
+    public void testEmptyResult() throws Exception {
+        DiscoverResult result = new DiscoverResult();
+        result.setNextCursorMark(DiscoverQuery.CURSOR_MARK_START);
+        when(searchService.search(eq(context), any(DiscoverQuery.class), eq(false))).thenReturn(result);
+
+        DiscoverResultIterator iterator = new DiscoverResultIterator(searchService, context, new DiscoverQuery());
+
+        assertFalse("There should be nothing to iterate over", iterator.hasNext());
+        verify(searchService, times(1)).search(eq(context), any(DiscoverQuery.class), eq(false));
+    }
+
+    @Test
+    public void testSolrWithoutCursorSupport() throws Exception {
+        DiscoverResult result = new DiscoverResult();
+        result.addDSpaceObject(item1);
+        when(searchService.search(eq(context), any(DiscoverQuery.class), eq(false))).thenReturn(result);
+
+        DiscoverQuery query = new DiscoverQuery();
+        DiscoverResultIterator iterator = new DiscoverResultIterator(searchService, context, query);
+
+        assertEquals(item1, iterator.next());
+        assertFalse("Without a next cursor mark there is no next page", iterator.hasNext());
+        assertNull(query.getCursorMark());
+    }
+}
@@ -0,0 +1,146 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.dspace.content.Community;
+import org.dspace.content.factory.ContentServiceFactory;
+import org.dspace.content.service.CollectionService;
+import org.dspace.content.service.CommunityService;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.dspace.services.ConfigurationService;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Resolution of the community and collection facet values to their names, through the cache
+ * and one lookup per list of values.
+ */
+public class FacetLabelServiceImplTest {
+
+    private FacetLabelServiceImpl labelService;
+    private CommunityService communityService;
+    private CollectionService collectionService;
+    private Context context;
+
+    private final Community first = community("First community");
+    private final Community second = community("Second community");
+
+    @Before
+    public void setUp() throws Exception {
+        ConfigurationService configurationService = mock(ConfigurationService.class);
+        // the configured values are the defaults
+        when(configurationService.getLongProperty(anyString(), anyLong())).thenAnswer(new Answer<Long>() {
+            @Override
+            public Long answer(InvocationOnMock invocation) {
+                return (Long) invocation.getArguments()[1];
+            }
+        });
+        communityService = mock(CommunityService.class);
+        when(communityService.findByIds(any(Context.class), anyListOf(UUID.class)))
+            .thenReturn(Arrays.asList(first, second));
+        collectionService = mock(CollectionService.class);
+        ContentServiceFactory contentServiceFactory = mock(ContentServiceFactory.class);
+        when(contentServiceFactory.getDSpaceObjectService(Constants.COMMUNITY)).thenReturn(communityService);
+        when(contentServiceFactory.getDSpaceObjectService(Constants.COLLECTION)).thenReturn(collectionService);
+
+        labelService = new FacetLabelServiceImpl();
+        labelService.configurationService = configurationService;
+        labelService.contentServiceFactory = contentServiceFactory;
+        labelService.afterPropertiesSet();
+        context = mock(Context.class);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testValuesAreResolvedWithOneLookup() throws Exception {
+        String unknown = UUID.randomUUID().toString();
+        List<String> values = Arrays.asList(second.getID().toString(), unknown, first.getID().toString());
+        Map<String, String> labels = labelService.getLabels(context, FacetLabelServiceImpl.COMMUNITY_FIELD, values);
+
+        assertEquals("the labels are in the order of the values", values, new ArrayList<>(labels.keySet()));
+        assertEquals("Second community", labels.get(second.getID().toString()));
+        assertEquals("a value without object is its own label", unknown, labels.get(unknown));
+        assertEquals("First community", labels.get(first.getID().toString()));
+
+        ArgumentCaptor<List> ids = ArgumentCaptor.forClass(List.class);
+        verify(communityService).findByIds(any(Context.class), ids.capture());
+        assertEquals(3, ids.getValue().size());
+        verifyZeroInteractions(collectionService);
+    }
+
+    @Test
+    public void testLabelsAreCached() throws Exception {
+        String id = first.getID().toString();
+        assertEquals("First community", labelService.getLabel(context, FacetLabelServiceImpl.COMMUNITY_FIELD, id));
+        assertEquals("First community", labelService.getLabel(context, FacetLabelServiceImpl.COMMUNITY_FIELD, id));
+        assertEquals(Collections.singletonMap(id, "First community"),
+                     labelService.getLabels(context, FacetLabelServiceImpl.COMMUNITY_FIELD,
+                                            Collections.singletonList(id)));
+        verify(communityService, times(1)).findByIds(any(Context.class), anyListOf(UUID.class));
+
+        // the same id is cached separately for each field
+        labelService.getLabel(context, FacetLabelServiceImpl.COLLECTION_FIELD, id);
+        verify(collectionService).findByIds(any(Context.class), anyListOf(UUID.class));
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        String id = first.getID().toString();
+        labelService.getLabel(context, FacetLabelServiceImpl.COMMUNITY_FIELD, id);
+        labelService.invalidate(first.getID());
+        labelService.getLabel(context, FacetLabelServiceImpl.COMMUNITY_FIELD, id);
+        verify(communityService, times(2)).findByIds(any(Context.class), anyListOf(UUID.class));
+
+        labelService.invalidateAll();
+        labelService.getLabel(context, FacetLabelServiceImpl.COMMUNITY_FIELD, id);
+        verify(communityService, times(3)).findByIds(any(Context.class), anyListOf(UUID.class));
+    }
+
+    @Test
+    public void testValuesWhichAreNotIds() throws Exception {
+        assertTrue(labelService.isResolved(FacetLabelServiceImpl.COLLECTION_FIELD));
+        assertFalse(labelService.isResolved("author"));
+        assertEquals("Smith, John", labelService.getLabel(context, "author", "Smith, John"));
+        assertEquals("not-an-id",
+                     labelService.getLabel(context, FacetLabelServiceImpl.COMMUNITY_FIELD, "not-an-id"));
+        assertEquals("", labelService.getLabel(context, FacetLabelServiceImpl.COMMUNITY_FIELD, ""));
+        verify(communityService, never()).findByIds(any(Context.class), anyListOf(UUID.class));
+    }
+
+    private static Community community(String name) {
+        Community community = mock(Community.class);
+        when(community.getID()).thenReturn(UUID.randomUUID());
+        when(community.getName()).thenReturn(name);
+        return community;
+    }
+}
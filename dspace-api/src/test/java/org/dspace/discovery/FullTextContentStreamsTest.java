@@ -10,6 +10,7 @@ package org.dspace.discovery;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
 
@@ -17,6 +18,7 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
+import java.util.UUID;
 
 import org.apache.commons.io.Charsets;
 import org.apache.commons.io.IOUtils;
@@ -201,4 +203,44 @@ public class FullTextContentStreamsTest {
                    content.contains("NOTFOUND"));
     }
 
+    @Test
+    public void testChecksumOfTextBitstreams() throws Exception {
+        UUID id1 = UUID.randomUUID();
+        UUID id2 = UUID.randomUUID();
+        when(item.getBundles()).thenReturn(Arrays.asList(originalBundle, textBundle));
+        when(textBundle.getBitstreams()).thenReturn(Arrays.asList(textBitstream1, textBitstream2));
+        when(textBitstream1.getID()).thenReturn(id1);
+        when(textBitstream1.getChecksumAlgorithm()).thenReturn("MD5");
+        when(textBitstream1.getChecksum()).thenReturn("aaa");
+        when(textBitstream2.getID()).thenReturn(id2);
+        when(textBitstream2.getChecksumAlgorithm()).thenReturn("MD5");
+        when(textBitstream2.getChecksum()).thenReturn("bbb");
+
+        streams.init(item);
+
+        assertEquals("The checksum should list the checksums of all text bitstreams",
+                     id1 + ":MD5:aaa;" + id2 + ":MD5:bbb", streams.getChecksum());
+    }
+
+    @Test
+    public void testChecksumMissing() throws Exception {
+        when(item.getBundles()).thenReturn(Arrays.asList(originalBundle, textBundle));
+        when(textBundle.getBitstreams()).thenReturn(Arrays.asList(textBitstream1, textBitstream2));
+        when(textBitstream1.getChecksum()).thenReturn("aaa");
+        when(textBitstream2.getChecksum()).thenReturn(null);
+
+        streams.init(item);
+
+        assertNull("Without the checksum of every bitstream there is no checksum", streams.getChecksum());
+    }
+
+    @Test
+    public void testChecksumWithoutTextBitstreams() throws Exception {
+        when(item.getBundles()).thenReturn(Arrays.asList(originalBundle));
+
+        streams.init(item);
+
+        assertNull("Without text bitstreams there is no checksum", streams.getChecksum());
+    }
+
 }
@@ -0,0 +1,250 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.dspace.content.DSpaceObject;
+import org.dspace.content.Item;
+import org.dspace.content.factory.ContentServiceFactory;
+import org.dspace.content.service.ItemService;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.dspace.services.ConfigurationService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Background indexing of queued updates, with an indexing service recording the objects it
+ * indexes and failing or blocking on demand.
+ */
+public class IndexingQueueServiceImplTest {
+
+    private static final long TIMEOUT = 10000;
+
+    private ConfigurationService configurationService;
+    private IndexingService indexingService;
+    private IndexingQueueServiceImpl queueService;
+
+    /**
+     * The batches of objects indexed, successfully or not
+     */
+    private final List<List<UUID>> batches = Collections.synchronizedList(new ArrayList<List<UUID>>());
+
+    /**
+     * The objects indexed successfully
+     */
+    private final List<UUID> indexed = Collections.synchronizedList(new ArrayList<UUID>());
+
+    /**
+     * The number of the next batches which fail
+     */
+    private final AtomicInteger failures = new AtomicInteger();
+
+    /**
+     * Released to let the first batch finish, when blocking
+     */
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch blocked = new CountDownLatch(1);
+    private volatile boolean blocking = false;
+
+    @Before
+    public void setUp() throws Exception {
+        configurationService = mock(ConfigurationService.class);
+        when(configurationService.getBooleanProperty("discovery.index.async.enabled", false)).thenReturn(true);
+        when(configurationService.getIntProperty(anyString(), anyInt())).thenAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock invocation) {
+                return (Integer) invocation.getArguments()[1];
+            }
+        });
+        when(configurationService.getLongProperty(anyString(), anyLong())).thenReturn(0L);
+        when(configurationService.getLongProperty("discovery.index.async.shutdown.timeout", 30)).thenReturn(1L);
+
+        ItemService itemService = mock(ItemService.class);
+        when(itemService.findByIds(any(Context.class), anyListOf(UUID.class))).thenAnswer(new Answer<List<Item>>() {
+            @Override
+            public List<Item> answer(InvocationOnMock invocation) {
+                List<Item> items = new ArrayList<>();
+                for (Object id : (List<?>) invocation.getArguments()[1]) {
+                    items.add(item((UUID) id));
+                }
+                return items;
+            }
+        });
+        ContentServiceFactory contentServiceFactory = mock(ContentServiceFactory.class);
+        when(contentServiceFactory.getDSpaceObjectService(Constants.ITEM)).thenReturn(itemService);
+
+        indexingService = mock(IndexingService.class);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Exception {
+                List<UUID> ids = new ArrayList<>();
+                for (Object dso : (List<?>) invocation.getArguments()[1]) {
+                    ids.add(((DSpaceObject) dso).getID());
+                }
+                batches.add(ids);
+                if (blocking && blocked.getCount() > 0) {
+                    blocked.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new SearchServiceException("Interrupted", e);
+                    }
+                }
+                if (failures.getAndDecrement() > 0) {
+                    throw new SearchServiceException("Solr is down");
+                }
+                indexed.addAll(ids);
+                return null;
+            }
+        }).when(indexingService).indexContent(any(Context.class), anyListOf(DSpaceObject.class), anyBoolean());
+
+        queueService = new IndexingQueueServiceImpl() {
+            @Override
+            protected Context newContext() {
+                return mock(Context.class);
+            }
+        };
+        queueService.configurationService = configurationService;
+        queueService.contentServiceFactory = contentServiceFactory;
+        queueService.indexingService = indexingService;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        release.countDown();
+        if (queueService.isEnabled()) {
+            queueService.destroy();
+        }
+    }
+
+    @Test
+    public void testUpdatesAreIndexedInBatches() throws Exception {
+        when(configurationService.getIntProperty("discovery.index.async.batch.size", 100)).thenReturn(2);
+        // queue the updates before the worker starts
+        queueService.running = true;
+        queueService.enabled = true;
+        queueService.capacity = 100;
+        List<UUID> ids = Arrays.asList(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(),
+                                       UUID.randomUUID());
+        for (UUID id : ids) {
+            assertTrue(queueService.enqueueUpdate(item(id)));
+        }
+        // a second update of a pending object is collapsed into the first one
+        assertTrue(queueService.enqueueUpdate(item(ids.get(0))));
+        assertEquals(5, queueService.getQueueDepth());
+
+        queueService.afterPropertiesSet();
+        waitForProcessed(5);
+        assertEquals(ids, indexed);
+        assertEquals(Arrays.asList(ids.subList(0, 2), ids.subList(2, 4), ids.subList(4, 5)), batches);
+    }
+
+    @Test
+    public void testFailedBatchIsRetried() throws Exception {
+        failures.set(2);
+        queueService.afterPropertiesSet();
+        UUID id = UUID.randomUUID();
+        queueService.enqueueUpdate(item(id));
+
+        waitForProcessed(1);
+        assertEquals(Collections.singletonList(id), indexed);
+        assertEquals(3, batches.size());
+    }
+
+    @Test
+    public void testRetriesAreLimited() throws Exception {
+        failures.set(Integer.MAX_VALUE);
+        queueService.afterPropertiesSet();
+        queueService.enqueueUpdate(item(UUID.randomUUID()));
+
+        long start = System.currentTimeMillis();
+        while (batches.size() < 3 && System.currentTimeMillis() - start < TIMEOUT) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(200);
+        assertEquals("the update is dropped after its retries", 3, batches.size());
+        assertEquals(0, queueService.getQueueDepth());
+        assertEquals(0, queueService.getProcessedCount());
+    }
+
+    @Test
+    public void testObjectIsIndexedByOneWorkerAtATime() throws Exception {
+        when(configurationService.getIntProperty("discovery.index.async.workers", 1)).thenReturn(2);
+        blocking = true;
+        queueService.afterPropertiesSet();
+        UUID id = UUID.randomUUID();
+        queueService.enqueueUpdate(item(id));
+        assertTrue(blocked.await(TIMEOUT, TimeUnit.MILLISECONDS));
+
+        // updated again while the first worker indexes it
+        queueService.enqueueUpdate(item(id));
+        Thread.sleep(200);
+        assertEquals("the second worker waits for the first one", 1, batches.size());
+        assertEquals(1, queueService.getQueueDepth());
+
+        release.countDown();
+        waitForProcessed(2);
+        assertEquals(Arrays.asList(id, id), indexed);
+    }
+
+    @Test
+    public void testPendingUpdatesAreIndexedAtShutdown() throws Exception {
+        blocking = true;
+        queueService.afterPropertiesSet();
+        List<UUID> ids = Arrays.asList(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        queueService.enqueueUpdate(item(ids.get(0)));
+        assertTrue(blocked.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        queueService.enqueueUpdate(item(ids.get(1)));
+        queueService.enqueueUpdate(item(ids.get(2)));
+
+        // the worker does not finish in time, is interrupted and its batch is queued again
+        queueService.destroy();
+        assertEquals(0, queueService.getQueueDepth());
+        assertEquals(3, queueService.getProcessedCount());
+        assertTrue(indexed.containsAll(ids));
+    }
+
+    private void waitForProcessed(long count) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        while (queueService.getProcessedCount() < count && System.currentTimeMillis() - start < TIMEOUT) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, queueService.getProcessedCount());
+    }
+
+    private static Item item(UUID id) {
+        Item item = mock(Item.class);
+        when(item.getID()).thenReturn(id);
+        when(item.getType()).thenReturn(Constants.ITEM);
+        return item;
+    }
+}
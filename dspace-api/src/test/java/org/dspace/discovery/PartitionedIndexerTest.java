@@ -0,0 +1,176 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+import org.apache.solr.client.solrj.SolrServer;
+import org.dspace.content.service.ItemService;
+import org.dspace.core.Context;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PartitionedIndexerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final UUID first = UUID.fromString("40000000-0000-0000-0000-000000000000");
+    private final UUID second = UUID.fromString("80000000-0000-0000-0000-000000000000");
+
+    private SolrServiceImpl indexer;
+    private ItemService itemService;
+    private File checkpointDir;
+
+    /**
+     * The partitions given to the workers
+     */
+    private final List<PartitionedIndexer.Checkpoint> indexed = Collections.synchronizedList(new ArrayList<>());
+
+    @Before
+    public void setUp() throws Exception {
+        indexer = mock(SolrServiceImpl.class);
+        when(indexer.getSolr()).thenReturn(mock(SolrServer.class));
+        itemService = mock(ItemService.class);
+        when(itemService.findUnfilteredPartitionBoundaries(any(Context.class), anyInt()))
+            .thenReturn(Arrays.asList(first, second));
+        checkpointDir = new File(folder.getRoot(), "checkpoints");
+    }
+
+    @Test
+    public void testPartitionBounds() throws Exception {
+        PartitionedIndexer partitionedIndexer = new RecordingIndexer(null);
+        assertEquals(30, partitionedIndexer.index(null, false));
+
+        assertEquals(3, indexed.size());
+        PartitionedIndexer.Checkpoint[] partitions = sortedByIndex();
+        assertNull(partitions[0].getLast());
+        assertEquals(first, partitions[0].getUpTo());
+        assertEquals(first, partitions[1].getLast());
+        assertEquals(second, partitions[1].getUpTo());
+        assertEquals(second, partitions[2].getLast());
+        assertNull(partitions[2].getUpTo());
+
+        assertEquals("the checkpoints of a finished run are removed", 0, checkpointFiles().length);
+    }
+
+    @Test
+    public void testCheckpointRoundTrip() throws Exception {
+        assertTrue(checkpointDir.mkdirs());
+        File file = new File(checkpointDir, "partition-1.checkpoint");
+        PartitionedIndexer.Checkpoint checkpoint = new PartitionedIndexer.Checkpoint(file, 1, second);
+        checkpoint.save(first);
+
+        PartitionedIndexer.Checkpoint loaded = PartitionedIndexer.Checkpoint.load(file);
+        assertEquals(1, loaded.getIndex());
+        assertEquals(first, loaded.getLast());
+        assertEquals(second, loaded.getUpTo());
+        assertFalse(loaded.isComplete());
+        assertFalse("no temporary file is left behind", new File(checkpointDir, file.getName() + ".tmp").exists());
+    }
+
+    @Test
+    public void testResume() throws Exception {
+        assertTrue(checkpointDir.mkdirs());
+        writeCheckpoint(0, first, first, true);
+        UUID progress = UUID.fromString("60000000-0000-0000-0000-000000000000");
+        writeCheckpoint(1, second, progress, false);
+
+        assertEquals(10, new RecordingIndexer(null).index(null, true));
+
+        assertEquals("only the unfinished partition is indexed again", 1, indexed.size());
+        assertEquals(1, indexed.get(0).getIndex());
+        assertEquals(progress, indexed.get(0).getLast());
+        assertEquals(second, indexed.get(0).getUpTo());
+        verify(itemService, never()).findUnfilteredPartitionBoundaries(any(Context.class), anyInt());
+    }
+
+    @Test
+    public void testResumeWithoutCheckpoints() throws Exception {
+        assertEquals(30, new RecordingIndexer(null).index(null, true));
+        assertEquals(3, indexed.size());
+    }
+
+    @Test
+    public void testFailureKeepsCheckpoints() throws Exception {
+        try {
+            new RecordingIndexer(1).index(null, false);
+            fail("a failed partition fails the run");
+        } catch (IOException e) {
+            // expected
+        }
+        assertEquals("the checkpoints are kept to resume", 3, checkpointFiles().length);
+    }
+
+    private void writeCheckpoint(int index, UUID upTo, UUID last, boolean complete) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("index", String.valueOf(index));
+        properties.setProperty("upTo", upTo.toString());
+        properties.setProperty("last", last.toString());
+        properties.setProperty("complete", String.valueOf(complete));
+        try (OutputStream out = new FileOutputStream(new File(checkpointDir, "partition-" + index + ".checkpoint"))) {
+            properties.store(out, null);
+        }
+    }
+
+    private PartitionedIndexer.Checkpoint[] sortedByIndex() {
+        PartitionedIndexer.Checkpoint[] partitions = new PartitionedIndexer.Checkpoint[indexed.size()];
+        for (PartitionedIndexer.Checkpoint partition : indexed) {
+            partitions[partition.getIndex()] = partition;
+        }
+        return partitions;
+    }
+
+    private File[] checkpointFiles() {
+        return checkpointDir.listFiles((dir, name) -> name.endsWith(".checkpoint"));
+    }
+
+    /**
+     * Indexes ten items per partition without a database, and fails the given partition
+     */
+    private class RecordingIndexer extends PartitionedIndexer {
+        private final Integer failing;
+
+        RecordingIndexer(Integer failing) {
+            super(indexer, itemService, 3, 5, checkpointDir);
+            this.failing = failing;
+        }
+
+        @Override
+        protected long indexPartition(Checkpoint partition) throws Exception {
+            indexed.add(partition);
+            if (failing != null && failing == partition.getIndex()) {
+                throw new IOException("Solr is down");
+            }
+            return 10;
+        }
+    }
+}
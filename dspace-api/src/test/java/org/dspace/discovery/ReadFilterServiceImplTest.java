@@ -0,0 +1,125 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import org.dspace.authorize.service.AuthorizeService;
+import org.dspace.core.Context;
+import org.dspace.eperson.EPerson;
+import org.dspace.eperson.Group;
+import org.dspace.eperson.service.GroupService;
+import org.dspace.services.ConfigurationService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReadFilterServiceImplTest {
+
+    private static final UUID ANONYMOUS_ID = UUID.randomUUID();
+    private static final UUID USER_ID = UUID.randomUUID();
+
+    @InjectMocks
+    private ReadFilterServiceImpl readFilterService;
+
+    @Mock
+    private ConfigurationService configurationService;
+
+    @Mock
+    private AuthorizeService authorizeService;
+
+    @Mock
+    private GroupService groupService;
+
+    @Mock
+    private SearchService searchService;
+
+    @Mock
+    private Context context;
+
+    @Mock
+    private EPerson user;
+
+    @Mock
+    private Group anonymous;
+
+    private Set<Group> groups = new LinkedHashSet<>();
+
+    @Before
+    public void setUp() throws Exception {
+        when(configurationService.getLongProperty("discovery.search.read.cache.size", 10000)).thenReturn(100L);
+        when(configurationService.getLongProperty("discovery.search.read.cache.ttl", 600)).thenReturn(600L);
+        when(configurationService.getIntProperty("discovery.search.read.terms.threshold", 100)).thenReturn(3);
+        readFilterService.afterPropertiesSet();
+
+        when(anonymous.getID()).thenReturn(ANONYMOUS_ID);
+        when(user.getID()).thenReturn(USER_ID);
+        when(groupService.findByName(context, Group.ANONYMOUS)).thenReturn(anonymous);
+        when(context.getCurrentUser()).thenReturn(user);
+        when(context.getSpecialGroups()).thenReturn(Collections.<Group>emptyList());
+        when(groupService.allMemberGroupsSet(context, user)).thenReturn(groups);
+    }
+
+    private void addGroup() {
+        Group group = mock(Group.class);
+        when(group.getID()).thenReturn(UUID.randomUUID());
+        groups.add(group);
+    }
+
+    @Test
+    public void testBooleanFilter() throws Exception {
+        assertEquals("read:(g" + ANONYMOUS_ID + " OR e" + USER_ID + ")", readFilterService.getReadFilter(context));
+    }
+
+    @Test
+    public void testTermsFilterForManyGroups() throws Exception {
+        addGroup();
+        addGroup();
+
+        String filter = readFilterService.getReadFilter(context);
+
+        assertTrue("Many groups should give a terms query: " + filter,
+                   filter.startsWith("{!terms f=read}g" + ANONYMOUS_ID + ",e" + USER_ID + ",g"));
+    }
+
+    @Test
+    public void testAdministratorsHaveNoFilter() throws Exception {
+        when(authorizeService.isAdmin(context)).thenReturn(true);
+
+        assertNull(readFilterService.getReadFilter(context));
+    }
+
+    @Test
+    public void testFilterCachedUntilInvalidated() throws Exception {
+        String filter = readFilterService.getReadFilter(context);
+        assertEquals(filter, readFilterService.getReadFilter(context));
+        verify(groupService, times(1)).allMemberGroupsSet(context, user);
+
+        addGroup();
+        readFilterService.invalidateAll();
+        String changed = readFilterService.getReadFilter(context);
+
+        verify(groupService, times(2)).allMemberGroupsSet(context, user);
+        assertTrue("The new group should be in the filter", changed.length() > filter.length());
+    }
+}
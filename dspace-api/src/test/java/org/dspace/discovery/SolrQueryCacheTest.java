@@ -0,0 +1,106 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.dspace.services.ConfigurationService;
+import org.dspace.util.SolrCommitPolicy;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SolrQueryCacheTest {
+
+    private SolrQueryCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new SolrQueryCache(10, 60);
+    }
+
+    @Test
+    public void testFilterQueryOrderIgnored() {
+        SolrQuery first = new SolrQuery("*:*");
+        first.addFilterQuery("location:l1", "read:(g0 OR e1)");
+        SolrQuery second = new SolrQuery("*:*");
+        second.addFilterQuery("read:(g0 OR e1)", "location:l1");
+
+        assertEquals(cache.key(first), cache.key(second));
+    }
+
+    @Test
+    public void testFacetFieldOrderKept() {
+        SolrQuery first = new SolrQuery("*:*");
+        first.addFacetField("author_filter", "subject_filter");
+        SolrQuery second = new SolrQuery("*:*");
+        second.addFacetField("subject_filter", "author_filter");
+
+        assertNotEquals(cache.key(first), cache.key(second));
+    }
+
+    @Test
+    public void testGroupsPartOfKey() {
+        SolrQuery anonymous = new SolrQuery("*:*");
+        anonymous.addFilterQuery("read:(g0)");
+        SolrQuery admin = new SolrQuery("*:*");
+        admin.addFilterQuery("read:(g0 OR g1)");
+
+        assertNotEquals(cache.key(anonymous), cache.key(admin));
+    }
+
+    @Test
+    public void testNextGenerationDropsEntries() {
+        SolrQuery query = new SolrQuery("*:*");
+        QueryResponse response = new QueryResponse();
+        String key = cache.key(query);
+        cache.put(key, response);
+        assertSame(response, cache.get(key));
+
+        cache.nextGeneration();
+        assertNull(cache.get(key));
+        assertNull(cache.get(cache.key(query)));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testResponseOfEarlierGenerationNotStored() {
+        SolrQuery query = new SolrQuery("*:*");
+        String key = cache.key(query);
+        cache.nextGeneration();
+        cache.put(key, new QueryResponse());
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testNotCreatedWhenSolrCommits() {
+        ConfigurationService configurationService = mock(ConfigurationService.class);
+        when(configurationService.getBooleanProperty("discovery.search.cache.enabled", false)).thenReturn(true);
+        when(configurationService.getLongProperty(anyString(), anyLong())).thenReturn(10L);
+        SolrServiceImpl searchService = mock(SolrServiceImpl.class);
+        when(searchService.createQueryCache(configurationService)).thenCallRealMethod();
+
+        when(searchService.getCommitPolicy()).thenReturn(
+            new SolrCommitPolicy("discovery", SolrCommitPolicy.Mode.SOFT, 1000));
+        assertNotNull(searchService.createQueryCache(configurationService));
+
+        when(searchService.getCommitPolicy()).thenReturn(
+            new SolrCommitPolicy("discovery", SolrCommitPolicy.Mode.WITHIN, 1000));
+        assertNull(searchService.createQueryCache(configurationService));
+    }
+}
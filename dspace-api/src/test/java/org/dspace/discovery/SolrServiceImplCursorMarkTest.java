@@ -0,0 +1,68 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.mock;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.common.params.CursorMarkParams;
+import org.apache.solr.common.util.Base64;
+import org.apache.solr.common.util.JavaBinCodec;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Cursor marks are checked before the query is sent to Solr.
+ */
+public class SolrServiceImplCursorMarkTest {
+
+    private SolrServiceImpl searchService;
+
+    @Before
+    public void setUp() throws Exception {
+        searchService = mock(SolrServiceImpl.class);
+        doCallRealMethod().when(searchService).checkCursorMark(any(SolrQuery.class));
+    }
+
+    @Test
+    public void testCursorMarkIssuedBySolr() throws Exception {
+        searchService.checkCursorMark(query(CursorMarkParams.CURSOR_MARK_START));
+        searchService.checkCursorMark(query(cursorMark(Arrays.<Object>asList(1.5f, "item-1"))));
+    }
+
+    @Test(expected = InvalidCursorMarkException.class)
+    public void testCursorMarkNotEncoded() throws Exception {
+        searchService.checkCursorMark(query("not a cursor!"));
+    }
+
+    @Test(expected = InvalidCursorMarkException.class)
+    public void testCursorMarkOfAnotherSort() throws Exception {
+        searchService.checkCursorMark(query(cursorMark(Arrays.<Object>asList("item-1"))));
+    }
+
+    private static SolrQuery query(String cursorMark) {
+        SolrQuery query = new SolrQuery("*:*");
+        query.addSortField("score", SolrQuery.ORDER.desc);
+        query.addSortField("search.uniqueid", SolrQuery.ORDER.asc);
+        query.set(CursorMarkParams.CURSOR_MARK_PARAM, cursorMark);
+        return query;
+    }
+
+    private static String cursorMark(List<Object> sortValues) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new JavaBinCodec().marshal(sortValues, out);
+        byte[] bytes = out.toByteArray();
+        return Base64.byteArrayToBase64(bytes, 0, bytes.length);
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.params.SolrParams;
+import org.dspace.content.Collection;
+import org.dspace.content.DSpaceObject;
+import org.dspace.content.Item;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Checks of the staleness of pages of objects against the index, with a Solr server answering
+ * the documents of the ids it is queried for.
+ */
+public class SolrServiceImplStalenessTest {
+
+    private static final Date INDEXED = new Date(1000000L);
+
+    private SolrServiceImpl indexer;
+    private SolrServer solr;
+
+    /**
+     * The last indexed time stamp of the documents in the index, by id
+     */
+    private final Map<String, Date> index = new LinkedHashMap<>();
+
+    /**
+     * The filter queries received by the Solr server
+     */
+    private final List<String> filters = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        solr = mock(SolrServer.class);
+        when(solr.query(any(SolrParams.class), eq(SolrRequest.METHOD.POST))).thenAnswer(new Answer<QueryResponse>() {
+            @Override
+            public QueryResponse answer(InvocationOnMock invocation) {
+                SolrQuery query = (SolrQuery) invocation.getArguments()[0];
+                String filter = query.getFilterQueries()[0];
+                filters.add(filter);
+                SolrDocumentList results = new SolrDocumentList();
+                for (String id : filter.substring(filter.indexOf('}') + 1).split(",")) {
+                    if (index.containsKey(id)) {
+                        SolrDocument doc = new SolrDocument();
+                        doc.setField(SolrServiceImpl.RESOURCE_ID_FIELD, id);
+                        doc.setField(SolrServiceImpl.LAST_INDEXED_FIELD, index.get(id));
+                        results.add(doc);
+                    }
+                }
+                QueryResponse response = mock(QueryResponse.class);
+                when(response.getResults()).thenReturn(results);
+                return response;
+            }
+        });
+
+        indexer = mock(SolrServiceImpl.class);
+        when(indexer.getSolr()).thenReturn(solr);
+        when(indexer.requiresIndexing(anyInt(), anyMapOf(UUID.class, Date.class))).thenCallRealMethod();
+    }
+
+    @Test
+    public void testMissingAndOutdatedDocumentsAreStale() throws Exception {
+        UUID upToDate = UUID.randomUUID();
+        UUID outdated = UUID.randomUUID();
+        UUID missing = UUID.randomUUID();
+        index.put(upToDate.toString(), INDEXED);
+        index.put(outdated.toString(), INDEXED);
+
+        Map<UUID, Date> lastModified = new LinkedHashMap<>();
+        lastModified.put(upToDate, new Date(INDEXED.getTime() - 1));
+        lastModified.put(outdated, new Date(INDEXED.getTime() + 1));
+        lastModified.put(missing, new Date(INDEXED.getTime() - 1));
+
+        assertEquals(new HashSet<>(Arrays.asList(outdated, missing)),
+                     indexer.requiresIndexing(Constants.ITEM, lastModified));
+        assertEquals(1, filters.size());
+        assertTrue("the ids are matched with the terms parser, not one clause per id",
+                   filters.get(0).startsWith("{!terms f=" + SolrServiceImpl.RESOURCE_ID_FIELD + "}"));
+        assertFalse(filters.get(0).contains(" OR "));
+    }
+
+    @Test
+    public void testLargePagesAreQueriedInChunks() throws Exception {
+        Map<UUID, Date> lastModified = new LinkedHashMap<>();
+        for (int i = 0; i < SolrServiceImpl.STALENESS_QUERY_LIMIT * 2 + 1; i++) {
+            UUID id = UUID.randomUUID();
+            lastModified.put(id, INDEXED);
+            if (i % 2 == 0) {
+                index.put(id.toString(), INDEXED);
+            }
+        }
+
+        Set<UUID> stale = indexer.requiresIndexing(Constants.ITEM, lastModified);
+        assertEquals(3, filters.size());
+        // every other object is missing from the index
+        assertEquals(SolrServiceImpl.STALENESS_QUERY_LIMIT, stale.size());
+    }
+
+    @Test
+    public void testObjectsWithoutModificationDateAreAlwaysStale() throws Exception {
+        UUID indexed = UUID.randomUUID();
+        index.put(indexed.toString(), INDEXED);
+
+        assertEquals(Collections.singleton(indexed),
+                     indexer.requiresIndexing(Constants.COLLECTION, Collections.singletonMap(indexed, (Date) null)));
+        verify(solr, never()).query(any(SolrParams.class), any(SolrRequest.METHOD.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testIndexStaleSendsOnlyStaleObjects() throws Exception {
+        Item upToDate = item(new Date(INDEXED.getTime() - 1));
+        Item outdated = item(new Date(INDEXED.getTime() + 1));
+        index.put(upToDate.getID().toString(), INDEXED);
+        index.put(outdated.getID().toString(), INDEXED);
+        Collection collection = mock(Collection.class);
+        when(collection.getID()).thenReturn(UUID.randomUUID());
+        Context context = mock(Context.class);
+        doCallRealMethod().when(indexer).indexStale(any(Context.class), anyInt(), anyListOf(DSpaceObject.class));
+
+        indexer.indexStale(context, Constants.ITEM, Arrays.asList(upToDate, outdated));
+        indexer.indexStale(context, Constants.COLLECTION, Collections.singletonList(collection));
+
+        ArgumentCaptor<List> sent = ArgumentCaptor.forClass(List.class);
+        verify(indexer, times(2)).indexContent(eq(context), sent.capture(), eq(true));
+        assertEquals(Collections.singletonList(outdated), sent.getAllValues().get(0));
+        assertEquals(Collections.singletonList(collection), sent.getAllValues().get(1));
+        verify(context).uncacheEntity(upToDate);
+        verify(context).uncacheEntity(outdated);
+        verify(context).uncacheEntity(collection);
+    }
+
+    private static Item item(Date lastModified) {
+        Item item = mock(Item.class);
+        when(item.getID()).thenReturn(UUID.randomUUID());
+        when(item.getLastModified()).thenReturn(lastModified);
+        return item;
+    }
+}
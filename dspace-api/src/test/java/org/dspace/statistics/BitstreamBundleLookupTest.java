@@ -0,0 +1,96 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.dspace.content.Bitstream;
+import org.dspace.content.service.BitstreamService;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BitstreamBundleLookupTest {
+
+    private static final UUID ORIGINAL = UUID.randomUUID();
+    private static final UUID LOGO = UUID.randomUUID();
+    private static final UUID DELETED = UUID.randomUUID();
+    private static final UUID LEGACY = UUID.randomUUID();
+
+    @Mock
+    private BitstreamService bitstreamService;
+
+    @Mock
+    private Context context;
+
+    @Mock
+    private Bitstream legacyBitstream;
+
+    @Test
+    public void testGetBundleNames() throws Exception {
+        Map<UUID, String> bundleNames = new HashMap<>();
+        bundleNames.put(ORIGINAL, "ORIGINAL");
+        bundleNames.put(LEGACY, "THUMBNAIL");
+        when(bitstreamService.getBundleNames(eq(context), anyListOf(UUID.class))).thenReturn(bundleNames);
+        when(bitstreamService.getLogoTypes(eq(context), anyListOf(UUID.class)))
+            .thenReturn(Collections.singletonMap(LOGO, Constants.COLLECTION));
+        when(legacyBitstream.getID()).thenReturn(LEGACY);
+        when(legacyBitstream.getLegacyId()).thenReturn(12);
+        when(bitstreamService.findByLegacyIds(context, Arrays.asList(12, 13)))
+            .thenReturn(Collections.singletonList(legacyBitstream));
+        BitstreamBundleLookup lookup = new BitstreamBundleLookup(bitstreamService, 100);
+
+        Map<String, String> names = lookup.getBundleNames(context, Arrays.asList(
+            ORIGINAL.toString(), LOGO.toString(), DELETED.toString(), "12", "13", "not a bitstream", "12"));
+
+        assertEquals("ORIGINAL", names.get(ORIGINAL.toString()));
+        assertEquals(BitstreamBundleLookup.LOGO_COLLECTION, names.get(LOGO.toString()));
+        assertEquals("THUMBNAIL", names.get("12"));
+        assertFalse(names.containsKey(DELETED.toString()));
+        assertEquals(3, names.size());
+        verify(bitstreamService, times(1)).getBundleNames(eq(context), anyListOf(UUID.class));
+        verify(bitstreamService, times(1)).findByLegacyIds(eq(context), anyListOf(Integer.class));
+        verify(bitstreamService, never()).findByLegacyId(any(Context.class), anyInt());
+    }
+
+    @Test
+    public void testCachesNames() throws Exception {
+        when(bitstreamService.getBundleNames(eq(context), anyListOf(UUID.class)))
+            .thenReturn(Collections.singletonMap(ORIGINAL, "ORIGINAL"));
+        when(bitstreamService.getLogoTypes(eq(context), anyListOf(UUID.class)))
+            .thenReturn(Collections.<UUID, Integer>emptyMap());
+        BitstreamBundleLookup lookup = new BitstreamBundleLookup(bitstreamService, 100);
+
+        lookup.getBundleNames(context, Arrays.asList(ORIGINAL.toString(), DELETED.toString()));
+        Map<String, String> names = lookup.getBundleNames(context, Arrays.asList(ORIGINAL.toString(),
+                                                                                 DELETED.toString()));
+
+        assertEquals(Collections.singletonMap(ORIGINAL.toString(), "ORIGINAL"), names);
+        verify(bitstreamService, times(1)).getBundleNames(any(Context.class), anyListOf(UUID.class));
+        verify(bitstreamService, times(1)).getLogoTypes(any(Context.class), anyListOf(UUID.class));
+    }
+}
@@ -7,22 +7,13 @@
  */
 package org.dspace.statistics;
 
-import java.io.File;
-import java.io.IOException;
-
 import com.maxmind.geoip.Location;
-import com.maxmind.geoip.LookupService;
-import org.dspace.AbstractDSpaceTest;
+import org.dspace.statistics.util.LocationResolver;
 
 /**
  * Mock service to mock the location Lookup Service used by the SOLR statistics logger
  */
-public class MockLookupService extends LookupService {
-
-    public MockLookupService() throws IOException {
-        //Just give our super class a file so that he's happy. We'll mock all responses anyway.
-        super(AbstractDSpaceTest.getDspaceDir() + File.separator + "config" + File.separator + "dspace.cfg");
-    }
+public class MockLookupService implements LocationResolver {
 
     @Override
     public Location getLocation(String str) {
@@ -0,0 +1,122 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.solr.common.SolrInputDocument;
+import org.dspace.statistics.util.CachingHostnameResolver;
+import org.dspace.statistics.util.HostnameResolver;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Usage events waiting for the host name of their address, resolved in the background.
+ */
+public class SolrLoggerServiceImplTest {
+
+    private SolrLoggerServiceImpl solrLogger;
+
+    @Before
+    public void setUp() throws Exception {
+        solrLogger = mock(SolrLoggerServiceImpl.class);
+        doCallRealMethod().when(solrLogger).write(any(SolrInputDocument.class));
+        solrLogger.hostnameResolver = new CachingHostnameResolver(new HostnameResolver() {
+            @Override
+            public String reverseDns(String ip) throws IOException {
+                return "Crawler.Example.org";
+            }
+        }, 100, 60000, 60000, 1, 1000);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        solrLogger.hostnameResolver.shutdown(1000);
+    }
+
+    @Test
+    public void testEventIsSentInBackgroundWithoutWriter() throws Exception {
+        final CountDownLatch dns = new CountDownLatch(1);
+        solrLogger.hostnameResolver.shutdown(1000);
+        solrLogger.hostnameResolver = new CachingHostnameResolver(new HostnameResolver() {
+            @Override
+            public String reverseDns(String ip) throws IOException {
+                try {
+                    dns.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                return "Crawler.Example.org";
+            }
+        }, 100, 60000, 60000, 1, 5000);
+        doCallRealMethod().when(solrLogger).createSender();
+        solrLogger.sender = solrLogger.createSender();
+        final CountDownLatch sent = new CountDownLatch(1);
+        final AtomicReference<Thread> sender = new AtomicReference<>();
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                sender.set(Thread.currentThread());
+                sent.countDown();
+                return null;
+            }
+        }).when(solrLogger).send(any(SolrInputDocument.class));
+
+        SolrInputDocument doc = event();
+        solrLogger.write(doc);
+        assertEquals("the caller does not wait for the DNS", 1, sent.getCount());
+
+        dns.countDown();
+        assertTrue(sent.await(5, TimeUnit.SECONDS));
+        assertEquals("crawler.example.org", doc.getFieldValue("dns"));
+        assertTrue("Solr is called by the sender", sender.get().getName().startsWith("solr-statistics-sender"));
+        solrLogger.sender.shutdownNow();
+    }
+
+    @Test
+    public void testEventIsHandedToWriter() throws Exception {
+        final CountDownLatch offered = new CountDownLatch(1);
+        solrLogger.writer = mock(SolrStatisticsWriter.class);
+        when(solrLogger.writer.offer(any(SolrInputDocument.class))).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) {
+                offered.countDown();
+                return true;
+            }
+        });
+
+        SolrInputDocument doc = event();
+        solrLogger.write(doc);
+
+        assertTrue(offered.await(5, TimeUnit.SECONDS));
+        assertEquals("crawler.example.org", doc.getFieldValue("dns"));
+        verify(solrLogger, never()).send(any(SolrInputDocument.class));
+    }
+
+    private static SolrInputDocument event() {
+        SolrInputDocument doc = new SolrInputDocument();
+        doc.addField("ip", "10.0.0.1");
+        return doc;
+    }
+}
@@ -0,0 +1,184 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.util.NamedList;
+import org.dspace.util.SolrCommitPolicy;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SolrStatisticsWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock
+    private SolrServer solr;
+
+    private final SolrCommitPolicy policy = new SolrCommitPolicy("test", SolrCommitPolicy.Mode.IMMEDIATE, 1000);
+
+    private SolrInputDocument event(String id) {
+        SolrInputDocument doc = new SolrInputDocument();
+        doc.addField("id", id);
+        doc.addField("userAgent", "line one\nline two");
+        return doc;
+    }
+
+    @Test
+    public void testEventsSentInBatches() throws Exception {
+        SolrStatisticsWriter writer = new SolrStatisticsWriter(solr, policy, 100, 10, null);
+        writer.start();
+        for (int i = 0; i < 25; i++) {
+            assertTrue(writer.offer(event("e" + i)));
+        }
+        writer.shutdown(10000);
+
+        verify(solr, atLeastOnce()).add(anyCollectionOf(SolrInputDocument.class), anyInt());
+        assertEquals(25, writer.getWrittenCount());
+        assertEquals(0, writer.getQueueDepth());
+        assertEquals(0, writer.getDroppedCount());
+    }
+
+    @Test
+    public void testEventsDroppedWhenNotRunning() throws Exception {
+        // Not started: nothing takes events off the queue
+        SolrStatisticsWriter writer = new SolrStatisticsWriter(solr, policy, 2, 10, null);
+
+        assertFalse(writer.offer(event("e1")));
+        assertEquals(1, writer.getDroppedCount());
+    }
+
+    @Test
+    public void testFailedBatchSpilledToJournal() throws Exception {
+        when(solr.add(anyCollectionOf(SolrInputDocument.class), anyInt()))
+            .thenThrow(new SolrServerException("unavailable"));
+        File journal = new File(folder.getRoot(), "statistics.journal");
+        SolrStatisticsWriter writer = new SolrStatisticsWriter(solr, policy, 100, 10, journal);
+        writer.start();
+        writer.offer(event("e1"));
+        writer.offer(event("e2"));
+        writer.shutdown(10000);
+
+        assertEquals(0, writer.getDroppedCount());
+        assertEquals(2, writer.getJournalDepth());
+        List<String> lines = Files.readAllLines(journal.toPath(), StandardCharsets.UTF_8);
+        assertEquals("Each event should be on a single line", 2, lines.size());
+        assertTrue(lines.get(0).startsWith("<doc"));
+    }
+
+    @Test
+    public void testJournalReplayed() throws Exception {
+        File journal = new File(folder.getRoot(), "statistics.journal");
+        Files.write(journal.toPath(), (SolrStatisticsWriter.toLine(event("e1")) + "\n").getBytes(
+            StandardCharsets.UTF_8));
+        SolrStatisticsWriter writer = new SolrStatisticsWriter(solr, policy, 100, 10, journal);
+        assertEquals(1, writer.getJournalDepth());
+
+        writer.replay();
+
+        verify(solr).request(any(SolrRequest.class));
+        assertEquals(0, writer.getJournalDepth());
+        assertEquals(1, writer.getWrittenCount());
+        assertFalse(journal.exists());
+    }
+
+    @Test
+    public void testJournalKeptWhenReplayFails() throws Exception {
+        when(solr.request(any(SolrRequest.class))).thenThrow(new IOException("unavailable"));
+        File journal = new File(folder.getRoot(), "statistics.journal");
+        Files.write(journal.toPath(), (SolrStatisticsWriter.toLine(event("e1")) + "\n").getBytes(
+            StandardCharsets.UTF_8));
+        SolrStatisticsWriter writer = new SolrStatisticsWriter(solr, policy, 100, 10, journal);
+
+        writer.replay();
+
+        assertEquals(1, writer.getJournalDepth());
+        assertTrue(writer.getReplayFile().exists());
+        assertEquals(0, writer.getWrittenCount());
+    }
+
+    @Test
+    public void testEventsSpilledWhileJournalIsSent() throws Exception {
+        File journal = new File(folder.getRoot(), "statistics.journal");
+        Files.write(journal.toPath(), (SolrStatisticsWriter.toLine(event("e1")) + "\n").getBytes(
+            StandardCharsets.UTF_8));
+        final SolrStatisticsWriter writer = new SolrStatisticsWriter(solr, policy, 100, 10, journal);
+        final List<Boolean> spilled = new ArrayList<>();
+        when(solr.request(any(SolrRequest.class))).thenAnswer(new Answer<NamedList<Object>>() {
+            @Override
+            public NamedList<Object> answer(InvocationOnMock invocation) throws Exception {
+                if (spilled.isEmpty()) {
+                    // Solr is slow: the event is spilled from another thread meanwhile, then sent at the next replay
+                    Thread spiller = new Thread(() -> spilled.add(writer.spill(Arrays.asList(event("e2")))));
+                    spiller.start();
+                    spiller.join(5000);
+                }
+                return new NamedList<>();
+            }
+        });
+
+        writer.replay();
+        assertEquals("spilling does not wait for the replay", Arrays.asList(true), spilled);
+        assertEquals(1, writer.getWrittenCount());
+        assertEquals(1, writer.getJournalDepth());
+        assertTrue(journal.exists());
+        assertFalse(writer.getReplayFile().exists());
+
+        writer.replay();
+        assertEquals(2, writer.getWrittenCount());
+        assertEquals(0, writer.getJournalDepth());
+        assertFalse(journal.exists());
+    }
+
+    @Test
+    public void testInterruptedReplayResumed() throws Exception {
+        File journal = new File(folder.getRoot(), "statistics.journal");
+        SolrStatisticsWriter writer = new SolrStatisticsWriter(solr, policy, 100, 10, journal);
+        Files.write(writer.getReplayFile().toPath(), (SolrStatisticsWriter.toLine(event("e1")) + "\n").getBytes(
+            StandardCharsets.UTF_8));
+        Files.write(journal.toPath(), (SolrStatisticsWriter.toLine(event("e2")) + "\n").getBytes(
+            StandardCharsets.UTF_8));
+        writer = new SolrStatisticsWriter(solr, policy, 100, 10, journal);
+        assertEquals(2, writer.getJournalDepth());
+
+        writer.replay();
+        assertEquals("the journal moved aside is sent first", 1, writer.getWrittenCount());
+        writer.replay();
+        assertEquals(2, writer.getWrittenCount());
+        assertEquals(0, writer.getJournalDepth());
+    }
+}
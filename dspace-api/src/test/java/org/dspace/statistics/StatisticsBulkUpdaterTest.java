@@ -0,0 +1,249 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.CursorMarkParams;
+import org.apache.solr.common.params.SolrParams;
+import org.dspace.util.SolrCommitPolicy;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+@RunWith(MockitoJUnitRunner.class)
+public class StatisticsBulkUpdaterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock
+    private SolrServer solr;
+
+    private SolrCommitPolicy commitPolicy;
+
+    private Map<String, Map<String, Object>> changes;
+
+    @Before
+    public void setUp() {
+        commitPolicy = new SolrCommitPolicy("test", SolrCommitPolicy.Mode.IMMEDIATE, 1000);
+        changes = new LinkedHashMap<>();
+        changes.put("isBot", Collections.<String, Object>singletonMap("set", true));
+    }
+
+    @Test
+    public void testUpdatesAllPages() throws Exception {
+        QueryResponse first = page("A", "1", "2");
+        QueryResponse second = page("B", "3");
+        QueryResponse last = page("B");
+        when(solr.query(any(SolrParams.class), eq(SolrRequest.METHOD.POST))).thenReturn(first, second, last);
+
+        StatisticsBulkUpdater updater = new StatisticsBulkUpdater(solr, commitPolicy, 2, folder.getRoot());
+        assertEquals(3, updater.update("ip:10.0.0.*", changes));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<SolrInputDocument>> batches = ArgumentCaptor.forClass((Class) Collection.class);
+        verify(solr, times(2)).add(batches.capture(), eq(-1));
+        SolrInputDocument update = batches.getAllValues().get(0).iterator().next();
+        assertEquals("1", update.getFieldValue("uid"));
+        assertEquals(Collections.singletonMap("set", true), update.getFieldValue("isBot"));
+        verify(solr).commit(true, true, false);
+        assertEquals("the checkpoint is removed once done", 0, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void testResumesFromCheckpoint() throws Exception {
+        final QueryResponse first = page("A", "1", "2");
+        final QueryResponse second = page("B", "3");
+        final QueryResponse last = page("B");
+        // the query is reused with the next cursor, so record the cursor of each request
+        final List<String> cursors = new ArrayList<>();
+        when(solr.query(any(SolrParams.class), eq(SolrRequest.METHOD.POST))).thenAnswer(new Answer<QueryResponse>() {
+            @Override
+            public QueryResponse answer(InvocationOnMock invocation) throws Throwable {
+                cursors.add(((SolrParams) invocation.getArguments()[0]).get(CursorMarkParams.CURSOR_MARK_PARAM));
+                switch (cursors.size()) {
+                    case 1:
+                        return first;
+                    case 2:
+                        throw new SolrServerException("down");
+                    case 3:
+                        return second;
+                    default:
+                        return last;
+                }
+            }
+        });
+        StatisticsBulkUpdater updater = new StatisticsBulkUpdater(solr, commitPolicy, 2, folder.getRoot());
+        try {
+            updater.update("ip:10.0.0.*", changes);
+            fail("the failure should be reported");
+        } catch (SolrServerException e) {
+            // expected
+        }
+        File checkpoint = checkpoint();
+
+        assertEquals("the documents of the interrupted run are counted", 3, updater.update("ip:10.0.0.*", changes));
+
+        assertEquals(Arrays.asList("*", "A", "A", "B"), cursors);
+        assertFalse(checkpoint.exists());
+    }
+
+    @Test
+    public void testCheckpointKeptOnFailure() throws Exception {
+        QueryResponse first = page("A", "1", "2");
+        when(solr.query(any(SolrParams.class), eq(SolrRequest.METHOD.POST)))
+            .thenReturn(first)
+            .thenThrow(new SolrServerException("down"));
+        StatisticsBulkUpdater updater = new StatisticsBulkUpdater(solr, commitPolicy, 2, folder.getRoot());
+
+        try {
+            updater.update("ip:10.0.0.*", changes);
+            fail("the failure should be reported");
+        } catch (SolrServerException e) {
+            // expected
+        }
+
+        File checkpoint = checkpoint();
+        List<String> lines = Files.readAllLines(checkpoint.toPath(), StandardCharsets.UTF_8);
+        assertEquals(Arrays.asList("A", "2"), lines);
+    }
+
+    @Test
+    public void testWithoutCheckpoints() throws Exception {
+        QueryResponse last = page("*");
+        when(solr.query(any(SolrParams.class), eq(SolrRequest.METHOD.POST))).thenReturn(last);
+
+        assertEquals(0, new StatisticsBulkUpdater(solr, commitPolicy, 2, null).update("*:*", changes));
+        verify(solr, times(0)).add(anyCollectionOf(SolrInputDocument.class), anyInt());
+    }
+
+    @Test
+    public void testCopy() throws Exception {
+        SolrDocumentList results = new SolrDocumentList();
+        SolrDocument doc = new SolrDocument();
+        doc.setField("uid", "1");
+        doc.setField("_version_", 12345L);
+        doc.addField("owningColl", 3);
+        doc.addField("owningColl", 4);
+        results.add(doc);
+        QueryResponse first = mock(QueryResponse.class);
+        when(first.getResults()).thenReturn(results);
+        when(first.getNextCursorMark()).thenReturn("A");
+        QueryResponse last = page("A");
+        when(solr.query(any(SolrParams.class), eq(SolrRequest.METHOD.POST))).thenReturn(first, last);
+        SolrServer target = mock(SolrServer.class);
+
+        StatisticsBulkUpdater updater = new StatisticsBulkUpdater(solr, commitPolicy, 2, folder.getRoot());
+        assertEquals(1, updater.copy("time:[2015-01-01T00:00:00Z TO 2016-01-01T00:00:00Z}", target, 1));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<SolrInputDocument>> batches = ArgumentCaptor.forClass((Class) Collection.class);
+        verify(target).add(batches.capture());
+        SolrInputDocument copy = batches.getValue().iterator().next();
+        assertEquals("1", copy.getFieldValue("uid"));
+        assertEquals(Arrays.<Object>asList(3, 4), new ArrayList<>(copy.getFieldValues("owningColl")));
+        assertFalse("the version belongs to the source core", copy.containsKey("_version_"));
+        verify(target).commit(true, true);
+        verify(solr, times(0)).add(anyCollectionOf(SolrInputDocument.class), anyInt());
+    }
+
+    @Test
+    public void testUpdateInParallel() throws Exception {
+        QueryResponse first = page("A", "1", "2");
+        QueryResponse second = page("B", "3", "4");
+        QueryResponse third = page("C", "5");
+        QueryResponse last = page("C");
+        when(solr.query(any(SolrParams.class), eq(SolrRequest.METHOD.POST))).thenReturn(first, second, third, last);
+        final List<String> seen = Collections.synchronizedList(new ArrayList<String>());
+        StatisticsBulkUpdater.BatchUpdate update = new StatisticsBulkUpdater.BatchUpdate() {
+            @Override
+            public void apply(List<SolrDocument> docs, List<SolrInputDocument> updates, List<String> deletes) {
+                for (SolrDocument doc : docs) {
+                    String uid = (String) doc.getFieldValue("uid");
+                    seen.add(uid);
+                    if ("3".equals(uid)) {
+                        deletes.add(uid);
+                    } else {
+                        SolrInputDocument doc1 = new SolrInputDocument();
+                        doc1.addField("uid", uid);
+                        doc1.addField("bundleName", Collections.singletonMap("set", "ORIGINAL"));
+                        updates.add(doc1);
+                    }
+                }
+            }
+        };
+
+        StatisticsBulkUpdater updater = new StatisticsBulkUpdater(solr, commitPolicy, 2, folder.getRoot());
+        updater.setThreads(2);
+        assertEquals(5, updater.update("type:0", "id", "bundleName", update));
+
+        assertEquals(5, seen.size());
+        verify(solr, times(3)).add(anyCollectionOf(SolrInputDocument.class), eq(-1));
+        verify(solr).deleteById(Collections.singletonList("3"), -1);
+        verify(solr).commit(true, true, false);
+        assertEquals("the checkpoint is removed once done", 0, folder.getRoot().list().length);
+    }
+
+    /**
+     * @return the only checkpoint file
+     */
+    private File checkpoint() {
+        File[] files = folder.getRoot().listFiles();
+        assertEquals(1, files.length);
+        return files[0];
+    }
+
+    private QueryResponse page(String nextCursor, String... uids) {
+        SolrDocumentList results = new SolrDocumentList();
+        for (String uid : uids) {
+            SolrDocument doc = new SolrDocument();
+            doc.setField("uid", uid);
+            results.add(doc);
+        }
+        QueryResponse response = mock(QueryResponse.class);
+        when(response.getResults()).thenReturn(results);
+        when(response.getNextCursorMark()).thenReturn(nextCursor);
+        return response;
+    }
+}
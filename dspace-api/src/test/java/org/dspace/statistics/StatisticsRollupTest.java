@@ -0,0 +1,180 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.response.PivotField;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.dspace.util.SolrCommitPolicy;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class StatisticsRollupTest {
+
+    @Mock
+    private SolrServer events;
+
+    @Mock
+    private SolrServer rollups;
+
+    private final SolrCommitPolicy commitPolicy =
+        new SolrCommitPolicy("test", SolrCommitPolicy.Mode.IMMEDIATE, 1000);
+
+    @Test
+    public void testCanAnswer() {
+        StatisticsRollup rollup = new StatisticsRollup(rollups, commitPolicy, 100);
+
+        assertTrue(rollup.canAnswer("type: 2 AND id: 5", null, null));
+        assertTrue(rollup.canAnswer("owningColl:3", "-(statistics_type:[* TO *] AND -statistics_type:view)",
+                                    "countryCode"));
+        assertTrue(rollup.canAnswer("*:*", "time:[NOW/MONTH-6MONTHS TO NOW/MONTH+1MONTH]", "id"));
+        assertTrue(rollup.canAnswer("id:5", "(time:[2018-01-01T00:00:00.000Z TO 2018-02-01T00:00:00.000Z])",
+                                    null));
+    }
+
+    @Test
+    public void testCannotAnswer() {
+        StatisticsRollup rollup = new StatisticsRollup(rollups, commitPolicy, 100);
+
+        assertFalse("not in the rollups", rollup.canAnswer("id:5 AND city:Paris", null, null));
+        assertFalse("not in the rollups", rollup.canAnswer("id:5", "-ip:10.0.0.1", null));
+        assertFalse("multi-valued facet", rollup.canAnswer("id:5", null, "owningComm"));
+        assertFalse("hours", rollup.canAnswer("id:5", "time:[NOW-1HOUR TO NOW]", null));
+        assertFalse("not midnight", rollup.canAnswer("id:5", "time:[2018-01-01T12:00:00Z TO *]", null));
+        assertFalse("single time", rollup.canAnswer("id:5", "time:2018-01-01T00:00:00Z", null));
+        assertFalse("phrase", rollup.canAnswer("id:\"5\"", null, null));
+    }
+
+    @Test
+    public void testDayRanges() {
+        assertEquals("id:5 AND time:[NOW/DAY-7DAYS TO NOW/DAY}",
+                     StatisticsRollup.toDayRanges("id:5 AND time:{NOW/DAY-7DAYS TO NOW/DAY]"));
+        assertEquals("time:[* TO *]", StatisticsRollup.toDayRanges("time:[* TO *]"));
+    }
+
+    @Test
+    public void testRollupDay() throws Exception {
+        // type 2 / id 5: US twice (one without statistics_type), BE once; type 0 / id 5: US once
+        List<PivotField> counts = Arrays.asList(
+            pivot("type", 2, 3, pivot("id", "5", 3,
+                                      pivot("statistics_type", "view", 2,
+                                            pivot("countryCode", "US", 1), pivot("countryCode", "BE", 1)),
+                                      pivot("statistics_type", null, 1, pivot("countryCode", "US", 1)))),
+            pivot("type", 0, 1, pivot("id", "5", 1, pivot("statistics_type", "view", 1,
+                                                          pivot("countryCode", "US", 1)))));
+        List<PivotField> collections = Arrays.asList(
+            pivot("type", 2, 3, pivot("id", "5", 3, pivot("owningColl", "10", 3))),
+            pivot("type", 0, 1, pivot("id", "5", 1, pivot("owningColl", "10", 1), pivot("owningColl", "11", 1))));
+        QueryResponse response = pivots(4, counts, collections);
+        when(events.query(any(SolrParams.class), eq(SolrRequest.METHOD.POST))).thenReturn(response);
+        StatisticsRollup rollup = new StatisticsRollup(rollups, commitPolicy, 100);
+        Date day = StatisticsRollup.startOfDay(new Date(1514808000000L));
+
+        assertEquals(4, rollup.rollupDay(Collections.singletonList(events), Collections.<String>emptyList(), day));
+
+        ArgumentCaptor<SolrParams> query = ArgumentCaptor.forClass(SolrParams.class);
+        verify(events).query(query.capture(), eq(SolrRequest.METHOD.POST));
+        assertEquals("the events are counted by Solr", "0", query.getValue().get(CommonParams.ROWS));
+        verify(rollups).deleteByQuery(eq("time:[2018-01-01T00:00:00Z TO 2018-01-02T00:00:00Z}"), eq(-1));
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<SolrInputDocument>> added = ArgumentCaptor.forClass((Class) Collection.class);
+        verify(rollups).add(added.capture(), eq(-1));
+        Map<String, Object> rollupCounts = new HashMap<>();
+        SolrInputDocument marker = null;
+        for (SolrInputDocument doc : added.getValue()) {
+            if (StatisticsRollup.MARKER_TYPE.equals(doc.getFieldValue("statistics_type"))) {
+                marker = doc;
+            } else {
+                assertEquals(day, doc.getFieldValue("time"));
+                rollupCounts.put(doc.getFieldValue("countryCode") + "/" + doc.getFieldValue("type") + "/"
+                                     + doc.getFieldValue("statistics_type") + "/" + doc.getFieldValues("owningColl"),
+                                 doc.getFieldValue(StatisticsRollup.COUNT_FIELD));
+            }
+        }
+        assertEquals(1L, rollupCounts.get("US/2/view/[10]"));
+        assertEquals(1L, rollupCounts.get("BE/2/view/[10]"));
+        assertEquals(1L, rollupCounts.get("US/2/null/[10]"));
+        assertEquals(1L, rollupCounts.get("US/0/view/[10, 11]"));
+        assertEquals(4L, marker.getFieldValue(StatisticsRollup.COUNT_FIELD));
+    }
+
+    @Test(expected = SolrServerException.class)
+    public void testRollupDayFailsOnUncountedEvents() throws Exception {
+        List<PivotField> counts = Collections.singletonList(
+            pivot("type", 2, 1, pivot("id", "5", 1, pivot("statistics_type", "view", 1,
+                                                          pivot("countryCode", "US", 1)))));
+        QueryResponse response = pivots(2, counts, Collections.<PivotField>emptyList());
+        when(events.query(any(SolrParams.class), eq(SolrRequest.METHOD.POST))).thenReturn(response);
+        StatisticsRollup rollup = new StatisticsRollup(rollups, commitPolicy, 100);
+
+        rollup.rollupDay(Collections.singletonList(events), null, StatisticsRollup.startOfDay(new Date()));
+    }
+
+    @Test
+    public void testFacetQueriesAreNotAnsweredFromRollups() throws Exception {
+        SolrLoggerServiceImpl solrLogger = mock(SolrLoggerServiceImpl.class);
+        when(solrLogger.queryFacetField(anyString(), anyString(), anyString(), anyInt(), anyBoolean(),
+                                        anyListOf(String.class))).thenCallRealMethod();
+
+        solrLogger.queryFacetField("id:5", null, "countryCode", 10, false, Collections.singletonList("type:2"));
+
+        verify(solrLogger, never()).queryRollups(anyString(), anyString(), anyString(),
+                                                 anyMapOf(String.class, Long.class));
+    }
+
+    private static PivotField pivot(String field, Object value, int count, PivotField... pivot) {
+        return new PivotField(field, value, count, pivot.length == 0 ? null : Arrays.asList(pivot));
+    }
+
+    private static QueryResponse pivots(long numFound, List<PivotField> counts, List<PivotField> collections) {
+        NamedList<List<PivotField>> pivots = new NamedList<>();
+        pivots.add(StringUtils.join(StatisticsRollup.FACET_FIELDS, ","), counts);
+        pivots.add("type,id,owningColl", collections);
+        SolrDocumentList results = new SolrDocumentList();
+        results.setNumFound(numFound);
+        QueryResponse response = mock(QueryResponse.class);
+        when(response.getResults()).thenReturn(results);
+        when(response.getFacetPivot()).thenReturn(pivots);
+        return response;
+    }
+}
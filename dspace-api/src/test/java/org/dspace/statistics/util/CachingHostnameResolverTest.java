@@ -0,0 +1,170 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class CachingHostnameResolverTest {
+
+    private static final String NONE = "none";
+
+    private final StubResolver stub = new StubResolver();
+
+    private CachingHostnameResolver resolver;
+
+    @After
+    public void tearDown() throws Exception {
+        stub.release.countDown();
+        if (resolver != null) {
+            resolver.shutdown(1000);
+        }
+    }
+
+    @Test
+    public void testCachesNames() throws Exception {
+        stub.names.put("10.0.0.1", "crawler.example.org.");
+        resolver = new CachingHostnameResolver(stub, 100, 60000, 60000, 0, 100);
+
+        assertEquals("crawler.example.org.", resolver.reverseDns("10.0.0.1"));
+        assertEquals("crawler.example.org.", resolver.reverseDns("10.0.0.1"));
+        assertEquals(1, stub.lookups.get());
+    }
+
+    @Test
+    public void testCachesFailures() throws Exception {
+        resolver = new CachingHostnameResolver(stub, 100, 60000, 60000, 0, 100);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                resolver.reverseDns("10.0.0.2");
+                fail("the failure should be reported");
+            } catch (IOException e) {
+                // expected
+            }
+        }
+        assertEquals(1, stub.lookups.get());
+    }
+
+    @Test
+    public void testFailuresExpire() throws Exception {
+        resolver = new CachingHostnameResolver(stub, 100, 60000, 0, 0, 100);
+
+        assertEquals(NONE, resolve("10.0.0.2"));
+        assertEquals(NONE, resolve("10.0.0.2"));
+        assertEquals(2, stub.lookups.get());
+    }
+
+    @Test
+    public void testResolvesInBackground() throws Exception {
+        stub.blocking = true;
+        stub.names.put("10.0.0.1", "crawler.example.org.");
+        resolver = new CachingHostnameResolver(stub, 100, 60000, 60000, 2, 10000);
+
+        BlockingQueue<String> results = new ArrayBlockingQueue<>(2);
+        resolver.reverseDns("10.0.0.1", callback(results));
+        resolver.reverseDns("10.0.0.1", callback(results));
+        assertTrue("the caller does not wait for the lookup", results.isEmpty());
+        stub.release.countDown();
+
+        assertEquals("crawler.example.org.", results.poll(5, TimeUnit.SECONDS));
+        assertEquals("crawler.example.org.", results.poll(5, TimeUnit.SECONDS));
+        assertEquals("concurrent lookups are combined", 1, stub.lookups.get());
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        stub.blocking = true;
+        stub.names.put("10.0.0.1", "crawler.example.org.");
+        resolver = new CachingHostnameResolver(stub, 100, 60000, 60000, 1, 50);
+
+        BlockingQueue<String> results = new ArrayBlockingQueue<>(1);
+        resolver.reverseDns("10.0.0.1", callback(results));
+        assertEquals(NONE, results.poll(5, TimeUnit.SECONDS));
+
+        // the late answer is cached for the next hits
+        stub.release.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (resolver.size() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        resolver.reverseDns("10.0.0.1", callback(results));
+        assertEquals("crawler.example.org.", results.poll());
+    }
+
+    @Test
+    public void testShutdown() throws Exception {
+        stub.blocking = true;
+        resolver = new CachingHostnameResolver(stub, 100, 60000, 60000, 1, 10000);
+
+        BlockingQueue<String> results = new ArrayBlockingQueue<>(2);
+        resolver.reverseDns("10.0.0.1", callback(results));
+        resolver.shutdown(10);
+        assertEquals("waiting callbacks are called on shutdown", NONE, results.poll());
+
+        resolver.reverseDns("10.0.0.3", callback(results));
+        assertEquals(NONE, results.poll());
+        resolver = null;
+    }
+
+    private String resolve(String ip) {
+        BlockingQueue<String> results = new ArrayBlockingQueue<>(1);
+        resolver.reverseDns(ip, callback(results));
+        assertEquals(1, results.size());
+        return results.poll();
+    }
+
+    private CachingHostnameResolver.Callback callback(final BlockingQueue<String> results) {
+        return new CachingHostnameResolver.Callback() {
+            @Override
+            public void resolved(String hostname) {
+                results.add(hostname != null ? hostname : NONE);
+            }
+        };
+    }
+
+    /**
+     * A local resolver answering from a map, once released if blocking.
+     */
+    private static class StubResolver implements HostnameResolver {
+        private final Map<String, String> names = new HashMap<>();
+        private final AtomicInteger lookups = new AtomicInteger();
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile boolean blocking = false;
+
+        @Override
+        public String reverseDns(String ip) throws IOException {
+            lookups.incrementAndGet();
+            if (blocking) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            String name = names.get(ip);
+            if (name == null) {
+                throw new IOException("Unresolvable address " + ip);
+            }
+            return name;
+        }
+    }
+}
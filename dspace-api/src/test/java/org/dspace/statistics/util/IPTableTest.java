@@ -0,0 +1,117 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+public class IPTableTest {
+
+    @Test
+    public void testSingleAddressAndSubnet() throws Exception {
+        IPTable table = new IPTable();
+        table.add("192.168.2.1");
+        table.add("10.1.2");
+
+        assertTrue(table.contains("192.168.2.1"));
+        assertFalse(table.contains("192.168.2.2"));
+        assertTrue(table.contains("10.1.2.0"));
+        assertTrue(table.contains("10.1.2.255"));
+        assertFalse(table.contains("10.1.3.0"));
+    }
+
+    @Test
+    public void testRangeAcrossSubnets() throws Exception {
+        IPTable table = new IPTable();
+        table.add("10.0.0.200 - 10.0.1.10");
+
+        assertFalse(table.contains("10.0.0.199"));
+        assertTrue(table.contains("10.0.0.255"));
+        assertTrue(table.contains("10.0.1.10"));
+        assertFalse(table.contains("10.0.1.11"));
+    }
+
+    @Test
+    public void testCidr() throws Exception {
+        IPTable table = new IPTable();
+        table.add("66.249.64.0/19");
+
+        assertFalse(table.contains("66.249.63.255"));
+        assertTrue(table.contains("66.249.64.0"));
+        assertTrue(table.contains("66.249.95.255"));
+        assertFalse(table.contains("66.249.96.0"));
+    }
+
+    @Test
+    public void testHighAddresses() throws Exception {
+        IPTable table = new IPTable();
+        table.add("255.255.255.0/24");
+
+        assertTrue(table.contains("255.255.255.255"));
+        assertFalse(table.contains("1.2.3.4"));
+    }
+
+    @Test
+    public void testIPv6() throws Exception {
+        IPTable table = new IPTable();
+        table.add("2001:db8::/32");
+        table.add("2a03:2880::1");
+        table.add("fe80::1 - fe80::ff");
+
+        assertTrue(table.contains("2001:db8:ffff:ffff:ffff:ffff:ffff:ffff"));
+        assertFalse(table.contains("2001:db9::"));
+        assertTrue(table.contains("2a03:2880:0:0:0:0:0:1"));
+        assertFalse(table.contains("2a03:2880::2"));
+        assertTrue(table.contains("fe80::80"));
+        assertFalse(table.contains("fe80::100"));
+        assertFalse("IPv6 ranges should not match IPv4 addresses", table.contains("0.0.0.1"));
+    }
+
+    @Test
+    public void testOverlappingRangesMerged() throws Exception {
+        IPTable table = new IPTable();
+        table.add("10.0.0.0/24");
+        table.add("10.0.0.128 - 10.0.1.5");
+        table.add("10.0.0.7");
+
+        assertTrue(table.contains("10.0.1.5"));
+        assertFalse(table.contains("10.0.1.6"));
+        assertEquals(new HashSet<>(Arrays.asList("10.0.0.", "10.0.1.0", "10.0.1.1", "10.0.1.2", "10.0.1.3",
+                                                 "10.0.1.4", "10.0.1.5")), table.toSet());
+    }
+
+    @Test
+    public void testToSetUsesLargestPrefixes() throws Exception {
+        IPTable table = new IPTable();
+        table.add("172.16.0.0/12");
+        table.add("192.168.2.1");
+        table.add("2a03:2880::1");
+
+        assertTrue(table.toSet().contains("192.168.2.1"));
+        assertTrue(table.toSet().contains("172.16."));
+        assertTrue(table.toSet().contains("172.31."));
+        assertTrue(table.toSet().contains("2a03:2880::1"));
+        assertEquals(18, table.toSet().size());
+    }
+
+    @Test(expected = IPTable.IPFormatException.class)
+    public void testInvalidAddress() throws Exception {
+        new IPTable().add("10.0");
+    }
+
+    @Test(expected = IPTable.IPFormatException.class)
+    public void testHostNameNotResolved() throws Exception {
+        new IPTable().contains("localhost");
+    }
+}
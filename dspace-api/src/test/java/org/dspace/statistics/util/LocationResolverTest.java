@@ -0,0 +1,101 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.maxmind.geoip.Location;
+import com.maxmind.geoip2.model.CityResponse;
+import com.maxmind.geoip2.record.City;
+import com.maxmind.geoip2.record.Country;
+import com.maxmind.geoip2.record.Postal;
+import com.maxmind.geoip2.record.Subdivision;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LocationResolverTest {
+
+    private static final List<String> LOCALES = Collections.singletonList("en");
+
+    @Mock
+    private LocationResolver resolver;
+
+    @Test
+    public void testCachedLocation() {
+        Location location = new Location();
+        when(resolver.getLocation("192.0.2.1")).thenReturn(location);
+        CachingLocationResolver cached = new CachingLocationResolver(resolver, 10);
+
+        assertSame(location, cached.getLocation("192.0.2.1"));
+        assertSame(location, cached.getLocation("192.0.2.1"));
+
+        verify(resolver, times(1)).getLocation("192.0.2.1");
+    }
+
+    @Test
+    public void testUnknownLocationCached() {
+        CachingLocationResolver cached = new CachingLocationResolver(resolver, 10);
+
+        assertNull(cached.getLocation("2001:db8::1"));
+        assertNull(cached.getLocation("2001:db8::1"));
+
+        verify(resolver, times(1)).getLocation("2001:db8::1");
+        assertEquals(1, cached.size());
+    }
+
+    @Test
+    public void testCacheSizeBounded() {
+        CachingLocationResolver cached = new CachingLocationResolver(resolver, 2);
+        for (int i = 0; i < 10; i++) {
+            cached.getLocation("192.0.2." + i);
+        }
+
+        assertEquals(2, cached.size());
+    }
+
+    @Test
+    public void testGeoIp2CityResponse() {
+        ArrayList<Subdivision> subdivisions = new ArrayList<>();
+        subdivisions.add(new Subdivision(LOCALES, null, null, "NY", Collections.singletonMap("en", "New York")));
+        CityResponse response = new CityResponse(
+            new City(LOCALES, null, null, Collections.singletonMap("en", "New York")), null,
+            new Country(LOCALES, null, null, "US", Collections.singletonMap("en", "United States")),
+            new com.maxmind.geoip2.record.Location(null, null, 40.7605, -73.9933, 501, null, null), null,
+            new Postal("10036", null), null, null, subdivisions, null);
+
+        Location location = GeoIp2LocationResolver.toLocation(response);
+
+        assertEquals("US", location.countryCode);
+        assertEquals("United States", location.countryName);
+        assertEquals("New York", location.city);
+        assertEquals("NY", location.region);
+        assertEquals("10036", location.postalCode);
+        assertEquals(40.7605, location.latitude, 0.0001);
+        assertEquals(-73.9933, location.longitude, 0.0001);
+        assertEquals(501, location.metro_code);
+    }
+
+    @Test
+    public void testGeoIp2UnknownCountry() {
+        CityResponse response = new CityResponse(null, null, null, null, null, null, null, null, null, null);
+
+        assertNull(GeoIp2LocationResolver.toLocation(response));
+    }
+}
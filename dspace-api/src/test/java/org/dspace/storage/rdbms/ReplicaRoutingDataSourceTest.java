@@ -0,0 +1,138 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.storage.rdbms;
+
+import static org.junit.Assert.assertEquals;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import javax.sql.DataSource;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Routing between two embedded databases, standing for the primary database and a replica.
+ */
+public class ReplicaRoutingDataSourceTest {
+
+    private static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1";
+    private static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+
+    private BasicDataSource primary;
+    private BasicDataSource replica;
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @Before
+    public void setUp() throws SQLException {
+        for (String url : Arrays.asList(PRIMARY_URL, REPLICA_URL)) {
+            execute(url, "CREATE TABLE database_name (name VARCHAR(10))");
+            execute(url, "CREATE TABLE replication_lag (lag DOUBLE)");
+            execute(url, "INSERT INTO replication_lag VALUES (0)");
+        }
+        execute(PRIMARY_URL, "INSERT INTO database_name VALUES ('primary')");
+        execute(REPLICA_URL, "INSERT INTO database_name VALUES ('replica')");
+
+        primary = dataSource(PRIMARY_URL);
+        replica = dataSource(REPLICA_URL);
+        replica.setDefaultReadOnly(true);
+
+        routingDataSource = new ReplicaRoutingDataSource();
+        routingDataSource.setPrimary(primary);
+        routingDataSource.setReplicas(Collections.<DataSource>singletonList(replica));
+        routingDataSource.setLagQuery("SELECT lag FROM replication_lag");
+        routingDataSource.setMaxLag(30);
+        routingDataSource.setLagCheckInterval(0);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        ReplicaRoutingDataSource.setReadOnly(false);
+        primary.close();
+        replica.close();
+        execute(PRIMARY_URL, "DROP ALL OBJECTS");
+        execute(REPLICA_URL, "DROP ALL OBJECTS");
+    }
+
+    @Test
+    public void testReadOnlyTransactionsUseReplica() throws SQLException {
+        assertEquals("primary", getDatabaseName());
+
+        ReplicaRoutingDataSource.setReadOnly(true);
+        assertEquals("replica", getDatabaseName());
+
+        ReplicaRoutingDataSource.setReadOnly(false);
+        assertEquals("primary", getDatabaseName());
+    }
+
+    @Test
+    public void testLaggingReplicaIsNotUsed() throws SQLException {
+        ReplicaRoutingDataSource.setReadOnly(true);
+        execute(REPLICA_URL, "UPDATE replication_lag SET lag = 60");
+        assertEquals("primary", getDatabaseName());
+
+        execute(REPLICA_URL, "UPDATE replication_lag SET lag = 1.5");
+        assertEquals("replica", getDatabaseName());
+    }
+
+    @Test
+    public void testLagIsCheckedAtInterval() throws SQLException {
+        routingDataSource.setLagCheckInterval(60000);
+        ReplicaRoutingDataSource.setReadOnly(true);
+        assertEquals("replica", getDatabaseName());
+
+        // the lag is trusted until the next check
+        execute(REPLICA_URL, "UPDATE replication_lag SET lag = 60");
+        assertEquals("replica", getDatabaseName());
+    }
+
+    @Test
+    public void testUnreachableReplicaIsNotUsed() throws SQLException {
+        BasicDataSource unreachable = dataSource("jdbc:unknown:replica");
+        routingDataSource.setReplicas(Arrays.<DataSource>asList(unreachable, replica));
+        ReplicaRoutingDataSource.setReadOnly(true);
+        for (int i = 0; i < 3; i++) {
+            assertEquals("replica", getDatabaseName());
+        }
+
+        routingDataSource.setReplicas(Collections.<DataSource>singletonList(unreachable));
+        assertEquals("primary", getDatabaseName());
+        unreachable.close();
+    }
+
+    private String getDatabaseName() throws SQLException {
+        try (Connection connection = routingDataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT name FROM database_name")) {
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+    }
+
+    private static BasicDataSource dataSource(String url) {
+        BasicDataSource dataSource = new BasicDataSource();
+        dataSource.setUrl(url);
+        dataSource.setUsername("sa");
+        dataSource.setPassword("");
+        return dataSource;
+    }
+
+    private static void execute(String url, String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+}
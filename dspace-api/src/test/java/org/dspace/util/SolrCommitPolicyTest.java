@@ -0,0 +1,105 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
+
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.request.AbstractUpdateRequest;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.UpdateParams;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SolrCommitPolicyTest {
+
+    @Mock
+    private SolrServer solr;
+
+    @Test
+    public void testImmediateHardCommit() throws Exception {
+        SolrCommitPolicy policy = new SolrCommitPolicy("test", SolrCommitPolicy.Mode.IMMEDIATE, 1000);
+        SolrInputDocument doc = new SolrInputDocument();
+
+        policy.add(solr, doc);
+        policy.commit(solr);
+
+        verify(solr).add(doc, -1);
+        verify(solr).commit(true, true, false);
+        assertEquals(1, policy.getCommitCount());
+    }
+
+    @Test
+    public void testSoftCommit() throws Exception {
+        SolrCommitPolicy policy = new SolrCommitPolicy("test", SolrCommitPolicy.Mode.SOFT, 1000);
+
+        policy.deleteByQuery(solr, "*:*");
+        policy.commit(solr);
+
+        verify(solr).deleteByQuery("*:*", -1);
+        verify(solr).commit(true, true, true);
+    }
+
+    @Test
+    public void testCommitWithinSendsNoCommits() throws Exception {
+        SolrCommitPolicy policy = new SolrCommitPolicy("test", SolrCommitPolicy.Mode.WITHIN, 5000);
+
+        policy.deleteById(solr, "1-2");
+        policy.commit(solr);
+
+        verify(solr).deleteById("1-2", 5000);
+        verify(solr, never()).commit(anyBoolean(), anyBoolean(), anyBoolean());
+        assertEquals(0, policy.getCommitCount());
+    }
+
+    @Test
+    public void testCounters() throws Exception {
+        SolrCommitPolicy policy = new SolrCommitPolicy("test", SolrCommitPolicy.Mode.SOFT, 1000);
+
+        policy.add(solr, new SolrInputDocument());
+        policy.add(solr, Arrays.asList(new SolrInputDocument(), new SolrInputDocument()));
+        policy.deleteById(solr, Arrays.asList("1-2", "1-3"));
+        policy.commit(solr);
+        policy.commit(solr);
+
+        assertEquals(3, policy.getUpdateCount());
+        assertEquals(3, policy.getDocumentCount());
+        assertEquals(2, policy.getCommitCount());
+        assertTrue(policy.getCommitTime() >= 0);
+    }
+
+    @Test
+    public void testVisibleOnCommit() {
+        assertTrue(new SolrCommitPolicy("test", SolrCommitPolicy.Mode.IMMEDIATE, 1000).isVisibleOnCommit());
+        assertTrue(new SolrCommitPolicy("test", SolrCommitPolicy.Mode.SOFT, 1000).isVisibleOnCommit());
+        assertFalse(new SolrCommitPolicy("test", SolrCommitPolicy.Mode.WITHIN, 1000).isVisibleOnCommit());
+    }
+
+    @Test
+    public void testPrepareRequest() {
+        UpdateRequest within = new UpdateRequest();
+        new SolrCommitPolicy("test", SolrCommitPolicy.Mode.WITHIN, 5000).prepare(within);
+        assertEquals(5000, within.getCommitWithin());
+
+        UpdateRequest soft = new UpdateRequest();
+        new SolrCommitPolicy("test", SolrCommitPolicy.Mode.SOFT, 5000).prepare(soft);
+        assertEquals(AbstractUpdateRequest.ACTION.COMMIT, soft.getAction());
+        assertTrue(soft.getParams().getBool(UpdateParams.SOFT_COMMIT, false));
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrInputDocument;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SolrExportWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        File file = folder.newFile("statistics_export_2018-01.csv.gz");
+        SolrDocument doc = new SolrDocument();
+        doc.addField("uid", "1");
+        doc.addField("time", new Date(1514808000123L));
+        doc.addField("referrer", "http://example.org/?q=\"a,b\"\nc");
+        doc.addField("owningColl", "a,b");
+        doc.addField("owningColl", "c\\d");
+        doc.addField("_version_", 1L);
+        SolrDocument empty = new SolrDocument();
+        empty.addField("uid", "2");
+
+        try (SolrExportWriter writer = new SolrExportWriter(file, Arrays.asList("owningColl", "referrer", "time",
+                                                                                "uid"))) {
+            writer.write(doc);
+            writer.write(empty);
+            assertEquals(2, writer.getCount());
+        }
+
+        try (SolrExportReader reader = new SolrExportReader(file, Collections.singleton("owningColl"))) {
+            SolrInputDocument read = reader.next();
+            assertEquals("1", read.getFieldValue("uid"));
+            assertEquals("2018-01-01T12:00:00.123Z", read.getFieldValue("time"));
+            assertEquals("http://example.org/?q=\"a,b\"\nc", read.getFieldValue("referrer"));
+            assertEquals(Arrays.asList("a,b", "c\\d"), read.getFieldValues("owningColl"));
+            assertNull(read.getField("_version_"));
+
+            read = reader.next();
+            assertEquals(Collections.singleton("uid"), read.getFieldNames());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void testCompressedByName() throws Exception {
+        File file = folder.newFile("statistics_export_2018-01.csv.gz");
+        SolrDocument doc = new SolrDocument();
+        doc.addField("uid", "1");
+        try (SolrExportWriter writer = new SolrExportWriter(file, Collections.singletonList("uid"))) {
+            writer.write(doc);
+        }
+
+        try (GZIPInputStream in = new GZIPInputStream(new FileInputStream(file))) {
+            assertEquals("\"uid\"\n\"1\"\n", IOUtils.toString(in, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testReadsSolrExport() throws Exception {
+        // as written by the Solr CSV response writer in earlier exports
+        File file = folder.newFile("statistics_export_2018-01.csv");
+        Files.write(file.toPath(), Arrays.asList("uid,time,owningComm,_version_",
+                                                 "1,2018-01-01T12:00:00Z,\"a,b\",12345"),
+                    StandardCharsets.UTF_8);
+
+        try (SolrExportReader reader = new SolrExportReader(file, Collections.singleton("owningComm"))) {
+            SolrInputDocument read = reader.next();
+            assertEquals("2018-01-01T12:00:00Z", read.getFieldValue("time"));
+            assertEquals(Arrays.asList("a", "b"), read.getFieldValues("owningComm"));
+            assertNull(read.getField("_version_"));
+            assertNull(reader.next());
+        }
+    }
+}
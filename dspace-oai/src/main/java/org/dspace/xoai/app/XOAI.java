@@ -52,6 +52,7 @@ import org.dspace.content.service.ItemService;
 import org.dspace.core.ConfigurationManager;
 import org.dspace.core.Constants;
 import org.dspace.core.Context;
+import org.dspace.util.SolrCommitPolicy;
 import org.dspace.xoai.exceptions.CompilingException;
 import org.dspace.xoai.services.api.CollectionsService;
 import org.dspace.xoai.services.api.cache.XOAICacheService;
@@ -89,6 +90,10 @@ public class XOAI {
     private final AuthorizeService authorizeService;
     private final ItemService itemService;
 
+    private SolrCommitPolicy getCommitPolicy() {
+        return SolrCommitPolicy.getInstance("oai");
+    }
+
 
     private List<String> getFileFormats(Item item) {
         List<String> formats = new ArrayList<>();
@@ -152,7 +157,7 @@ public class XOAI {
                 }
 
             }
-            solrServerResolver.getServer().commit();
+            getCommitPolicy().commit(solrServerResolver.getServer());
 
 
             if (optimize) {
@@ -205,7 +210,7 @@ public class XOAI {
             while (iterator.hasNext()) {
                 try {
                     Item item = iterator.next();
-                    server.add(this.index(item));
+                    getCommitPolicy().add(server, this.index(item));
 
                     //Uncache the item to keep memory consumption low
                     context.uncacheEntity(item);
@@ -220,7 +225,7 @@ public class XOAI {
                 }
             }
             System.out.println("Total: " + i + " items");
-            server.commit();
+            getCommitPolicy().commit(server);
             return i;
         } catch (SolrServerException | IOException ex) {
             throw new DSpaceSolrIndexerException(ex.getMessage(), ex);
@@ -321,8 +326,8 @@ public class XOAI {
     private void clearIndex() throws DSpaceSolrIndexerException {
         try {
             System.out.println("Clearing index");
-            solrServerResolver.getServer().deleteByQuery("*:*");
-            solrServerResolver.getServer().commit();
+            getCommitPolicy().deleteByQuery(solrServerResolver.getServer(), "*:*");
+            getCommitPolicy().commit(solrServerResolver.getServer());
             System.out.println("Index cleared");
         } catch (SolrServerException | IOException ex) {
             throw new DSpaceSolrIndexerException(ex.getMessage(), ex);
@@ -421,6 +426,7 @@ public class XOAI {
                     cleanCache(itemCacheService, cacheService);
                 }
 
+                SolrCommitPolicy.logSummary();
                 System.out.println("OAI 2.0 manager action ended. It took "
                                        + ((System.currentTimeMillis() - start) / 1000)
                                        + " seconds.");
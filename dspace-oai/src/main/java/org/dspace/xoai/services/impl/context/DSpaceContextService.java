@@ -24,7 +24,8 @@ public class DSpaceContextService implements ContextService {
             .getRequest();
         Object value = request.getAttribute(OAI_CONTEXT);
         if (value == null || !(value instanceof Context)) {
-            request.setAttribute(OAI_CONTEXT, new Context());
+            // OAI-PMH only reads, which lets it use the database replicas
+            request.setAttribute(OAI_CONTEXT, new Context(Context.Mode.READ_ONLY));
         }
         return (Context) request.getAttribute(OAI_CONTEXT);
     }
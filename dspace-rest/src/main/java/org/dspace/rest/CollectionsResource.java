@@ -273,20 +273,31 @@ public class CollectionsResource extends Resource {
             writeStats(dspaceCollection, UsageEvent.Action.VIEW, user_ip, user_agent, xforwardedfor,
                        headers, request, context);
 
-            items = new ArrayList<Item>();
+            List<org.dspace.content.Item> listedItems = new ArrayList<org.dspace.content.Item>();
             Iterator<org.dspace.content.Item> dspaceItems = itemService.findByCollection(context, dspaceCollection);
             for (int i = 0; (dspaceItems.hasNext()) && (i < (limit + offset)); i++) {
                 org.dspace.content.Item dspaceItem = dspaceItems.next();
 
                 if (i >= offset) {
                     if (itemService.isItemListedForUser(context, dspaceItem)) {
-                        items.add(new Item(dspaceItem, servletContext, expand, context));
-                        writeStats(dspaceItem, UsageEvent.Action.VIEW, user_ip, user_agent, xforwardedfor,
-                                   headers, request, context);
+                        listedItems.add(dspaceItem);
                     }
                 }
             }
 
+            // Load what the items show for the whole page at once rather than item by item
+            itemService.prefetchMetadata(context, listedItems, true);
+            if (expand != null && (expand.contains("bitstreams") || expand.contains("all"))) {
+                itemService.prefetchBundles(context, listedItems);
+            }
+
+            items = new ArrayList<Item>();
+            for (org.dspace.content.Item dspaceItem : listedItems) {
+                items.add(new Item(dspaceItem, servletContext, expand, context));
+                writeStats(dspaceItem, UsageEvent.Action.VIEW, user_ip, user_agent, xforwardedfor,
+                           headers, request, context);
+            }
+
             context.complete();
         } catch (SQLException e) {
             processException("Could not read collection items, SQLException. Message: " + e, context);
@@ -0,0 +1,57 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.rest;
+
+import java.io.IOException;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.ext.Provider;
+
+import org.dspace.core.DBConnection;
+import org.dspace.core.DBStatistics;
+import org.dspace.services.factory.DSpaceServicesFactory;
+import org.dspace.utils.DSpace;
+
+/**
+ * When <code>db.statistics.headers</code> is enabled, add the database statistics of the
+ * request to the response, in the X-DSpace-DB-Statistics header. This is meant for debugging
+ * which requests use the database the most.
+ *
+ * The resources create and complete their own contexts, so the statistics are those of the
+ * thread serving the request, between the start of the request and the response.
+ */
+@Provider
+public class DBStatisticsFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    public static final String HEADER = "X-DSpace-DB-Statistics";
+
+    private static final String STATISTICS_START = DBStatisticsFilter.class.getName() + ".start";
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) throws IOException {
+        if (DSpaceServicesFactory.getInstance().getConfigurationService()
+                                 .getBooleanProperty("db.statistics.headers", false)) {
+            requestContext.setProperty(STATISTICS_START, getDBConnection().getStatistics());
+        }
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext)
+        throws IOException {
+        DBStatistics start = (DBStatistics) requestContext.getProperty(STATISTICS_START);
+        if (start != null) {
+            responseContext.getHeaders().add(HEADER, getDBConnection().getStatistics().since(start).toString());
+        }
+    }
+
+    private DBConnection getDBConnection() {
+        return new DSpace().getServiceManager().getServiceByName(null, DBConnection.class);
+    }
+}
@@ -129,6 +129,7 @@ public class DiscoveryRestController implements InitializingBean {
                                                   @RequestParam(name = "scope", required = false) String dsoScope,
                                                   @RequestParam(name = "configuration", required = false) String
                                                       configurationName,
+                                                  @RequestParam(name = "cursor", required = false) String cursor,
                                                   List<SearchFilter> searchFilters,
                                                   Pageable page) throws Exception {
         if (log.isTraceEnabled()) {
@@ -137,12 +138,13 @@ public class DiscoveryRestController implements InitializingBean {
                           + ", dsoType: " + StringUtils.trimToEmpty(dsoType)
                           + ", query: " + StringUtils.trimToEmpty(dsoType)
                           + ", filters: " + Objects.toString(searchFilters)
-                          + ", page: " + Objects.toString(page));
+                          + ", page: " + Objects.toString(page)
+                          + ", cursor: " + StringUtils.trimToEmpty(cursor));
         }
 
         //Get the Search results in JSON format
         SearchResultsRest searchResultsRest = discoveryRestRepository
-            .getSearchObjects(query, dsoType, dsoScope, configurationName, searchFilters, page);
+            .getSearchObjects(query, dsoType, dsoScope, configurationName, cursor, searchFilters, page);
 
         //Convert the Search JSON results to paginated HAL resources
         SearchResultsResource searchResultsResource = new SearchResultsResource(searchResultsRest, utils);
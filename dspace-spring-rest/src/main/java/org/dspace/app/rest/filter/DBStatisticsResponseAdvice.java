@@ -0,0 +1,56 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.app.rest.filter;
+
+import org.dspace.app.rest.utils.ContextUtil;
+import org.dspace.core.Context;
+import org.dspace.services.ConfigurationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * When <code>db.statistics.headers</code> is enabled, add the database statistics of the
+ * DSpace context of the request to the response, in the X-DSpace-DB-Statistics header.
+ * This is meant for debugging which requests use the database the most.
+ *
+ * @see org.dspace.core.DBStatistics
+ */
+@ControllerAdvice
+public class DBStatisticsResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    public static final String HEADER = "X-DSpace-DB-Statistics";
+
+    @Autowired
+    private ConfigurationService configurationService;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return configurationService.getBooleanProperty("db.statistics.headers", false);
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (request instanceof ServletServerHttpRequest) {
+            Context context = (Context) ((ServletServerHttpRequest) request).getServletRequest()
+                                                                            .getAttribute(ContextUtil.DSPACE_CONTEXT);
+            if (context != null) {
+                response.getHeaders().add(HEADER, context.getStatistics().toString());
+            }
+        }
+        return body;
+    }
+}
@@ -23,7 +23,7 @@ public abstract class DiscoveryRestHalLinkFactory<T> extends HalLinkFactory<T, D
         UriComponentsBuilder uriBuilder = uriBuilder(getMethodOn()
                                                          .getSearchObjects(data.getQuery(), data.getDsoType(),
                                                                            data.getScope(), data.getConfigurationName(),
-                                                                           null, null));
+                                                                           null, null, null));
 
         return addFilterParams(uriBuilder, data);
     }
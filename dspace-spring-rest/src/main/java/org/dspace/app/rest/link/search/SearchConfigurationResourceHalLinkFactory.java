@@ -35,7 +35,7 @@ public class SearchConfigurationResourceHalLinkFactory
             list.add(buildLink(Link.REL_SELF, getMethodOn()
                 .getSearchConfiguration(data.getScope(), data.getConfigurationName())));
 
-            list.add(buildLink("objects", getMethodOn().getSearchObjects(null, null, null, null, null, null)));
+            list.add(buildLink("objects", getMethodOn().getSearchObjects(null, null, null, null, null, null, null)));
             list.add(buildLink("facets", getMethodOn().getFacets(null, null, null, null, null)));
         }
     }
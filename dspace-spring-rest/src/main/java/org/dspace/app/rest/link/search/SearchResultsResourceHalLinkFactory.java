@@ -17,6 +17,7 @@ import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.hateoas.Link;
 import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriComponentsBuilder;
 
 /**
  * This class will add links to the SearchResultsResource. This method will be called when calling the higher up
@@ -36,6 +37,16 @@ public class SearchResultsResourceHalLinkFactory extends DiscoveryRestHalLinkFac
 
             halResource.setPageHeader(new EmbeddedPageHeader(buildSearchBaseLink(data), page));
         }
+
+        if (data != null && data.getNextCursor() != null && !halResource.getEntryResources().isEmpty()) {
+            // Paging with a cursor: the next page is only reachable through its continuation token
+            UriComponentsBuilder nextLink = addSortingParms(buildSearchBaseLink(data), data);
+            if (pageable != null) {
+                nextLink.queryParam("size", pageable.getPageSize());
+            }
+            list.add(buildLink("nextCursor", nextLink.queryParam("cursor", data.getNextCursor()).build()
+                                                     .toUriString()));
+        }
     }
 
     @Override
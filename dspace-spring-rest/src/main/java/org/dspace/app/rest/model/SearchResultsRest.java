@@ -11,6 +11,7 @@ import java.util.LinkedList;
 import java.util.List;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 
@@ -28,6 +29,9 @@ public class SearchResultsRest extends DiscoveryResultsRest {
     @JsonIgnore
     List<SearchFacetEntryRest> facets;
 
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
+
 
     public List<SearchResultEntryRest> getSearchResults() {
         return searchResults;
@@ -46,6 +50,18 @@ public class SearchResultsRest extends DiscoveryResultsRest {
     }
 
 
+    /**
+     * The continuation token of the next page when paging with a cursor, null otherwise.
+     * It is the same as the requested cursor once all results have been returned.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
     public long getTotalNumberOfResults() {
         return totalNumberOfResults;
     }
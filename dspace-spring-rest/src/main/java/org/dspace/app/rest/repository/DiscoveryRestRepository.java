@@ -7,6 +7,8 @@
  */
 package org.dspace.app.rest.repository;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
 
 import org.apache.log4j.Logger;
@@ -16,6 +18,7 @@ import org.dspace.app.rest.converter.DiscoverFacetResultsConverter;
 import org.dspace.app.rest.converter.DiscoverFacetsConverter;
 import org.dspace.app.rest.converter.DiscoverResultConverter;
 import org.dspace.app.rest.converter.DiscoverSearchSupportConverter;
+import org.dspace.app.rest.exception.InvalidCursorException;
 import org.dspace.app.rest.exception.InvalidRequestException;
 import org.dspace.app.rest.model.FacetConfigurationRest;
 import org.dspace.app.rest.model.FacetResultsRest;
@@ -29,6 +32,7 @@ import org.dspace.content.DSpaceObject;
 import org.dspace.core.Context;
 import org.dspace.discovery.DiscoverQuery;
 import org.dspace.discovery.DiscoverResult;
+import org.dspace.discovery.InvalidCursorMarkException;
 import org.dspace.discovery.SearchService;
 import org.dspace.discovery.SearchServiceException;
 import org.dspace.discovery.configuration.DiscoveryConfiguration;
@@ -92,6 +96,18 @@ public class DiscoveryRestRepository extends AbstractDSpaceRestRepository {
                                               final String configurationName,
                                               final List<SearchFilter> searchFilters, final Pageable page)
         throws InvalidRequestException {
+        return getSearchObjects(query, dsoType, dsoScope, configurationName, null, searchFilters, page);
+    }
+
+    /**
+     * Search for objects, paging with a continuation token instead of the page number when a cursor is given.
+     * Pass "*" to get the first page; the response holds the token of the next page. The token wraps a Solr
+     * cursor mark, so every page costs the same however deep it is.
+     */
+    public SearchResultsRest getSearchObjects(final String query, final String dsoType, final String dsoScope,
+                                              final String configurationName, final String cursor,
+                                              final List<SearchFilter> searchFilters, final Pageable page)
+        throws InvalidRequestException {
         Context context = obtainContext();
 
         DSpaceObject scopeObject = scopeResolver.resolveScope(context, dsoScope);
@@ -104,15 +120,42 @@ public class DiscoveryRestRepository extends AbstractDSpaceRestRepository {
         try {
             discoverQuery = queryBuilder
                 .buildQuery(context, scopeObject, configuration, query, searchFilters, dsoType, page);
+            if (cursor != null) {
+                discoverQuery.setCursorMark(decodeCursor(cursor));
+            }
             searchResult = searchService.search(context, scopeObject, discoverQuery);
 
+        } catch (InvalidCursorMarkException e) {
+            throw new InvalidCursorException("Invalid cursor " + cursor, e);
         } catch (SearchServiceException e) {
             log.error("Error while searching with Discovery", e);
         }
 
-        return discoverResultConverter
+        SearchResultsRest searchResultsRest = discoverResultConverter
             .convert(context, query, dsoType, configurationName, dsoScope, searchFilters, page, searchResult,
                      configuration);
+        if (cursor != null && searchResult != null) {
+            searchResultsRest.setNextCursor(encodeCursor(searchResult.getNextCursorMark()));
+        }
+        return searchResultsRest;
+    }
+
+    private String encodeCursor(final String cursorMark) {
+        if (cursorMark == null) {
+            return null;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursorMark.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String decodeCursor(final String cursor) throws InvalidRequestException {
+        if (DiscoverQuery.CURSOR_MARK_START.equals(cursor)) {
+            return cursor;
+        }
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid cursor " + cursor, e);
+        }
     }
 
     public FacetConfigurationRest getFacetsConfiguration(final String dsoScope, final String configurationName) {
@@ -71,6 +71,9 @@ public class ItemRestRepository extends DSpaceRestRepository<ItemRest, UUID> {
                 Item i = it.next();
                 items.add(i);
             }
+            // the converter reads the metadata, handle and bitstreams of every item of the page
+            is.prefetchMetadata(context, items, true);
+            is.prefetchBundles(context, items);
         } catch (SQLException e) {
             throw new RuntimeException(e.getMessage(), e);
         }